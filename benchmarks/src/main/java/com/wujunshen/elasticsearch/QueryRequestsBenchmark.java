@@ -0,0 +1,71 @@
+package com.wujunshen.elasticsearch;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.wujunshen.elasticsearch.benchmark.Fixtures;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * QueryApi构建SearchRequest的开销，包括构建请求对象和序列化为请求体
+ * <p>
+ * QueryRequests是包内可见的，所以该基准测试放在与QueryApi相同的包下
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 01:40<br>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryRequestsBenchmark {
+    private JsonpMapper mapper;
+
+    private List<Query> queries;
+
+    @Setup
+    public void setUp() {
+        mapper = new JacksonJsonpMapper();
+        queries = List.of(
+                Query.of(q -> q.match(m -> m.field("productName").query("bike"))),
+                Query.of(q -> q.term(t -> t.field("brandCode").value("B-1"))),
+                Query.of(q -> q.range(r -> r.field("skus.skuPrice").from("10").to("200"))));
+    }
+
+    @Benchmark
+    public SearchRequest buildMatchQuery() {
+        return QueryRequests.matchQuery("products", "bike", "productName", "id", 0, 20, true).toSearchRequest();
+    }
+
+    @Benchmark
+    public SearchRequest buildBoolQuery() {
+        return QueryRequests.boolQuery("products", queries, "id", 0, 20, true).toSearchRequest();
+    }
+
+    @Benchmark
+    public byte[] buildAndSerializeMatchQuery() {
+        return Fixtures.toJson(mapper,
+                QueryRequests.matchQuery("products", "bike", "productName", "id", 0, 20, true).toSearchRequest());
+    }
+
+    @Benchmark
+    public byte[] buildAndSerializeBoolQuery() {
+        return Fixtures.toJson(mapper,
+                QueryRequests.boolQuery("products", queries, "id", 0, 20, true).toSearchRequest());
+    }
+}
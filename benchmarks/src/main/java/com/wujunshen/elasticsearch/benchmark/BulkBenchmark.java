@@ -0,0 +1,115 @@
+package com.wujunshen.elasticsearch.benchmark;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.JsonpSerializable;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.wujunshen.elasticsearch.bulk.BulkIngester;
+import com.wujunshen.elasticsearch.bulk.BulkResult;
+import com.wujunshen.elasticsearch.bulk.BulkRetryPolicy;
+import com.wujunshen.entity.product.Spu;
+import jakarta.json.stream.JsonGenerator;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * batchAddDocument构建bulk请求体的开销，以及经过BulkIngester和桩服务的完整写入开销
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 01:40<br>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkBenchmark {
+    @Param({"100", "1000"})
+    private int documents;
+
+    private JsonpMapper mapper;
+
+    private List<Spu> spus;
+
+    private StubElasticsearchServer server;
+
+    private ElasticsearchClient client;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = new JacksonJsonpMapper();
+        spus = Fixtures.spus(documents, 3);
+
+        server = new StubElasticsearchServer(new byte[0]);
+        client = server.newClient(mapper);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    /**
+     * 按RestClientTransport的方式把bulk请求序列化为ndjson
+     */
+    @Benchmark
+    public byte[] buildBulkBody() {
+        List<BulkOperation> operations = new ArrayList<>(spus.size());
+        for (Spu spu : spus) {
+            operations.add(BulkOperation.of(b -> b.index(i -> i.index("products").id(String.valueOf(spu.getId()))
+                    .document(spu))));
+        }
+        BulkRequest request = BulkRequest.of(b -> b.operations(operations));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Iterator<?> serializables = request._serializables();
+        while (serializables.hasNext()) {
+            Object serializable = serializables.next();
+            JsonGenerator generator = mapper.jsonProvider().createGenerator(out);
+            if (serializable instanceof JsonpSerializable jsonpSerializable) {
+                jsonpSerializable.serialize(generator, mapper);
+            } else {
+                mapper.serialize(serializable, generator);
+            }
+            generator.close();
+            out.write('\n');
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 与DocumentApi.batchAddDocument相同的写入路径
+     */
+    @Benchmark
+    public BulkResult batchAddDocument() {
+        BulkIngester bulkIngester = new BulkIngester(client, 1000, 5 * 1024 * 1024L, 0, 0, BulkRetryPolicy.noRetry());
+        try {
+            for (Spu spu : spus) {
+                bulkIngester.add("products", String.valueOf(spu.getId()), spu);
+            }
+        } finally {
+            bulkIngester.close();
+        }
+        return bulkIngester.getResult();
+    }
+}
@@ -0,0 +1,70 @@
+package com.wujunshen.elasticsearch.benchmark;
+
+import co.elastic.clients.json.JsonpMapper;
+import com.wujunshen.entity.product.Sku;
+import com.wujunshen.entity.product.Spu;
+import jakarta.json.stream.JsonParser;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JacksonJsonpMapper和CachingJacksonJsonpMapper序列化和反序列化Spu/Sku文档的开销
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 01:40<br>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentSerializationBenchmark {
+    @Param({"jackson", "caching"})
+    private String mapperType;
+
+    private JsonpMapper mapper;
+
+    private Sku sku;
+
+    private Spu spu;
+
+    private byte[] spuJson;
+
+    @Setup
+    public void setUp() {
+        mapper = Fixtures.mapper(mapperType);
+        sku = Fixtures.sku(1);
+        spu = Fixtures.spu(1, 10);
+        spuJson = Fixtures.toJson(mapper, spu);
+    }
+
+    @Benchmark
+    public byte[] serializeSku() {
+        return Fixtures.toJson(mapper, sku);
+    }
+
+    @Benchmark
+    public byte[] serializeSpu() {
+        return Fixtures.toJson(mapper, spu);
+    }
+
+    @Benchmark
+    public Spu deserializeSpu() {
+        try (JsonParser parser = mapper.jsonProvider().createParser(new ByteArrayInputStream(spuJson))) {
+            return mapper.deserialize(parser, Spu.class);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.wujunshen.elasticsearch.benchmark;
+
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.JsonpSerializable;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.wujunshen.elasticsearch.json.CachingJacksonJsonpMapper;
+import com.wujunshen.entity.product.Sku;
+import com.wujunshen.entity.product.Spu;
+import jakarta.json.stream.JsonGenerator;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试数据，固定生成规则，保证每次运行的数据相同
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 01:40<br>
+ */
+public final class Fixtures {
+    private static final String[] COLORS = {"red", "green", "blue", "black", "white"};
+
+    private static final String[] SIZES = {"S", "M", "L", "XL"};
+
+    private Fixtures() {
+    }
+
+    /**
+     * @param type jackson为客户端自带的JacksonJsonpMapper，caching为CachingJacksonJsonpMapper
+     * @return JsonpMapper对象
+     */
+    public static JsonpMapper mapper(String type) {
+        return "caching".equals(type) ? new CachingJacksonJsonpMapper() : new JacksonJsonpMapper();
+    }
+
+    /**
+     * @param id 文档id
+     * @return Sku对象
+     */
+    public static Sku sku(long id) {
+        return Sku.builder()
+                .id(id)
+                .skuCode("SKU-" + id)
+                .skuName("City bike " + id)
+                .color(COLORS[(int) (id % COLORS.length)])
+                .size(SIZES[(int) (id % SIZES.length)])
+                .skuPrice((int) (id * 37 % 300))
+                .build();
+    }
+
+    /**
+     * @param id       文档id
+     * @param skuCount 包含的sku数
+     * @return Spu对象
+     */
+    public static Spu spu(long id, int skuCount) {
+        List<Sku> skus = new ArrayList<>(skuCount);
+        for (int i = 0; i < skuCount; i++) {
+            skus.add(sku(id * 100 + i));
+        }
+
+        return Spu.builder()
+                .id(id)
+                .productCode("P-" + id)
+                .productName("Bike product " + id)
+                .brandCode("B-" + id % 20)
+                .brandName("Brand " + id % 20)
+                .categoryCode("C-" + id % 5)
+                .categoryName("Category " + id % 5)
+                .imageTag("https://img.example.com/" + id + ".png")
+                .skus(skus)
+                .build();
+    }
+
+    /**
+     * @param count    文档数
+     * @param skuCount 每个文档包含的sku数
+     * @return Spu对象列表
+     */
+    public static List<Spu> spus(int count, int skuCount) {
+        List<Spu> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(spu(i, skuCount));
+        }
+        return result;
+    }
+
+    /**
+     * 生成包含指定文档数的_search响应体
+     *
+     * @param mapper   JsonpMapper对象
+     * @param hits     文档数
+     * @param skuCount 每个文档包含的sku数
+     * @return 响应体字节
+     */
+    public static byte[] searchResponse(JsonpMapper mapper, int hits, int skuCount) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = mapper.jsonProvider().createGenerator(out)) {
+            generator.writeStartObject();
+            generator.write("took", 3);
+            generator.write("timed_out", false);
+            generator.writeStartObject("_shards")
+                    .write("total", 1)
+                    .write("successful", 1)
+                    .write("skipped", 0)
+                    .write("failed", 0)
+                    .writeEnd();
+            generator.writeStartObject("hits");
+            generator.writeStartObject("total").write("value", hits).write("relation", "eq").writeEnd();
+            generator.write("max_score", 1.0);
+            generator.writeStartArray("hits");
+            for (int i = 0; i < hits; i++) {
+                generator.writeStartObject()
+                        .write("_index", "products")
+                        .write("_id", String.valueOf(i))
+                        .write("_score", 1.0);
+                generator.writeKey("_source");
+                mapper.serialize(spu(i, skuCount), generator);
+                generator.writeEnd();
+            }
+            generator.writeEnd();
+            generator.writeEnd();
+            generator.writeEnd();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 序列化为json字节
+     *
+     * @param mapper JsonpMapper对象
+     * @param value  要序列化的对象
+     * @return json字节
+     */
+    public static byte[] toJson(JsonpMapper mapper, Object value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = mapper.jsonProvider().createGenerator(out)) {
+            if (value instanceof JsonpSerializable serializable) {
+                serializable.serialize(generator, mapper);
+            } else {
+                mapper.serialize(value, generator);
+            }
+        }
+        return out.toByteArray();
+    }
+}
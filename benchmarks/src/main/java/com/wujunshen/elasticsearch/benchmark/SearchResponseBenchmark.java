@@ -0,0 +1,85 @@
+package com.wujunshen.elasticsearch.benchmark;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.json.JsonpDeserializer;
+import co.elastic.clients.json.JsonpMapper;
+import com.wujunshen.entity.product.Spu;
+import jakarta.json.stream.JsonParser;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 反序列化大量命中结果的_search响应的开销，以及经过桩服务的完整查询开销
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 01:40<br>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchResponseBenchmark {
+    @Param({"10", "1000"})
+    private int hits;
+
+    @Param({"jackson", "caching"})
+    private String mapperType;
+
+    private JsonpMapper mapper;
+
+    private JsonpDeserializer<SearchResponse<Spu>> deserializer;
+
+    private byte[] responseBody;
+
+    private StubElasticsearchServer server;
+
+    private ElasticsearchClient client;
+
+    private SearchRequest request;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = Fixtures.mapper(mapperType);
+        deserializer = SearchResponse.createSearchResponseDeserializer(JsonpDeserializer.of(Spu.class));
+        responseBody = Fixtures.searchResponse(mapper, hits, 3);
+
+        server = new StubElasticsearchServer(responseBody);
+        client = server.newClient(mapper);
+        request = SearchRequest.of(s -> s.index("products").query(q -> q.matchAll(m -> m)).size(hits));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Benchmark
+    public SearchResponse<Spu> deserialize() {
+        try (JsonParser parser = mapper.jsonProvider().createParser(new ByteArrayInputStream(responseBody))) {
+            return deserializer.deserialize(parser, mapper);
+        }
+    }
+
+    @Benchmark
+    public SearchResponse<Spu> searchRoundTrip() throws IOException {
+        return client.search(request, Spu.class);
+    }
+}
@@ -0,0 +1,148 @@
+package com.wujunshen.elasticsearch.benchmark;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+
+/**
+ * 本机的es桩服务，只实现基准测试用到的接口，返回固定的响应
+ * <p>
+ * _search返回预先生成的响应体，_bulk按请求中的操作数返回全部成功，其它请求返回{}
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 01:40<br>
+ */
+public class StubElasticsearchServer implements Closeable {
+    private static final byte[] EMPTY_OBJECT = "{}".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] BULK_ITEM = ("{\"index\":{\"_index\":\"products\",\"_id\":\"1\",\"_version\":1,"
+            + "\"result\":\"created\",\"status\":201,\"_seq_no\":0,\"_primary_term\":1}}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer server;
+
+    private final ExecutorService executorService;
+
+    private final RestClient restClient;
+
+    private final byte[] searchResponse;
+
+    /**
+     * 启动桩服务
+     *
+     * @param searchResponse _search返回的响应体
+     * @throws IOException 异常信息
+     */
+    public StubElasticsearchServer(byte[] searchResponse) throws IOException {
+        this.searchResponse = searchResponse;
+
+        // 默认开启Nagle算法，与客户端的延迟确认叠加后每次请求会多出约40ms
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        executorService = Executors.newFixedThreadPool(4);
+        server.setExecutor(executorService);
+        server.start();
+
+        restClient = RestClient.builder(new HttpHost("localhost", server.getAddress().getPort())).build();
+    }
+
+    /**
+     * 新建连接桩服务的客户端，与ElasticSearchConfig中的配置相同
+     *
+     * @return ElasticsearchClient对象
+     */
+    public ElasticsearchClient newClient() {
+        return newClient(new JacksonJsonpMapper());
+    }
+
+    /**
+     * 新建连接桩服务的客户端
+     *
+     * @param mapper 客户端使用的JsonpMapper
+     * @return ElasticsearchClient对象
+     */
+    public ElasticsearchClient newClient(JsonpMapper mapper) {
+        return new ElasticsearchClient(new RestClientTransport(restClient, mapper));
+    }
+
+    @Override
+    public void close() throws IOException {
+        restClient.close();
+        server.stop(0);
+        executorService.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+
+        byte[] body;
+        if (path.endsWith("/_search")) {
+            exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+            body = searchResponse;
+        } else if (path.endsWith("/_bulk")) {
+            body = bulkResponse(exchange);
+        } else {
+            exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+            body = EMPTY_OBJECT;
+        }
+
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.getResponseHeaders().add("X-Elastic-Product", "Elasticsearch");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * 按请求中的操作数返回全部成功的_bulk响应，delete操作没有文档行
+     */
+    private static byte[] bulkResponse(HttpExchange exchange) throws IOException {
+        int operations = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            String line;
+            boolean expectSource = false;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (expectSource) {
+                    expectSource = false;
+                    continue;
+                }
+                operations++;
+                expectSource = !line.startsWith("{\"delete\"");
+            }
+        }
+
+        StringBuilder builder = new StringBuilder(64 + operations * BULK_ITEM.length);
+        builder.append("{\"took\":1,\"errors\":false,\"items\":[");
+        String item = new String(BULK_ITEM, StandardCharsets.UTF_8);
+        for (int i = 0; i < operations; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(item);
+        }
+        builder.append("]}");
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -1,34 +1,130 @@
 package com.wujunshen.config;
 
+import lombok.extern.slf4j.Slf4j;
 import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.elasticsearch.client.Node;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
+import org.elasticsearch.client.sniff.ElasticsearchNodesSniffer;
+import org.elasticsearch.client.sniff.NodesSniffer;
+import org.elasticsearch.client.sniff.SniffOnFailureListener;
+import org.elasticsearch.client.sniff.Sniffer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
+import javax.net.ssl.SSLContext;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.json.JsonpMapper;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
 import co.elastic.clients.transport.ElasticsearchTransport;
 import co.elastic.clients.transport.rest_client.RestClientTransport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.OpenTelemetry;
+import com.wujunshen.elasticsearch.NodeApi;
+import com.wujunshen.elasticsearch.bulk.BulkIngester;
+import com.wujunshen.elasticsearch.cache.DocumentNearCache;
+import com.wujunshen.elasticsearch.cache.SearchResultCache;
+import com.wujunshen.elasticsearch.cache.SearchSingleFlight;
+import com.wujunshen.elasticsearch.concurrent.AsyncLimiter;
+import com.wujunshen.elasticsearch.concurrent.BlockingCallExecutor;
+import com.wujunshen.elasticsearch.concurrent.Hedger;
+import com.wujunshen.elasticsearch.json.CachingJacksonJsonpMapper;
+import com.wujunshen.elasticsearch.mget.MultiGetLoader;
+import com.wujunshen.elasticsearch.metrics.ConnectionPoolMetrics;
+import com.wujunshen.elasticsearch.metrics.HttpMetricsInterceptor;
+import com.wujunshen.elasticsearch.metrics.InstrumentedTransport;
+import com.wujunshen.elasticsearch.node.LeastLoadedNodeSelector;
+import com.wujunshen.elasticsearch.node.LoadAwareNodeSelector;
+import com.wujunshen.elasticsearch.node.NodeLoadTracker;
+import com.wujunshen.elasticsearch.node.NodeStatsRefresher;
+import com.wujunshen.elasticsearch.search.MultiSearchCoalescer;
+import com.wujunshen.elasticsearch.tracing.ElasticsearchTracing;
 
 /**
  * @author frank woo(吴峻申) <br>
  * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
  * @date 2022/8/18 09:32<br>
  */
+@Slf4j
 @Configuration
 public class ElasticSearchConfig {
     private final ElasticSearchConfigProperties elasticSearchConfigProperties;
 
+    /**
+     * 请求失败时触发嗅探，Sniffer创建后才会绑定
+     */
+    private final SniffOnFailureListener sniffOnFailureListener = new SniffOnFailureListener();
+
     public ElasticSearchConfig(ElasticSearchConfigProperties elasticSearchConfigProperties) {
         this.elasticSearchConfigProperties = elasticSearchConfigProperties;
     }
 
     @Bean
-    public RestClient restClient() {
+    public LoadAwareNodeSelector loadAwareNodeSelector() {
+        ElasticSearchConfigProperties.Sniff sniff = elasticSearchConfigProperties.getSniff();
+
+        // 按cpu选择节点依赖定时刷新的节点统计，只在开启嗅探时生效
+        return new LoadAwareNodeSelector(sniff.isSkipMasterOnly(), sniff.isEnabled() ? sniff.getLoadTolerance() : -1);
+    }
+
+    @Bean
+    public NodeLoadTracker nodeLoadTracker() {
+        ElasticSearchConfigProperties.Balancer balancer = elasticSearchConfigProperties.getBalancer();
+
+        return new NodeLoadTracker(
+                balancer.getEwmaAlpha(),
+                elasticSearchConfigProperties.getSocketTimeout(),
+                balancer.getEwmaDecay());
+    }
+
+    /**
+     * 没有引入actuator等提供MeterRegistry的依赖时，指标记录在内存中
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "elasticsearch.metrics", name = "enabled", havingValue = "true",
+            matchIfMissing = true)
+    public ConnectionPoolMetrics connectionPoolMetrics(MeterRegistry meterRegistry) {
+        ConnectionPoolMetrics connectionPoolMetrics = new ConnectionPoolMetrics();
+        connectionPoolMetrics.bindTo(meterRegistry);
+
+        return connectionPoolMetrics;
+    }
+
+    /**
+     * 容器中没有OpenTelemetry时使用GlobalOpenTelemetry，如javaagent注册的实例
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "elasticsearch.tracing", name = "enabled", havingValue = "true")
+    public ElasticsearchTracing elasticsearchTracing(ObjectProvider<OpenTelemetry> openTelemetry) {
+        return new ElasticsearchTracing(openTelemetry.getIfAvailable(GlobalOpenTelemetry::get));
+    }
+
+    @Bean
+    public RestClient restClient(
+            LoadAwareNodeSelector loadAwareNodeSelector,
+            NodeLoadTracker nodeLoadTracker,
+            MeterRegistry meterRegistry,
+            ObjectProvider<ConnectionPoolMetrics> connectionPoolMetrics,
+            ObjectProvider<ElasticsearchTracing> elasticsearchTracing) {
         // 拆分地址
         List<HttpHost> httpHostList = new ArrayList<>();
         String[] hostArray = elasticSearchConfigProperties.getAddress().split(",");
@@ -52,22 +148,239 @@ public class ElasticSearchConfig {
         });
 
         // 异步连接数配置
+        int maxConnectNum = elasticSearchConfigProperties.getMaxConnectNum();
+        int maxConnectPerRoute = elasticSearchConfigProperties.getMaxConnectPerRoute();
+        boolean metricsEnabled = elasticSearchConfigProperties.getMetrics().isEnabled();
+        ElasticsearchTracing tracing = elasticsearchTracing.getIfAvailable();
+        ConnectionPoolMetrics poolMetrics = connectionPoolMetrics.getIfAvailable();
+        // http客户端和统计指标的连接池共用这一个SSLContext，需要自定义证书时只改这里
+        SSLContext sslContext = defaultSslContext();
         builder.setHttpClientConfigCallback(httpClientBuilder -> {
-            httpClientBuilder.setMaxConnTotal(elasticSearchConfigProperties.getMaxConnectNum());
-            httpClientBuilder.setMaxConnPerRoute(elasticSearchConfigProperties.getMaxConnectPerRoute());
+            httpClientBuilder.setMaxConnTotal(maxConnectNum);
+            httpClientBuilder.setMaxConnPerRoute(maxConnectPerRoute);
+            httpClientBuilder.setSSLContext(sslContext);
+            if (poolMetrics != null) {
+                // 统计连接池指标，设置连接池后builder上的SSL和IOReactor设置不再生效，都要从这里传给连接池
+                httpClientBuilder.setConnectionManager(poolMetrics.createConnectionManager(
+                        maxConnectNum, maxConnectPerRoute, sslContext, IOReactorConfig.DEFAULT));
+            }
+            // 统计各节点的在途请求数和响应时间
+            httpClientBuilder.addInterceptorLast((HttpRequestInterceptor) nodeLoadTracker);
+            httpClientBuilder.addInterceptorFirst((HttpResponseInterceptor) nodeLoadTracker);
+            if (metricsEnabled) {
+                HttpMetricsInterceptor httpMetricsInterceptor = new HttpMetricsInterceptor(meterRegistry);
+                httpClientBuilder.addInterceptorLast((HttpRequestInterceptor) httpMetricsInterceptor);
+                httpClientBuilder.addInterceptorLast((HttpResponseInterceptor) httpMetricsInterceptor);
+            }
+            if (tracing != null) {
+                // 把响应大小记到span上
+                httpClientBuilder.addInterceptorLast(tracing);
+            }
             return httpClientBuilder;
         });
 
+        // 节点选择
+        builder.setNodeSelector(elasticSearchConfigProperties.getBalancer().isEnabled()
+                ? new LeastLoadedNodeSelector(nodeLoadTracker, loadAwareNodeSelector)
+                : loadAwareNodeSelector);
+        boolean sniffEnabled = elasticSearchConfigProperties.getSniff().isEnabled();
+        builder.setFailureListener(new RestClient.FailureListener() {
+            @Override
+            public void onFailure(Node node) {
+                nodeLoadTracker.onFailure(node);
+                if (sniffEnabled) {
+                    sniffOnFailureListener.onFailure(node);
+                }
+            }
+        });
+
         return builder.build();
     }
 
+    private static SSLContext defaultSslContext() {
+        try {
+            return SSLContext.getDefault();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("could not get the default ssl context", e);
+        }
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "elasticsearch.sniff", name = "enabled", havingValue = "true")
+    public Sniffer sniffer(RestClient restClient) {
+        ElasticSearchConfigProperties.Sniff sniff = elasticSearchConfigProperties.getSniff();
+
+        ElasticsearchNodesSniffer.Scheme scheme =
+                "https".equalsIgnoreCase(elasticSearchConfigProperties.getSchema())
+                ? ElasticsearchNodesSniffer.Scheme.HTTPS
+                : ElasticsearchNodesSniffer.Scheme.HTTP;
+        NodesSniffer nodesSniffer = new ElasticsearchNodesSniffer(
+                restClient, ElasticsearchNodesSniffer.DEFAULT_SNIFF_REQUEST_TIMEOUT, scheme);
+
+        Sniffer sniffer = Sniffer.builder(restClient)
+                .setSniffIntervalMillis(sniff.getInterval())
+                .setSniffAfterFailureDelayMillis(sniff.getDelayAfterFailure())
+                .setNodesSniffer(nodesSniffer)
+                .build();
+        sniffOnFailureListener.setSniffer(sniffer);
+
+        return sniffer;
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "elasticsearch.sniff", name = "enabled", havingValue = "true")
+    public NodeStatsRefresher nodeStatsRefresher(NodeApi nodeApi, LoadAwareNodeSelector loadAwareNodeSelector) {
+        ElasticSearchConfigProperties.Sniff sniff = elasticSearchConfigProperties.getSniff();
+        long refreshInterval = sniff.getLoadTolerance() < 0 ? 0 : sniff.getStatsRefreshInterval();
+
+        return new NodeStatsRefresher(nodeApi, loadAwareNodeSelector, refreshInterval);
+    }
+
     @Bean
-    public ElasticsearchTransport elasticsearchTransport(RestClient restClient) {
-        return new RestClientTransport(restClient, new JacksonJsonpMapper());
+    public ElasticsearchTransport elasticsearchTransport(
+            RestClient restClient,
+            MeterRegistry meterRegistry,
+            ObjectProvider<ElasticsearchTracing> elasticsearchTracing) {
+        JsonpMapper jsonpMapper = elasticSearchConfigProperties.getJson().isCachingMapper()
+                ? new CachingJacksonJsonpMapper()
+                : new JacksonJsonpMapper();
+        ElasticsearchTransport transport = new RestClientTransport(restClient, jsonpMapper);
+        if (elasticSearchConfigProperties.getMetrics().isEnabled()) {
+            transport = new InstrumentedTransport(transport, meterRegistry);
+        }
+
+        ElasticsearchTracing tracing = elasticsearchTracing.getIfAvailable();
+        return tracing == null ? transport : tracing.wrap(transport);
     }
 
     @Bean
     public ElasticsearchClient elasticsearchClient(ElasticsearchTransport transport) {
         return new ElasticsearchClient(transport);
     }
+
+    @Bean
+    public ElasticsearchAsyncClient elasticsearchAsyncClient(ElasticsearchTransport transport) {
+        return new ElasticsearchAsyncClient(transport);
+    }
+
+    @Bean(destroyMethod = "close")
+    public AsyncLimiter asyncLimiter() {
+        return new AsyncLimiter(elasticSearchConfigProperties.getAsyncMaxConcurrentRequests());
+    }
+
+    /**
+     * 对冲请求依赖LeastLoadedNodeSelector记录的节点来避开首次请求的节点，关闭负载均衡时不开启对冲
+     */
+    @Bean(destroyMethod = "close")
+    public Hedger hedger(AsyncLimiter asyncLimiter) {
+        ElasticSearchConfigProperties.Hedge hedge = elasticSearchConfigProperties.getHedge();
+        boolean enabled = hedge.isEnabled();
+        if (enabled && !elasticSearchConfigProperties.getBalancer().isEnabled()) {
+            log.warn("hedged requests need elasticsearch.balancer.enabled=true, hedging is disabled");
+            enabled = false;
+        }
+
+        return new Hedger(
+                enabled,
+                hedge.getPercentile(),
+                hedge.getMinDelay(),
+                hedge.getMaxDelay(),
+                hedge.getBudget(),
+                asyncLimiter);
+    }
+
+    @Bean(destroyMethod = "close")
+    public MultiSearchCoalescer multiSearchCoalescer(
+            ElasticsearchAsyncClient elasticsearchAsyncClient, AsyncLimiter asyncLimiter) {
+        ElasticSearchConfigProperties.Msearch msearch = elasticSearchConfigProperties.getMsearch();
+
+        return new MultiSearchCoalescer(
+                elasticsearchAsyncClient, asyncLimiter, msearch.getWindow(), msearch.getMaxBatchSize());
+    }
+
+    @Bean(destroyMethod = "close")
+    public MultiGetLoader multiGetLoader(
+            ElasticsearchAsyncClient elasticsearchAsyncClient, AsyncLimiter asyncLimiter) {
+        ElasticSearchConfigProperties.Mget mget = elasticSearchConfigProperties.getMget();
+
+        return new MultiGetLoader(
+                elasticsearchAsyncClient,
+                asyncLimiter,
+                mget.getMaxBatchSize(),
+                mget.getParallelism(),
+                mget.getWindow());
+    }
+
+    @Bean
+    public SearchResultCache searchResultCache(ElasticsearchTransport transport, MeterRegistry meterRegistry) {
+        ElasticSearchConfigProperties.Cache cache = elasticSearchConfigProperties.getCache();
+
+        SearchResultCache searchResultCache = new SearchResultCache(
+                transport.jsonpMapper(),
+                cache.isEnabled(),
+                cache.getMaxEntries(),
+                cache.getMaxBytes(),
+                cache.getTtl());
+        if (elasticSearchConfigProperties.getMetrics().isEnabled()) {
+            searchResultCache.bindTo(meterRegistry);
+        }
+
+        return searchResultCache;
+    }
+
+    @Bean
+    public SearchSingleFlight searchSingleFlight(MeterRegistry meterRegistry) {
+        SearchSingleFlight searchSingleFlight =
+                new SearchSingleFlight(elasticSearchConfigProperties.getSingleFlight().isEnabled());
+        if (searchSingleFlight.isEnabled() && elasticSearchConfigProperties.getMetrics().isEnabled()) {
+            searchSingleFlight.bindTo(meterRegistry);
+        }
+
+        return searchSingleFlight;
+    }
+
+    @Bean
+    public DocumentNearCache documentNearCache(ElasticsearchClient elasticsearchClient, MeterRegistry meterRegistry) {
+        ElasticSearchConfigProperties.NearCache nearCache = elasticSearchConfigProperties.getNearCache();
+
+        DocumentNearCache documentNearCache = new DocumentNearCache(
+                elasticsearchClient,
+                nearCache.isEnabled(),
+                nearCache.getMaxEntries(),
+                nearCache.getMaxBytes(),
+                nearCache.getMaxStaleness(),
+                nearCache.getExpireAfterAccess(),
+                nearCache.isOffHeap());
+        if (elasticSearchConfigProperties.getMetrics().isEnabled()) {
+            documentNearCache.bindTo(meterRegistry);
+        }
+
+        return documentNearCache;
+    }
+
+    @Bean(destroyMethod = "close")
+    public BlockingCallExecutor blockingCallExecutor() {
+        int maxConcurrentCalls = elasticSearchConfigProperties.getMaxConcurrentCalls();
+        if (maxConcurrentCalls <= 0) {
+            maxConcurrentCalls = elasticSearchConfigProperties.getMaxConnectNum();
+        }
+
+        return new BlockingCallExecutor(
+                elasticSearchConfigProperties.isVirtualThreads(),
+                maxConcurrentCalls,
+                elasticSearchConfigProperties.getMaxQueuedCalls());
+    }
+
+    @Bean(destroyMethod = "close")
+    public BulkIngester bulkIngester(ElasticsearchClient elasticsearchClient) {
+        ElasticSearchConfigProperties.Bulk bulk = elasticSearchConfigProperties.getBulk();
+
+        return new BulkIngester(
+                elasticsearchClient,
+                bulk.getActions(),
+                bulk.getSize(),
+                bulk.getFlushInterval(),
+                bulk.getConcurrentRequests(),
+                bulk.retryPolicy());
+    }
 }
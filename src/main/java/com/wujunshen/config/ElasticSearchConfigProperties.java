@@ -1,5 +1,7 @@
 package com.wujunshen.config;
 
+import com.wujunshen.elasticsearch.bulk.BulkRetryPolicy;
+import com.wujunshen.elasticsearch.reindex.ReindexMode;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
@@ -67,4 +69,428 @@ public class ElasticSearchConfigProperties {
      * 密码
      */
     private String passwd;
+
+    /**
+     * 批量写入配置
+     */
+    private Bulk bulk = new Bulk();
+
+    /**
+     * 遍历索引配置
+     */
+    private Scroll scroll = new Scroll();
+
+    /**
+     * 节点发现与选择配置
+     */
+    private Sniff sniff = new Sniff();
+
+    /**
+     * 客户端负载均衡配置
+     */
+    private Balancer balancer = new Balancer();
+
+    /**
+     * 对冲请求配置
+     */
+    private Hedge hedge = new Hedge();
+
+    /**
+     * msearch合并配置
+     */
+    private Msearch msearch = new Msearch();
+
+    /**
+     * 指标配置
+     */
+    private Metrics metrics = new Metrics();
+
+    /**
+     * 链路追踪配置
+     */
+    private Tracing tracing = new Tracing();
+
+    /**
+     * json映射配置
+     */
+    private Json json = new Json();
+
+    /**
+     * 查询结果缓存配置
+     */
+    private Cache cache = new Cache();
+
+    /**
+     * 相同在途查询合并配置
+     */
+    private SingleFlight singleFlight = new SingleFlight();
+
+    /**
+     * 文档近端缓存配置
+     */
+    private NearCache nearCache = new NearCache();
+
+    /**
+     * mget批量读取配置
+     */
+    private Mget mget = new Mget();
+
+    /**
+     * 重建索引配置
+     */
+    private Reindex reindex = new Reindex();
+
+    /**
+     * 异步客户端最大在途请求数，小于等于0表示不限制
+     */
+    private int asyncMaxConcurrentRequests;
+
+    /**
+     * 服务端任务轮询间隔(毫秒)
+     */
+    private long taskPollInterval = 1000;
+
+    /**
+     * 阻塞调用执行器是否使用虚拟线程，需要JDK 21及以上，否则退化为平台线程
+     */
+    private boolean virtualThreads;
+
+    /**
+     * 阻塞调用执行器同时执行的最大调用数，小于等于0时取maxConnectNum
+     */
+    private int maxConcurrentCalls;
+
+    /**
+     * 不使用虚拟线程时阻塞调用执行器排队的最大调用数，队列满时由提交调用的线程自己执行
+     */
+    private int maxQueuedCalls = 1000;
+
+    /**
+     * 批量写入配置类
+     */
+    @Data
+    public static class Bulk {
+        /**
+         * 单次bulk请求最多包含的操作数
+         */
+        private int actions = 1000;
+
+        /**
+         * 单次bulk请求体最大字节数
+         */
+        private long size = 5 * 1024 * 1024L;
+
+        /**
+         * 定时flush间隔(毫秒)，小于等于0表示不定时flush
+         */
+        private long flushInterval = 1000;
+
+        /**
+         * 同时在途的bulk请求数，0表示首次请求在调用线程中同步执行，重试由调度线程执行
+         */
+        private int concurrentRequests = 2;
+
+        /**
+         * 单条操作被拒绝(429)时的最大重试次数
+         */
+        private int maxRetries = 3;
+
+        /**
+         * 重试初始退避时间(毫秒)
+         */
+        private long initialBackoff = 100;
+
+        /**
+         * 重试最大退避时间(毫秒)
+         */
+        private long maxBackoff = 5000;
+
+        /**
+         * @return 按配置生成的重试策略
+         */
+        public BulkRetryPolicy retryPolicy() {
+            return new BulkRetryPolicy(maxRetries, initialBackoff, maxBackoff);
+        }
+    }
+
+    /**
+     * 遍历索引配置类
+     */
+    @Data
+    public static class Scroll {
+        /**
+         * 每页文档数
+         */
+        private int pageSize = 1000;
+
+        /**
+         * point-in-time保持时间
+         */
+        private String keepAlive = "1m";
+
+        /**
+         * 全量导出时并行读取的slice数，一般不超过索引的主分片数
+         */
+        private int slices = 4;
+    }
+
+    /**
+     * msearch合并配置类
+     */
+    @Data
+    public static class Msearch {
+        /**
+         * 合并窗口(毫秒)，窗口内到达的QueryApi查询合并为一次msearch，小于等于0表示不合并
+         */
+        private long window;
+
+        /**
+         * 单次msearch最多包含的查询数
+         */
+        private int maxBatchSize = 32;
+    }
+
+    /**
+     * 节点发现与选择配置类
+     */
+    @Data
+    public static class Sniff {
+        /**
+         * 是否开启节点嗅探，开启后定时及请求失败时刷新RestClient的节点列表
+         */
+        private boolean enabled;
+
+        /**
+         * 定时嗅探间隔(毫秒)
+         */
+        private int interval = 300000;
+
+        /**
+         * 请求失败后下一次嗅探的延迟(毫秒)
+         */
+        private int delayAfterFailure = 60000;
+
+        /**
+         * 是否跳过只有master角色的节点
+         */
+        private boolean skipMasterOnly = true;
+
+        /**
+         * cpu使用率容忍差值(百分点)，比最空闲节点高出该值的节点不再接收请求，小于0表示不按负载选择，只在enabled为true时生效
+         */
+        private int loadTolerance = 20;
+
+        /**
+         * 节点负载统计刷新间隔(毫秒)，小于等于0表示不刷新，只在enabled为true时生效
+         */
+        private long statsRefreshInterval = 30000;
+    }
+
+    /**
+     * 客户端负载均衡配置类
+     */
+    @Data
+    public static class Balancer {
+        /**
+         * 是否按节点在途请求数和响应时间选择节点，关闭时由RestClient轮询
+         */
+        private boolean enabled = true;
+
+        /**
+         * 响应时间EWMA平滑系数，取值(0, 1]
+         */
+        private double ewmaAlpha = 0.3;
+
+        /**
+         * 响应时间EWMA衰减时间常数(毫秒)，节点空闲该时间后EWMA衰减为原来的1/e
+         */
+        private long ewmaDecay = 10000;
+    }
+
+    /**
+     * 对冲请求配置类
+     */
+    @Data
+    public static class Hedge {
+        /**
+         * 是否对QueryApi查询和DocumentApi.getDocument开启对冲请求，需同时开启balancer
+         */
+        private boolean enabled;
+
+        /**
+         * 对冲延迟取最近响应时间的分位数
+         */
+        private double percentile = 0.95;
+
+        /**
+         * 最小对冲延迟(毫秒)
+         */
+        private long minDelay = 10;
+
+        /**
+         * 最大对冲延迟(毫秒)，响应时间样本不足时也使用该值
+         */
+        private long maxDelay = 1000;
+
+        /**
+         * 对冲请求占总请求的最大比例
+         */
+        private double budget = 0.05;
+    }
+
+    /**
+     * 指标配置类
+     */
+    @Data
+    public static class Metrics {
+        /**
+         * 是否记录请求耗时、字节数、错误和连接池的Micrometer指标
+         * <p>
+         * 开启时连接池由ConnectionPoolMetrics创建，HttpAsyncClientBuilder上的SSLContext、SSLStrategy、
+         * 主机名校验和IOReactorConfig不再生效，自定义这些设置时需要同时传给ConnectionPoolMetrics.createConnectionManager
+         */
+        private boolean enabled = true;
+    }
+
+    /**
+     * 链路追踪配置类
+     */
+    @Data
+    public static class Tracing {
+        /**
+         * 是否为每次请求创建OpenTelemetry span，并在请求头中加上traceparent和X-Opaque-Id
+         */
+        private boolean enabled;
+    }
+
+    /**
+     * json映射配置类
+     */
+    @Data
+    public static class Json {
+        /**
+         * 是否使用按类缓存反序列化器的CachingJacksonJsonpMapper，关闭时使用客户端自带的JacksonJsonpMapper
+         */
+        private boolean cachingMapper = true;
+    }
+
+    /**
+     * 查询结果缓存配置类
+     */
+    @Data
+    public static class Cache {
+        /**
+         * 是否缓存QueryApi的查询结果，写入文档或refresh索引时相关结果失效
+         */
+        private boolean enabled;
+
+        /**
+         * 最多缓存的查询结果条数
+         */
+        private long maxEntries = 10000;
+
+        /**
+         * 最多缓存的字节数
+         */
+        private long maxBytes = 64 * 1024 * 1024L;
+
+        /**
+         * 查询结果写入缓存后的过期时间(毫秒)
+         */
+        private long ttl = 60000;
+    }
+
+    /**
+     * 相同在途查询合并配置类
+     */
+    @Data
+    public static class SingleFlight {
+        /**
+         * 是否合并QueryApi中请求内容相同的在途查询，只发送一次请求，所有等待的线程共享同一个响应
+         */
+        private boolean enabled;
+    }
+
+    /**
+     * 文档近端缓存配置类
+     */
+    @Data
+    public static class NearCache {
+        /**
+         * 是否缓存DocumentApi.getDocument和QueryApi.searchById的结果
+         */
+        private boolean enabled;
+
+        /**
+         * 最多缓存的文档数
+         */
+        private long maxEntries = 100000;
+
+        /**
+         * 最多缓存的字节数
+         */
+        private long maxBytes = 64 * 1024 * 1024L;
+
+        /**
+         * 不校验直接返回缓存的最长时间(毫秒)，超过后按_seq_no和_primary_term校验
+         */
+        private long maxStaleness = 1000;
+
+        /**
+         * 多长时间没有读取后移除(毫秒)
+         */
+        private long expireAfterAccess = 600000;
+
+        /**
+         * 是否把序列化后的文档放在堆外内存中
+         */
+        private boolean offHeap;
+    }
+
+    /**
+     * mget批量读取配置类
+     */
+    @Data
+    public static class Mget {
+        /**
+         * 单次mget最多包含的文档数
+         */
+        private int maxBatchSize = 100;
+
+        /**
+         * 批量读取时最多拆成的并行mget数
+         */
+        private int parallelism = 4;
+
+        /**
+         * 合并窗口(毫秒)，窗口内到达的DocumentApi.getDocument合并为一次mget，小于等于0表示不合并
+         */
+        private long window;
+    }
+
+    /**
+     * 重建索引配置类
+     */
+    @Data
+    public static class Reindex {
+        /**
+         * 复制文档的方式
+         */
+        private ReindexMode mode = ReindexMode.SERVER;
+
+        /**
+         * 并行切片数，小于等于0表示服务端_reindex由es自动决定、客户端复制使用scroll.slices
+         */
+        private int slices;
+
+        /**
+         * 复制完成后force merge的目标段数，小于等于0表示不做force merge
+         */
+        private int maxNumSegments = 1;
+
+        /**
+         * 切换别名后是否删除旧索引，保留时可以把别名切回旧索引回滚
+         */
+        private boolean deleteOldIndex;
+    }
 }
@@ -0,0 +1,119 @@
+package com.wujunshen.elasticsearch;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.core.DeleteResponse;
+import co.elastic.clients.elasticsearch.core.GetResponse;
+import co.elastic.clients.elasticsearch.core.IndexResponse;
+import co.elastic.clients.elasticsearch.core.UpdateResponse;
+import com.wujunshen.elasticsearch.cache.DocumentNearCache;
+import com.wujunshen.elasticsearch.cache.SearchResultCache;
+import com.wujunshen.elasticsearch.concurrent.AsyncLimiter;
+import java.util.concurrent.CompletableFuture;
+import javax.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * DocumentApi中单文档操作的异步版本，所有方法不阻塞调用线程，返回CompletableFuture
+ * <p>
+ * 批量写入请使用BulkIngester，遍历索引请使用DocumentApi.streamAllDocument。
+ * 写操作结束后，不论成功与否，查询结果缓存中该索引的结果以及近端缓存中的该文档都会失效。
+ * getDocument不读取近端缓存，也不经过mget合并，每次调用都会向es发送get请求
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/17 22:40<br>
+ */
+@Slf4j
+@Component
+public class AsyncDocumentApi {
+    @Resource
+    private ElasticsearchAsyncClient elasticsearchAsyncClient;
+
+    @Resource
+    private AsyncLimiter asyncLimiter;
+
+    @Resource
+    private SearchResultCache searchResultCache;
+
+    @Resource
+    private DocumentNearCache documentNearCache;
+
+    /**
+     * 单个文档写入
+     *
+     * @param indexName 索引名
+     * @param o         文档对象
+     * @param <T>       文档对象泛型
+     * @return IndexResponse对象的CompletableFuture
+     */
+    public <T> CompletableFuture<IndexResponse> addDocument(String indexName, T o) {
+        return asyncLimiter.submit(() -> elasticsearchAsyncClient.index(
+                indexRequest -> indexRequest.index(indexName).document(o)))
+                .whenComplete((response, e) -> searchResultCache.invalidate(indexName));
+    }
+
+    /**
+     * 单个文档写入
+     *
+     * @param indexName 索引名
+     * @param id        文档id
+     * @param o         文档对象
+     * @param <T>       文档对象泛型
+     * @return IndexResponse对象的CompletableFuture
+     */
+    public <T> CompletableFuture<IndexResponse> addDocument(String indexName, String id, T o) {
+        return asyncLimiter.submit(() -> elasticsearchAsyncClient.index(
+                indexRequest -> indexRequest.index(indexName).id(id).document(o)))
+                .whenComplete((response, e) -> invalidate(indexName, id));
+    }
+
+    /**
+     * 更新文档信息
+     *
+     * @param indexName 索引名
+     * @param o         文档对象
+     * @param id        要更新的文档对象id
+     * @param clazz     要更新的文档对象class
+     * @param <T>       文档对象泛型
+     * @return UpdateResponse对象的CompletableFuture
+     */
+    public <T> CompletableFuture<UpdateResponse<T>> updateDocument(
+            String indexName, T o, String id, Class<T> clazz) {
+        return asyncLimiter.submit(() -> elasticsearchAsyncClient.update(
+                updateRequest -> updateRequest.index(indexName).id(id).doc(o), clazz))
+                .whenComplete((response, e) -> invalidate(indexName, id));
+    }
+
+    /**
+     * 查询文档信息
+     *
+     * @param indexName 索引名
+     * @param id        要查询的文档对象id
+     * @param clazz     要查询的文档对象class
+     * @param <T>       文档对象泛型
+     * @return GetResponse对象的CompletableFuture
+     */
+    public <T> CompletableFuture<GetResponse<T>> getDocument(String indexName, String id, Class<T> clazz) {
+        return asyncLimiter.submit(() -> elasticsearchAsyncClient.get(
+                getRequest -> getRequest.index(indexName).id(id), clazz));
+    }
+
+    /**
+     * 删除文档信息
+     *
+     * @param indexName 索引名
+     * @param id        要删除的文档对象id
+     * @return DeleteResponse对象的CompletableFuture
+     */
+    public CompletableFuture<DeleteResponse> deleteDocument(String indexName, String id) {
+        return asyncLimiter.submit(() -> elasticsearchAsyncClient.delete(
+                deleteRequest -> deleteRequest.index(indexName).id(id)))
+                .whenComplete((response, e) -> invalidate(indexName, id));
+    }
+
+    private void invalidate(String indexName, String id) {
+        searchResultCache.invalidate(indexName);
+        documentNearCache.invalidate(indexName, id);
+    }
+}
@@ -0,0 +1,185 @@
+package com.wujunshen.elasticsearch;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
+import co.elastic.clients.elasticsearch.cat.indices.IndicesRecord;
+import co.elastic.clients.elasticsearch.indices.CreateIndexResponse;
+import co.elastic.clients.elasticsearch.indices.DeleteIndexResponse;
+import co.elastic.clients.elasticsearch.indices.GetIndexResponse;
+import co.elastic.clients.elasticsearch.indices.get_mapping.IndexMappingRecord;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.transport.endpoints.BooleanResponse;
+import com.wujunshen.elasticsearch.concurrent.AsyncLimiter;
+import jakarta.json.Json;
+import jakarta.json.stream.JsonParser;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import javax.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * IndexApi的异步版本，所有方法不阻塞调用线程，返回CompletableFuture
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/17 22:40<br>
+ */
+@Slf4j
+@Component
+public class AsyncIndexApi {
+    @Resource
+    private ElasticsearchAsyncClient elasticsearchAsyncClient;
+
+    @Resource
+    private AsyncLimiter asyncLimiter;
+
+    /**
+     * 创建索引
+     *
+     * @param indexName 索引名
+     * @return 是否创建成功的CompletableFuture
+     */
+    public CompletableFuture<Boolean> createIndex(String indexName) {
+        return deleteIfExisted(indexName)
+                .thenCompose(deleted -> asyncLimiter.submit(
+                        () -> elasticsearchAsyncClient.indices().create(c -> c.index(indexName))))
+                .thenApply(this::logCreated);
+    }
+
+    /**
+     * 判断index是否存在
+     *
+     * @param indexName 索引名
+     * @return 是否存在的CompletableFuture
+     */
+    public CompletableFuture<Boolean> isExistedIndex(String indexName) {
+        return asyncLimiter.submit(() -> elasticsearchAsyncClient.indices().exists(e -> e.index(indexName)))
+                .thenApply(BooleanResponse::value);
+    }
+
+    /**
+     * 删除index
+     *
+     * @param indexName 索引名
+     * @return 是否删除成功的CompletableFuture
+     */
+    public CompletableFuture<Boolean> deleteIndex(String indexName) {
+        return asyncLimiter.submit(() -> elasticsearchAsyncClient.indices().delete(d -> d.index(indexName)))
+                .thenApply(DeleteIndexResponse::acknowledged);
+    }
+
+    /**
+     * 创建索引 - 指定mapping
+     *
+     * @param indexName 索引名
+     * @param typeMapping mapping对象
+     * @return 是否创建成功的CompletableFuture
+     */
+    public CompletableFuture<Boolean> createIndexWithMapping(String indexName, TypeMapping typeMapping) {
+        return deleteIfExisted(indexName)
+                .thenCompose(deleted -> asyncLimiter.submit(() -> elasticsearchAsyncClient.indices()
+                        .create(createIndexRequest -> createIndexRequest.index(indexName).mappings(typeMapping))))
+                .thenApply(this::logCreated);
+    }
+
+    /**
+     * 创建索引 - 用json脚本创建mapping
+     *
+     * @param indexName 索引名
+     * @param mappingScript mapping的json脚本
+     * @return 是否创建成功的CompletableFuture
+     */
+    public CompletableFuture<Boolean> createIndexWithMapping(String indexName, String mappingScript) {
+        JsonpMapper mapper = elasticsearchAsyncClient._transport().jsonpMapper();
+        JsonParser parser = Json.createParser(new StringReader(mappingScript));
+
+        return createIndexWithMapping(indexName, TypeMapping._DESERIALIZER.deserialize(parser, mapper));
+    }
+
+    /**
+     * 查询index
+     *
+     * @param indexName 索引名
+     * @return GetIndexResponse对象的CompletableFuture
+     */
+    public CompletableFuture<GetIndexResponse> queryIndex(String indexName) {
+        return asyncLimiter.submit(() -> elasticsearchAsyncClient.indices().get(i -> i.index(indexName)));
+    }
+
+    /**
+     * 获取所有索引信息
+     *
+     * @return IndicesRecord列表的CompletableFuture
+     */
+    public CompletableFuture<List<IndicesRecord>> getAllIndices() {
+        return asyncLimiter.submit(() -> elasticsearchAsyncClient.cat().indices())
+                .thenApply(response -> response.valueBody());
+    }
+
+    /**
+     * 获取Mapping信息
+     *
+     * @param indexName 索引名
+     * @return TypeMapping对象的CompletableFuture
+     */
+    public CompletableFuture<TypeMapping> getMapping(String indexName) {
+        return asyncLimiter.submit(() -> elasticsearchAsyncClient.indices().getMapping(m -> m.index(indexName)))
+                .thenApply(response -> response.result().get(indexName).mappings());
+    }
+
+    /**
+     * 获取所有Mapping信息
+     *
+     * @return Map<String, TypeMapping>对象的CompletableFuture，key就是索引名，value是TypeMapping对象
+     */
+    public CompletableFuture<Map<String, TypeMapping>> getAllMappings() {
+        return asyncLimiter.submit(() -> elasticsearchAsyncClient.indices().getMapping())
+                .thenApply(response -> {
+                    Map<String, IndexMappingRecord> indexMappingRecordMap = response.result();
+                    Map<String, TypeMapping> result = new HashMap<>(indexMappingRecordMap.size());
+                    for (Map.Entry<String, IndexMappingRecord> entry : indexMappingRecordMap.entrySet()) {
+                        result.put(entry.getKey(), entry.getValue().mappings());
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * 索引refresh
+     *
+     * @param indexName 索引名
+     * @return refresh是否成功的CompletableFuture，true成功 false失败
+     */
+    public CompletableFuture<Boolean> refresh(String indexName) {
+        return asyncLimiter.submit(() -> elasticsearchAsyncClient.indices().refresh(r -> r.index(indexName)))
+                .thenApply(response -> IndexApi.doOperation(response.shards()));
+    }
+
+    /**
+     * 索引flush
+     *
+     * @param indexName 索引名
+     * @return flush是否成功的CompletableFuture，true成功 false失败
+     */
+    public CompletableFuture<Boolean> flush(String indexName) {
+        return asyncLimiter.submit(() -> elasticsearchAsyncClient.indices().flush(f -> f.index(indexName)))
+                .thenApply(response -> IndexApi.doOperation(response.shards()));
+    }
+
+    private CompletableFuture<Boolean> deleteIfExisted(String indexName) {
+        return isExistedIndex(indexName)
+                .thenCompose(existed -> Boolean.TRUE.equals(existed)
+                        ? deleteIndex(indexName)
+                        : CompletableFuture.completedFuture(false));
+    }
+
+    private boolean logCreated(CreateIndexResponse createIndexResponse) {
+        log.info("{} 索引创建是否成功: {}", createIndexResponse.index(), createIndexResponse.acknowledged());
+
+        return createIndexResponse.acknowledged();
+    }
+}
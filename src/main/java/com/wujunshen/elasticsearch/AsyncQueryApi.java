@@ -0,0 +1,653 @@
+package com.wujunshen.elasticsearch;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch._types.aggregations.HistogramBucket;
+import co.elastic.clients.elasticsearch._types.query_dsl.ChildScoreMode;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.GetResponse;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.json.JsonpMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.wujunshen.elasticsearch.concurrent.AsyncLimiter;
+import com.wujunshen.elasticsearch.search.Projection;
+import com.wujunshen.elasticsearch.search.QueryContext;
+import com.wujunshen.elasticsearch.search.SearchSpec;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import javax.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * QueryApi的异步版本，所有方法不阻塞调用线程，返回CompletableFuture
+ * <p>
+ * 请求只经过AsyncLimiter的并发限制，不经过QueryApi使用的查询结果缓存、近端缓存、single-flight合并和对冲请求，
+ * 每次调用都会向es发送请求。需要这些优化的读多写少场景请使用QueryApi
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/17 22:40<br>
+ */
+@Slf4j
+@Component
+public class AsyncQueryApi {
+    @Resource
+    private ElasticsearchAsyncClient elasticsearchAsyncClient;
+
+    @Resource
+    private AsyncLimiter asyncLimiter;
+
+    /**
+     * 指定id检索数据
+     *
+     * @param <T>        文档对象泛型
+     * @param indexName 索引名
+     * @param id 文档id
+     * @param clazz 要搜索的文档对象class
+     * @return GetResponse对象的CompletableFuture
+     */
+    public <T> CompletableFuture<GetResponse<T>> searchById(String indexName, String id, Class<T> clazz) {
+        return asyncLimiter.submit(() -> elasticsearchAsyncClient.get(g -> g.index(indexName).id(id), clazz))
+                .thenApply(response -> {
+                    if (response.found()) {
+                        return response;
+                    }
+                    log.info("not found");
+                    return null;
+                });
+    }
+
+    /**
+     * 按SearchSpec查询，参数含义见QueryApi中的同名方法
+     *
+     * @param <T>   文档对象泛型
+     * @param spec  查询描述
+     * @param clazz 结果对象class
+     * @return 泛型对象列表集合的CompletableFuture
+     */
+    public <T> CompletableFuture<List<T>> search(SearchSpec spec, Class<T> clazz) {
+        SearchRequest request = spec.toSearchRequest();
+        Projection projection = spec.getProjection();
+        if (!projection.isMerged()) {
+            return asyncLimiter.submit(() -> elasticsearchAsyncClient.search(request, clazz))
+                    .thenApply(QueryApi::getSources);
+        }
+
+        JsonpMapper mapper = elasticsearchAsyncClient._transport().jsonpMapper();
+        return asyncLimiter.submit(() -> elasticsearchAsyncClient.search(request, ObjectNode.class))
+                .thenApply(response -> QueryApi.getProjections(response, projection, clazz, mapper));
+    }
+
+    /**
+     * 聚合操作
+     *
+     * @param indexName 索引名
+     * @param searchText 搜索内容
+     * @param searchField 搜索字段
+     * @param aggsField 聚合字段
+     * @param aggsKey 聚合key
+     * @param intervalValue 间隔值
+     * @return HistogramBucket列表的CompletableFuture
+     */
+    public CompletableFuture<List<HistogramBucket>> aggsByHistogram(
+            String indexName,
+            String searchText,
+            String searchField,
+            String aggsField,
+            String aggsKey,
+            Double intervalValue) {
+        SearchRequest request = QueryRequests.aggsByHistogram(
+                indexName, searchText, searchField, aggsField, aggsKey, intervalValue);
+
+        return asyncLimiter.submit(() -> elasticsearchAsyncClient.search(request, Void.class))
+                .thenApply(response -> response.aggregations().get(aggsKey).histogram().buckets().array());
+    }
+
+    /**
+     * matchAllQuery方法
+     *
+     * @param <T>          文档对象泛型
+     * @param indexName 索引名
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @param clazz 要搜索的文档对象class
+     * @return 泛型对象列表集合的CompletableFuture
+     */
+    public <T> CompletableFuture<List<T>> matchAllQuery(
+            String indexName, String sortedField, int fromIndex, int pageSize, boolean isDesc, Class<T> clazz) {
+        return search(QueryRequests.matchAllQuery(indexName, sortedField, fromIndex, pageSize, isDesc), clazz);
+    }
+
+    /**
+     * matchQuery方法
+     *
+     * @param <T>          文档对象泛型
+     * @param indexName 索引名
+     * @param searchText 搜索内容
+     * @param searchField 要搜索的字段
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @param clazz 要搜索的文档对象class
+     * @return 泛型对象列表集合的CompletableFuture
+     */
+    public <T> CompletableFuture<List<T>> matchQuery(
+            String indexName,
+            String searchText,
+            String searchField,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            Class<T> clazz) {
+        return search(QueryRequests.matchQuery(
+                indexName, searchText, searchField, sortedField, fromIndex, pageSize, isDesc), clazz);
+    }
+
+    /**
+     * multiMatchQuery方法
+     *
+     * @param <T>          文档对象泛型
+     * @param indexName 索引名
+     * @param searchText 搜索内容
+     * @param searchFields 要搜索的字段列表
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @param clazz 要搜索的文档对象class
+     * @return 泛型对象列表集合的CompletableFuture
+     */
+    public <T> CompletableFuture<List<T>> multiMatchQuery(
+            String indexName,
+            String searchText,
+            List<String> searchFields,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            Class<T> clazz) {
+        return search(QueryRequests.multiMatchQuery(
+                indexName, searchText, searchFields, sortedField, fromIndex, pageSize, isDesc), clazz);
+    }
+
+    /**
+     * matchPhrasePrefixQuery方法
+     *
+     * @param <T>          文档对象泛型
+     * @param indexName 索引名
+     * @param searchText 搜索内容
+     * @param searchField 要搜索的字段
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @param clazz 要搜索的文档对象class
+     * @return 泛型对象列表集合的CompletableFuture
+     */
+    public <T> CompletableFuture<List<T>> matchPhrasePrefixQuery(
+            String indexName,
+            String searchText,
+            String searchField,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            Class<T> clazz) {
+        return search(QueryRequests.matchPhrasePrefixQuery(
+                indexName, searchText, searchField, sortedField, fromIndex, pageSize, isDesc), clazz);
+    }
+
+    /**
+     * idsQuery方法
+     *
+     * @param <T>          文档对象泛型
+     * @param indexName 索引名
+     * @param searchTexts 搜索内容列表
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @param clazz 要搜索的文档对象class
+     * @return 泛型对象列表集合的CompletableFuture
+     */
+    public <T> CompletableFuture<List<T>> idsQuery(
+            String indexName,
+            List<String> searchTexts,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            Class<T> clazz) {
+        return search(QueryRequests.idsQuery(indexName, searchTexts, sortedField, fromIndex, pageSize, isDesc), clazz);
+    }
+
+    /**
+     * termQuery方法
+     *
+     * @param <T>          文档对象泛型
+     * @param indexName 索引名
+     * @param searchText 搜索内容
+     * @param searchField 要搜索的字段
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @param clazz 要搜索的文档对象class
+     * @return 泛型对象列表集合的CompletableFuture
+     */
+    public <T> CompletableFuture<List<T>> termQuery(
+            String indexName,
+            String searchText,
+            String searchField,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            Class<T> clazz) {
+        return search(QueryRequests.termQuery(
+                indexName, searchText, searchField, sortedField, fromIndex, pageSize, isDesc), clazz);
+    }
+
+    /**
+     * termQuery方法，context为FILTER时term条件不计算得分，可以被节点的query cache缓存
+     *
+     * @param <T>          文档对象泛型
+     * @param indexName 索引名
+     * @param searchText 搜索内容
+     * @param searchField 要搜索的字段
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @param context 查询条件的执行上下文
+     * @param clazz 要搜索的文档对象class
+     * @return 泛型对象列表集合的CompletableFuture
+     */
+    public <T> CompletableFuture<List<T>> termQuery(
+            String indexName,
+            String searchText,
+            String searchField,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            QueryContext context,
+            Class<T> clazz) {
+        return search(QueryRequests.termQuery(
+                indexName, searchText, searchField, sortedField, fromIndex, pageSize, isDesc, context), clazz);
+    }
+
+    /**
+     * fuzzyQuery方法
+     *
+     * @param <T>          文档对象泛型
+     * @param indexName 索引名
+     * @param searchText 搜索内容
+     * @param searchField 要搜索的字段
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @param clazz 要搜索的文档对象class
+     * @return 泛型对象列表集合的CompletableFuture
+     */
+    public <T> CompletableFuture<List<T>> fuzzyQuery(
+            String indexName,
+            String searchText,
+            String searchField,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            Class<T> clazz) {
+        return search(QueryRequests.fuzzyQuery(
+                indexName, searchText, searchField, sortedField, fromIndex, pageSize, isDesc), clazz);
+    }
+
+    /**
+     * rangeQuery方法
+     *
+     * @param <T>          文档对象泛型
+     * @param indexName 索引名
+     * @param fromSearchText 开始搜索的内容
+     * @param toSearchText 完成搜索的内容
+     * @param searchField 要搜索的字段
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @param clazz 要搜索的文档对象class
+     * @return 泛型对象列表集合的CompletableFuture
+     */
+    public <T> CompletableFuture<List<T>> rangeQuery(
+            String indexName,
+            String fromSearchText,
+            String toSearchText,
+            String searchField,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            Class<T> clazz) {
+        return search(QueryRequests.rangeQuery(
+                indexName, fromSearchText, toSearchText, searchField, sortedField, fromIndex, pageSize, isDesc), clazz);
+    }
+
+    /**
+     * rangeQuery方法，context为FILTER时range条件不计算得分，可以被节点的query cache缓存
+     *
+     * @param <T>          文档对象泛型
+     * @param indexName 索引名
+     * @param fromSearchText 搜索内容开始值
+     * @param toSearchText 搜索内容结束值
+     * @param searchField 要搜索的字段
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @param context 查询条件的执行上下文
+     * @param clazz 要搜索的文档对象class
+     * @return 泛型对象列表集合的CompletableFuture
+     */
+    public <T> CompletableFuture<List<T>> rangeQuery(
+            String indexName,
+            String fromSearchText,
+            String toSearchText,
+            String searchField,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            QueryContext context,
+            Class<T> clazz) {
+        return search(QueryRequests.rangeQuery(
+                indexName, fromSearchText, toSearchText, searchField, sortedField, fromIndex, pageSize, isDesc,
+                context), clazz);
+    }
+
+    /**
+     * wildcardQuery方法
+     *
+     * @param <T>          文档对象泛型
+     * @param indexName 索引名
+     * @param searchText 搜索内容
+     * @param searchField 要搜索的字段
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @param clazz 要搜索的文档对象class
+     * @return 泛型对象列表集合的CompletableFuture
+     */
+    public <T> CompletableFuture<List<T>> wildcardQuery(
+            String indexName,
+            String searchText,
+            String searchField,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            Class<T> clazz) {
+        return search(QueryRequests.wildcardQuery(
+                indexName, searchText, searchField, sortedField, fromIndex, pageSize, isDesc), clazz);
+    }
+
+    /**
+     * constantScoreQuery方法
+     *
+     * @param <T>          文档对象泛型
+     * @param indexName 索引名
+     * @param searchText 搜索内容
+     * @param searchField 要搜索的字段
+     * @param boost  boost计分
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @param clazz 要搜索的文档对象class
+     * @return 泛型对象列表集合的CompletableFuture
+     */
+    public <T> CompletableFuture<List<T>> constantScoreQuery(
+            String indexName,
+            String searchText,
+            String searchField,
+            float boost,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            Class<T> clazz) {
+        return search(QueryRequests.constantScoreQuery(
+                indexName, searchText, searchField, boost, sortedField, fromIndex, pageSize, isDesc), clazz);
+    }
+
+    /**
+     * disMaxQuery方法
+     *
+     * @param <T>          文档对象泛型
+     * @param indexName 索引名
+     * @param queries 内嵌的query对象列表
+     * @param boost  boost计分
+     * @param tieBreaker tieBreaker
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @param clazz 要搜索的文档对象class
+     * @return 泛型对象列表集合的CompletableFuture
+     */
+    public <T> CompletableFuture<List<T>> disMaxQuery(
+            String indexName,
+            List<Query> queries,
+            float boost,
+            double tieBreaker,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            Class<T> clazz) {
+        return search(QueryRequests.disMaxQuery(
+                indexName, queries, boost, tieBreaker, sortedField, fromIndex, pageSize, isDesc), clazz);
+    }
+
+    /**
+     *
+     * queryStringQuery方法
+     *
+     * @param <T>          文档对象泛型
+     * @param indexName 索引名
+     * @param searchText 搜索内容
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @param clazz 要搜索的文档对象class
+     * @return 泛型对象列表集合的CompletableFuture
+     */
+    public <T> CompletableFuture<List<T>> queryStringQuery(
+            String indexName,
+            String searchText,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            Class<T> clazz) {
+        return search(QueryRequests.queryStringQuery(
+                indexName, searchText, sortedField, fromIndex, pageSize, isDesc), clazz);
+    }
+
+    /**
+     * spanFirstQuery方法
+     *
+     * @param <T>          文档对象泛型
+     * @param indexName 索引名
+     * @param searchText 搜索内容
+     * @param searchField 要搜索的字段
+     * @param end end
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @param clazz 要搜索的文档对象class
+     * @return 泛型对象列表集合的CompletableFuture
+     */
+    public <T> CompletableFuture<List<T>> spanFirstQuery(
+            String indexName,
+            String searchText,
+            String searchField,
+            int end,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            Class<T> clazz) {
+        return search(QueryRequests.spanFirstQuery(
+                indexName, searchText, searchField, end, sortedField, fromIndex, pageSize, isDesc), clazz);
+    }
+
+    /**
+     * spanTermQuery方法
+     *
+     * @param <T>          文档对象泛型
+     * @param indexName 索引名
+     * @param searchText 搜索内容
+     * @param searchField 要搜索的字段
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @param clazz 要搜索的文档对象class
+     * @return 泛型对象列表集合的CompletableFuture
+     */
+    public <T> CompletableFuture<List<T>> spanTermQuery(
+            String indexName,
+            String searchText,
+            String searchField,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            Class<T> clazz) {
+        return search(QueryRequests.spanTermQuery(
+                indexName, searchText, searchField, sortedField, fromIndex, pageSize, isDesc), clazz);
+    }
+
+    /**
+     * boolQuery方法
+     *
+     * @param <T>          文档对象泛型
+     * @param indexName 索引名
+     * @param queries 内嵌的query对象列表
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @param clazz 要搜索的文档对象class
+     * @return 泛型对象列表集合的CompletableFuture
+     */
+    public <T> CompletableFuture<List<T>> boolQuery(
+            String indexName,
+            List<Query> queries,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            Class<T> clazz) {
+        return search(QueryRequests.boolQuery(indexName, queries, sortedField, fromIndex, pageSize, isDesc), clazz);
+    }
+
+    /**
+     * boolQuery方法，mustQueries计算得分，filterQueries不计算得分，可以被节点的query cache缓存
+     *
+     * @param <T>          文档对象泛型
+     * @param indexName 索引名
+     * @param mustQueries 计算得分的查询条件列表
+     * @param filterQueries 不计算得分的过滤条件列表
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @param clazz 要搜索的文档对象class
+     * @return 泛型对象列表集合的CompletableFuture
+     */
+    public <T> CompletableFuture<List<T>> boolQuery(
+            String indexName,
+            List<Query> mustQueries,
+            List<Query> filterQueries,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            Class<T> clazz) {
+        return search(QueryRequests.boolQuery(
+                indexName, mustQueries, filterQueries, sortedField, fromIndex, pageSize, isDesc), clazz);
+    }
+
+    /**
+     * nestedQuery方法
+     *
+     * @param <T>          文档对象泛型
+     * @param indexName 索引名
+     * @param path path
+     * @param query 内嵌的query对象
+     * @param childScoreMode ChildScoreMode枚举类值
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @param clazz 要搜索的文档对象class
+     * @return 泛型对象列表集合的CompletableFuture
+     */
+    public <T> CompletableFuture<List<T>> nestedQuery(
+            String indexName,
+            String path,
+            Query query,
+            ChildScoreMode childScoreMode,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            Class<T> clazz) {
+        return search(QueryRequests.nestedQuery(
+                indexName, path, query, childScoreMode, sortedField, fromIndex, pageSize, isDesc), clazz);
+    }
+
+    /**
+     * highLightQuery方法
+     *
+     * @param <T>          文档对象泛型
+     * @param indexName 索引名
+     * @param query 内嵌的query对象
+     * @param highlightField 高亮查询字段
+     * @param preTags 高亮前置部分
+     * @param postTags 高亮后置部分
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @param clazz 要搜索的文档对象class
+     * @return 泛型对象列表集合的CompletableFuture
+     */
+    public <T> CompletableFuture<List<Map<String, List<String>>>> highLightQuery(
+            String indexName,
+            Query query,
+            String highlightField,
+            String preTags,
+            String postTags,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            Class<T> clazz) {
+        SearchRequest request = QueryRequests.highLightQuery(
+                indexName, query, highlightField, preTags, postTags, sortedField, fromIndex, pageSize, isDesc);
+
+        return asyncLimiter.submit(() -> elasticsearchAsyncClient.search(request, clazz))
+                .thenApply(QueryApi::getHighLights);
+    }
+}
@@ -1,22 +1,47 @@
 package com.wujunshen.elasticsearch;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
-import co.elastic.clients.elasticsearch.core.BulkRequest;
-import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch._types.Conflicts;
+import co.elastic.clients.elasticsearch._types.Slices;
+import co.elastic.clients.elasticsearch._types.SlicesCalculation;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.DeleteByQueryResponse;
 import co.elastic.clients.elasticsearch.core.DeleteResponse;
+import co.elastic.clients.elasticsearch.core.GetRequest;
 import co.elastic.clients.elasticsearch.core.GetResponse;
 import co.elastic.clients.elasticsearch.core.IndexResponse;
-import co.elastic.clients.elasticsearch.core.SearchResponse;
 import co.elastic.clients.elasticsearch.core.UpdateResponse;
-import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetResponseItem;
 import co.elastic.clients.elasticsearch.core.search.Hit;
+import com.wujunshen.config.ElasticSearchConfigProperties;
+import com.wujunshen.elasticsearch.bulk.BulkFailure;
+import com.wujunshen.elasticsearch.bulk.BulkIngester;
+import com.wujunshen.elasticsearch.bulk.BulkResult;
+import com.wujunshen.elasticsearch.cache.DocumentNearCache;
+import com.wujunshen.elasticsearch.cache.SearchResultCache;
+import com.wujunshen.elasticsearch.concurrent.Futures;
+import com.wujunshen.elasticsearch.export.ExportResult;
+import com.wujunshen.elasticsearch.export.ExportSink;
+import com.wujunshen.elasticsearch.export.SlicedExporter;
+import com.wujunshen.elasticsearch.concurrent.Hedger;
+import com.wujunshen.elasticsearch.mget.DocumentKey;
+import com.wujunshen.elasticsearch.mget.MultiGetLoader;
+import com.wujunshen.elasticsearch.search.PitIterator;
+import com.wujunshen.elasticsearch.task.TaskPoller;
+import com.wujunshen.elasticsearch.task.TaskProgress;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import javax.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import org.springframework.util.CollectionUtils;
 
 /**
  * @author frank woo(吴峻申) <br>
@@ -29,6 +54,27 @@ public class DocumentApi {
     @Resource
     private ElasticsearchClient elasticsearchClient;
 
+    @Resource
+    private ElasticsearchAsyncClient elasticsearchAsyncClient;
+
+    @Resource
+    private Hedger hedger;
+
+    @Resource
+    private ElasticSearchConfigProperties elasticSearchConfigProperties;
+
+    @Resource
+    private SearchResultCache searchResultCache;
+
+    @Resource
+    private DocumentNearCache documentNearCache;
+
+    @Resource
+    private MultiGetLoader multiGetLoader;
+
+    @Resource
+    private BulkIngester bulkIngester;
+
     /**
      * 单个文档写入
      *
@@ -39,8 +85,13 @@ public class DocumentApi {
      * @throws IOException 异常信息
      */
     public <T> IndexResponse addDocument(String indexName, T o) throws IOException {
-        IndexResponse indexResponse = elasticsearchClient.index(
-                indexRequest -> indexRequest.index(indexName).document(o));
+        IndexResponse indexResponse;
+        try {
+            indexResponse = elasticsearchClient.index(indexRequest -> indexRequest.index(indexName).document(o));
+        } finally {
+            // 请求失败时写入也可能已经生效，无论成败都使缓存失效
+            searchResultCache.invalidate(indexName);
+        }
 
         log.info("response: {}", indexResponse);
 
@@ -58,8 +109,13 @@ public class DocumentApi {
      * @throws IOException 异常信息
      */
     public <T> IndexResponse addDocument(String indexName, String id, T o) throws IOException {
-        IndexResponse indexResponse = elasticsearchClient.index(
-                indexRequest -> indexRequest.index(indexName).id(id).document(o));
+        IndexResponse indexResponse;
+        try {
+            indexResponse = elasticsearchClient.index(
+                    indexRequest -> indexRequest.index(indexName).id(id).document(o));
+        } finally {
+            invalidate(indexName, id);
+        }
 
         log.info("response: {}", indexResponse);
 
@@ -78,8 +134,13 @@ public class DocumentApi {
      * @throws IOException 异常信息
      */
     public <T> UpdateResponse<T> updateDocument(String indexName, T o, String id, Class<T> clazz) throws IOException {
-        UpdateResponse<T> updateResponse = elasticsearchClient.update(
-                updateRequest -> updateRequest.index(indexName).id(id).doc(o), clazz);
+        UpdateResponse<T> updateResponse;
+        try {
+            updateResponse = elasticsearchClient.update(
+                    updateRequest -> updateRequest.index(indexName).id(id).doc(o), clazz);
+        } finally {
+            invalidate(indexName, id);
+        }
 
         log.info("response: {}", updateResponse);
 
@@ -87,7 +148,7 @@ public class DocumentApi {
     }
 
     /**
-     * 查询文档信息
+     * 查询文档信息，开启近端缓存时优先从缓存中取，开启mget合并时与同一窗口内的其它查询合并为一次mget
      *
      * @param indexName 索引名
      * @param id        要查询的文档对象id
@@ -97,16 +158,66 @@ public class DocumentApi {
      * @throws IOException 异常信息
      */
     public <T> GetResponse<T> getDocument(String indexName, String id, Class<T> clazz) throws IOException {
-        GetResponse<T> getResponse = elasticsearchClient.get(
-                getRequest -> getRequest.index(indexName).id(id), clazz);
+        GetRequest request = GetRequest.of(getRequest -> getRequest.index(indexName).id(id));
+
+        GetResponse<T> getResponse = documentNearCache.get(indexName, id, clazz, () -> {
+            if (multiGetLoader.isEnabled()) {
+                return Futures.join(multiGetLoader.get(DocumentKey.of(indexName, id), clazz));
+            }
+            return hedger.isEnabled()
+                    ? Futures.join(hedger.execute(() -> elasticsearchAsyncClient.get(request, clazz)))
+                    : elasticsearchClient.get(request, clazz);
+        });
 
         log.info("document source: {}, response: {}", getResponse.source(), getResponse);
 
         return getResponse;
     }
 
+    /**
+     * 批量查询同一索引下的文档信息，按配置拆成多个mget并行发送
+     *
+     * @param indexName 索引名
+     * @param ids       要查询的文档对象id
+     * @param clazz     要查询的文档对象class
+     * @param <T>       文档对象泛型
+     * @return 以文档id为key、按ids顺序排列的查询结果，不存在的文档found为false
+     * @throws IOException 异常信息
+     */
+    public <T> Map<String, MultiGetResponseItem<T>> multiGetDocument(
+            String indexName, Collection<String> ids, Class<T> clazz) throws IOException {
+        List<DocumentKey> keys = ids.stream().map(id -> DocumentKey.of(indexName, id)).toList();
+
+        Map<String, MultiGetResponseItem<T>> result = new LinkedHashMap<>();
+        multiGetDocument(keys, clazz).forEach((key, item) -> result.put(key.id(), item));
+
+        return result;
+    }
+
+    /**
+     * 批量查询多个索引下的文档信息，按配置拆成多个mget并行发送
+     *
+     * @param keys  要查询的文档的索引名和id
+     * @param clazz 要查询的文档对象class
+     * @param <T>   文档对象泛型
+     * @return 按keys顺序排列的查询结果，不存在的文档found为false，索引不存在等读取失败的文档为failure
+     * @throws IOException 异常信息
+     */
+    public <T> Map<DocumentKey, MultiGetResponseItem<T>> multiGetDocument(
+            Collection<DocumentKey> keys, Class<T> clazz) throws IOException {
+        Map<DocumentKey, MultiGetResponseItem<T>> result =
+                Futures.join(multiGetLoader.getAll(List.copyOf(keys), clazz));
+
+        log.info("mget {} documents, found: {}", result.size(),
+                result.values().stream().filter(item -> item.isResult() && item.result().found()).count());
+
+        return result;
+    }
+
     /**
      * 获取索引下所有文档信息
+     * <p>
+     * 结果全部加载到内存中，大索引请使用streamAllDocument或exportAllDocument
      *
      * @param indexName 索引名
      * @param clazz 要查询的文档对象class
@@ -115,11 +226,11 @@ public class DocumentApi {
      * @throws IOException 异常信息
      */
     public <T> List<T> getAllDocument(String indexName, Class<T> clazz) throws IOException {
-        SearchResponse<T> searchResponse = elasticsearchClient.search(a -> a.index(indexName), clazz);
-
-        List<Hit<T>> hitList = getHitList(searchResponse);
-
-        return hitList.stream().map(Hit::source).toList();
+        try (Stream<T> stream = streamAllDocument(indexName, clazz)) {
+            return stream.toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
     /**
@@ -132,11 +243,84 @@ public class DocumentApi {
      * @throws IOException 异常信息
      */
     public <T> List<String> getAllDocumentIds(String indexName, Class<T> clazz) throws IOException {
-        SearchResponse<T> searchResponse = elasticsearchClient.search(a -> a.index(indexName), clazz);
+        try (Stream<Hit<T>> stream = iterateAllDocument(indexName, null, clazz).stream()) {
+            return stream.map(Hit::id).toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
-        List<Hit<T>> hitList = getHitList(searchResponse);
+    /**
+     * 以Stream方式遍历索引下所有文档
+     * <p>
+     * 惰性分页读取，内存中最多持有两页数据，使用完毕后需关闭Stream以释放point-in-time。
+     * 读取失败，包括部分分片失败或超时，在遍历时抛出UncheckedIOException
+     *
+     * @param indexName 索引名
+     * @param clazz 要查询的文档对象class
+     * @return 文档对象泛型Stream
+     * @param <T> 文档对象泛型
+     * @throws IOException 异常信息
+     */
+    public <T> Stream<T> streamAllDocument(String indexName, Class<T> clazz) throws IOException {
+        return iterateAllDocument(indexName, null, clazz).stream().map(Hit::source);
+    }
 
-        return hitList.stream().map(Hit::id).toList();
+    /**
+     * 以迭代器方式遍历索引下符合条件的文档
+     *
+     * @param indexName 索引名
+     * @param query 过滤条件，为null时遍历所有文档
+     * @param clazz 要查询的文档对象class
+     * @return PitIterator对象，使用完毕后需调用close
+     * @param <T> 文档对象泛型
+     * @throws IOException 异常信息
+     */
+    public <T> PitIterator<T> iterateAllDocument(String indexName, Query query, Class<T> clazz)
+            throws IOException {
+        ElasticSearchConfigProperties.Scroll scroll = elasticSearchConfigProperties.getScroll();
+
+        return new PitIterator<>(
+                elasticsearchClient, indexName, query, scroll.getPageSize(), scroll.getKeepAlive(), clazz);
+    }
+
+    /**
+     * 按配置的slice数并行导出索引下所有文档，用于备份和迁移大索引
+     *
+     * @param indexName 索引名
+     * @param clazz 要导出的文档对象class
+     * @param sink 文档接收方，在调用线程上依次调用
+     * @return ExportResult对象，包含导出的文档数和每秒文档数
+     * @param <T> 文档对象泛型
+     * @throws IOException 异常信息
+     */
+    public <T> ExportResult exportAllDocument(String indexName, Class<T> clazz, ExportSink<T> sink)
+            throws IOException {
+        return exportAllDocument(
+                indexName, null, elasticSearchConfigProperties.getScroll().getSlices(), clazz, sink);
+    }
+
+    /**
+     * 用sliced point-in-time并行导出索引下符合条件的文档
+     * <p>
+     * 每个slice一个读取线程，读到的数据经有界队列交给sink，sink处理慢时读取线程等待，内存占用与索引大小无关
+     *
+     * @param indexName 索引名
+     * @param query 过滤条件，为null时导出所有文档
+     * @param slices 并行读取的slice数，小于等于1时单线程读取
+     * @param clazz 要导出的文档对象class
+     * @param sink 文档接收方，在调用线程上依次调用
+     * @return ExportResult对象，包含导出的文档数和每秒文档数
+     * @param <T> 文档对象泛型
+     * @throws IOException 异常信息
+     */
+    public <T> ExportResult exportAllDocument(
+            String indexName, Query query, int slices, Class<T> clazz, ExportSink<T> sink) throws IOException {
+        ElasticSearchConfigProperties.Scroll scroll = elasticSearchConfigProperties.getScroll();
+
+        return new SlicedExporter<>(
+                elasticsearchClient, indexName, query, slices, scroll.getPageSize(), scroll.getKeepAlive(), clazz)
+                .export(sink);
     }
 
     /**
@@ -148,8 +332,12 @@ public class DocumentApi {
      * @throws IOException 异常信息
      */
     public DeleteResponse deleteDocument(String indexName, String id) throws IOException {
-        DeleteResponse deleteResponse = elasticsearchClient.delete(
-                deleteRequest -> deleteRequest.index(indexName).id(id));
+        DeleteResponse deleteResponse;
+        try {
+            deleteResponse = elasticsearchClient.delete(deleteRequest -> deleteRequest.index(indexName).id(id));
+        } finally {
+            invalidate(indexName, id);
+        }
 
         log.info("response: {}, result:{}", deleteResponse, deleteResponse.result());
 
@@ -158,6 +346,8 @@ public class DocumentApi {
 
     /**
      * 删除所有文档信息
+     * <p>
+     * 使用服务端delete_by_query删除，不再从客户端取回文档id
      *
      * @param indexName 索引名
      * @param clazz 文档对象泛型的class
@@ -166,39 +356,88 @@ public class DocumentApi {
      * @throws IOException 异常信息
      */
     public <T> boolean deleteAllDocument(String indexName, Class<T> clazz) throws IOException {
-        return batchDeleteDocument(indexName, getAllDocumentIds(indexName, clazz));
+        return deleteByQuery(indexName, Query.of(q -> q.matchAll(m -> m)), 0, 0, null).isSuccess();
+    }
+
+    /**
+     * 按条件删除文档
+     * <p>
+     * 以wait_for_completion=false提交delete_by_query任务，再通过tasks API轮询直到任务结束
+     *
+     * @param indexName         索引名
+     * @param query             删除条件
+     * @param slices            并行切片数，小于等于0表示由es自动决定
+     * @param requestsPerSecond 每秒处理的文档数上限，小于等于0表示不限流
+     * @param progressListener  进度回调，可为null
+     * @return 任务结束时的进度
+     * @throws IOException 异常信息
+     */
+    public TaskProgress deleteByQuery(
+            String indexName,
+            Query query,
+            int slices,
+            long requestsPerSecond,
+            Consumer<TaskProgress> progressListener)
+            throws IOException {
+        Slices sliceCount = slices > 0
+                ? Slices.of(s -> s.value(slices))
+                : Slices.of(s -> s.computed(SlicesCalculation.Auto));
+
+        DeleteByQueryResponse response = elasticsearchClient.deleteByQuery(d -> {
+            d.index(indexName)
+                    .query(query)
+                    .conflicts(Conflicts.Proceed)
+                    .waitForCompletion(false)
+                    .slices(sliceCount);
+            if (requestsPerSecond > 0) {
+                d.requestsPerSecond(requestsPerSecond);
+            }
+            return d;
+        });
+
+        log.info("delete by query task: {}", response.task());
+
+        TaskPoller taskPoller = new TaskPoller(elasticsearchClient, elasticSearchConfigProperties.getTaskPollInterval());
+        TaskProgress progress;
+        try {
+            progress = taskPoller.awaitCompletion(response.task(), progressListener);
+        } finally {
+            searchResultCache.invalidate(indexName);
+            documentNearCache.invalidate(indexName);
+        }
+
+        log.info("delete by query finished, deleted: {}, failures: {}", progress.getDeleted(), progress.getFailures());
+
+        return progress;
     }
 
     /**
      * 批量插入文档
+     * <p>
+     * 通过共用的BulkIngester按配置的操作数和字节数自动拆分成多个bulk请求，避免大list生成单个超大请求，
+     * 被拒绝(429)的单条文档会退避后单独重试。
+     * 大批量导入时可以放在IndexApi.withBulkLoadSettings中执行，写入期间关闭refresh和副本
      *
      * @param indexName 索引名
      * @param list      批量插入的文档对象list
      * @param <T>       文档对象泛型
-     * @return 批量插入是否成功
+     * @return BulkResult对象，包含永久失败的文档明细
      * @throws IOException 异常信息
      */
-    public <T> boolean batchAddDocument(String indexName, List<T> list) throws IOException {
-        BulkRequest.Builder br = new BulkRequest.Builder();
+    public <T> BulkResult batchAddDocument(String indexName, List<T> list) throws IOException {
+        BulkIngester.Session session = bulkIngester.session();
 
-        for (T element : list) {
-            br.operations(op -> op.index(idx -> idx.index(indexName).document(element)));
-        }
-
-        BulkResponse bulkResponse = elasticsearchClient.bulk(br.build());
-
-        if (bulkResponse.errors()) {
-            log.error("Bulk had errors");
-            for (BulkResponseItem item : bulkResponse.items()) {
-                if (item.error() != null) {
-                    log.error("{}", item.error().reason());
-                }
+        BulkResult bulkResult;
+        try {
+            for (T element : list) {
+                session.add(indexName, element);
             }
-            return false;
-        } else {
-            log.info("Bulk write success!");
-            return true;
+            bulkResult = session.await();
+        } finally {
+            searchResultCache.invalidate(indexName);
         }
+
+        return logBulkResult(bulkResult, "Bulk write success!");
     }
 
     /**
@@ -206,49 +445,42 @@ public class DocumentApi {
      *
      * @param indexName 索引名
      * @param ids      批量删除的文档id的列表
-     * @param <T>       文档对象泛型
-     * @return 批量删除是否成功
+     * @return BulkResult对象，包含永久失败的文档明细
      * @throws IOException 异常信息
      */
-    public <T> boolean batchDeleteDocument(String indexName, List<String> ids) throws IOException {
-        BulkRequest.Builder br = new BulkRequest.Builder();
+    public BulkResult batchDeleteDocument(String indexName, List<String> ids) throws IOException {
+        BulkIngester.Session session = bulkIngester.session();
 
-        for (String id : ids) {
-            br.operations(op -> op.delete(idx -> idx.index(indexName).id(id)));
-        }
-
-        BulkResponse bulkResponse = elasticsearchClient.bulk(br.build());
-
-        if (bulkResponse.errors()) {
-            log.error("Bulk had errors");
-            for (BulkResponseItem item : bulkResponse.items()) {
-                if (item.error() != null) {
-                    log.error("{}", item.error().reason());
-                }
+        BulkResult bulkResult;
+        try {
+            for (String id : ids) {
+                session.add(BulkOperation.of(op -> op.delete(idx -> idx.index(indexName).id(id))));
             }
-            return false;
-        } else {
-            log.info("Bulk delete success!");
-            return true;
+            bulkResult = session.await();
+        } finally {
+            searchResultCache.invalidate(indexName);
+            ids.forEach(id -> documentNearCache.invalidate(indexName, id));
         }
-    }
 
-    /**
-     * 获取Hit对象列表
-     *
-     * @param response SearchResponse对象
-     * @return 文档对象Hit泛型列表
-     * @param <T> 文档对象泛型
-     */
-    private <T> List<Hit<T>> getHitList(SearchResponse<T> response) {
-        log.info("consume times {} mill second", response.took());
+        return logBulkResult(bulkResult, "Bulk delete success!");
+    }
 
-        List<Hit<T>> hitList = response.hits().hits();
+    private void invalidate(String indexName, String id) {
+        searchResultCache.invalidate(indexName);
+        documentNearCache.invalidate(indexName, id);
+    }
 
-        if (CollectionUtils.isEmpty(hitList)) {
-            return new ArrayList<>();
+    private BulkResult logBulkResult(BulkResult bulkResult, String successMessage) {
+        if (bulkResult.isSuccess()) {
+            log.info(successMessage);
+        } else {
+            log.error("Bulk had errors, failed count: {}, retried count: {}",
+                    bulkResult.getFailedCount(), bulkResult.getRetriedCount());
+            for (BulkFailure failure : bulkResult.getFailures()) {
+                log.error("{}", failure.getReason());
+            }
         }
 
-        return hitList;
+        return bulkResult;
     }
 }
@@ -2,28 +2,58 @@ package com.wujunshen.elasticsearch;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.elasticsearch._types.ShardStatistics;
+import co.elastic.clients.elasticsearch._types.Slices;
+import co.elastic.clients.elasticsearch._types.SlicesCalculation;
+import co.elastic.clients.elasticsearch._types.Time;
 import co.elastic.clients.elasticsearch._types.mapping.Property;
 import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
 import co.elastic.clients.elasticsearch.cat.indices.IndicesRecord;
+import co.elastic.clients.elasticsearch.core.ReindexResponse;
 import co.elastic.clients.elasticsearch.indices.CreateIndexResponse;
 import co.elastic.clients.elasticsearch.indices.DeleteIndexResponse;
 import co.elastic.clients.elasticsearch.indices.FlushResponse;
 import co.elastic.clients.elasticsearch.indices.GetIndexResponse;
 import co.elastic.clients.elasticsearch.indices.GetMappingResponse;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.elasticsearch.indices.TranslogDurability;
 import co.elastic.clients.elasticsearch.indices.RefreshResponse;
 import co.elastic.clients.elasticsearch.indices.get_mapping.IndexMappingRecord;
 import co.elastic.clients.json.JsonpMapper;
 import co.elastic.clients.transport.endpoints.BooleanResponse;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.wujunshen.config.ElasticSearchConfigProperties;
+import com.wujunshen.elasticsearch.bulk.BulkIngester;
+import com.wujunshen.elasticsearch.bulk.BulkResult;
+import com.wujunshen.elasticsearch.cache.DocumentNearCache;
+import com.wujunshen.elasticsearch.cache.SearchResultCache;
+import com.wujunshen.elasticsearch.concurrent.EsCall;
+import com.wujunshen.elasticsearch.export.SlicedExporter;
+import com.wujunshen.elasticsearch.reindex.ReindexMode;
+import com.wujunshen.elasticsearch.reindex.ReindexResult;
+import com.wujunshen.elasticsearch.task.TaskPoller;
+import com.wujunshen.elasticsearch.task.TaskProgress;
 import jakarta.json.Json;
+import jakarta.json.JsonReader;
 import jakarta.json.stream.JsonParser;
 import java.io.IOException;
 import java.io.StringReader;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javax.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RestClient;
 import org.springframework.stereotype.Component;
 
 /**
@@ -34,16 +64,46 @@ import org.springframework.stereotype.Component;
 @Slf4j
 @Component
 public class IndexApi {
+    /**
+     * 版本化索引名中别名和版本号之间的分隔，如products_v7
+     */
+    private static final String VERSION_SEPARATOR = "_v";
+
+    /**
+     * 批量写入期间的设置：不refresh、不复制副本、translog异步刷盘
+     */
+    private static final IndexSettings BULK_LOAD_SETTINGS = IndexSettings.of(s -> s
+            .numberOfReplicas("0")
+            .refreshInterval(t -> t.time("-1"))
+            .translog(t -> t.durability(TranslogDurability.Async)));
+
+    /**
+     * 处于批量写入设置下的索引，防止嵌套或并发进入时把批量写入设置当作原设置恢复
+     */
+    private final Set<String> bulkLoadingIndices = ConcurrentHashMap.newKeySet();
+
     @Resource
     private ElasticsearchClient elasticsearchClient;
 
+    @Resource
+    private RestClient restClient;
+
+    @Resource
+    private SearchResultCache searchResultCache;
+
+    @Resource
+    private DocumentNearCache documentNearCache;
+
+    @Resource
+    private ElasticSearchConfigProperties elasticSearchConfigProperties;
+
     /**
      * 执行refresh或flush操作
      *
      * @param response 相应对象
      * @return 操作是否成功，true成功 false失败
      */
-    private boolean doOperation(ShardStatistics response) {
+    static boolean doOperation(ShardStatistics response) {
         int failedShards = response.failures().size();
         if (failedShards == response.total().intValue()) {
             log.info("ES索引刷新失败 {}", response.failures());
@@ -57,6 +117,8 @@ public class IndexApi {
 
     /**
      * 创建索引
+     * <p>
+     * 索引已存在时先删除，会丢失数据，线上修改mapping请使用reindexWithAlias
      *
      * @param indexName 索引名
      * @return 是否创建成功
@@ -98,6 +160,8 @@ public class IndexApi {
      */
     public boolean deleteIndex(String indexName) throws IOException {
         DeleteIndexResponse deleteIndexResponse = elasticsearchClient.indices().delete(d -> d.index(indexName));
+        searchResultCache.invalidate(indexName);
+        documentNearCache.invalidate(indexName);
 
         log.info("{} 索引是否被删除: {}", indexName, deleteIndexResponse.acknowledged());
 
@@ -106,6 +170,8 @@ public class IndexApi {
 
     /**
      * 创建索引 - 指定mapping
+     * <p>
+     * 索引已存在时先删除，会丢失数据，线上修改mapping请使用reindexWithAlias
      *
      * @param indexName 索引名
      * @return 是否创建成功
@@ -130,6 +196,8 @@ public class IndexApi {
 
     /**
      * 创建索引 - 用json脚本创建mapping
+     * <p>
+     * 索引已存在时先删除，会丢失数据，线上修改mapping请使用reindexWithAlias
      *
      * @param indexName 索引名
      * @param mappingScript mapping的json脚本
@@ -155,6 +223,180 @@ public class IndexApi {
         return createIndexResponse.acknowledged();
     }
 
+    /**
+     * 按配置的复制方式和切片数用新mapping重建别名背后的索引，完成后原子切换别名
+     *
+     * @param alias            别名，应用通过别名读写
+     * @param typeMapping      新索引的mapping
+     * @param progressListener 复制进度回调，可为null
+     * @return ReindexResult对象
+     * @throws IOException 异常信息
+     */
+    public ReindexResult reindexWithAlias(
+            String alias, TypeMapping typeMapping, Consumer<TaskProgress> progressListener) throws IOException {
+        ElasticSearchConfigProperties.Reindex reindex = elasticSearchConfigProperties.getReindex();
+
+        return reindexWithAlias(alias, typeMapping, reindex.getMode(), reindex.getSlices(), progressListener);
+    }
+
+    /**
+     * 用新mapping重建别名背后的索引，完成后原子切换别名，重建期间通过别名的读不中断
+     * <p>
+     * 1. 找到别名当前指向的索引作为旧索引；alias本身是普通索引时也作为旧索引，切换时在同一个请求中删除它并建立同名别名
+     * 2. 新建{alias}_v{n}索引，n为旧索引版本号加一，使用与withBulkLoadSettings相同的批量写入设置
+     * 3. 按mode复制文档
+     * 4. refresh并按配置异步force merge，再恢复旧索引的副本数、refresh_interval和translog设置，副本从合并后的段复制
+     * 5. 用一次_aliases请求把别名(作为写索引)从旧索引切到新索引，按配置删除旧索引
+     * <p>
+     * 3到5中任何一步失败都删除新索引，别名保持不变。客户端复制时读取旧索引的任何一页有分片失败或超时也按失败处理，
+     * 不会把别名切到缺少文档的新索引。
+     * 这不是不停机的重建：复制开始后通过别名写入、修改和删除的文档只作用于旧索引，不会同步到新索引，
+     * 执行期间需要暂停写入，或者在切换后按业务数据补写
+     *
+     * @param alias            别名，应用通过别名读写
+     * @param typeMapping      新索引的mapping
+     * @param mode             复制文档的方式
+     * @param slices           并行切片数，小于等于0表示服务端由es自动决定、客户端使用scroll.slices
+     * @param progressListener 复制进度回调，可为null
+     * @return ReindexResult对象
+     * @throws IOException 异常信息
+     */
+    public ReindexResult reindexWithAlias(
+            String alias,
+            TypeMapping typeMapping,
+            ReindexMode mode,
+            int slices,
+            Consumer<TaskProgress> progressListener)
+            throws IOException {
+        long start = System.nanoTime();
+        String sourceIndex = resolveAlias(alias);
+        String targetIndex = nextVersionedIndex(alias, sourceIndex);
+        IndexSettings sourceSettings = sourceIndex == null ? null : getIndexSettings(sourceIndex).get(sourceIndex);
+
+        CreateIndexResponse createIndexResponse = elasticsearchClient
+                .indices()
+                .create(c -> c.index(targetIndex)
+                        .mappings(typeMapping)
+                        .settings(BULK_LOAD_SETTINGS));
+        log.info("{} 索引创建是否成功: {}, 旧索引: {}", targetIndex, createIndexResponse.acknowledged(), sourceIndex);
+
+        ElasticSearchConfigProperties.Reindex reindex = elasticSearchConfigProperties.getReindex();
+        TaskProgress progress;
+        try {
+            progress = sourceIndex == null
+                    ? TaskProgress.builder().taskId(alias).completed(true).build()
+                    : copyDocuments(sourceIndex, targetIndex, mode, slices, progressListener);
+            if (progress.isSuccess()) {
+                refresh(targetIndex);
+                if (reindex.getMaxNumSegments() > 0) {
+                    forcemerge(targetIndex, reindex.getMaxNumSegments());
+                }
+                restoreSettings(targetIndex, sourceSettings);
+                swapAlias(alias, sourceIndex, targetIndex);
+            }
+        } catch (IOException | RuntimeException e) {
+            // 别名切换前失败时别名保持不变，删除新索引，删除失败不掩盖原异常
+            try {
+                deleteIndex(targetIndex);
+            } catch (IOException | RuntimeException deleteException) {
+                e.addSuppressed(deleteException);
+            }
+            throw e;
+        }
+        if (!progress.isSuccess()) {
+            log.warn("{} 复制到 {} 失败，别名 {} 保持不变: {}", sourceIndex, targetIndex, alias, progress.getFailures());
+            deleteIndex(targetIndex);
+
+            return new ReindexResult(alias, sourceIndex, targetIndex, progress.getCreated(),
+                    Duration.ofNanos(System.nanoTime() - start), false, progress.getFailures());
+        }
+
+        if (reindex.isDeleteOldIndex() && sourceIndex != null && !sourceIndex.equals(alias)) {
+            deleteIndex(sourceIndex);
+        }
+
+        ReindexResult result = new ReindexResult(alias, sourceIndex, targetIndex, progress.getCreated(),
+                Duration.ofNanos(System.nanoTime() - start), true, progress.getFailures());
+        log.info("别名 {} 已从 {} 切换到 {}，复制 {} 个文档，耗时 {} ms，{} docs/s", alias, sourceIndex, targetIndex,
+                result.documents(), result.elapsed().toMillis(), (long) result.docsPerSecond());
+
+        return result;
+    }
+
+    /**
+     * 在写入优化的设置下执行批量写入，结束后恢复原设置并refresh
+     * <p>
+     * 执行前把副本数设为0、refresh_interval设为-1、translog改为异步刷盘，省去写入期间的refresh、副本复制和每个请求的fsync；
+     * 无论call是否成功都把这几项写回执行前的值(原来没有显式设置的写回null，由es恢复为默认值)，再refresh使写入的文档可以被查到。
+     * indexName是别名时修改和恢复的是别名指向的索引。
+     * 执行期间节点故障时分片没有副本，异步刷盘的translog也可能丢失最后几秒的写入，失败后需要重新写入。
+     * 同一个索引不能同时处于两个批量写入中
+     *
+     * @param indexName 索引名或别名
+     * @param call      批量写入，如documentApi.batchAddDocument
+     * @param <T>       返回值泛型
+     * @return call的返回值
+     * @throws IOException 异常信息，call抛出异常时原样抛出，恢复设置时的异常作为suppressed附加
+     */
+    public <T> T withBulkLoadSettings(String indexName, EsCall<T> call) throws IOException {
+        Map<String, IndexSettings> originalSettings = getIndexSettings(indexName);
+        List<String> entered = new ArrayList<>();
+        Throwable failure = null;
+        try {
+            for (String concreteIndex : originalSettings.keySet()) {
+                if (!bulkLoadingIndices.add(concreteIndex)) {
+                    throw new IllegalStateException(concreteIndex + "已处于批量写入设置下");
+                }
+                entered.add(concreteIndex);
+            }
+            for (String concreteIndex : entered) {
+                elasticsearchClient.indices().putSettings(p -> p.index(concreteIndex).settings(BULK_LOAD_SETTINGS));
+            }
+            log.info("{} 进入批量写入设置", entered);
+
+            return call.call();
+        } catch (IOException | RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            try {
+                for (String concreteIndex : entered) {
+                    restoreSettings(concreteIndex, originalSettings.get(concreteIndex));
+                }
+                if (!entered.isEmpty()) {
+                    refresh(indexName);
+                }
+            } catch (IOException | RuntimeException e) {
+                if (failure == null) {
+                    throw e;
+                }
+                failure.addSuppressed(e);
+            } finally {
+                entered.forEach(bulkLoadingIndices::remove);
+            }
+        }
+    }
+
+    /**
+     * 查询别名指向的索引
+     *
+     * @param alias 别名
+     * @return 别名指向的索引名，alias是普通索引时返回alias，都不存在时返回null
+     * @throws IOException 异常信息，别名指向多个索引时抛出IllegalStateException
+     */
+    public String resolveAlias(String alias) throws IOException {
+        if (!elasticsearchClient.indices().existsAlias(e -> e.name(alias)).value()) {
+            return isExistedIndex(alias) ? alias : null;
+        }
+
+        Set<String> indices = elasticsearchClient.indices().getAlias(g -> g.name(alias)).result().keySet();
+        if (indices.size() != 1) {
+            throw new IllegalStateException("别名" + alias + "指向多个索引: " + indices);
+        }
+
+        return indices.iterator().next();
+    }
+
     /**
      * 查询index
      *
@@ -250,7 +492,7 @@ public class IndexApi {
     }
 
     /**
-     * 索引refresh
+     * 索引refresh，refresh后新写入的文档可以被查到，查询结果缓存中该索引的结果随之失效
      *
      * @param indexName 索引名
      * @return refresh是否成功，true成功 false失败
@@ -258,6 +500,7 @@ public class IndexApi {
      */
     public boolean refresh(String indexName) throws IOException {
         RefreshResponse response = elasticsearchClient.indices().refresh(request -> request.index(indexName));
+        searchResultCache.invalidate(indexName);
 
         return doOperation(response.shards());
     }
@@ -274,4 +517,176 @@ public class IndexApi {
 
         return doOperation(response.shards());
     }
+
+    private String nextVersionedIndex(String alias, String sourceIndex) throws IOException {
+        int version = 1;
+        if (sourceIndex != null) {
+            Matcher matcher =
+                    Pattern.compile(Pattern.quote(alias + VERSION_SEPARATOR) + "(\\d+)").matcher(sourceIndex);
+            if (matcher.matches()) {
+                version = Integer.parseInt(matcher.group(1)) + 1;
+            }
+        }
+        // 跳过之前失败或回滚后留下的索引
+        while (isExistedIndex(alias + VERSION_SEPARATOR + version)) {
+            version++;
+        }
+
+        return alias + VERSION_SEPARATOR + version;
+    }
+
+    /**
+     * @return 按具体索引名分组的设置，indexName是别名时返回别名指向的索引
+     */
+    private Map<String, IndexSettings> getIndexSettings(String indexName) throws IOException {
+        Map<String, IndexSettings> result = new HashMap<>();
+        elasticsearchClient.indices().getSettings(g -> g.index(indexName)).result().forEach((name, state) -> {
+            IndexSettings settings = state.settings();
+            // 非flat_settings时副本数等设置在index节点下
+            result.put(name, settings != null && settings.index() != null ? settings.index() : settings);
+        });
+
+        return result;
+    }
+
+    /**
+     * 把副本数、refresh_interval和translog刷盘方式写回originalSettings中的值，没有的写回null，由es恢复为默认值
+     * <p>
+     * 类型化的putSettings不会发送null，这里用RestClient发送原始json
+     */
+    private void restoreSettings(String indexName, IndexSettings originalSettings) throws IOException {
+        String numberOfReplicas = originalSettings == null ? null : originalSettings.numberOfReplicas();
+        Time refreshInterval = originalSettings == null ? null : originalSettings.refreshInterval();
+        TranslogDurability durability = originalSettings == null || originalSettings.translog() == null
+                ? null
+                : originalSettings.translog().durability();
+
+        ObjectNode index = JsonNodeFactory.instance.objectNode();
+        index.put("number_of_replicas", numberOfReplicas);
+        index.put("refresh_interval", refreshInterval == null ? null : String.valueOf(refreshInterval._get()));
+        index.putObject("translog").put("durability", durability == null ? null : durability.jsonValue());
+
+        Request request = new Request("PUT", "/" + indexName + "/_settings");
+        request.setJsonEntity(JsonNodeFactory.instance.objectNode().set("index", index).toString());
+        restClient.performRequest(request);
+        log.info("{} 恢复设置: {}", indexName, index);
+    }
+
+    /**
+     * 以wait_for_completion=false提交force merge并轮询任务直到结束，大索引的合并时间远超请求的socket超时
+     * <p>
+     * 8.3版本的ForcemergeResponse要求_shards字段，无法解析异步提交返回的task，这里用RestClient发送
+     */
+    private void forcemerge(String indexName, int maxNumSegments) throws IOException {
+        Request request = new Request("POST", "/" + indexName + "/_forcemerge");
+        request.addParameter("max_num_segments", String.valueOf(maxNumSegments));
+        request.addParameter("wait_for_completion", "false");
+
+        String taskId;
+        try (JsonReader reader = Json.createReader(restClient.performRequest(request).getEntity().getContent())) {
+            taskId = reader.readObject().getString("task");
+        }
+        log.info("{} force merge task: {}", indexName, taskId);
+
+        TaskPoller taskPoller =
+                new TaskPoller(elasticsearchClient, elasticSearchConfigProperties.getTaskPollInterval());
+        TaskProgress progress = taskPoller.awaitCompletion(restClient, taskId);
+        if (!progress.isSuccess()) {
+            throw new IllegalStateException(indexName + " force merge失败: " + progress.getFailures());
+        }
+    }
+
+    private TaskProgress copyDocuments(
+            String sourceIndex,
+            String targetIndex,
+            ReindexMode mode,
+            int slices,
+            Consumer<TaskProgress> progressListener)
+            throws IOException {
+        if (mode == ReindexMode.CLIENT) {
+            return copyDocumentsByClient(sourceIndex, targetIndex, slices, progressListener);
+        }
+
+        Slices sliceCount = slices > 0
+                ? Slices.of(s -> s.value(slices))
+                : Slices.of(s -> s.computed(SlicesCalculation.Auto));
+        ReindexResponse response = elasticsearchClient.reindex(r -> r
+                .source(s -> s.index(sourceIndex))
+                .dest(d -> d.index(targetIndex))
+                .waitForCompletion(false)
+                .slices(sliceCount));
+
+        log.info("reindex task: {}", response.task());
+
+        TaskPoller taskPoller =
+                new TaskPoller(elasticsearchClient, elasticSearchConfigProperties.getTaskPollInterval());
+
+        return taskPoller.awaitCompletion(response.task(), progressListener);
+    }
+
+    /**
+     * 用sliced point-in-time读取旧索引，按原文档id通过bulk写入新索引，每写入一页回调一次进度
+     */
+    private TaskProgress copyDocumentsByClient(
+            String sourceIndex, String targetIndex, int slices, Consumer<TaskProgress> progressListener)
+            throws IOException {
+        ElasticSearchConfigProperties.Scroll scroll = elasticSearchConfigProperties.getScroll();
+        ElasticSearchConfigProperties.Bulk bulk = elasticSearchConfigProperties.getBulk();
+        int sliceCount = slices > 0 ? slices : scroll.getSlices();
+        long start = System.nanoTime();
+        long[] read = {0};
+
+        BulkIngester bulkIngester = new BulkIngester(
+                elasticsearchClient, bulk.getActions(), bulk.getSize(), 0, bulk.getConcurrentRequests(),
+                bulk.retryPolicy());
+        try (bulkIngester) {
+            new SlicedExporter<>(elasticsearchClient, sourceIndex, null, sliceCount, scroll.getPageSize(),
+                    scroll.getKeepAlive(), ObjectNode.class)
+                    .export(hit -> {
+                        bulkIngester.add(targetIndex, hit.id(), hit.source());
+                        if (++read[0] % scroll.getPageSize() == 0 && progressListener != null) {
+                            progressListener.accept(clientProgress(targetIndex, read[0], bulkIngester, false, start));
+                        }
+                    });
+        }
+
+        TaskProgress progress = clientProgress(targetIndex, read[0], bulkIngester, true, start);
+        if (progressListener != null) {
+            progressListener.accept(progress);
+        }
+
+        return progress;
+    }
+
+    private static TaskProgress clientProgress(
+            String targetIndex, long read, BulkIngester bulkIngester, boolean completed, long start) {
+        BulkResult bulkResult = bulkIngester.getResult();
+
+        return TaskProgress.builder()
+                .taskId(targetIndex)
+                .completed(completed)
+                .total(read)
+                .created(bulkResult.getSuccessCount())
+                .batches(bulkIngester.getFlushCount())
+                .runningTimeMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                .failures(bulkResult.getFailures().stream()
+                        .map(failure -> failure.getId() + " " + failure.getType() + ": " + failure.getReason())
+                        .toList())
+                .build();
+    }
+
+    private void swapAlias(String alias, String sourceIndex, String targetIndex) throws IOException {
+        elasticsearchClient.indices().updateAliases(u -> {
+            u.actions(a -> a.add(add -> add.index(targetIndex).alias(alias).isWriteIndex(true)));
+            if (alias.equals(sourceIndex)) {
+                // 别名不能与索引同名，在同一个请求中删除旧索引
+                u.actions(a -> a.removeIndex(r -> r.index(sourceIndex)));
+            } else if (sourceIndex != null) {
+                u.actions(a -> a.remove(r -> r.index(sourceIndex).alias(alias)));
+            }
+            return u;
+        });
+        searchResultCache.invalidate(alias);
+        documentNearCache.invalidate(alias);
+    }
 }
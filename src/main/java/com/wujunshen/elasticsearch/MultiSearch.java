@@ -0,0 +1,199 @@
+package com.wujunshen.elasticsearch;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.aggregations.HistogramBucket;
+import co.elastic.clients.elasticsearch.core.MsearchRequest;
+import co.elastic.clients.elasticsearch.core.MsearchResponse;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResponseItem;
+import co.elastic.clients.elasticsearch.core.msearch.RequestItem;
+import co.elastic.clients.json.JsonpMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.wujunshen.elasticsearch.search.MultiSearchSupport;
+import com.wujunshen.elasticsearch.search.Projection;
+import com.wujunshen.elasticsearch.search.SearchSpec;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 一次msearch请求中的多个子查询
+ * <p>
+ * 先用add或termQuery等方法登记子查询，拿到各自的CompletableFuture，再调用execute一次性发送，
+ * execute返回后所有CompletableFuture都已完成，失败的子查询以ElasticsearchException异常完成，不影响其它子查询。
+ * 非线程安全，一个MultiSearch对象只能execute一次
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/17 23:40<br>
+ */
+@Slf4j
+public class MultiSearch {
+    private final ElasticsearchClient elasticsearchClient;
+
+    private final List<RequestItem> requestItems = new ArrayList<>();
+
+    private final List<Class<?>> classes = new ArrayList<>();
+
+    private final List<Function<MultiSearchResponseItem<?>, ?>> converters = new ArrayList<>();
+
+    private final List<CompletableFuture<Object>> futures = new ArrayList<>();
+
+    private boolean executed;
+
+    MultiSearch(ElasticsearchClient elasticsearchClient) {
+        this.elasticsearchClient = elasticsearchClient;
+    }
+
+    /**
+     * 登记一个子查询
+     *
+     * @param request SearchRequest对象
+     * @param clazz   要搜索的文档对象class
+     * @param <T>     文档对象泛型
+     * @return execute后完成的SearchResponse
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<SearchResponse<T>> add(SearchRequest request, Class<T> clazz) {
+        // 第i个子响应中的文档在解析时已按登记的clazz反序列化
+        return register(request, clazz, item -> MultiSearchSupport.toSearchResponse((MultiSearchResponseItem<T>) item));
+    }
+
+    /**
+     * 登记一个按SearchSpec描述的子查询
+     *
+     * @param spec  查询描述
+     * @param clazz 结果对象class
+     * @param <T>   文档对象泛型
+     * @return execute后完成的结果对象列表
+     */
+    public <T> CompletableFuture<List<T>> search(SearchSpec spec, Class<T> clazz) {
+        Projection projection = spec.getProjection();
+        if (!projection.isMerged()) {
+            return add(spec.toSearchRequest(), clazz).thenApply(QueryApi::getSources);
+        }
+
+        JsonpMapper mapper = elasticsearchClient._transport().jsonpMapper();
+        return add(spec.toSearchRequest(), ObjectNode.class)
+                .thenApply(response -> QueryApi.getProjections(response, projection, clazz, mapper));
+    }
+
+    /**
+     * 登记一个termQuery子查询，参数含义见QueryApi中的同名方法
+     *
+     * @return execute后完成的文档对象列表
+     */
+    public <T> CompletableFuture<List<T>> termQuery(
+            String indexName,
+            String searchText,
+            String searchField,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            Class<T> clazz) {
+        return search(QueryRequests.termQuery(
+                indexName, searchText, searchField, sortedField, fromIndex, pageSize, isDesc), clazz);
+    }
+
+    /**
+     * 登记一个matchQuery子查询，参数含义见QueryApi中的同名方法
+     *
+     * @return execute后完成的文档对象列表
+     */
+    public <T> CompletableFuture<List<T>> matchQuery(
+            String indexName,
+            String searchText,
+            String searchField,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            Class<T> clazz) {
+        return search(QueryRequests.matchQuery(
+                indexName, searchText, searchField, sortedField, fromIndex, pageSize, isDesc), clazz);
+    }
+
+    /**
+     * 登记一个aggsByHistogram子查询，参数含义见QueryApi中的同名方法
+     *
+     * @return execute后完成的HistogramBucket列表
+     */
+    public CompletableFuture<List<HistogramBucket>> aggsByHistogram(
+            String indexName,
+            String searchText,
+            String searchField,
+            String aggsField,
+            String aggsKey,
+            Double intervalValue) {
+        return add(QueryRequests.aggsByHistogram(
+                        indexName, searchText, searchField, aggsField, aggsKey, intervalValue),
+                Void.class)
+                .thenApply(response -> response.aggregations().get(aggsKey).histogram().buckets().array());
+    }
+
+    /**
+     * @return 已登记的子查询数
+     */
+    public int size() {
+        return requestItems.size();
+    }
+
+    /**
+     * 发送msearch请求并完成所有子查询的CompletableFuture
+     *
+     * @throws IOException 整个msearch请求失败，此时所有子查询也以该异常完成
+     */
+    public void execute() throws IOException {
+        if (executed) {
+            throw new IllegalStateException("multi search has already been executed");
+        }
+        executed = true;
+
+        if (requestItems.isEmpty()) {
+            return;
+        }
+
+        MsearchResponse<Object> response;
+        try {
+            response = elasticsearchClient._transport().performRequest(
+                    MsearchRequest.of(m -> m.searches(requestItems)),
+                    MultiSearchSupport.endpoint(classes),
+                    elasticsearchClient._transportOptions());
+        } catch (IOException | RuntimeException e) {
+            futures.forEach(future -> future.completeExceptionally(e));
+            throw e;
+        }
+
+        log.debug("msearch {} searches consume times {} mill second", requestItems.size(), response.took());
+
+        List<MultiSearchResponseItem<Object>> items = response.responses();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).complete(converters.get(i).apply(items.get(i)));
+            } catch (RuntimeException e) {
+                futures.get(i).completeExceptionally(e);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> CompletableFuture<R> register(
+            SearchRequest request, Class<?> clazz, Function<MultiSearchResponseItem<?>, R> converter) {
+        if (executed) {
+            throw new IllegalStateException("multi search has already been executed");
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        requestItems.add(MultiSearchSupport.toRequestItem(request));
+        classes.add(clazz);
+        converters.add(converter);
+        futures.add(future);
+
+        return (CompletableFuture<R>) future;
+    }
+}
@@ -2,6 +2,8 @@ package com.wujunshen.elasticsearch;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.elasticsearch.cat.nodes.NodesRecord;
+import com.wujunshen.elasticsearch.node.NodeLoadTracker;
+import com.wujunshen.elasticsearch.node.NodeStats;
 import java.io.IOException;
 import java.util.List;
 import javax.annotation.Resource;
@@ -19,6 +21,9 @@ public class NodeApi {
     @Resource
     private ElasticsearchClient elasticsearchClient;
 
+    @Resource
+    private NodeLoadTracker nodeLoadTracker;
+
     /**
      * 获取所有索引信息
      *
@@ -31,4 +36,13 @@ public class NodeApi {
 
         return nodesRecords;
     }
+
+    /**
+     * 获取客户端统计的各节点请求情况
+     *
+     * @return NodeStats列表
+     */
+    public List<NodeStats> getNodeStats() {
+        return nodeLoadTracker.getNodeStats();
+    }
 }
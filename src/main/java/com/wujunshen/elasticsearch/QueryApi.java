@@ -1,16 +1,26 @@
 package com.wujunshen.elasticsearch;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
-import co.elastic.clients.elasticsearch._types.SortOrder;
 import co.elastic.clients.elasticsearch._types.aggregations.HistogramBucket;
 import co.elastic.clients.elasticsearch._types.query_dsl.ChildScoreMode;
-import co.elastic.clients.elasticsearch._types.query_dsl.DisMaxQuery;
-import co.elastic.clients.elasticsearch._types.query_dsl.MatchQuery;
 import co.elastic.clients.elasticsearch._types.query_dsl.Query;
-import co.elastic.clients.elasticsearch._types.query_dsl.QueryBuilders;
 import co.elastic.clients.elasticsearch.core.GetResponse;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
 import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.JsonpMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.wujunshen.elasticsearch.cache.DocumentNearCache;
+import com.wujunshen.elasticsearch.cache.SearchRequestKey;
+import com.wujunshen.elasticsearch.cache.SearchResultCache;
+import com.wujunshen.elasticsearch.cache.SearchSingleFlight;
+import com.wujunshen.elasticsearch.concurrent.Futures;
+import com.wujunshen.elasticsearch.concurrent.Hedger;
+import com.wujunshen.elasticsearch.search.MultiSearchCoalescer;
+import com.wujunshen.elasticsearch.search.Projection;
+import com.wujunshen.elasticsearch.search.QueryContext;
+import com.wujunshen.elasticsearch.search.SearchSpec;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -31,6 +41,24 @@ public class QueryApi {
     @Resource
     private ElasticsearchClient elasticsearchClient;
 
+    @Resource
+    private ElasticsearchAsyncClient elasticsearchAsyncClient;
+
+    @Resource
+    private MultiSearchCoalescer multiSearchCoalescer;
+
+    @Resource
+    private Hedger hedger;
+
+    @Resource
+    private SearchResultCache searchResultCache;
+
+    @Resource
+    private SearchSingleFlight searchSingleFlight;
+
+    @Resource
+    private DocumentNearCache documentNearCache;
+
     /**
      * 获取Hit对象中source字符串
      *
@@ -38,7 +66,7 @@ public class QueryApi {
      * @return 文档对象泛型列表
      * @param <T> 文档对象泛型
      */
-    private <T> List<T> getSources(SearchResponse<T> response) {
+    static <T> List<T> getSources(SearchResponse<T> response) {
         List<T> result = new ArrayList<>();
         for (Hit<T> hit : getHitList(response)) {
             result.add(hit.source());
@@ -53,7 +81,7 @@ public class QueryApi {
      * @return 文档对象HighLight的Map列表,key为HighLight字段名，value为HighLight内容
      * @param <T> 文档对象泛型
      */
-    private <T> List<Map<String, List<String>>> getHighLights(SearchResponse<T> response) {
+    static <T> List<Map<String, List<String>>> getHighLights(SearchResponse<T> response) {
         return getHitList(response).stream().map(Hit::highlight).toList();
     }
 
@@ -64,8 +92,8 @@ public class QueryApi {
      * @return 文档对象Hit泛型列表
      * @param <T> 文档对象泛型
      */
-    private <T> List<Hit<T>> getHitList(SearchResponse<T> response) {
-        log.info("consume times {} mill second", response.took());
+    static <T> List<Hit<T>> getHitList(SearchResponse<T> response) {
+        log.debug("consume times {} mill second", response.took());
 
         List<Hit<T>> hitList = response.hits().hits();
 
@@ -77,7 +105,87 @@ public class QueryApi {
     }
 
     /**
-     * 指定id检索数据
+     * 新建一个msearch批量查询，用于一次请求执行多个互相独立的查询
+     *
+     * @return MultiSearch对象
+     */
+    public MultiSearch newMultiSearch() {
+        return new MultiSearch(elasticsearchClient);
+    }
+
+    /**
+     * 所有查询方法的统一出口，开启结果缓存时先查缓存，未命中时再发送请求，
+     * 开启single flight时相同的在途查询只发送一次
+     */
+    private <T> SearchResponse<T> search(SearchRequest request, Class<T> clazz) throws IOException {
+        if (!searchResultCache.isEnabled() && !searchSingleFlight.isEnabled()) {
+            return execute(request, clazz);
+        }
+
+        SearchRequestKey key = SearchRequestKey.of(request, clazz, elasticsearchClient._transport().jsonpMapper());
+        return searchResultCache.get(key, clazz, () -> searchSingleFlight.execute(key, () -> execute(request, clazz)));
+    }
+
+    /**
+     * 开启msearch合并时交给合并器发送，否则开启对冲时以对冲方式发送
+     */
+    private <T> SearchResponse<T> execute(SearchRequest request, Class<T> clazz) throws IOException {
+        if (multiSearchCoalescer.isEnabled()) {
+            return multiSearchCoalescer.search(request, clazz);
+        }
+        if (hedger.isEnabled()) {
+            return Futures.join(hedger.execute(() -> elasticsearchAsyncClient.search(request, clazz)));
+        }
+        return elasticsearchClient.search(request, clazz);
+    }
+
+    /**
+     * 按投影查询，只过滤_source时直接反序列化，否则把_source取为ObjectNode后逐条合并转换
+     */
+    private <T> List<T> search(SearchRequest request, Projection projection, Class<T> clazz) throws IOException {
+        if (!projection.isMerged()) {
+            return getSources(search(request, clazz));
+        }
+
+        JsonpMapper mapper = elasticsearchClient._transport().jsonpMapper();
+        return getProjections(search(request, ObjectNode.class), projection, clazz, mapper);
+    }
+
+    /**
+     * 把_source按ObjectNode取回的命中逐条按投影转换为结果对象
+     *
+     * @param response SearchResponse对象
+     * @param projection 返回字段的投影
+     * @param clazz 结果对象class
+     * @param mapper 用于转换的JsonpMapper
+     * @return 结果对象列表
+     * @param <T> 结果对象泛型
+     */
+    static <T> List<T> getProjections(
+            SearchResponse<ObjectNode> response, Projection projection, Class<T> clazz, JsonpMapper mapper) {
+        return getHitList(response).stream()
+                .map(hit -> projection.map(hit, clazz, mapper))
+                .toList();
+    }
+
+    /**
+     * 按SearchSpec查询，SearchSpec可以组合查询条件、过滤条件、多个排序、分页、字段投影和各项请求参数
+     * <p>
+     * 各分页查询方法都由QueryRequests构建SearchSpec后从这里执行，只需要部分字段时用QueryRequests构建SearchSpec，
+     * 调用project设置投影后传入
+     *
+     * @param <T>   文档对象泛型
+     * @param spec  查询描述
+     * @param clazz 结果对象class
+     * @return 泛型对象列表集合 list
+     * @throws IOException 异常信息
+     */
+    public <T> List<T> search(SearchSpec spec, Class<T> clazz) throws IOException {
+        return search(spec.toSearchRequest(), spec.getProjection(), clazz);
+    }
+
+    /**
+     * 指定id检索数据，开启近端缓存时优先从缓存中取
      *
      * @param <T>        文档对象泛型
      * @param indexName 索引名
@@ -87,8 +195,8 @@ public class QueryApi {
      * @throws IOException 异常信息
      */
     public <T> GetResponse<T> searchById(String indexName, String id, Class<T> clazz) throws IOException {
-        GetResponse<T> response =
-                elasticsearchClient.get(g -> g.index(indexName).id(id), clazz);
+        GetResponse<T> response = documentNearCache.get(
+                indexName, id, clazz, () -> elasticsearchClient.get(g -> g.index(indexName).id(id), clazz));
         if (response.found()) {
             return response;
         } else {
@@ -117,15 +225,9 @@ public class QueryApi {
             String aggsKey,
             Double intervalValue)
             throws IOException {
-        Query query = MatchQuery.of(m -> m.field(searchField).query(searchText))._toQuery();
-
-        SearchResponse<Void> response = elasticsearchClient.search(
-                b -> b.index(indexName)
-                        .size(0)
-                        .query(query)
-                        .aggregations(
-                                aggsKey,
-                                a -> a.histogram(h -> h.field(aggsField).interval(intervalValue))),
+        SearchResponse<Void> response = search(
+                QueryRequests.aggsByHistogram(
+                        indexName, searchText, searchField, aggsField, aggsKey, intervalValue),
                 Void.class);
 
         return response.aggregations().get(aggsKey).histogram().buckets().array();
@@ -147,18 +249,7 @@ public class QueryApi {
     public <T> List<T> matchAllQuery(
             String indexName, String sortedField, int fromIndex, int pageSize, boolean isDesc, Class<T> clazz)
             throws IOException {
-
-        SearchResponse<T> response = elasticsearchClient.search(
-                s -> s.index(indexName)
-                        .query(q -> q.matchAll(t -> t))
-                        // 分页查询，从第fromIndex页开始查询pageSize个document
-                        .from(fromIndex)
-                        .size(pageSize)
-                        // 按要排序字段进行降序排序
-                        .sort(f -> f.field(o -> o.field(sortedField).order(isDesc ? SortOrder.Desc : SortOrder.Asc))),
-                clazz);
-
-        return getSources(response);
+        return search(QueryRequests.matchAllQuery(indexName, sortedField, fromIndex, pageSize, isDesc), clazz);
     }
 
     /**
@@ -186,17 +277,8 @@ public class QueryApi {
             boolean isDesc,
             Class<T> clazz)
             throws IOException {
-        SearchResponse<T> response = elasticsearchClient.search(
-                s -> s.index(indexName)
-                        .query(q -> q.match(t -> t.field(searchField).query(searchText)))
-                        // 分页查询，从第fromIndex页开始查询pageSize个document
-                        .from(fromIndex)
-                        .size(pageSize)
-                        // 按要排序字段进行降序排序
-                        .sort(f -> f.field(o -> o.field(sortedField).order(isDesc ? SortOrder.Desc : SortOrder.Asc))),
-                clazz);
-
-        return getSources(response);
+        return search(QueryRequests.matchQuery(
+                indexName, searchText, searchField, sortedField, fromIndex, pageSize, isDesc), clazz);
     }
 
     /**
@@ -224,17 +306,8 @@ public class QueryApi {
             boolean isDesc,
             Class<T> clazz)
             throws IOException {
-        SearchResponse<T> response = elasticsearchClient.search(
-                s -> s.index(indexName)
-                        .query(q -> q.multiMatch(t -> t.fields(searchFields).query(searchText)))
-                        // 分页查询，从第fromIndex页开始查询pageSize个document
-                        .from(fromIndex)
-                        .size(pageSize)
-                        // 按要排序字段进行降序排序
-                        .sort(f -> f.field(o -> o.field(sortedField).order(isDesc ? SortOrder.Desc : SortOrder.Asc))),
-                clazz);
-
-        return getSources(response);
+        return search(QueryRequests.multiMatchQuery(
+                indexName, searchText, searchFields, sortedField, fromIndex, pageSize, isDesc), clazz);
     }
 
     /**
@@ -262,18 +335,8 @@ public class QueryApi {
             boolean isDesc,
             Class<T> clazz)
             throws IOException {
-        SearchResponse<T> response = elasticsearchClient.search(
-                s -> s.index(indexName)
-                        .query(q ->
-                                q.matchPhrasePrefix(t -> t.field(searchField).query(searchText)))
-                        // 分页查询，从第fromIndex页开始查询pageSize个document
-                        .from(fromIndex)
-                        .size(pageSize)
-                        // 按要排序字段进行降序排序
-                        .sort(f -> f.field(o -> o.field(sortedField).order(isDesc ? SortOrder.Desc : SortOrder.Asc))),
-                clazz);
-
-        return getSources(response);
+        return search(QueryRequests.matchPhrasePrefixQuery(
+                indexName, searchText, searchField, sortedField, fromIndex, pageSize, isDesc), clazz);
     }
 
     /**
@@ -299,17 +362,7 @@ public class QueryApi {
             boolean isDesc,
             Class<T> clazz)
             throws IOException {
-        SearchResponse<T> response = elasticsearchClient.search(
-                s -> s.index(indexName)
-                        .query(q -> q.ids(t -> t.values(searchTexts)))
-                        // 分页查询，从第fromIndex页开始查询pageSize个document
-                        .from(fromIndex)
-                        .size(pageSize)
-                        // 按要排序字段进行降序排序
-                        .sort(f -> f.field(o -> o.field(sortedField).order(isDesc ? SortOrder.Desc : SortOrder.Asc))),
-                clazz);
-
-        return getSources(response);
+        return search(QueryRequests.idsQuery(indexName, searchTexts, sortedField, fromIndex, pageSize, isDesc), clazz);
     }
 
     /**
@@ -337,17 +390,39 @@ public class QueryApi {
             boolean isDesc,
             Class<T> clazz)
             throws IOException {
-        SearchResponse<T> response = elasticsearchClient.search(
-                s -> s.index(indexName)
-                        .query(q -> q.term(t -> t.field(searchField).value(searchText)))
-                        // 分页查询，从第fromIndex页开始查询pageSize个document
-                        .from(fromIndex)
-                        .size(pageSize)
-                        // 按要排序字段进行降序排序
-                        .sort(f -> f.field(o -> o.field(sortedField).order(isDesc ? SortOrder.Desc : SortOrder.Asc))),
-                clazz);
+        return search(QueryRequests.termQuery(
+                indexName, searchText, searchField, sortedField, fromIndex, pageSize, isDesc), clazz);
+    }
 
-        return getSources(response);
+    /**
+     * termQuery方法，context为FILTER时term条件不计算得分，可以被节点的query cache缓存
+     *
+     * @param <T>          文档对象泛型
+     * @param indexName 索引名
+     * @param searchText 搜索内容
+     * @param searchField 要搜索的字段
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @param context 查询条件的执行上下文
+     * @param clazz 要搜索的文档对象class
+     * @return 泛型对象列表集合 list
+     * @throws IOException 异常信息
+     */
+    public <T> List<T> termQuery(
+            String indexName,
+            String searchText,
+            String searchField,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            QueryContext context,
+            Class<T> clazz)
+            throws IOException {
+        return search(QueryRequests.termQuery(
+                indexName, searchText, searchField, sortedField, fromIndex, pageSize, isDesc, context), clazz);
     }
 
     /**
@@ -375,17 +450,8 @@ public class QueryApi {
             boolean isDesc,
             Class<T> clazz)
             throws IOException {
-        SearchResponse<T> response = elasticsearchClient.search(
-                s -> s.index(indexName)
-                        .query(q -> q.fuzzy(t -> t.field(searchField).value(searchText)))
-                        // 分页查询，从第fromIndex页开始查询pageSize个document
-                        .from(fromIndex)
-                        .size(pageSize)
-                        // 按要排序字段进行降序排序
-                        .sort(f -> f.field(o -> o.field(sortedField).order(isDesc ? SortOrder.Desc : SortOrder.Asc))),
-                clazz);
-
-        return getSources(response);
+        return search(QueryRequests.fuzzyQuery(
+                indexName, searchText, searchField, sortedField, fromIndex, pageSize, isDesc), clazz);
     }
 
     /**
@@ -415,18 +481,42 @@ public class QueryApi {
             boolean isDesc,
             Class<T> clazz)
             throws IOException {
-        SearchResponse<T> response = elasticsearchClient.search(
-                s -> s.index(indexName)
-                        .query(q -> q.range(
-                                t -> t.field(searchField).from(fromSearchText).to(toSearchText)))
-                        // 分页查询，从第fromIndex页开始查询pageSize个document
-                        .from(fromIndex)
-                        .size(pageSize)
-                        // 按要排序字段进行降序排序
-                        .sort(f -> f.field(o -> o.field(sortedField).order(isDesc ? SortOrder.Desc : SortOrder.Asc))),
-                clazz);
+        return search(QueryRequests.rangeQuery(
+                indexName, fromSearchText, toSearchText, searchField, sortedField, fromIndex, pageSize, isDesc), clazz);
+    }
 
-        return getSources(response);
+    /**
+     * rangeQuery方法，context为FILTER时range条件不计算得分，可以被节点的query cache缓存
+     *
+     * @param <T>          文档对象泛型
+     * @param indexName 索引名
+     * @param fromSearchText 搜索内容开始值
+     * @param toSearchText 搜索内容结束值
+     * @param searchField 要搜索的字段
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @param context 查询条件的执行上下文
+     * @param clazz 要搜索的文档对象class
+     * @return 泛型对象列表集合 list
+     * @throws IOException 异常信息
+     */
+    public <T> List<T> rangeQuery(
+            String indexName,
+            String fromSearchText,
+            String toSearchText,
+            String searchField,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            QueryContext context,
+            Class<T> clazz)
+            throws IOException {
+        return search(QueryRequests.rangeQuery(
+                indexName, fromSearchText, toSearchText, searchField, sortedField, fromIndex, pageSize, isDesc,
+                context), clazz);
     }
 
     /**
@@ -454,17 +544,8 @@ public class QueryApi {
             boolean isDesc,
             Class<T> clazz)
             throws IOException {
-        SearchResponse<T> response = elasticsearchClient.search(
-                s -> s.index(indexName)
-                        .query(q -> q.wildcard(t -> t.field(searchField).value(searchText)))
-                        // 分页查询，从第fromIndex页开始查询pageSize个document
-                        .from(fromIndex)
-                        .size(pageSize)
-                        // 按要排序字段进行降序排序
-                        .sort(f -> f.field(o -> o.field(sortedField).order(isDesc ? SortOrder.Desc : SortOrder.Asc))),
-                clazz);
-
-        return getSources(response);
+        return search(QueryRequests.wildcardQuery(
+                indexName, searchText, searchField, sortedField, fromIndex, pageSize, isDesc), clazz);
     }
 
     /**
@@ -494,21 +575,8 @@ public class QueryApi {
             boolean isDesc,
             Class<T> clazz)
             throws IOException {
-        SearchResponse<T> response = elasticsearchClient.search(
-                s -> s.index(indexName)
-                        .query(q -> q.constantScore(
-                                // 包裹查询, 高于设定分数, 不计算相关性
-                                p -> p.filter(e ->
-                                                e.term(t -> t.field(searchField).value(searchText)))
-                                        .boost(boost)))
-                        // 分页查询，从第fromIndex页开始查询pageSize个document
-                        .from(fromIndex)
-                        .size(pageSize)
-                        // 按要排序字段进行降序排序
-                        .sort(f -> f.field(o -> o.field(sortedField).order(isDesc ? SortOrder.Desc : SortOrder.Asc))),
-                clazz);
-
-        return getSources(response);
+        return search(QueryRequests.constantScoreQuery(
+                indexName, searchText, searchField, boost, sortedField, fromIndex, pageSize, isDesc), clazz);
     }
 
     /**
@@ -538,21 +606,8 @@ public class QueryApi {
             boolean isDesc,
             Class<T> clazz)
             throws IOException {
-        DisMaxQuery.Builder builder = QueryBuilders.disMax();
-        builder.queries(queries);
-        builder.boost(boost).tieBreaker(tieBreaker);
-
-        SearchResponse<T> response = elasticsearchClient.search(
-                s -> s.index(indexName)
-                        .query(q -> q.disMax(builder.build()))
-                        // 分页查询，从第fromIndex页开始查询pageSize个document
-                        .from(fromIndex)
-                        .size(pageSize)
-                        // 按要排序字段进行降序排序
-                        .sort(f -> f.field(o -> o.field(sortedField).order(isDesc ? SortOrder.Desc : SortOrder.Asc))),
-                clazz);
-
-        return getSources(response);
+        return search(QueryRequests.disMaxQuery(
+                indexName, queries, boost, tieBreaker, sortedField, fromIndex, pageSize, isDesc), clazz);
     }
 
     /**
@@ -579,17 +634,8 @@ public class QueryApi {
             boolean isDesc,
             Class<T> clazz)
             throws IOException {
-        SearchResponse<T> response = elasticsearchClient.search(
-                s -> s.index(indexName)
-                        .query(q -> q.queryString(t -> t.query(searchText)))
-                        // 分页查询，从第fromIndex页开始查询pageSize个document
-                        .from(fromIndex)
-                        .size(pageSize)
-                        // 按要排序字段进行降序排序
-                        .sort(f -> f.field(o -> o.field(sortedField).order(isDesc ? SortOrder.Desc : SortOrder.Asc))),
-                clazz);
-
-        return getSources(response);
+        return search(QueryRequests.queryStringQuery(
+                indexName, searchText, sortedField, fromIndex, pageSize, isDesc), clazz);
     }
 
     /**
@@ -619,19 +665,8 @@ public class QueryApi {
             boolean isDesc,
             Class<T> clazz)
             throws IOException {
-        SearchResponse<T> response = elasticsearchClient.search(
-                s -> s.index(indexName)
-                        .query(q -> q.spanFirst(t -> t.match(e ->
-                                        e.spanTerm(g -> g.field(searchField).value(searchText)))
-                                .end(end)))
-                        // 分页查询，从第fromIndex页开始查询pageSize个document
-                        .from(fromIndex)
-                        .size(pageSize)
-                        // 按要排序字段进行降序排序
-                        .sort(f -> f.field(o -> o.field(sortedField).order(isDesc ? SortOrder.Desc : SortOrder.Asc))),
-                clazz);
-
-        return getSources(response);
+        return search(QueryRequests.spanFirstQuery(
+                indexName, searchText, searchField, end, sortedField, fromIndex, pageSize, isDesc), clazz);
     }
 
     /**
@@ -659,16 +694,8 @@ public class QueryApi {
             boolean isDesc,
             Class<T> clazz)
             throws IOException {
-        SearchResponse<T> response = elasticsearchClient.search(
-                s -> s.index(indexName)
-                        .query(q -> q.spanTerm(g -> g.field(searchField).value(searchText)))
-                        // 分页查询，从第fromIndex页开始查询pageSize个document
-                        .from(fromIndex)
-                        .size(pageSize)
-                        // 按要排序字段进行降序排序
-                        .sort(f -> f.field(o -> o.field(sortedField).order(isDesc ? SortOrder.Desc : SortOrder.Asc))),
-                clazz);
-        return getSources(response);
+        return search(QueryRequests.spanTermQuery(
+                indexName, searchText, searchField, sortedField, fromIndex, pageSize, isDesc), clazz);
     }
 
     /**
@@ -694,17 +721,36 @@ public class QueryApi {
             boolean isDesc,
             Class<T> clazz)
             throws IOException {
-        SearchResponse<T> response = elasticsearchClient.search(
-                s -> s.index(indexName)
-                        .query(q -> q.bool(t -> t.must(queries)))
-                        // 分页查询，从第fromIndex页开始查询pageSize个document
-                        .from(fromIndex)
-                        .size(pageSize)
-                        // 按要排序字段进行降序排序
-                        .sort(f -> f.field(o -> o.field(sortedField).order(isDesc ? SortOrder.Desc : SortOrder.Asc))),
-                clazz);
+        return search(QueryRequests.boolQuery(indexName, queries, sortedField, fromIndex, pageSize, isDesc), clazz);
+    }
 
-        return getSources(response);
+    /**
+     * boolQuery方法，mustQueries计算得分，filterQueries不计算得分，可以被节点的query cache缓存
+     *
+     * @param <T>          文档对象泛型
+     * @param indexName 索引名
+     * @param mustQueries 计算得分的查询条件列表
+     * @param filterQueries 不计算得分的过滤条件列表
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @param clazz 要搜索的文档对象class
+     * @return 泛型对象列表集合 list
+     * @throws IOException 异常信息
+     */
+    public <T> List<T> boolQuery(
+            String indexName,
+            List<Query> mustQueries,
+            List<Query> filterQueries,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            Class<T> clazz)
+            throws IOException {
+        return search(QueryRequests.boolQuery(
+                indexName, mustQueries, filterQueries, sortedField, fromIndex, pageSize, isDesc), clazz);
     }
 
     /**
@@ -734,17 +780,8 @@ public class QueryApi {
             boolean isDesc,
             Class<T> clazz)
             throws IOException {
-        SearchResponse<T> response = elasticsearchClient.search(
-                s -> s.index(indexName)
-                        .query(q -> q.nested(t -> t.path(path).query(query).scoreMode(childScoreMode)))
-                        // 分页查询，从第fromIndex页开始查询pageSize个document
-                        .from(fromIndex)
-                        .size(pageSize)
-                        // 按要排序字段进行降序排序
-                        .sort(f -> f.field(o -> o.field(sortedField).order(isDesc ? SortOrder.Desc : SortOrder.Asc))),
-                clazz);
-
-        return getSources(response);
+        return search(QueryRequests.nestedQuery(
+                indexName, path, query, childScoreMode, sortedField, fromIndex, pageSize, isDesc), clazz);
     }
 
     /**
@@ -776,16 +813,9 @@ public class QueryApi {
             boolean isDesc,
             Class<T> clazz)
             throws IOException {
-        SearchResponse<T> response = elasticsearchClient.search(
-                s -> s.index(indexName)
-                        .query(query)
-                        .highlight(h ->
-                                h.fields(highlightField, f -> f.preTags(preTags).postTags(postTags)))
-                        // 分页查询，从第fromIndex页开始查询pageSize个document
-                        .from(fromIndex)
-                        .size(pageSize)
-                        // 按要排序字段进行降序排序
-                        .sort(f -> f.field(o -> o.field(sortedField).order(isDesc ? SortOrder.Desc : SortOrder.Asc))),
+        SearchResponse<T> response = search(
+                QueryRequests.highLightQuery(
+                        indexName, query, highlightField, preTags, postTags, sortedField, fromIndex, pageSize, isDesc),
                 clazz);
 
         return getHighLights(response);
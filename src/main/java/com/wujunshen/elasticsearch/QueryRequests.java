@@ -0,0 +1,406 @@
+package com.wujunshen.elasticsearch;
+
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.query_dsl.ChildScoreMode;
+import co.elastic.clients.elasticsearch._types.query_dsl.DisMaxQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.MatchQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch._types.query_dsl.QueryBuilders;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import com.wujunshen.elasticsearch.search.QueryContext;
+import com.wujunshen.elasticsearch.search.SearchSpec;
+import java.util.List;
+
+/**
+ * QueryApi、AsyncQueryApi和MultiSearch共用的查询构建方法
+ * <p>
+ * 分页查询返回SearchSpec，需要只返回部分字段时在返回的SearchSpec上设置投影，再交给各自的search(SearchSpec, Class)执行
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/17 22:20<br>
+ */
+public final class QueryRequests {
+    private QueryRequests() {
+    }
+
+    /**
+     * 构建分页排序的SearchSpec
+     *
+     * @param indexName 索引名
+     * @param query 查询对象
+     * @param sortedField 要排序的字段
+     * @param fromIndex 分页数据从第几页开始取
+     * @param pageSize 每页取多少条数据
+     * @param isDesc 是否降序，true降序，false升序
+     * @return 查询描述
+     */
+    static SearchSpec paged(
+            String indexName,
+            Query query,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc) {
+        return SearchSpec.builder()
+                .index(indexName)
+                .query(query)
+                // 分页查询，从第fromIndex页开始查询pageSize个document
+                .from(fromIndex)
+                .size(pageSize)
+                // 按要排序字段进行降序排序
+                .sort(SearchSpec.fieldSort(sortedField, isDesc))
+                .build();
+    }
+
+    /**
+     * 构建aggsByHistogram方法的SearchRequest，参数含义见QueryApi中的同名方法
+     */
+    static SearchRequest aggsByHistogram(
+            String indexName,
+            String searchText,
+            String searchField,
+            String aggsField,
+            String aggsKey,
+            Double intervalValue) {
+        Query query = MatchQuery.of(m -> m.field(searchField).query(searchText))._toQuery();
+
+        return SearchRequest.of(b -> b.index(indexName)
+                .size(0)
+                .query(query)
+                .aggregations(aggsKey, a -> a.histogram(h -> h.field(aggsField).interval(intervalValue))));
+    }
+
+    /**
+     * 构建matchAllQuery方法的SearchSpec，参数含义见QueryApi中的同名方法
+     */
+    public static SearchSpec matchAllQuery(
+            String indexName, String sortedField, int fromIndex, int pageSize, boolean isDesc) {
+        return paged(
+                indexName, Query.of(q -> q.matchAll(t -> t)), sortedField, fromIndex, pageSize, isDesc);
+    }
+
+    /**
+     * 构建matchQuery方法的SearchSpec，参数含义见QueryApi中的同名方法
+     */
+    public static SearchSpec matchQuery(
+            String indexName,
+            String searchText,
+            String searchField,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc) {
+        Query query = Query.of(q -> q.match(t -> t.field(searchField).query(searchText)));
+
+        return paged(indexName, query, sortedField, fromIndex, pageSize, isDesc);
+    }
+
+    /**
+     * 构建multiMatchQuery方法的SearchSpec，参数含义见QueryApi中的同名方法
+     */
+    public static SearchSpec multiMatchQuery(
+            String indexName,
+            String searchText,
+            List<String> searchFields,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc) {
+        Query query = Query.of(q -> q.multiMatch(t -> t.fields(searchFields).query(searchText)));
+
+        return paged(indexName, query, sortedField, fromIndex, pageSize, isDesc);
+    }
+
+    /**
+     * 构建matchPhrasePrefixQuery方法的SearchSpec，参数含义见QueryApi中的同名方法
+     */
+    public static SearchSpec matchPhrasePrefixQuery(
+            String indexName,
+            String searchText,
+            String searchField,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc) {
+        Query query = Query.of(q -> q.matchPhrasePrefix(t -> t.field(searchField).query(searchText)));
+
+        return paged(indexName, query, sortedField, fromIndex, pageSize, isDesc);
+    }
+
+    /**
+     * 构建idsQuery方法的SearchSpec，参数含义见QueryApi中的同名方法
+     */
+    public static SearchSpec idsQuery(
+            String indexName,
+            List<String> searchTexts,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc) {
+        Query query = Query.of(q -> q.ids(t -> t.values(searchTexts)));
+
+        return paged(indexName, query, sortedField, fromIndex, pageSize, isDesc);
+    }
+
+    /**
+     * 构建termQuery方法的SearchSpec，参数含义见QueryApi中的同名方法
+     */
+    public static SearchSpec termQuery(
+            String indexName,
+            String searchText,
+            String searchField,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc) {
+        return termQuery(indexName, searchText, searchField, sortedField, fromIndex, pageSize, isDesc,
+                QueryContext.SCORING);
+    }
+
+    /**
+     * 构建termQuery方法的SearchSpec，context为FILTER时term条件放在bool.filter中
+     */
+    public static SearchSpec termQuery(
+            String indexName,
+            String searchText,
+            String searchField,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            QueryContext context) {
+        Query query = Query.of(q -> q.term(t -> t.field(searchField).value(searchText)));
+
+        return paged(indexName, context.apply(query), sortedField, fromIndex, pageSize, isDesc);
+    }
+
+    /**
+     * 构建fuzzyQuery方法的SearchSpec，参数含义见QueryApi中的同名方法
+     */
+    public static SearchSpec fuzzyQuery(
+            String indexName,
+            String searchText,
+            String searchField,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc) {
+        Query query = Query.of(q -> q.fuzzy(t -> t.field(searchField).value(searchText)));
+
+        return paged(indexName, query, sortedField, fromIndex, pageSize, isDesc);
+    }
+
+    /**
+     * 构建rangeQuery方法的SearchSpec，参数含义见QueryApi中的同名方法
+     */
+    public static SearchSpec rangeQuery(
+            String indexName,
+            String fromSearchText,
+            String toSearchText,
+            String searchField,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc) {
+        return rangeQuery(indexName, fromSearchText, toSearchText, searchField, sortedField, fromIndex, pageSize,
+                isDesc, QueryContext.SCORING);
+    }
+
+    /**
+     * 构建rangeQuery方法的SearchSpec，context为FILTER时range条件放在bool.filter中
+     */
+    public static SearchSpec rangeQuery(
+            String indexName,
+            String fromSearchText,
+            String toSearchText,
+            String searchField,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc,
+            QueryContext context) {
+        Query query = Query.of(q -> q.range(t -> t.field(searchField).from(fromSearchText).to(toSearchText)));
+
+        return paged(indexName, context.apply(query), sortedField, fromIndex, pageSize, isDesc);
+    }
+
+    /**
+     * 构建wildcardQuery方法的SearchSpec，参数含义见QueryApi中的同名方法
+     */
+    public static SearchSpec wildcardQuery(
+            String indexName,
+            String searchText,
+            String searchField,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc) {
+        Query query = Query.of(q -> q.wildcard(t -> t.field(searchField).value(searchText)));
+
+        return paged(indexName, query, sortedField, fromIndex, pageSize, isDesc);
+    }
+
+    /**
+     * 构建constantScoreQuery方法的SearchSpec，参数含义见QueryApi中的同名方法
+     */
+    public static SearchSpec constantScoreQuery(
+            String indexName,
+            String searchText,
+            String searchField,
+            float boost,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc) {
+        Query query = Query.of(q -> q.constantScore(
+                // 包裹查询, 高于设定分数, 不计算相关性
+                p -> p.filter(e -> e.term(t -> t.field(searchField).value(searchText))).boost(boost)));
+
+        return paged(indexName, query, sortedField, fromIndex, pageSize, isDesc);
+    }
+
+    /**
+     * 构建disMaxQuery方法的SearchSpec，参数含义见QueryApi中的同名方法
+     */
+    public static SearchSpec disMaxQuery(
+            String indexName,
+            List<Query> queries,
+            float boost,
+            double tieBreaker,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc) {
+        DisMaxQuery.Builder builder = QueryBuilders.disMax();
+        builder.queries(queries);
+        builder.boost(boost).tieBreaker(tieBreaker);
+
+        return paged(indexName, builder.build()._toQuery(), sortedField, fromIndex, pageSize, isDesc);
+    }
+
+    /**
+     * 构建queryStringQuery方法的SearchSpec，参数含义见QueryApi中的同名方法
+     */
+    public static SearchSpec queryStringQuery(
+            String indexName,
+            String searchText,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc) {
+        Query query = Query.of(q -> q.queryString(t -> t.query(searchText)));
+
+        return paged(indexName, query, sortedField, fromIndex, pageSize, isDesc);
+    }
+
+    /**
+     * 构建spanFirstQuery方法的SearchSpec，参数含义见QueryApi中的同名方法
+     */
+    public static SearchSpec spanFirstQuery(
+            String indexName,
+            String searchText,
+            String searchField,
+            int end,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc) {
+        Query query = Query.of(q -> q.spanFirst(t -> t.match(e ->
+                        e.spanTerm(g -> g.field(searchField).value(searchText)))
+                .end(end)));
+
+        return paged(indexName, query, sortedField, fromIndex, pageSize, isDesc);
+    }
+
+    /**
+     * 构建spanTermQuery方法的SearchSpec，参数含义见QueryApi中的同名方法
+     */
+    public static SearchSpec spanTermQuery(
+            String indexName,
+            String searchText,
+            String searchField,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc) {
+        Query query = Query.of(q -> q.spanTerm(g -> g.field(searchField).value(searchText)));
+
+        return paged(indexName, query, sortedField, fromIndex, pageSize, isDesc);
+    }
+
+    /**
+     * 构建boolQuery方法的SearchSpec，参数含义见QueryApi中的同名方法
+     */
+    public static SearchSpec boolQuery(
+            String indexName,
+            List<Query> queries,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc) {
+        return boolQuery(indexName, queries, List.of(), sortedField, fromIndex, pageSize, isDesc);
+    }
+
+    /**
+     * 构建boolQuery方法的SearchSpec，mustQueries计算得分，filterQueries不计算得分
+     */
+    public static SearchSpec boolQuery(
+            String indexName,
+            List<Query> mustQueries,
+            List<Query> filterQueries,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc) {
+        Query query = Query.of(q -> q.bool(t -> {
+            // 空列表也会被序列化，有条件时才设置
+            if (!mustQueries.isEmpty()) {
+                t.must(mustQueries);
+            }
+            return filterQueries.isEmpty() ? t : t.filter(filterQueries);
+        }));
+
+        return paged(indexName, query, sortedField, fromIndex, pageSize, isDesc);
+    }
+
+    /**
+     * 构建nestedQuery方法的SearchSpec，参数含义见QueryApi中的同名方法
+     */
+    public static SearchSpec nestedQuery(
+            String indexName,
+            String path,
+            Query nestedQuery,
+            ChildScoreMode childScoreMode,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc) {
+        Query query = Query.of(q -> q.nested(t -> t.path(path).query(nestedQuery).scoreMode(childScoreMode)));
+
+        return paged(indexName, query, sortedField, fromIndex, pageSize, isDesc);
+    }
+
+    /**
+     * 构建highLightQuery方法的SearchRequest，参数含义见QueryApi中的同名方法
+     */
+    static SearchRequest highLightQuery(
+            String indexName,
+            Query query,
+            String highlightField,
+            String preTags,
+            String postTags,
+            String sortedField,
+            int fromIndex,
+            int pageSize,
+            boolean isDesc) {
+        return SearchRequest.of(s -> s.index(indexName)
+                .query(query)
+                .highlight(h -> h.fields(highlightField, f -> f.preTags(preTags).postTags(postTags)))
+                // 分页查询，从第fromIndex页开始查询pageSize个document
+                .from(fromIndex)
+                .size(pageSize)
+                // 按要排序字段进行降序排序
+                .sort(f -> f.field(o -> o.field(sortedField).order(isDesc ? SortOrder.Desc : SortOrder.Asc))));
+    }
+}
@@ -0,0 +1,49 @@
+package com.wujunshen.elasticsearch.bulk;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * bulk请求中永久失败的单条操作
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/17 21:05<br>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkFailure {
+    /**
+     * 索引名
+     */
+    private String index;
+
+    /**
+     * 文档id
+     */
+    private String id;
+
+    /**
+     * 操作类型，index/create/update/delete
+     */
+    private String operationType;
+
+    /**
+     * http状态码，请求整体失败时为0
+     */
+    private int status;
+
+    /**
+     * 错误类型，如mapper_parsing_exception
+     */
+    private String type;
+
+    /**
+     * 错误原因
+     */
+    private String reason;
+}
@@ -0,0 +1,694 @@
+package com.wujunshen.elasticsearch.bulk;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.json.JsonpMapper;
+import jakarta.json.stream.JsonGenerator;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * 批量写入器
+ * <p>
+ * 逐条接收bulk操作，按操作数、请求体字节数、时间间隔三个条件任一满足时flush，
+ * 同时在途的bulk请求数受concurrentRequests限制，达到上限时add方法阻塞调用线程，以此实现背压。
+ * 被拒绝(429)的单条操作按重试策略退避后由调度线程单独重新提交，不会重发整个批次，退避期间不占用bulk线程。
+ * 一个批次从首次发送到所有操作得到最终结果一直占用在途许可，等待重试的操作也计入concurrentRequests，
+ * 服务端持续拒绝时add方法同样会阻塞，不会无限堆积待重试的批次。
+ * <p>
+ * 一个实例可以被多个调用方共用，需要等待自己写入的文档全部完成并拿到结果时，通过session方法开启一个会话。
+ * 每个操作加入时都按实际序列化结果计算字节数。通过add(indexName, id, document)添加的文档只序列化一次，
+ * 发送请求时复用已编码的字节；直接传入BulkOperation时为计算字节数会额外完整序列化一次
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/17 20:40<br>
+ */
+@Slf4j
+public class BulkIngester implements Closeable {
+    private final ElasticsearchClient elasticsearchClient;
+
+    private final JsonpMapper jsonpMapper;
+
+    private final int maxActions;
+
+    private final long maxSize;
+
+    private final BulkRetryPolicy retryPolicy;
+
+    private final BulkResult result = new BulkResult();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Semaphore inFlightPermits;
+
+    private final ExecutorService bulkExecutor;
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * 已发送但还没有全部得到最终结果的批次，close时等待其归零
+     */
+    private final Phaser outstanding = new Phaser(1);
+
+    private final AtomicLong flushCount = new AtomicLong();
+
+    private final AtomicLong operationCount = new AtomicLong();
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private final AtomicLong totalTookMillis = new AtomicLong();
+
+    private List<Item> items = new ArrayList<>();
+
+    private long currentSize;
+
+    private volatile boolean closed;
+
+    /**
+     * 构造批量写入器
+     *
+     * @param elasticsearchClient es客户端
+     * @param maxActions          单次bulk请求最多包含的操作数
+     * @param maxSize             单次bulk请求体最大字节数
+     * @param flushInterval       定时flush间隔(毫秒)，小于等于0表示不定时flush
+     * @param concurrentRequests  同时在途的bulk请求数，0表示首次请求在调用线程中同步执行
+     * @param retryPolicy         单条操作的重试策略
+     */
+    public BulkIngester(
+            ElasticsearchClient elasticsearchClient,
+            int maxActions,
+            long maxSize,
+            long flushInterval,
+            int concurrentRequests,
+            BulkRetryPolicy retryPolicy) {
+        this.elasticsearchClient = elasticsearchClient;
+        this.jsonpMapper = elasticsearchClient._transport().jsonpMapper();
+        this.maxActions = maxActions;
+        this.maxSize = maxSize;
+        this.retryPolicy = retryPolicy;
+        this.inFlightPermits = new Semaphore(Math.max(concurrentRequests, 1));
+        this.bulkExecutor = concurrentRequests > 0
+                ? Executors.newFixedThreadPool(concurrentRequests, new CustomizableThreadFactory("es-bulk-"))
+                : null;
+
+        this.scheduler =
+                Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("es-bulk-scheduler-"));
+        if (flushInterval > 0) {
+            this.scheduler.scheduleWithFixedDelay(
+                    this::scheduledFlush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 添加写入文档操作
+     *
+     * @param indexName 索引名
+     * @param document  文档对象
+     * @param <T>       文档对象泛型
+     */
+    public <T> void add(String indexName, T document) {
+        add(indexOperation(indexName, null, document), null);
+    }
+
+    /**
+     * 添加写入文档操作
+     *
+     * @param indexName 索引名
+     * @param id        文档id
+     * @param document  文档对象
+     * @param <T>       文档对象泛型
+     */
+    public <T> void add(String indexName, String id, T document) {
+        add(indexOperation(indexName, id, document), null);
+    }
+
+    /**
+     * 添加bulk操作，缓冲区达到阈值时触发flush，在途请求已满时阻塞调用线程
+     *
+     * @param operation bulk操作
+     */
+    public void add(BulkOperation operation) {
+        add(operation, null);
+    }
+
+    /**
+     * 开启一个会话，会话中添加的操作与其他调用方的操作合并发送，但结果单独统计
+     *
+     * @return Session对象
+     */
+    public Session session() {
+        return new Session();
+    }
+
+    /**
+     * 立即发送缓冲区中的操作
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            send(drain());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * flush剩余操作并等待所有在途请求完成
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            // 在锁内发送，关闭标记生效后不会再有其他线程提交请求，下面可以安全地关闭线程池
+            send(drain());
+        } finally {
+            lock.unlock();
+        }
+
+        // 等待在途请求以及退避中的重试全部结束
+        outstanding.arriveAndAwaitAdvance();
+        scheduler.shutdownNow();
+
+        if (bulkExecutor != null) {
+            bulkExecutor.shutdown();
+        }
+
+        log.info("BulkIngester closed, flushes: {}, operations: {}, failed: {}, took: {} ms",
+                flushCount.get(), operationCount.get(), failedCount.get(), totalTookMillis.get());
+    }
+
+    /**
+     * @return 已执行的flush次数
+     */
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    /**
+     * @return 已发送的操作数
+     */
+    public long getOperationCount() {
+        return operationCount.get();
+    }
+
+    /**
+     * @return 永久失败的操作数
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * 获取累计的写入结果，调用close后获取可得到完整结果
+     *
+     * @return BulkResult对象
+     */
+    public BulkResult getResult() {
+        return result.copy();
+    }
+
+    /**
+     * @return 所有bulk请求的累计耗时(毫秒)
+     */
+    public long getTotalTookMillis() {
+        return totalTookMillis.get();
+    }
+
+    private void add(BulkOperation operation, Session session) {
+        long size = serializedSize(operation);
+
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("BulkIngester已关闭");
+            }
+            if (session != null) {
+                session.begin();
+            }
+            // 加入后会超过字节上限时先发送已缓冲的操作，只有单个操作本身超过上限时请求体才会大于maxSize
+            if (!items.isEmpty() && currentSize + size > maxSize) {
+                send(drain());
+            }
+            items.add(new Item(operation, session));
+            currentSize += size;
+
+            // 在锁内发送，在途请求已满时后续的add和flush一起等待
+            if (items.size() >= maxActions || currentSize >= maxSize) {
+                send(drain());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 定时flush，在调度线程中执行
+     * <p>
+     * 调度线程还负责触发退避后的重试，而在途许可要等重试结束才释放，所以这里不能阻塞等待锁或许可，
+     * 拿不到时跳过本次，缓冲区中的操作留给下一次定时flush或达到阈值的add发送
+     */
+    private void scheduledFlush() {
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            if (!items.isEmpty() && inFlightPermits.tryAcquire()) {
+                dispatch(drain());
+            }
+        } catch (Exception e) {
+            log.error("scheduled bulk flush failed", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 取出缓冲区内容，需持有lock调用
+     *
+     * @return 待发送的操作列表，缓冲区为空时返回null
+     */
+    private List<Item> drain() {
+        if (items.isEmpty()) {
+            return null;
+        }
+        List<Item> result = items;
+        items = new ArrayList<>();
+        currentSize = 0;
+        return result;
+    }
+
+    /**
+     * 发送一个批次，需持有lock调用
+     * <p>
+     * 批次占用一个在途许可，直到所有操作得到最终结果才释放；被拒绝的操作按退避时间由调度线程重新提交，
+     * 等待期间不占用bulk线程，但仍占用在途许可
+     *
+     * @param toSend 待发送的操作，为null时不做任何事
+     */
+    private void send(List<Item> toSend) {
+        if (toSend == null) {
+            return;
+        }
+
+        inFlightPermits.acquireUninterruptibly();
+        dispatch(toSend);
+    }
+
+    /**
+     * 发送已取得在途许可的批次，需持有lock调用
+     *
+     * @param toSend 待发送的操作
+     */
+    private void dispatch(List<Item> toSend) {
+        outstanding.register();
+        long start = System.nanoTime();
+
+        if (bulkExecutor == null) {
+            attempt(toSend, toSend, 0, start);
+            return;
+        }
+
+        try {
+            bulkExecutor.execute(() -> attempt(toSend, toSend, 0, start));
+        } catch (RejectedExecutionException e) {
+            for (Item item : toSend) {
+                addFailure(item, failureOf(item, 0, e.getClass().getSimpleName(), e.getMessage()));
+            }
+            log.error("Bulk request rejected", e);
+            finish(toSend, 0, start);
+        }
+    }
+
+    /**
+     * 执行一次bulk请求，可重试的操作交给调度线程在退避时间后重新提交
+     *
+     * @param toSend  批次中的全部操作
+     * @param pending 本次要发送的操作
+     * @param attempt 已重试次数，0表示首次请求
+     * @param start   批次开始发送的时间(纳秒)
+     */
+    private void attempt(List<Item> toSend, List<Item> pending, int attempt, long start) {
+        List<Rejected> rejected = execute(pending);
+
+        if (rejected.isEmpty()) {
+            finish(toSend, attempt, start);
+            return;
+        }
+
+        if (!retryPolicy.canRetry(attempt)) {
+            exhaust(rejected, toSend, attempt, start);
+            return;
+        }
+
+        List<Item> retryable = new ArrayList<>(rejected.size());
+        for (Rejected item : rejected) {
+            retryable.add(item.item());
+            if (item.item().session() != null) {
+                item.item().session().result.addRetried(1);
+            }
+        }
+        result.addRetried(retryable.size());
+        log.warn("bulk retry {} of {} rejected operations", attempt + 1, retryable.size());
+
+        try {
+            scheduler.schedule(() -> retry(toSend, retryable, attempt + 1, start),
+                    retryPolicy.backoffMillis(attempt), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            exhaust(rejected, toSend, attempt, start);
+        }
+    }
+
+    /**
+     * 退避时间到后在调度线程中调用，把重试交给bulk线程执行，未配置bulk线程时直接在调度线程中执行
+     */
+    private void retry(List<Item> toSend, List<Item> retryable, int attempt, long start) {
+        if (bulkExecutor == null) {
+            attempt(toSend, retryable, attempt, start);
+            return;
+        }
+        bulkExecutor.execute(() -> attempt(toSend, retryable, attempt, start));
+    }
+
+    /**
+     * 重试次数用完，以最后一次收到的错误作为这些操作的失败原因
+     */
+    private void exhaust(List<Rejected> rejected, List<Item> toSend, int attempt, long start) {
+        for (Rejected item : rejected) {
+            addFailure(item.item(), item.failure());
+        }
+        log.error("bulk retries exhausted, {} operations failed", rejected.size());
+        finish(toSend, attempt, start);
+    }
+
+    /**
+     * 批次中的操作全部得到最终结果，释放批次占用的在途许可
+     */
+    private void finish(List<Item> toSend, int attempt, long start) {
+        long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        flushCount.incrementAndGet();
+        operationCount.addAndGet(toSend.size());
+        totalTookMillis.addAndGet(tookMillis);
+
+        log.info("bulk flush: {} operations, {} retries, took {} ms, {} docs/s",
+                toSend.size(), attempt, tookMillis,
+                tookMillis == 0 ? toSend.size() : toSend.size() * 1000 / tookMillis);
+
+        inFlightPermits.release();
+        outstanding.arriveAndDeregister();
+    }
+
+    /**
+     * 发送一次bulk请求并对结果分类
+     *
+     * @param toSend 要发送的操作列表
+     * @return 可重试的操作及其本次的错误
+     */
+    private List<Rejected> execute(List<Item> toSend) {
+        List<BulkOperation> operations = new ArrayList<>(toSend.size());
+        for (Item item : toSend) {
+            operations.add(item.operation());
+        }
+
+        BulkResponse bulkResponse;
+        try {
+            bulkResponse = elasticsearchClient.bulk(b -> b.operations(operations));
+        } catch (ElasticsearchException e) {
+            boolean retryable = retryPolicy.isRetryable(e.status());
+            List<Rejected> rejected = new ArrayList<>();
+            for (Item item : toSend) {
+                BulkFailure failure = failureOf(item, e.status(), e.error().type(), e.error().reason());
+                if (retryable) {
+                    rejected.add(new Rejected(item, failure));
+                } else {
+                    addFailure(item, failure);
+                }
+            }
+            if (!retryable) {
+                log.error("Bulk request failed", e);
+            }
+            return rejected;
+        } catch (IOException | RuntimeException e) {
+            for (Item item : toSend) {
+                addFailure(item, failureOf(item, 0, e.getClass().getSimpleName(), e.getMessage()));
+            }
+            log.error("Bulk request failed", e);
+            return new ArrayList<>();
+        }
+
+        if (!bulkResponse.errors()) {
+            for (Item item : toSend) {
+                addSuccess(item);
+            }
+            return new ArrayList<>();
+        }
+
+        List<Rejected> rejected = new ArrayList<>();
+        List<BulkResponseItem> responseItems = bulkResponse.items();
+
+        // bulk响应中的items与请求中的操作按顺序一一对应
+        for (int i = 0; i < responseItems.size(); i++) {
+            BulkResponseItem responseItem = responseItems.get(i);
+            if (responseItem.error() == null) {
+                addSuccess(toSend.get(i));
+                continue;
+            }
+
+            BulkFailure failure = BulkFailure.builder()
+                    .index(responseItem.index())
+                    .id(responseItem.id())
+                    .operationType(responseItem.operationType().jsonValue())
+                    .status(responseItem.status())
+                    .type(responseItem.error().type())
+                    .reason(responseItem.error().reason())
+                    .build();
+            if (retryPolicy.isRetryable(responseItem)) {
+                rejected.add(new Rejected(toSend.get(i), failure));
+            } else {
+                addFailure(toSend.get(i), failure);
+                log.error("{}", responseItem.error().reason());
+            }
+        }
+
+        return rejected;
+    }
+
+    private void addSuccess(Item item) {
+        result.addSuccess(1);
+        if (item.session() != null) {
+            item.session().result.addSuccess(1);
+            item.session().end();
+        }
+    }
+
+    private static BulkFailure failureOf(Item item, int status, String type, String reason) {
+        BulkOperation operation = item.operation();
+        return BulkFailure.builder()
+                .index(operationIndex(operation))
+                .id(operationId(operation))
+                .operationType(operation._kind().jsonValue())
+                .status(status)
+                .type(type)
+                .reason(reason)
+                .build();
+    }
+
+    private void addFailure(Item item, BulkFailure failure) {
+        failedCount.incrementAndGet();
+        result.addFailure(failure);
+        if (item.session() != null) {
+            item.session().result.addFailure(failure);
+            item.session().end();
+        }
+    }
+
+    private static String operationIndex(BulkOperation operation) {
+        return switch (operation._kind()) {
+            case Index -> operation.index().index();
+            case Create -> operation.create().index();
+            case Update -> operation.update().index();
+            case Delete -> operation.delete().index();
+        };
+    }
+
+    private static String operationId(BulkOperation operation) {
+        return switch (operation._kind()) {
+            case Index -> operation.index().id();
+            case Create -> operation.create().id();
+            case Update -> operation.update().id();
+            case Delete -> operation.delete().id();
+        };
+    }
+
+    /**
+     * 构造写入文档操作，文档在这里序列化一次，之后计算字节数和发送请求都复用序列化结果
+     *
+     * @param indexName 索引名
+     * @param id        文档id，为null时由es生成
+     * @param document  文档对象
+     * @return bulk操作
+     */
+    private BulkOperation indexOperation(String indexName, String id, Object document) {
+        SerializedDocument serialized = SerializedDocument.of(document, jsonpMapper);
+        return BulkOperation.of(op -> op.index(idx -> idx.index(indexName).id(id).document(serialized)));
+    }
+
+    /**
+     * 计算bulk操作序列化成ndjson后的实际字节数
+     *
+     * @param operation bulk操作
+     * @return 字节数
+     */
+    private long serializedSize(BulkOperation operation) {
+        CountingOutputStream out = new CountingOutputStream();
+
+        Iterator<?> serializables = operation._serializables();
+        while (serializables.hasNext()) {
+            Object item = serializables.next();
+            JsonGenerator generator = jsonpMapper.jsonProvider().createGenerator(out);
+            jsonpMapper.serialize(item, generator);
+            generator.close();
+            out.write('\n');
+        }
+
+        return out.count;
+    }
+
+    /**
+     * 缓冲区中的一个操作
+     *
+     * @param operation bulk操作
+     * @param session   所属会话，不属于任何会话时为null
+     */
+    private record Item(BulkOperation operation, Session session) {
+    }
+
+    /**
+     * 可重试的操作及其最近一次的错误，重试次数用完时作为失败原因
+     *
+     * @param item    缓冲区中的操作
+     * @param failure 最近一次的错误
+     */
+    private record Rejected(Item item, BulkFailure failure) {
+    }
+
+    /**
+     * 写入会话
+     * <p>
+     * 会话中的操作与其他调用方的操作共用缓冲区、线程池和在途请求数限制，
+     * await方法flush缓冲区并等待本会话的操作全部得到最终结果(成功或永久失败)
+     */
+    public final class Session {
+        private final BulkResult result = new BulkResult();
+
+        private long pending;
+
+        private Session() {
+        }
+
+        /**
+         * 添加写入文档操作
+         *
+         * @param indexName 索引名
+         * @param document  文档对象
+         * @param <T>       文档对象泛型
+         */
+        public <T> void add(String indexName, T document) {
+            BulkIngester.this.add(indexOperation(indexName, null, document), this);
+        }
+
+        /**
+         * 添加写入文档操作
+         *
+         * @param indexName 索引名
+         * @param id        文档id
+         * @param document  文档对象
+         * @param <T>       文档对象泛型
+         */
+        public <T> void add(String indexName, String id, T document) {
+            BulkIngester.this.add(indexOperation(indexName, id, document), this);
+        }
+
+        /**
+         * 添加bulk操作
+         *
+         * @param operation bulk操作
+         */
+        public void add(BulkOperation operation) {
+            BulkIngester.this.add(operation, this);
+        }
+
+        /**
+         * flush缓冲区并等待本会话的操作全部完成
+         *
+         * @return 本会话的写入结果
+         * @throws InterruptedIOException 等待时线程被中断
+         */
+        public BulkResult await() throws InterruptedIOException {
+            flush();
+
+            synchronized (this) {
+                while (pending > 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("等待bulk会话完成时被中断");
+                    }
+                }
+            }
+
+            return result.copy();
+        }
+
+        private synchronized void begin() {
+            pending++;
+        }
+
+        private synchronized void end() {
+            if (--pending == 0) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 只计数不保存内容的输出流
+     */
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.wujunshen.elasticsearch.bulk;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * bulk写入结果
+ * <p>
+ * 可重试的失败已在内部重试，failures中只包含永久失败的操作
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/17 21:05<br>
+ */
+@Getter
+@ToString
+public class BulkResult {
+    /**
+     * 最多保留的失败明细数，超过后只计数
+     */
+    static final int MAX_RETAINED_FAILURES = 10000;
+
+    /**
+     * 成功的操作数
+     */
+    private long successCount;
+
+    /**
+     * 永久失败的操作数
+     */
+    private long failedCount;
+
+    /**
+     * 被重新提交的操作数，同一操作每重试一次计一次
+     */
+    private long retriedCount;
+
+    /**
+     * 永久失败的操作明细
+     */
+    private final List<BulkFailure> failures = new ArrayList<>();
+
+    /**
+     * @return 是否全部成功
+     */
+    public boolean isSuccess() {
+        return failedCount == 0;
+    }
+
+    synchronized void addSuccess(long count) {
+        successCount += count;
+    }
+
+    synchronized void addRetried(long count) {
+        retriedCount += count;
+    }
+
+    synchronized void addFailure(BulkFailure failure) {
+        failedCount++;
+        if (failures.size() < MAX_RETAINED_FAILURES) {
+            failures.add(failure);
+        }
+    }
+
+    synchronized BulkResult copy() {
+        BulkResult result = new BulkResult();
+        result.successCount = successCount;
+        result.failedCount = failedCount;
+        result.retriedCount = retriedCount;
+        result.failures.addAll(failures);
+        return result;
+    }
+}
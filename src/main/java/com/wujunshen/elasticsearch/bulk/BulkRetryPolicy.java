@@ -0,0 +1,95 @@
+package com.wujunshen.elasticsearch.bulk;
+
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * bulk单条操作的重试策略
+ * <p>
+ * 429/503以及es_rejected_execution_exception视为可重试，其余错误(如mapping错误)视为永久失败。
+ * 退避时间采用full jitter的指数退避：在[0, min(maxBackoff, initialBackoff * 2^attempt)]之间随机取值
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/17 21:05<br>
+ */
+public class BulkRetryPolicy {
+    private static final String REJECTED_EXECUTION = "es_rejected_execution_exception";
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private static final int SERVICE_UNAVAILABLE = 503;
+
+    private final int maxRetries;
+
+    private final long initialBackoff;
+
+    private final long maxBackoff;
+
+    /**
+     * 构造重试策略
+     *
+     * @param maxRetries     最大重试次数，0表示不重试
+     * @param initialBackoff 初始退避时间(毫秒)
+     * @param maxBackoff     最大退避时间(毫秒)
+     */
+    public BulkRetryPolicy(int maxRetries, long initialBackoff, long maxBackoff) {
+        this.maxRetries = maxRetries;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * 不重试的策略
+     *
+     * @return BulkRetryPolicy对象
+     */
+    public static BulkRetryPolicy noRetry() {
+        return new BulkRetryPolicy(0, 0, 0);
+    }
+
+    /**
+     * 判断单条操作的失败是否可重试
+     *
+     * @param item bulk响应中的单条结果
+     * @return 是否可重试
+     */
+    public boolean isRetryable(BulkResponseItem item) {
+        if (item.error() != null && REJECTED_EXECUTION.equals(item.error().type())) {
+            return true;
+        }
+        return isRetryable(item.status());
+    }
+
+    /**
+     * 判断http状态码是否可重试
+     *
+     * @param status http状态码
+     * @return 是否可重试
+     */
+    public boolean isRetryable(int status) {
+        return status == TOO_MANY_REQUESTS || status == SERVICE_UNAVAILABLE;
+    }
+
+    /**
+     * @param attempt 已重试次数，从0开始
+     * @return 是否还可以继续重试
+     */
+    public boolean canRetry(int attempt) {
+        return attempt < maxRetries;
+    }
+
+    /**
+     * 计算第attempt次重试前的退避时间
+     *
+     * @param attempt 已重试次数，从0开始
+     * @return 退避时间(毫秒)
+     */
+    public long backoffMillis(int attempt) {
+        long ceiling = Math.min(maxBackoff, initialBackoff << Math.min(attempt, 30));
+        if (ceiling <= 0) {
+            return 0;
+        }
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+}
@@ -0,0 +1,69 @@
+package com.wujunshen.elasticsearch.bulk;
+
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.JsonpSerializable;
+import co.elastic.clients.json.jackson.JacksonJsonpGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import jakarta.json.JsonException;
+import jakarta.json.JsonReader;
+import jakarta.json.stream.JsonGenerator;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+/**
+ * 加入BulkIngester时就序列化好的文档
+ * <p>
+ * 序列化结果的utf-8字节在计算请求体大小时编码一次并缓存，发送请求时jackson生成器直接写出这些字节，
+ * 文档对象本身只序列化一次
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/17 21:30<br>
+ */
+final class SerializedDocument implements JsonpSerializable {
+    private final SerializedString json;
+
+    private SerializedDocument(String json) {
+        this.json = new SerializedString(json);
+    }
+
+    /**
+     * 序列化文档
+     *
+     * @param document 文档对象
+     * @param mapper   发送请求时使用的JsonpMapper
+     * @return SerializedDocument对象
+     */
+    static SerializedDocument of(Object document, JsonpMapper mapper) {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = mapper.jsonProvider().createGenerator(writer)) {
+            mapper.serialize(document, generator);
+        }
+        return new SerializedDocument(writer.toString());
+    }
+
+    /**
+     * @return 序列化后的utf-8字节数
+     */
+    int size() {
+        return json.asUnquotedUTF8().length;
+    }
+
+    @Override
+    public void serialize(JsonGenerator generator, JsonpMapper mapper) {
+        if (generator instanceof JacksonJsonpGenerator jacksonJsonpGenerator) {
+            try {
+                jacksonJsonpGenerator.jacksonGenerator().writeRawValue(json);
+            } catch (IOException e) {
+                throw new JsonException(e.getMessage(), e);
+            }
+            return;
+        }
+
+        // 非jackson实现的生成器不能写原始字节，解析后按结构写出
+        try (JsonReader reader = mapper.jsonProvider().createReader(new StringReader(json.getValue()))) {
+            generator.write(reader.readValue());
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package com.wujunshen.elasticsearch.cache;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.GetResponse;
+import co.elastic.clients.json.JsonpDeserializer;
+import co.elastic.clients.json.JsonpMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.wujunshen.elasticsearch.concurrent.EsCall;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonParser;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按索引名和文档id缓存get结果的进程内近端缓存
+ * <p>
+ * 缓存序列化后的GetResponse以及其中的_seq_no和_primary_term，读取时重新反序列化，调用方修改返回的对象不会影响缓存。
+ * 距离上次从es读取或校验不超过maxStaleness的条目直接返回；超过后先发送不取_source的get请求，
+ * _seq_no、_primary_term和是否存在都没变时沿用缓存的内容并重新计时，变了再取完整文档。
+ * 同一个进程中通过DocumentApi、AsyncDocumentApi写入、更新、删除文档时对应条目立即失效，
+ * 其它进程的写入最多在maxStaleness之后被发现。
+ * <p>
+ * 条目按get响应中的实际索引名缓存，通过别名读取时记下别名指向的索引，之后通过别名和实际索引名读写的是同一个条目。
+ * 失效按文档id和索引分别计数，加载期间只有同一文档或同一索引发生过失效时结果才不放入缓存；
+ * 按索引失效时只移除该索引下的条目，不遍历整个缓存。
+ * <p>
+ * offHeap为true时序列化后的内容放在堆外的DirectByteBuffer中，堆上只保留很小的索引对象，大量缓存的文档不会增加GC扫描和复制的负担，
+ * 读取时直接从堆外内存反序列化
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 21:40<br>
+ */
+public class DocumentNearCache {
+    /**
+     * 指标中cache标签的值
+     */
+    private static final String CACHE_NAME = "elasticsearch.document";
+
+    /**
+     * 按文档id散列的失效计数个数
+     */
+    private static final int INVALIDATION_STRIPES = 1024;
+
+    private final ElasticsearchClient elasticsearchClient;
+
+    private final JsonpMapper mapper;
+
+    private final Cache<Key, Entry> cache;
+
+    private final long maxStalenessNanos;
+
+    private final boolean offHeap;
+
+    /**
+     * 按文档id散列的失效计数，加载期间同一文档发生过失效的结果不放入缓存。
+     * 只按id散列，通过别名和实际索引名写入同一文档时落在同一个计数上
+     */
+    private final AtomicLongArray documentInvalidations = new AtomicLongArray(INVALIDATION_STRIPES);
+
+    /**
+     * 每个索引名(或别名)按索引失效的次数
+     */
+    private final ConcurrentMap<String, AtomicLong> indexInvalidations = new ConcurrentHashMap<>();
+
+    /**
+     * 通过别名读取时得到的别名到实际索引名的对应关系
+     */
+    private final ConcurrentMap<String, String> concreteIndices = new ConcurrentHashMap<>();
+
+    /**
+     * 每个索引下已缓存的key，按索引失效时只移除这些条目
+     */
+    private final ConcurrentMap<String, Set<Key>> keysByIndex = new ConcurrentHashMap<>();
+
+    private final LongAdder revalidatedUnchanged = new LongAdder();
+
+    private final LongAdder revalidatedChanged = new LongAdder();
+
+    /**
+     * 构造近端缓存
+     *
+     * @param elasticsearchClient es客户端，用于校验缓存条目
+     * @param enabled             是否开启缓存，关闭时直接执行get
+     * @param maxEntries          最多缓存的文档数
+     * @param maxBytes            最多缓存的字节数
+     * @param maxStaleness        不校验直接返回缓存的最长时间(毫秒)
+     * @param expireAfterAccess   多长时间没有读取后移除(毫秒)
+     * @param offHeap             是否把序列化后的内容放在堆外
+     */
+    public DocumentNearCache(
+            ElasticsearchClient elasticsearchClient,
+            boolean enabled,
+            long maxEntries,
+            long maxBytes,
+            long maxStaleness,
+            long expireAfterAccess,
+            boolean offHeap) {
+        this.elasticsearchClient = elasticsearchClient;
+        this.mapper = elasticsearchClient._transport().jsonpMapper();
+        this.maxStalenessNanos = Duration.ofMillis(maxStaleness).toNanos();
+        this.offHeap = offHeap;
+        if (!enabled) {
+            this.cache = null;
+            return;
+        }
+
+        // 每条至少按maxBytes/maxEntries计算，同时限制条数和字节数
+        int minWeight = (int) Math.min(Integer.MAX_VALUE, Math.max(1, maxBytes / Math.max(1, maxEntries)));
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .<Key, Entry>weigher((key, entry) -> Math.max(minWeight, key.weight() + entry.size()))
+                .expireAfterAccess(Duration.ofMillis(expireAfterAccess))
+                .<Key, Entry>evictionListener((key, entry, cause) -> forget(key))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return 是否开启缓存
+     */
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * 绑定缓存命中、未命中、淘汰次数以及校验结果的Micrometer指标
+     *
+     * @param meterRegistry 指标注册器
+     */
+    public void bindTo(MeterRegistry meterRegistry) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        FunctionCounter.builder("elasticsearch.document.cache.revalidations", revalidatedUnchanged, LongAdder::sum)
+                .tag("result", "unchanged")
+                .description("Stale near-cache entries confirmed unchanged by _seq_no and _primary_term")
+                .register(meterRegistry);
+        FunctionCounter.builder("elasticsearch.document.cache.revalidations", revalidatedChanged, LongAdder::sum)
+                .tag("result", "changed")
+                .description("Stale near-cache entries reloaded because the document changed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 从缓存中取文档，没有或已变化时执行get并缓存
+     *
+     * @param indexName 索引名或别名
+     * @param id        文档id
+     * @param clazz     文档对象class
+     * @param loader    实际执行get的调用
+     * @param <T>       文档对象泛型
+     * @return GetResponse对象
+     * @throws IOException 异常信息
+     */
+    public <T> GetResponse<T> get(String indexName, String id, Class<T> clazz, EsCall<GetResponse<T>> loader)
+            throws IOException {
+        if (!isEnabled()) {
+            return loader.call();
+        }
+
+        Key key = new Key(concreteIndices.getOrDefault(indexName, indexName), id);
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            if (System.nanoTime() - entry.validatedAt <= maxStalenessNanos) {
+                return deserialize(entry, clazz);
+            }
+            Entry revalidated = revalidate(indexName, key, entry);
+            if (revalidated != null) {
+                return deserialize(revalidated, clazz);
+            }
+        }
+
+        return load(indexName, key, loader);
+    }
+
+    /**
+     * 使文档的缓存失效
+     *
+     * @param indexName 索引名或别名
+     * @param id        文档id
+     */
+    public void invalidate(String indexName, String id) {
+        if (isEnabled()) {
+            documentInvalidations.incrementAndGet(stripe(id));
+            Key key = new Key(concreteIndices.getOrDefault(indexName, indexName), id);
+            cache.invalidate(key);
+            forget(key);
+        }
+    }
+
+    /**
+     * 使索引中所有文档的缓存失效，用于delete_by_query、删除索引、切换别名等无法确定文档id的操作
+     * <p>
+     * 传入别名时同时移除别名当前指向的索引的条目，并忘记对应关系，别名切换后重新读取时再记下新的索引
+     *
+     * @param indexName 索引名或别名
+     */
+    public void invalidate(String indexName) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        invalidateIndex(indexName);
+        String concrete = concreteIndices.remove(indexName);
+        if (concrete != null) {
+            invalidateIndex(concrete);
+        }
+        // 指向该索引的别名，加载期间的结果同样不能放入缓存
+        for (Map.Entry<String, String> alias : concreteIndices.entrySet()) {
+            if (alias.getValue().equals(indexName)) {
+                invalidateIndex(alias.getKey());
+            }
+        }
+    }
+
+    /**
+     * @return 缓存命中、未命中和淘汰等统计，未开启时为空统计
+     */
+    public CacheStats stats() {
+        return isEnabled() ? cache.stats() : CacheStats.empty();
+    }
+
+    /**
+     * @return 校验后确认没有变化的次数
+     */
+    public long getRevalidatedUnchangedCount() {
+        return revalidatedUnchanged.sum();
+    }
+
+    /**
+     * @return 校验后发现已变化的次数
+     */
+    public long getRevalidatedChangedCount() {
+        return revalidatedChanged.sum();
+    }
+
+    private <T> GetResponse<T> load(String indexName, Key key, EsCall<GetResponse<T>> loader) throws IOException {
+        long before = version(key);
+        GetResponse<T> response = loader.call();
+
+        Key loaded = key;
+        if (response.index() != null && !response.index().equals(key.indexName)) {
+            // 通过别名读取，按实际索引名缓存
+            concreteIndices.put(indexName, response.index());
+            loaded = new Key(response.index(), key.id);
+        }
+
+        // 加载期间有写入时，结果可能已经过期
+        if (version(key) == before) {
+            cache.put(loaded, new Entry(
+                    store(serialize(response)), response.found(), response.seqNo(), response.primaryTerm(),
+                    System.nanoTime()));
+            keysByIndex.computeIfAbsent(loaded.indexName, k -> ConcurrentHashMap.newKeySet()).add(loaded);
+        }
+        return response;
+    }
+
+    /**
+     * 只取文档的元数据，实际索引、_seq_no、_primary_term和是否存在都没变时返回重新计时的条目，否则返回null
+     */
+    private Entry revalidate(String indexName, Key key, Entry entry) throws IOException {
+        long before = version(key);
+        GetResponse<Void> metadata = elasticsearchClient.get(
+                g -> g.index(indexName).id(key.id).source(s -> s.fetch(false)), Void.class);
+
+        // 别名已指向其它索引时按变化处理
+        boolean unchanged = key.indexName.equals(metadata.index())
+                && metadata.found() == entry.found
+                && Objects.equals(metadata.seqNo(), entry.seqNo)
+                && Objects.equals(metadata.primaryTerm(), entry.primaryTerm);
+        if (!unchanged) {
+            revalidatedChanged.increment();
+            return null;
+        }
+
+        revalidatedUnchanged.increment();
+        Entry validated = new Entry(entry.content, entry.found, entry.seqNo, entry.primaryTerm, System.nanoTime());
+        if (version(key) == before) {
+            cache.asMap().replace(key, entry, validated);
+        }
+        return validated;
+    }
+
+    /**
+     * 影响该key的失效次数之和，只增不减，加载前后相同说明期间没有相关的失效
+     */
+    private long version(Key key) {
+        AtomicLong indexVersion = indexInvalidations.get(key.indexName);
+        return documentInvalidations.get(stripe(key.id)) + (indexVersion == null ? 0 : indexVersion.get());
+    }
+
+    private void invalidateIndex(String indexName) {
+        indexInvalidations.computeIfAbsent(indexName, k -> new AtomicLong()).incrementAndGet();
+        Set<Key> keys = keysByIndex.remove(indexName);
+        if (keys != null) {
+            cache.invalidateAll(keys);
+        }
+    }
+
+    /**
+     * 条目被移除后从所属索引的key集合中去掉
+     */
+    private void forget(Key key) {
+        Set<Key> keys = keysByIndex.get(key.indexName);
+        if (keys != null) {
+            keys.remove(key);
+        }
+    }
+
+    private static int stripe(String id) {
+        return Math.floorMod(id.hashCode(), INVALIDATION_STRIPES);
+    }
+
+    private Object store(byte[] bytes) {
+        if (!offHeap) {
+            return bytes;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer;
+    }
+
+    private byte[] serialize(GetResponse<?> response) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = mapper.jsonProvider().createGenerator(out)) {
+            response.serialize(generator, mapper);
+        }
+        return out.toByteArray();
+    }
+
+    private <T> GetResponse<T> deserialize(Entry entry, Class<T> clazz) {
+        JsonpDeserializer<GetResponse<T>> deserializer =
+                GetResponse.createGetResponseDeserializer(JsonpDeserializer.of(clazz));
+        try (JsonParser parser = mapper.jsonProvider().createParser(entry.inputStream())) {
+            return deserializer.deserialize(parser, mapper);
+        }
+    }
+
+    /**
+     * 缓存key
+     */
+    private record Key(String indexName, String id) {
+        int weight() {
+            return indexName.length() + id.length();
+        }
+    }
+
+    /**
+     * 缓存条目，content是堆上的byte[]或堆外的ByteBuffer
+     */
+    private record Entry(Object content, boolean found, Long seqNo, Long primaryTerm, long validatedAt) {
+        int size() {
+            return content instanceof ByteBuffer buffer ? buffer.capacity() : ((byte[]) content).length;
+        }
+
+        InputStream inputStream() {
+            if (content instanceof ByteBuffer buffer) {
+                // 用duplicate读取，多个线程同时读取互不影响position
+                return new ByteBufferInputStream(buffer.duplicate());
+            }
+            return new ByteArrayInputStream((byte[]) content);
+        }
+    }
+
+    /**
+     * 直接读取ByteBuffer的输入流，不把堆外内容复制到堆上
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.wujunshen.elasticsearch.cache;
+
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.json.JsonpMapper;
+import jakarta.json.stream.JsonGenerator;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 查询请求的规范化表示，内容相同的SearchRequest得到相等的key
+ * <p>
+ * 由请求路径、按名称排序的请求参数、序列化后的请求体和结果类型组成，
+ * 请求体中字段的顺序由客户端的序列化代码决定，与builder的调用顺序无关
+ *
+ * @param url     请求路径和排序后的请求参数
+ * @param body    序列化后的请求体
+ * @param clazz   结果对象class
+ * @param indices 请求的索引
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 20:50<br>
+ */
+public record SearchRequestKey(String url, String body, Class<?> clazz, List<String> indices) {
+    /**
+     * 生成查询请求的key
+     *
+     * @param request SearchRequest对象
+     * @param clazz   结果对象class
+     * @param mapper  序列化请求体使用的JsonpMapper
+     * @return 请求的key
+     */
+    public static SearchRequestKey of(SearchRequest request, Class<?> clazz, JsonpMapper mapper) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (JsonGenerator generator = mapper.jsonProvider().createGenerator(body)) {
+            request.serialize(generator, mapper);
+        }
+        // 参数按名称排序，与设置顺序无关
+        Map<String, String> parameters = new TreeMap<>(SearchRequest._ENDPOINT.queryParameters(request));
+
+        return new SearchRequestKey(
+                SearchRequest._ENDPOINT.requestUrl(request) + "?" + parameters,
+                body.toString(StandardCharsets.UTF_8),
+                clazz,
+                request.index());
+    }
+
+    /**
+     * @return key占用内存的估计值(字节)
+     */
+    public int weight() {
+        return url.length() + body.length();
+    }
+}
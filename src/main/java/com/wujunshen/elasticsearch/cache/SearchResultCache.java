@@ -0,0 +1,266 @@
+package com.wujunshen.elasticsearch.cache;
+
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.json.JsonpDeserializer;
+import co.elastic.clients.json.JsonpMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.wujunshen.elasticsearch.concurrent.EsCall;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonParser;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * QueryApi查询结果的客户端缓存
+ * <p>
+ * 缓存key由SearchRequestKey和涉及索引的版本号组成，
+ * value是序列化后的SearchResponse，命中时重新反序列化，调用方修改返回的对象不会影响缓存。
+ * 按字节数加权淘汰(Caffeine的W-TinyLFU)，每条至少按maxBytes/maxEntries计算，所以同时受条数和字节数限制，
+ * 写入后超过ttl过期。
+ * <p>
+ * 失效按索引版本号实现：DocumentApi写入、IndexApi.refresh等操作把对应索引的版本号加一，
+ * 之后的查询用新版本号组成key，旧条目不再被命中，同时按索引记录的key把旧条目立即移除，不占用maxBytes。
+ * 查询前先取版本号，查询过程中索引发生写入时结果不放入缓存。
+ * 没有指定索引或索引名含通配符、逗号的查询使用全局版本号，任何索引失效时都会加一；
+ * 按别名查询时需要对别名调用invalidate
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 19:50<br>
+ */
+public class SearchResultCache {
+    /**
+     * 指标中cache标签的值，指标名为cache.gets、cache.evictions等
+     */
+    private static final String CACHE_NAME = "elasticsearch.search";
+
+    /**
+     * keysByIndex中使用全局版本号的条目的key
+     */
+    private static final String GLOBAL = "";
+
+    private final JsonpMapper mapper;
+
+    private final Cache<Key, byte[]> cache;
+
+    private final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private final AtomicLong globalGeneration = new AtomicLong();
+
+    /**
+     * 每个索引下已缓存的key，版本号加一时按这里移除旧条目
+     */
+    private final ConcurrentMap<String, Set<Key>> keysByIndex = new ConcurrentHashMap<>();
+
+    /**
+     * 构造结果缓存
+     *
+     * @param mapper     序列化响应使用的JsonpMapper
+     * @param enabled    是否开启缓存，关闭时直接执行查询
+     * @param maxEntries 最多缓存的条数
+     * @param maxBytes   最多缓存的字节数
+     * @param ttl        写入后的过期时间(毫秒)
+     */
+    public SearchResultCache(JsonpMapper mapper, boolean enabled, long maxEntries, long maxBytes, long ttl) {
+        this.mapper = mapper;
+        if (!enabled) {
+            this.cache = null;
+            return;
+        }
+
+        int minWeight = (int) Math.min(Integer.MAX_VALUE, Math.max(1, maxBytes / Math.max(1, maxEntries)));
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .<Key, byte[]>weigher((key, value) -> Math.max(minWeight, key.weight() + value.length))
+                .expireAfterWrite(Duration.ofMillis(ttl))
+                .<Key, byte[]>evictionListener((key, value, cause) -> forget(key))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return 是否开启缓存
+     */
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * 绑定缓存命中、未命中、淘汰次数和缓存大小的Micrometer指标
+     *
+     * @param meterRegistry 指标注册器
+     */
+    public void bindTo(MeterRegistry meterRegistry) {
+        if (isEnabled()) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        }
+    }
+
+    /**
+     * 从缓存中取查询结果，没有时执行查询并缓存
+     *
+     * @param request 查询请求的key
+     * @param clazz   要搜索的文档对象class
+     * @param loader  实际执行查询的调用
+     * @param <T>     文档对象泛型
+     * @return SearchResponse对象
+     * @throws IOException 查询异常
+     */
+    public <T> SearchResponse<T> get(SearchRequestKey request, Class<T> clazz, EsCall<SearchResponse<T>> loader)
+            throws IOException {
+        if (!isEnabled()) {
+            return loader.call();
+        }
+
+        Key key = new Key(request, generations(request.indices()));
+        byte[] cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return deserialize(cached, clazz);
+        }
+
+        SearchResponse<T> response = loader.call();
+        // 超时或有分片失败的结果不完整，查询过程中索引发生写入的结果可能已过期，都不缓存
+        if (!response.timedOut() && response.shards().failures().isEmpty()
+                && key.generations().equals(generations(request.indices()))) {
+            cache.put(key, serialize(response));
+            for (String name : indexNames(key)) {
+                keysByIndex.computeIfAbsent(name, k -> ConcurrentHashMap.newKeySet()).add(key);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * 使索引相关的缓存结果失效
+     *
+     * @param indexName 索引名，多个用逗号隔开
+     */
+    public void invalidate(String indexName) {
+        if (!isEnabled()) {
+            return;
+        }
+        if (indexName == null || isPattern(indexName.replace(",", ""))) {
+            invalidateAll();
+            return;
+        }
+
+        for (String name : indexName.split(",")) {
+            generations.computeIfAbsent(name.trim(), k -> new AtomicLong()).incrementAndGet();
+            evict(name.trim());
+        }
+        globalGeneration.incrementAndGet();
+        evict(GLOBAL);
+    }
+
+    /**
+     * 清空全部缓存结果
+     */
+    public void invalidateAll() {
+        if (!isEnabled()) {
+            return;
+        }
+
+        globalGeneration.incrementAndGet();
+        generations.values().forEach(AtomicLong::incrementAndGet);
+        cache.invalidateAll();
+        keysByIndex.clear();
+    }
+
+    /**
+     * @return 缓存命中、未命中和淘汰等统计，未开启时为空统计
+     */
+    public CacheStats stats() {
+        return isEnabled() ? cache.stats() : CacheStats.empty();
+    }
+
+    /**
+     * @return 当前缓存的条数估计值
+     */
+    public long size() {
+        return isEnabled() ? cache.estimatedSize() : 0;
+    }
+
+    private List<Long> generations(List<String> indices) {
+        if (indices.isEmpty() || indices.stream().anyMatch(SearchResultCache::isPattern)) {
+            return List.of(globalGeneration.get());
+        }
+
+        return indices.stream()
+                .map(name -> generations.computeIfAbsent(name, k -> new AtomicLong()).get())
+                .toList();
+    }
+
+    /**
+     * 移除索引下的旧版本条目
+     */
+    private void evict(String indexName) {
+        Set<Key> keys = keysByIndex.remove(indexName);
+        if (keys != null) {
+            cache.invalidateAll(keys);
+            // 涉及多个索引的条目同时记在其它索引下
+            keys.forEach(this::forget);
+        }
+    }
+
+    /**
+     * 条目被移除后从所属索引的key集合中去掉
+     */
+    private void forget(Key key) {
+        for (String name : indexNames(key)) {
+            Set<Key> keys = keysByIndex.get(name);
+            if (keys != null) {
+                keys.remove(key);
+            }
+        }
+    }
+
+    /**
+     * 条目记在哪些索引下，使用全局版本号的条目记在GLOBAL下
+     */
+    private static List<String> indexNames(Key key) {
+        List<String> indices = key.request().indices();
+        return indices.isEmpty() || indices.stream().anyMatch(SearchResultCache::isPattern)
+                ? List.of(GLOBAL)
+                : indices;
+    }
+
+    private static boolean isPattern(String indexName) {
+        return indexName.contains("*") || indexName.contains(",") || "_all".equals(indexName);
+    }
+
+    private byte[] serialize(SearchResponse<?> response) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = mapper.jsonProvider().createGenerator(out)) {
+            response.serialize(generator, mapper);
+        }
+        return out.toByteArray();
+    }
+
+    private <T> SearchResponse<T> deserialize(byte[] bytes, Class<T> clazz) {
+        JsonpDeserializer<SearchResponse<T>> deserializer =
+                SearchResponse.createSearchResponseDeserializer(JsonpDeserializer.of(clazz));
+        try (JsonParser parser = mapper.jsonProvider().createParser(new ByteArrayInputStream(bytes))) {
+            return deserializer.deserialize(parser, mapper);
+        }
+    }
+
+    /**
+     * 缓存key，版本号不同的相同请求是不同的key
+     */
+    private record Key(SearchRequestKey request, List<Long> generations) {
+        int weight() {
+            return request.weight();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.wujunshen.elasticsearch.cache;
+
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import com.wujunshen.elasticsearch.concurrent.EsCall;
+import com.wujunshen.elasticsearch.concurrent.Futures;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 相同查询的合并执行(single flight)
+ * <p>
+ * 同一时刻有多个线程发出SearchRequestKey相同的查询时，只有第一个线程发送请求，
+ * 其它线程等待并共享同一个反序列化后的SearchResponse，请求结束后立即移除，之后的查询重新发送。
+ * 结果只在请求在途期间共享，不会比单独发送更旧。
+ * 共享的SearchResponse及其中的文档对象是同一个实例，调用方不应修改
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 21:00<br>
+ */
+public class SearchSingleFlight implements MeterBinder {
+    private final boolean enabled;
+
+    private final ConcurrentMap<SearchRequestKey, CompletableFuture<SearchResponse<?>>> inFlight =
+            new ConcurrentHashMap<>();
+
+    private final LongAdder executed = new LongAdder();
+
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * @param enabled 是否合并相同的在途查询，关闭时直接执行
+     */
+    public SearchSingleFlight(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return 是否开启合并
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 执行查询，已有相同的查询在途时等待其结果
+     *
+     * @param request 查询请求的key
+     * @param call    实际执行查询的调用
+     * @param <T>     文档对象泛型
+     * @return SearchResponse对象
+     * @throws IOException 查询异常，等待的线程得到与发送线程相同的异常
+     */
+    @SuppressWarnings("unchecked")
+    public <T> SearchResponse<T> execute(SearchRequestKey request, EsCall<SearchResponse<T>> call)
+            throws IOException {
+        if (!enabled) {
+            return call.call();
+        }
+
+        CompletableFuture<SearchResponse<?>> future = new CompletableFuture<>();
+        CompletableFuture<SearchResponse<?>> existing = inFlight.putIfAbsent(request, future);
+        if (existing != null) {
+            shared.increment();
+            // 等待副本，某个等待线程被中断时只取消自己的副本，不影响发送线程和其它等待线程
+            return (SearchResponse<T>) Futures.join(existing.copy());
+        }
+
+        executed.increment();
+        try {
+            SearchResponse<T> response = call.call();
+            future.complete(response);
+            return response;
+        } catch (IOException | RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(request, future);
+        }
+    }
+
+    /**
+     * @return 实际发送的查询数
+     */
+    public long getExecutedCount() {
+        return executed.sum();
+    }
+
+    /**
+     * @return 共享其它查询结果、没有发送请求的查询数
+     */
+    public long getSharedCount() {
+        return shared.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("elasticsearch.search.singleflight.executed", executed, LongAdder::sum)
+                .description("Searches sent to Elasticsearch by the single-flight layer")
+                .register(registry);
+        FunctionCounter.builder("elasticsearch.search.singleflight.shared", shared, LongAdder::sum)
+                .description("Searches that reused the response of an identical in-flight search")
+                .register(registry);
+    }
+}
@@ -0,0 +1,194 @@
+package com.wujunshen.elasticsearch.concurrent;
+
+import java.io.Closeable;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * 异步请求并发限制器
+ * <p>
+ * 在途请求数达到上限时，新请求进入队列排队而不阻塞调用线程，有请求完成后再从队列中取出发送。
+ * 请求完成的回调运行在http客户端的I/O线程上，排队的请求交给单独的派发线程发起，不占用I/O线程
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/17 22:40<br>
+ */
+@Slf4j
+public class AsyncLimiter implements Closeable {
+    private final int maxConcurrentRequests;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final Queue<Waiting<?>> waiting = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 发起排队请求的线程，不限制并发时为null
+     */
+    private final ExecutorService dispatcher;
+
+    /**
+     * 构造并发限制器
+     *
+     * @param maxConcurrentRequests 最大在途请求数，小于等于0表示不限制
+     */
+    public AsyncLimiter(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+
+        if (maxConcurrentRequests > 0) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("es-async-dispatch-");
+            threadFactory.setDaemon(true);
+            this.dispatcher = Executors.newSingleThreadExecutor(threadFactory);
+        } else {
+            this.dispatcher = null;
+        }
+    }
+
+    /**
+     * 在并发限制内执行异步请求
+     *
+     * @param call 发起异步请求的函数，有空闲名额时在调用线程上执行，否则排队后在派发线程上执行
+     * @param <T>  返回值泛型
+     * @return 请求结果的CompletableFuture
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> result = trySubmit(call);
+        if (result != null) {
+            return result;
+        }
+
+        result = new CompletableFuture<>();
+        waiting.add(new Waiting<>(call, result));
+        // 入队前后可能有请求完成释放了名额
+        drain();
+
+        return result;
+    }
+
+    /**
+     * 有空闲名额且没有请求排队时立即执行异步请求，否则不执行
+     *
+     * @param call 发起异步请求的函数，在调用线程上执行
+     * @param <T>  返回值泛型
+     * @return 请求结果的CompletableFuture，没有空闲名额时返回null
+     */
+    public <T> CompletableFuture<T> trySubmit(Supplier<CompletableFuture<T>> call) {
+        if (maxConcurrentRequests <= 0) {
+            return call.get();
+        }
+
+        while (true) {
+            int current = inFlight.get();
+            if (current >= maxConcurrentRequests || !waiting.isEmpty()) {
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        start(call, result);
+
+        return result;
+    }
+
+    /**
+     * @return 当前在途请求数
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return 当前排队等待的请求数
+     */
+    public int getWaiting() {
+        return waiting.size();
+    }
+
+    @Override
+    public void close() {
+        if (dispatcher != null) {
+            dispatcher.shutdownNow();
+        }
+    }
+
+    private <T> void start(Supplier<CompletableFuture<T>> call, CompletableFuture<T> result) {
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        // 调用方取消时同时取消在途请求
+        CompletableFuture<T> inner = future;
+        result.whenComplete((value, throwable) -> {
+            if (result.isCancelled()) {
+                inner.cancel(true);
+            }
+        });
+
+        future.whenComplete((value, throwable) -> {
+            inFlight.decrementAndGet();
+            drain();
+
+            if (throwable != null) {
+                result.completeExceptionally(throwable);
+            } else {
+                result.complete(value);
+            }
+        });
+    }
+
+    /**
+     * 在有空闲名额时从队列中取出请求，交给派发线程执行
+     */
+    private void drain() {
+        while (!waiting.isEmpty()) {
+            int current = inFlight.get();
+            if (current >= maxConcurrentRequests) {
+                return;
+            }
+            if (!inFlight.compareAndSet(current, current + 1)) {
+                continue;
+            }
+
+            Waiting<?> task = waiting.poll();
+            if (task == null) {
+                inFlight.decrementAndGet();
+                continue;
+            }
+            dispatch(task);
+        }
+    }
+
+    private <T> void dispatch(Waiting<T> task) {
+        try {
+            dispatcher.execute(() -> start(task.call(), task.result()));
+        } catch (RejectedExecutionException e) {
+            // 已关闭
+            inFlight.decrementAndGet();
+            task.result().completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 排队中的请求
+     *
+     * @param call   发起异步请求的函数
+     * @param result 返回给调用方的CompletableFuture
+     * @param <T>    返回值泛型
+     */
+    private record Waiting<T>(Supplier<CompletableFuture<T>> call, CompletableFuture<T> result) {
+    }
+}
@@ -0,0 +1,197 @@
+package com.wujunshen.elasticsearch.concurrent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * 阻塞式es调用执行器
+ * <p>
+ * 把QueryApi/DocumentApi等阻塞调用派发到独立线程上执行，并用信号量把同时执行的调用数限制在连接池大小以内。
+ * 开启虚拟线程模式且运行在JDK 21及以上时每个调用使用一个虚拟线程，等待信号量和网络IO都不占用平台线程，
+ * 可以用很少的http连接承载上万个并发的逻辑请求。
+ * 否则退化为maxConcurrentCalls个线程的平台线程池，最多排队maxQueuedCalls个调用，
+ * 队列满时由提交调用的线程自己执行，以此向调用方施加背压，不会为每个等待中的调用创建一个线程
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/17 23:10<br>
+ */
+@Slf4j
+public class BlockingCallExecutor implements Closeable {
+    private final ExecutorService executorService;
+
+    private final Semaphore permits;
+
+    private final boolean virtual;
+
+    /**
+     * 平台线程空闲多久后回收(秒)
+     */
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    /**
+     * 构造执行器
+     *
+     * @param virtualThreads     是否使用虚拟线程，当前JDK不支持时退化为平台线程
+     * @param maxConcurrentCalls 同时执行的最大调用数，一般等于最大连接数
+     * @param maxQueuedCalls     使用平台线程时排队的最大调用数
+     */
+    public BlockingCallExecutor(boolean virtualThreads, int maxConcurrentCalls, int maxQueuedCalls) {
+        ExecutorService virtualExecutor = virtualThreads ? newVirtualThreadPerTaskExecutor() : null;
+        int concurrency = Math.max(1, maxConcurrentCalls);
+
+        this.virtual = virtualExecutor != null;
+        this.executorService = virtual ? virtualExecutor : newPlatformExecutor(concurrency, maxQueuedCalls);
+        this.permits = new Semaphore(concurrency, true);
+    }
+
+    /**
+     * 异步执行一个阻塞调用
+     *
+     * @param call es调用
+     * @param <T>  返回值泛型
+     * @return 调用结果的CompletableFuture，IOException包装为UncheckedIOException，执行器已关闭时以RejectedExecutionException结束；
+     * 取消时会中断执行调用的线程
+     */
+    public <T> CompletableFuture<T> submit(EsCall<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        Future<?> task;
+        try {
+            task = executorService.submit(() -> {
+                try {
+                    result.complete(execute(call));
+                } catch (IOException e) {
+                    result.completeExceptionally(new UncheckedIOException(e));
+                } catch (RuntimeException | Error e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        result.whenComplete((value, throwable) -> {
+            if (result.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * 在当前线程中执行调用，但同样受并发数限制
+     *
+     * @param call es调用
+     * @param <T>  返回值泛型
+     * @return 调用结果
+     * @throws IOException 异常信息，等待许可时被中断抛出InterruptedIOException
+     */
+    public <T> T execute(EsCall<T> call) throws IOException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a connection permit");
+        }
+
+        try {
+            return call.call();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 打开一个任务作用域，在作用域中fork的调用会在close时全部结束
+     *
+     * @param <T> 返回值泛型
+     * @return 任务作用域
+     */
+    public <T> EsTaskScope<T> openScope() {
+        return new EsTaskScope<>(this);
+    }
+
+    /**
+     * @return 是否运行在虚拟线程上
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * @return 当前可用的许可数
+     */
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * @return 等待许可的调用数
+     */
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+
+    @Override
+    public void close() {
+        executorService.shutdown();
+        try {
+            if (!executorService.awaitTermination(30, TimeUnit.SECONDS)) {
+                executorService.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ExecutorService newPlatformExecutor(int concurrency, int maxQueuedCalls) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                concurrency,
+                concurrency,
+                KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxQueuedCalls)),
+                new CustomizableThreadFactory("es-call-"),
+                (task, pool) -> {
+                    // CallerRunsPolicy在关闭后会丢弃任务，调用方的CompletableFuture将永远不会结束
+                    if (pool.isShutdown()) {
+                        throw new RejectedExecutionException("BlockingCallExecutor is closed");
+                    }
+                    task.run();
+                });
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器，编译期仍兼容JDK 17
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.warn("virtual threads are not supported by java {}, falling back to platform threads",
+                    System.getProperty("java.version"));
+            return null;
+        }
+    }
+}
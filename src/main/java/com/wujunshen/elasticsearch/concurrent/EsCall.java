@@ -0,0 +1,22 @@
+package com.wujunshen.elasticsearch.concurrent;
+
+import java.io.IOException;
+
+/**
+ * 会抛出IOException的es调用，QueryApi/DocumentApi等阻塞方法可以直接写成lambda
+ *
+ * @param <T> 返回值泛型
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/17 23:10<br>
+ */
+@FunctionalInterface
+public interface EsCall<T> {
+    /**
+     * 执行调用
+     *
+     * @return 调用结果
+     * @throws IOException 异常信息
+     */
+    T call() throws IOException;
+}
@@ -0,0 +1,91 @@
+package com.wujunshen.elasticsearch.concurrent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 结构化并发的任务作用域
+ * <p>
+ * 在作用域中fork若干es调用，join等待全部完成并按fork顺序返回结果；任一调用失败时取消其余调用并抛出该异常。
+ * close时取消所有未完成的调用，配合try-with-resources使用可以保证调用不会泄漏到作用域之外
+ * <pre>
+ * try (EsTaskScope&lt;List&lt;Sku&gt;&gt; scope = blockingCallExecutor.openScope()) {
+ *     scope.fork(() -&gt; queryApi.matchQuery(...));
+ *     scope.fork(() -&gt; queryApi.termQuery(...));
+ *     List&lt;List&lt;Sku&gt;&gt; results = scope.join();
+ * }
+ * </pre>
+ *
+ * @param <T> 返回值泛型
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/17 23:10<br>
+ */
+public class EsTaskScope<T> implements AutoCloseable {
+    private final BlockingCallExecutor executor;
+
+    private final List<CompletableFuture<T>> futures = new ArrayList<>();
+
+    private final CompletableFuture<Void> failure = new CompletableFuture<>();
+
+    EsTaskScope(BlockingCallExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 在作用域中启动一个调用
+     *
+     * @param call es调用
+     * @return 调用结果的CompletableFuture
+     */
+    public CompletableFuture<T> fork(EsCall<T> call) {
+        CompletableFuture<T> future = executor.submit(call);
+        future.whenComplete((value, throwable) -> {
+            if (throwable != null) {
+                failure.completeExceptionally(throwable);
+            }
+        });
+        futures.add(future);
+
+        return future;
+    }
+
+    /**
+     * 等待所有调用完成，任一调用失败时立即取消其余调用
+     *
+     * @return 按fork顺序排列的调用结果
+     * @throws IOException 第一个失败调用的异常
+     */
+    public List<T> join() throws IOException {
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+
+        try {
+            CompletableFuture.anyOf(all, failure).join();
+            failure.complete(null);
+            failure.join();
+        } catch (CompletionException e) {
+            cancelAll();
+            throw Futures.unwrap(e);
+        }
+
+        List<T> result = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> future : futures) {
+            result.add(future.join());
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        cancelAll();
+    }
+
+    private void cancelAll() {
+        for (CompletableFuture<T> future : futures) {
+            future.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.wujunshen.elasticsearch.concurrent;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 在阻塞式api中等待CompletableFuture，并把异常还原为api原本抛出的类型
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 01:10<br>
+ */
+public final class Futures {
+    private Futures() {
+    }
+
+    /**
+     * 等待结果，IOException原样抛出，RuntimeException和Error原样抛出，其它异常包装为IOException
+     *
+     * @param future CompletableFuture对象
+     * @param <T>    返回值泛型
+     * @return 结果
+     * @throws IOException 异常信息，等待时被中断抛出InterruptedIOException
+     */
+    public static <T> T join(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for response");
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (CancellationException e) {
+            throw new InterruptedIOException("request was cancelled");
+        }
+    }
+
+    /**
+     * 还原异常
+     *
+     * @param throwable CompletableFuture中的异常
+     * @return 还原后的IOException，RuntimeException和Error直接抛出
+     */
+    static IOException unwrap(Throwable throwable) {
+        Throwable cause = throwable;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+
+        if (cause instanceof IOException ioException) {
+            return ioException;
+        }
+        if (cause instanceof UncheckedIOException uncheckedIOException) {
+            return uncheckedIOException.getCause();
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IOException(cause);
+    }
+}
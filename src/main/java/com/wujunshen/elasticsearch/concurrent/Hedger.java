@@ -0,0 +1,304 @@
+package com.wujunshen.elasticsearch.concurrent;
+
+import com.wujunshen.elasticsearch.node.NodeSelection;
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpHost;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * 对冲请求执行器
+ * <p>
+ * 先发出一次请求，如果经过对冲延迟仍未返回，就向另一个节点再发一次相同的请求，取先成功返回的结果并取消另一个。
+ * 对冲延迟取最近响应时间的指定分位数，并限制在[minDelay, maxDelay]之间；
+ * 对冲预算按令牌桶计算，每个请求积累budgetRatio个令牌，每次对冲消耗一个，保证对冲请求不超过流量的budgetRatio。
+ * 对冲请求占用AsyncLimiter的名额，没有空闲名额时不对冲。
+ * 避开首次请求所在节点依赖LeastLoadedNodeSelector记录的选中节点，没有记录时不对冲，
+ * 因此关闭负载均衡(balancer.enabled=false)时对冲也不会开启。只适用于幂等的读请求
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 01:10<br>
+ */
+@Slf4j
+public class Hedger implements Closeable {
+    /**
+     * 参与分位数计算的最近响应时间个数
+     */
+    private static final int WINDOW_SIZE = 1024;
+
+    /**
+     * 每记录多少次响应时间重新计算一次对冲延迟
+     */
+    private static final int RECALCULATE_EVERY = 64;
+
+    /**
+     * 令牌桶最多积累的令牌数，允许短时间内的突发对冲
+     */
+    private static final double MAX_TOKENS = 10;
+
+    private final boolean enabled;
+
+    private final double percentile;
+
+    private final long minDelayNanos;
+
+    private final long maxDelayNanos;
+
+    private final double budgetRatio;
+
+    private final AsyncLimiter asyncLimiter;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final long[] latencies = new long[WINDOW_SIZE];
+
+    private long recorded;
+
+    private volatile long delayNanos;
+
+    private double tokens;
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder hedges = new LongAdder();
+
+    private final LongAdder hedgeWins = new LongAdder();
+
+    private final AtomicLong throttled = new AtomicLong();
+
+    /**
+     * 构造对冲执行器
+     *
+     * @param enabled     是否开启对冲，关闭时直接执行请求
+     * @param percentile  对冲延迟取响应时间的分位数，如0.95
+     * @param minDelay    最小对冲延迟(毫秒)
+     * @param maxDelay    最大对冲延迟(毫秒)，响应时间样本不足时也使用该值
+     * @param budgetRatio 对冲请求占总请求的最大比例，如0.05
+     * @param asyncLimiter 对冲请求使用的并发限制器
+     */
+    public Hedger(
+            boolean enabled,
+            double percentile,
+            long minDelay,
+            long maxDelay,
+            double budgetRatio,
+            AsyncLimiter asyncLimiter) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelay);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(minDelay, maxDelay));
+        this.budgetRatio = budgetRatio;
+        this.asyncLimiter = asyncLimiter;
+        this.delayNanos = maxDelayNanos;
+
+        if (enabled) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("es-hedge-");
+            threadFactory.setDaemon(true);
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * @return 是否开启对冲
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 执行可对冲的请求
+     *
+     * @param call 发起异步请求的函数，会被调用一到两次，返回的CompletableFuture需要支持cancel
+     * @param <T>  返回值泛型
+     * @return 先成功返回的结果
+     */
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> call) {
+        if (!enabled) {
+            return call.get();
+        }
+
+        requests.increment();
+        addToken();
+
+        long start = System.nanoTime();
+        NodeSelection.Selected<CompletableFuture<T>> primary = NodeSelection.call(null, call);
+        // 不知道首次请求发往哪个节点时，对冲请求可能发往同一个节点
+        HttpHost primaryHost = primary.getHost();
+        if (primaryHost == null) {
+            return primary.getValue();
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Attempt<T> first = new Attempt<>(primary.getValue(), false);
+        first.future.whenComplete((value, throwable) -> onComplete(result, first, start, value, throwable));
+
+        scheduler.schedule(() -> {
+            if (first.future.isDone() || result.isDone() || !tryAcquireToken()) {
+                return;
+            }
+
+            CompletableFuture<T> hedgeFuture;
+            try {
+                hedgeFuture = asyncLimiter.trySubmit(() -> NodeSelection.call(primaryHost, call).getValue());
+            } catch (RuntimeException e) {
+                log.warn("send hedged request failed", e);
+                return;
+            }
+            if (hedgeFuture == null) {
+                // 并发名额已满，对冲只会加重排队
+                releaseToken();
+                return;
+            }
+            hedges.increment();
+            Attempt<T> second = new Attempt<>(hedgeFuture, true);
+            first.other = second;
+            second.other = first;
+            if (result.isDone()) {
+                hedgeFuture.cancel(true);
+                return;
+            }
+            hedgeFuture.whenComplete((value, throwable) -> onComplete(result, second, start, value, throwable));
+        }, delayNanos, TimeUnit.NANOSECONDS);
+
+        // 调用方取消时同时取消在途请求
+        result.whenComplete((value, throwable) -> {
+            if (result.isCancelled()) {
+                first.cancelAll();
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * @return 当前对冲延迟(毫秒)
+     */
+    public double getDelayMillis() {
+        return delayNanos / 1_000_000.0;
+    }
+
+    /**
+     * @return 经过对冲执行器的请求数
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * @return 发出的对冲请求数
+     */
+    public long getHedgeCount() {
+        return hedges.sum();
+    }
+
+    /**
+     * @return 对冲请求先返回的次数
+     */
+    public long getHedgeWinCount() {
+        return hedgeWins.sum();
+    }
+
+    /**
+     * @return 因预算不足或并发名额已满没有发出的对冲数
+     */
+    public long getThrottledCount() {
+        return throttled.get();
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private <T> void onComplete(
+            CompletableFuture<T> result, Attempt<T> attempt, long start, T value, Throwable throwable) {
+        if (throwable == null) {
+            if (result.complete(value)) {
+                record(System.nanoTime() - start);
+                if (attempt.hedge) {
+                    hedgeWins.increment();
+                }
+                attempt.cancelOther();
+            }
+            return;
+        }
+
+        // 另一个请求还在途时等它的结果，否则以本次异常结束
+        Attempt<T> other = attempt.other;
+        if (other == null || other.future.isDone()) {
+            result.completeExceptionally(throwable);
+        }
+    }
+
+    private synchronized void record(long latencyNanos) {
+        latencies[(int) (recorded % WINDOW_SIZE)] = latencyNanos;
+        recorded++;
+
+        if (recorded >= RECALCULATE_EVERY && recorded % RECALCULATE_EVERY == 0) {
+            int size = (int) Math.min(recorded, WINDOW_SIZE);
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            long value = sorted[Math.min(size - 1, (int) Math.ceil(percentile * size) - 1)];
+            delayNanos = Math.max(minDelayNanos, Math.min(maxDelayNanos, value));
+        }
+    }
+
+    private synchronized void addToken() {
+        tokens = Math.min(MAX_TOKENS, tokens + budgetRatio);
+    }
+
+    private synchronized void releaseToken() {
+        tokens = Math.min(MAX_TOKENS, tokens + 1);
+        throttled.incrementAndGet();
+    }
+
+    private synchronized boolean tryAcquireToken() {
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        throttled.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * 一次请求尝试
+     */
+    private static class Attempt<T> {
+        private final CompletableFuture<T> future;
+
+        private final boolean hedge;
+
+        private volatile Attempt<T> other;
+
+        Attempt(CompletableFuture<T> future, boolean hedge) {
+            this.future = future;
+            this.hedge = hedge;
+        }
+
+        void cancelOther() {
+            Attempt<T> current = other;
+            if (current != null) {
+                current.future.cancel(true);
+            }
+        }
+
+        void cancelAll() {
+            future.cancel(true);
+            cancelOther();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.wujunshen.elasticsearch.export;
+
+import java.time.Duration;
+
+/**
+ * 导出结果
+ *
+ * @param documents 导出的文档数
+ * @param slices    并行读取的slice数
+ * @param elapsed   导出耗时
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 23:20<br>
+ */
+public record ExportResult(long documents, int slices, Duration elapsed) {
+    /**
+     * @return 每秒导出的文档数
+     */
+    public double docsPerSecond() {
+        return docsPerSecond(documents, elapsed.toNanos());
+    }
+
+    static double docsPerSecond(long documents, long elapsedNanos) {
+        return elapsedNanos <= 0 ? 0 : documents * 1_000_000_000.0 / elapsedNanos;
+    }
+}
@@ -0,0 +1,25 @@
+package com.wujunshen.elasticsearch.export;
+
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import java.io.IOException;
+
+/**
+ * 导出文档的接收方，如写文件或写入另一个集群
+ * <p>
+ * 所有slice的文档都在调用export的线程上依次传入，实现不需要线程安全
+ *
+ * @param <T> 文档对象泛型
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 23:20<br>
+ */
+@FunctionalInterface
+public interface ExportSink<T> {
+    /**
+     * 接收一个文档
+     *
+     * @param hit 文档，包含_index、_id和_source
+     * @throws IOException 异常信息，抛出后停止导出
+     */
+    void accept(Hit<T> hit) throws IOException;
+}
@@ -0,0 +1,212 @@
+package com.wujunshen.elasticsearch.export;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.SlicedScroll;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import com.wujunshen.elasticsearch.search.PitIterator;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * 基于sliced point-in-time的并行全量导出
+ * <p>
+ * 打开一个point-in-time，按slice.id/slice.max拆成slices份，每份由一个读取线程用PitIterator按search_after逐页读取，
+ * 读到的页放入有界队列，调用export的线程从队列中取出并依次交给ExportSink。
+ * 队列最多缓冲slices*BUFFERED_PAGES_PER_SLICE页，sink跟不上时读取线程阻塞，
+ * 内存中最多同时持有约(BUFFERED_PAGES_PER_SLICE+3)*slices页数据，与索引大小无关。
+ * 导出期间每隔PROGRESS_LOG_INTERVAL打印一次已导出的文档数和每秒文档数
+ *
+ * @param <T> 文档对象泛型
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 23:20<br>
+ */
+@Slf4j
+public class SlicedExporter<T> {
+    /**
+     * 队列中为每个slice缓冲的页数
+     */
+    static final int BUFFERED_PAGES_PER_SLICE = 2;
+
+    private static final Duration PROGRESS_LOG_INTERVAL = Duration.ofSeconds(10);
+
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private final ElasticsearchClient elasticsearchClient;
+
+    private final String indexName;
+
+    private final Query query;
+
+    private final int slices;
+
+    private final int pageSize;
+
+    private final String keepAlive;
+
+    private final Class<T> clazz;
+
+    /**
+     * 构造导出器
+     *
+     * @param elasticsearchClient es客户端
+     * @param indexName           索引名
+     * @param query               过滤条件，为null时导出所有文档
+     * @param slices              并行读取的slice数，小于等于1时不拆分
+     * @param pageSize            每页文档数
+     * @param keepAlive           point-in-time保持时间，如"1m"，需大于sink处理一页数据的耗时
+     * @param clazz               文档对象class
+     */
+    public SlicedExporter(
+            ElasticsearchClient elasticsearchClient,
+            String indexName,
+            Query query,
+            int slices,
+            int pageSize,
+            String keepAlive,
+            Class<T> clazz) {
+        this.elasticsearchClient = elasticsearchClient;
+        this.indexName = indexName;
+        this.query = query;
+        this.slices = Math.max(1, slices);
+        this.pageSize = pageSize;
+        this.keepAlive = keepAlive;
+        this.clazz = clazz;
+    }
+
+    /**
+     * 导出文档，所有文档交给sink后返回
+     *
+     * @param sink 文档接收方，在调用线程上依次调用
+     * @return ExportResult对象
+     * @throws IOException 读取或sink异常，包括任何一页的部分分片失败或超时，发生后停止所有slice的读取
+     */
+    public ExportResult export(ExportSink<T> sink) throws IOException {
+        String pitId = elasticsearchClient
+                .openPointInTime(o -> o.index(indexName).keepAlive(t -> t.time(keepAlive)))
+                .id();
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("es-export-");
+        threadFactory.setDaemon(true);
+        ExecutorService executorService = Executors.newFixedThreadPool(slices, threadFactory);
+
+        BlockingQueue<List<Hit<T>>> buffer = new ArrayBlockingQueue<>(slices * BUFFERED_PAGES_PER_SLICE);
+        AtomicInteger running = new AtomicInteger(slices);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        long start = System.nanoTime();
+        long nextProgressLog = start + PROGRESS_LOG_INTERVAL.toNanos();
+        long documents = 0;
+        try {
+            for (int i = 0; i < slices; i++) {
+                int sliceId = i;
+                // slice.max必须大于1
+                SlicedScroll slice = slices > 1 ? SlicedScroll.of(s -> s.id(sliceId).max(slices)) : null;
+                executorService.execute(() -> readSlice(pitId, slice, buffer, running, failure));
+            }
+
+            while (true) {
+                // 读取线程先放入最后一页再减少running，running为0且队列为空时所有页都已取出
+                boolean finished = running.get() == 0;
+                List<Hit<T>> page = buffer.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                rethrow(failure.get());
+                if (page == null) {
+                    if (finished) {
+                        break;
+                    }
+                    continue;
+                }
+
+                for (Hit<T> hit : page) {
+                    sink.accept(hit);
+                }
+                documents += page.size();
+
+                if (System.nanoTime() >= nextProgressLog) {
+                    nextProgressLog += PROGRESS_LOG_INTERVAL.toNanos();
+                    log.info("export {}: {} documents, {} docs/s", indexName, documents,
+                            (long) ExportResult.docsPerSecond(documents, System.nanoTime() - start));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("export " + indexName + " interrupted");
+        } finally {
+            executorService.shutdownNow();
+            closePointInTime(pitId);
+        }
+
+        ExportResult result = new ExportResult(documents, slices, Duration.ofNanos(System.nanoTime() - start));
+        log.info("export {} finished: {} documents in {} ms with {} slices, {} docs/s", indexName,
+                result.documents(), result.elapsed().toMillis(), slices, (long) result.docsPerSecond());
+
+        return result;
+    }
+
+    private void readSlice(
+            String pitId,
+            SlicedScroll slice,
+            BlockingQueue<List<Hit<T>>> buffer,
+            AtomicInteger running,
+            AtomicReference<Throwable> failure) {
+        try (PitIterator<T> iterator =
+                     new PitIterator<>(elasticsearchClient, pitId, slice, query, pageSize, keepAlive, clazz)) {
+            List<Hit<T>> page = new ArrayList<>(pageSize);
+            while (iterator.hasNext()) {
+                page.add(iterator.next());
+                if (page.size() == pageSize) {
+                    buffer.put(page);
+                    page = new ArrayList<>(pageSize);
+                }
+            }
+            if (!page.isEmpty()) {
+                buffer.put(page);
+            }
+        } catch (InterruptedException e) {
+            // 导出已结束或失败
+            Thread.currentThread().interrupt();
+        } catch (UncheckedIOException e) {
+            // 包括PitIterator报告的部分分片失败，此时这个slice已缺少文档，整个导出失败
+            failure.compareAndSet(null, e.getCause());
+        } catch (RuntimeException | Error e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            running.decrementAndGet();
+        }
+    }
+
+    private void rethrow(Throwable throwable) throws IOException {
+        if (throwable == null) {
+            return;
+        }
+        if (throwable instanceof IOException ioException) {
+            throw ioException;
+        }
+        if (throwable instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        throw (Error) throwable;
+    }
+
+    private void closePointInTime(String pitId) {
+        try {
+            elasticsearchClient.closePointInTime(c -> c.id(pitId));
+        } catch (IOException e) {
+            log.warn("close point in time failed, it will expire after {}", keepAlive, e);
+        }
+    }
+}
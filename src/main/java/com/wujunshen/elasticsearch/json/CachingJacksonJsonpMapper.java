@@ -0,0 +1,158 @@
+package com.wujunshen.elasticsearch.json;
+
+import co.elastic.clients.json.JsonpDeserializer;
+import co.elastic.clients.json.JsonpDeserializerBase;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.JsonpMapperBase;
+import co.elastic.clients.json.JsonpSerializer;
+import co.elastic.clients.json.jackson.JacksonJsonProvider;
+import co.elastic.clients.json.jackson.JacksonJsonpGenerator;
+import co.elastic.clients.json.jackson.JacksonJsonpParser;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.json.JsonException;
+import jakarta.json.spi.JsonProvider;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonParser;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按类缓存反序列化器的JsonpMapper，与JacksonJsonpMapper输出和解析的结果一致
+ * <p>
+ * JacksonJsonpMapper每次反序列化都要通过反射查找类上的JsonpDeserializable注解，再新建一个反序列化器，
+ * 并由ObjectMapper.readValue重新解析根类型，search响应中每条命中的_source都要走一遍。
+ * 本类按类缓存查找结果，实体类用预先绑定类型的ObjectReader直接从底层的Jackson解析器读取，
+ * 序列化同样按类缓存ObjectWriter。
+ * <p>
+ * 缓存在创建时取ObjectMapper的配置，之后再修改ObjectMapper不会生效。
+ * withAttribute返回的副本共享缓存，ElasticsearchClient每次search都会调用
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 15:20<br>
+ */
+public class CachingJacksonJsonpMapper extends JsonpMapperBase {
+    private static final String JACKSON_ONLY = "Jackson's ObjectMapper can only be used with the JacksonJsonpProvider";
+
+    private final JacksonJsonProvider provider;
+
+    private final ObjectMapper objectMapper;
+
+    private final Map<Class<?>, JsonpDeserializer<?>> deserializers;
+
+    private final Map<Class<?>, ObjectWriter> writers;
+
+    public CachingJacksonJsonpMapper() {
+        this(new ObjectMapper());
+    }
+
+    public CachingJacksonJsonpMapper(ObjectMapper objectMapper) {
+        // 与JacksonJsonpMapper的配置相同
+        this(objectMapper.configure(SerializationFeature.INDENT_OUTPUT, false)
+                        .setSerializationInclusion(JsonInclude.Include.NON_NULL),
+                new JacksonJsonProvider(objectMapper.getFactory()),
+                new ConcurrentHashMap<>(),
+                new ConcurrentHashMap<>());
+    }
+
+    private CachingJacksonJsonpMapper(ObjectMapper objectMapper,
+                                      JacksonJsonProvider provider,
+                                      Map<Class<?>, JsonpDeserializer<?>> deserializers,
+                                      Map<Class<?>, ObjectWriter> writers) {
+        this.objectMapper = objectMapper;
+        this.provider = provider;
+        this.deserializers = deserializers;
+        this.writers = writers;
+    }
+
+    /**
+     * @return 使用的ObjectMapper
+     */
+    public ObjectMapper objectMapper() {
+        return objectMapper;
+    }
+
+    @Override
+    public JsonProvider jsonProvider() {
+        return provider;
+    }
+
+    @Override
+    public <T> JsonpMapper withAttribute(String name, T value) {
+        return new CachingJacksonJsonpMapper(objectMapper, provider, deserializers, writers)
+                .addAttribute(name, value);
+    }
+
+    @Override
+    public <T> T deserialize(JsonParser parser, Class<T> clazz) {
+        return deserializer(clazz).deserialize(parser, this);
+    }
+
+    @Override
+    protected <T> JsonpDeserializer<T> getDefaultDeserializer(Class<T> clazz) {
+        return new ReaderDeserializer<>(objectMapper.readerFor(clazz));
+    }
+
+    @Override
+    public <T> void serialize(T value, JsonGenerator generator) {
+        if (!(generator instanceof JacksonJsonpGenerator jacksonJsonpGenerator)) {
+            throw new IllegalArgumentException(JACKSON_ONLY);
+        }
+
+        JsonpSerializer<T> serializer = findSerializer(value);
+        if (serializer != null) {
+            serializer.serialize(value, generator, this);
+            return;
+        }
+
+        try {
+            writers.computeIfAbsent(value.getClass(), objectMapper::writerFor)
+                    .writeValue(jacksonJsonpGenerator.jacksonGenerator(), value);
+        } catch (IOException e) {
+            throw new JsonException(e.getMessage(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> JsonpDeserializer<T> deserializer(Class<T> clazz) {
+        JsonpDeserializer<?> deserializer = deserializers.get(clazz);
+        if (deserializer == null) {
+            // 客户端自带的类型用其自身的反序列化器，其余的用ObjectReader
+            JsonpDeserializer<T> builtIn = findDeserializer(clazz);
+            deserializer = deserializers.computeIfAbsent(clazz,
+                    key -> builtIn != null ? builtIn : getDefaultDeserializer(clazz));
+        }
+        return (JsonpDeserializer<T>) deserializer;
+    }
+
+    /**
+     * 用绑定了类型的ObjectReader从当前位置读取一个值
+     */
+    private static final class ReaderDeserializer<T> extends JsonpDeserializerBase<T> {
+        private final ObjectReader reader;
+
+        private ReaderDeserializer(ObjectReader reader) {
+            super(EnumSet.allOf(JsonParser.Event.class));
+            this.reader = reader;
+        }
+
+        @Override
+        public T deserialize(JsonParser parser, JsonpMapper mapper, JsonParser.Event event) {
+            if (!(parser instanceof JacksonJsonpParser jacksonJsonpParser)) {
+                throw new IllegalArgumentException(JACKSON_ONLY);
+            }
+
+            try {
+                return reader.readValue(jacksonJsonpParser.jacksonParser());
+            } catch (IOException e) {
+                throw new JsonException(e.getMessage(), e);
+            }
+        }
+    }
+}
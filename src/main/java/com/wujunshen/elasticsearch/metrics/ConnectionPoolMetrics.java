@@ -0,0 +1,91 @@
+package com.wujunshen.elasticsearch.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.function.ToIntFunction;
+import javax.net.ssl.SSLContext;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+
+/**
+ * RestClient连接池的指标
+ * <p>
+ * leased持续等于max且pending大于0时说明连接池不够用，需要调大maxConnectNum或maxConnectPerRoute；
+ * available长期较大说明连接数配置过大。
+ * 连接池由createConnectionManager创建后才有数据，之前各指标为NaN
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 11:50<br>
+ */
+public class ConnectionPoolMetrics implements MeterBinder {
+    private volatile PoolingNHttpClientConnectionManager connectionManager;
+
+    /**
+     * 创建要统计指标的连接池，交给HttpAsyncClientBuilder使用
+     * <p>
+     * HttpAsyncClientBuilder不公开它自己创建的连接池。设置了连接池后，builder上的SSLContext、SSLStrategy、
+     * 主机名校验和IOReactorConfig都不再生效，https连接只使用这里传入的sslContext和默认的主机名校验。
+     * 一个实例只统计一个连接池，重复调用时抛出IllegalStateException，不会悄悄换成另一个客户端的连接池。
+     * 连接池不是共享的，由http客户端持有，随RestClient关闭
+     *
+     * @param maxTotal        最大连接数
+     * @param maxPerRoute     每个节点的最大连接数
+     * @param sslContext      https连接使用的SSLContext，应与http客户端上设置的相同
+     * @param ioReactorConfig I/O线程配置
+     * @return 连接池
+     */
+    public synchronized PoolingNHttpClientConnectionManager createConnectionManager(
+            int maxTotal, int maxPerRoute, SSLContext sslContext, IOReactorConfig ioReactorConfig) {
+        if (connectionManager != null) {
+            throw new IllegalStateException("connection pool metrics are already bound to a connection manager");
+        }
+
+        PoolingNHttpClientConnectionManager manager;
+        try {
+            manager = new PoolingNHttpClientConnectionManager(
+                    new DefaultConnectingIOReactor(ioReactorConfig),
+                    RegistryBuilder.<SchemeIOSessionStrategy>create()
+                            .register("http", NoopIOSessionStrategy.INSTANCE)
+                            .register("https", new SSLIOSessionStrategy(sslContext,
+                                    SSLIOSessionStrategy.getDefaultHostnameVerifier()))
+                            .build());
+        } catch (IOReactorException e) {
+            throw new IllegalStateException("could not create the http client connection manager", e);
+        }
+        manager.setMaxTotal(maxTotal);
+        manager.setDefaultMaxPerRoute(maxPerRoute);
+        connectionManager = manager;
+
+        return manager;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        gauge(registry, "elasticsearch.client.pool.leased", "Connections in use", PoolStats::getLeased);
+        gauge(registry, "elasticsearch.client.pool.pending", "Requests waiting for a connection",
+                PoolStats::getPending);
+        gauge(registry, "elasticsearch.client.pool.available", "Idle connections", PoolStats::getAvailable);
+        gauge(registry, "elasticsearch.client.pool.max", "Max total connections", PoolStats::getMax);
+    }
+
+    private void gauge(MeterRegistry registry, String name, String description, ToIntFunction<PoolStats> value) {
+        Gauge.builder(name, this, metrics -> metrics.value(value))
+                .description(description)
+                .baseUnit("connections")
+                .register(registry);
+    }
+
+    private double value(ToIntFunction<PoolStats> value) {
+        PoolingNHttpClientConnectionManager manager = connectionManager;
+        return manager != null ? value.applyAsInt(manager.getTotalStats()) : Double.NaN;
+    }
+}
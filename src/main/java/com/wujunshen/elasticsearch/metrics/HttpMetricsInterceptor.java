@@ -0,0 +1,64 @@
+package com.wujunshen.elasticsearch.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+
+/**
+ * 按节点记录请求和响应的字节数
+ * <p>
+ * 作为HttpClient的请求/响应拦截器注册，取的是Content-Length，开启压缩时是压缩后的大小，
+ * 分块传输(没有Content-Length)的请求和响应不记录
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 11:40<br>
+ */
+public class HttpMetricsInterceptor implements HttpRequestInterceptor, HttpResponseInterceptor {
+    private final MeterRegistry meterRegistry;
+
+    private final Map<HttpHost, DistributionSummary> requestSizes = new ConcurrentHashMap<>();
+
+    private final Map<HttpHost, DistributionSummary> responseSizes = new ConcurrentHashMap<>();
+
+    public HttpMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void process(HttpRequest request, HttpContext context) {
+        if (!(request instanceof HttpEntityEnclosingRequest entityEnclosingRequest)) {
+            return;
+        }
+        record(requestSizes, "elasticsearch.client.request.size", entityEnclosingRequest.getEntity(), context);
+    }
+
+    @Override
+    public void process(HttpResponse response, HttpContext context) {
+        record(responseSizes, "elasticsearch.client.response.size", response.getEntity(), context);
+    }
+
+    private void record(Map<HttpHost, DistributionSummary> summaries, String name, HttpEntity entity,
+                        HttpContext context) {
+        HttpHost host = HttpCoreContext.adapt(context).getTargetHost();
+        if (entity == null || host == null || entity.getContentLength() < 0) {
+            return;
+        }
+
+        summaries.computeIfAbsent(host, key -> DistributionSummary.builder(name)
+                        .baseUnit("bytes")
+                        .tag("host", key.toHostString())
+                        .register(meterRegistry))
+                .record(entity.getContentLength());
+    }
+}
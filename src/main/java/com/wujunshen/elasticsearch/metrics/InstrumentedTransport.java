@@ -0,0 +1,217 @@
+package com.wujunshen.elasticsearch.metrics;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResult;
+import co.elastic.clients.elasticsearch.core.search.ResponseBody;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.transport.ElasticsearchTransport;
+import co.elastic.clients.transport.Endpoint;
+import co.elastic.clients.transport.TransportOptions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.elasticsearch.client.ResponseException;
+
+/**
+ * 记录Micrometer指标的ElasticsearchTransport装饰器
+ * <p>
+ * 按endpoint(如search、bulk、get)记录：
+ * <ul>
+ *     <li>elasticsearch.client.requests：客户端耗时，包括排队、网络和反序列化，outcome区分成功和失败</li>
+ *     <li>elasticsearch.client.took：响应中服务端返回的took，只有search、scroll、msearch和bulk有</li>
+ *     <li>elasticsearch.client.errors：失败次数，按异常类和http状态码区分</li>
+ *     <li>elasticsearch.client.bulk.items：bulk中成功和失败的操作数</li>
+ * </ul>
+ * 请求和响应的字节数在http层由HttpMetricsInterceptor记录，连接池由ConnectionPoolMetrics记录
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 11:20<br>
+ */
+public class InstrumentedTransport implements ElasticsearchTransport {
+    private static final String ENDPOINT = "endpoint";
+
+    private static final String NONE = "none";
+
+    private final ElasticsearchTransport delegate;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 每个endpoint的常用指标，避免每次请求都到registry中查找
+     */
+    private final Map<String, EndpointMeters> endpointMeters = new ConcurrentHashMap<>();
+
+    public InstrumentedTransport(ElasticsearchTransport delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public <RequestT, ResponseT, ErrorT> ResponseT performRequest(
+            RequestT request, Endpoint<RequestT, ResponseT, ErrorT> endpoint, TransportOptions options)
+            throws IOException {
+        EndpointMeters meters = meters(endpoint);
+        long start = System.nanoTime();
+        try {
+            ResponseT response = delegate.performRequest(request, endpoint, options);
+            meters.onSuccess(response, System.nanoTime() - start);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            meters.onError(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public <RequestT, ResponseT, ErrorT> CompletableFuture<ResponseT> performRequestAsync(
+            RequestT request, Endpoint<RequestT, ResponseT, ErrorT> endpoint, TransportOptions options) {
+        EndpointMeters meters = meters(endpoint);
+        long start = System.nanoTime();
+        CompletableFuture<ResponseT> future = delegate.performRequestAsync(request, endpoint, options);
+        // 返回原future而不是whenComplete产生的新future，调用方cancel时才能取消底层请求
+        future.whenComplete((response, throwable) -> {
+            if (throwable == null) {
+                meters.onSuccess(response, System.nanoTime() - start);
+            } else {
+                meters.onError(throwable, System.nanoTime() - start);
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public JsonpMapper jsonpMapper() {
+        return delegate.jsonpMapper();
+    }
+
+    @Override
+    public TransportOptions options() {
+        return delegate.options();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    private EndpointMeters meters(Endpoint<?, ?, ?> endpoint) {
+        // endpoint id形如es/search，去掉命名空间
+        return endpointMeters.computeIfAbsent(endpoint.id(),
+                id -> new EndpointMeters(id.substring(id.indexOf('/') + 1)));
+    }
+
+    private static String status(Throwable throwable) {
+        if (throwable instanceof ElasticsearchException elasticsearchException) {
+            return String.valueOf(elasticsearchException.status());
+        }
+        if (throwable instanceof ResponseException responseException) {
+            return String.valueOf(responseException.getResponse().getStatusLine().getStatusCode());
+        }
+        return NONE;
+    }
+
+    private final class EndpointMeters {
+        private final String endpoint;
+
+        private final Timer success;
+
+        private final Timer failure;
+
+        /**
+         * 以下指标只有部分endpoint用得到，第一次用到时才注册，并发注册时registry返回的是同一个对象
+         */
+        private Timer took;
+
+        private Counter bulkSuccessItems;
+
+        private Counter bulkFailedItems;
+
+        private EndpointMeters(String endpoint) {
+            this.endpoint = endpoint;
+            this.success = requestTimer(endpoint, "success");
+            this.failure = requestTimer(endpoint, "error");
+        }
+
+        private void onSuccess(Object response, long elapsedNanos) {
+            success.record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+            if (response instanceof ResponseBody<?> responseBody) {
+                recordTook(responseBody.took());
+            } else if (response instanceof MultiSearchResult<?> multiSearchResult) {
+                recordTook(multiSearchResult.took());
+            } else if (response instanceof BulkResponse bulkResponse) {
+                recordTook(bulkResponse.took());
+                recordBulkItems(bulkResponse);
+            }
+        }
+
+        private void recordTook(long tookMillis) {
+            if (took == null) {
+                took = Timer.builder("elasticsearch.client.took")
+                        .description("Server side took reported in the response body")
+                        .tag(ENDPOINT, endpoint)
+                        .register(meterRegistry);
+            }
+            took.record(tookMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private void recordBulkItems(BulkResponse bulkResponse) {
+            if (bulkSuccessItems == null) {
+                bulkSuccessItems = bulkItemCounter(endpoint, "success");
+            }
+            if (bulkFailedItems == null) {
+                bulkFailedItems = bulkItemCounter(endpoint, "failed");
+            }
+
+            long failed = 0;
+            for (BulkResponseItem item : bulkResponse.items()) {
+                if (item.error() != null) {
+                    failed++;
+                }
+            }
+            bulkSuccessItems.increment(bulkResponse.items().size() - (double) failed);
+            bulkFailedItems.increment(failed);
+        }
+
+        private void onError(Throwable throwable, long elapsedNanos) {
+            failure.record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause()
+                    : throwable;
+            // 出错的频率低，直接到registry中查找
+            Counter.builder("elasticsearch.client.errors")
+                    .description("Failed requests by exception class and http status")
+                    .tag(ENDPOINT, endpoint)
+                    .tag("exception", cause.getClass().getSimpleName())
+                    .tag("status", status(cause))
+                    .register(meterRegistry)
+                    .increment();
+        }
+
+        private Timer requestTimer(String endpoint, String outcome) {
+            return Timer.builder("elasticsearch.client.requests")
+                    .description("Client side latency including queueing, network and deserialization")
+                    .tag(ENDPOINT, endpoint)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+
+        private Counter bulkItemCounter(String endpoint, String result) {
+            return Counter.builder("elasticsearch.client.bulk.items")
+                    .description("Bulk operations by per item result")
+                    .tag(ENDPOINT, endpoint)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+    }
+}
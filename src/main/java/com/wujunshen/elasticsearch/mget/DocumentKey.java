@@ -0,0 +1,21 @@
+package com.wujunshen.elasticsearch.mget;
+
+/**
+ * 索引名和文档id，用于跨索引批量读取时标识一个文档
+ *
+ * @param index 索引名
+ * @param id    文档id
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 22:40<br>
+ */
+public record DocumentKey(String index, String id) {
+    /**
+     * @param index 索引名
+     * @param id    文档id
+     * @return DocumentKey对象
+     */
+    public static DocumentKey of(String index, String id) {
+        return new DocumentKey(index, id);
+    }
+}
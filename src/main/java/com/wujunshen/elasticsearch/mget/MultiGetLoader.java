@@ -0,0 +1,335 @@
+package com.wujunshen.elasticsearch.mget;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.ErrorResponse;
+import co.elastic.clients.elasticsearch.core.GetResponse;
+import co.elastic.clients.elasticsearch.core.MgetResponse;
+import co.elastic.clients.elasticsearch.core.get.GetResult;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetError;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetOperation;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetResponseItem;
+import com.wujunshen.elasticsearch.concurrent.AsyncLimiter;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * 基于mget的批量读取
+ * <p>
+ * getAll把任意多个文档拆成若干个mget并行发送：每批取ceil(文档数/parallelism)个，
+ * 但不少于MIN_BATCH_SIZE个，以免请求太小时每次请求的固定开销占主导，也不超过maxBatchSize个，以免单个请求过大。
+ * <p>
+ * load是DataLoader式的微批合并：时间窗口内到达的单文档读取按文档类型分组，合并为一次mget发送，
+ * 每种文档类型的批次从其第一个读取到达时开始计时，攒满maxBatchSize个时取消计时立即发送；同一批中重复的文档只读取一次。
+ * 窗口小于等于0时不合并
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 22:40<br>
+ */
+@Slf4j
+public class MultiGetLoader implements Closeable {
+    /**
+     * 并行拆分时每批的最少文档数
+     */
+    static final int MIN_BATCH_SIZE = 20;
+
+    private static final String INDEX_NOT_FOUND = "index_not_found_exception";
+
+    private final ElasticsearchAsyncClient elasticsearchAsyncClient;
+
+    private final AsyncLimiter asyncLimiter;
+
+    private final int maxBatchSize;
+
+    private final int parallelism;
+
+    private final long windowMillis;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Map<Class<?>, Batch<?>> batches = new LinkedHashMap<>();
+
+    private boolean closed;
+
+    /**
+     * 构造批量读取器
+     *
+     * @param elasticsearchAsyncClient es异步客户端
+     * @param asyncLimiter             异步请求并发限制器
+     * @param maxBatchSize             单次mget最多包含的文档数
+     * @param parallelism              getAll最多拆成的并行请求数，文档数超过parallelism*maxBatchSize时按maxBatchSize拆分
+     * @param windowMillis             load的合并窗口(毫秒)，小于等于0表示不合并
+     */
+    public MultiGetLoader(
+            ElasticsearchAsyncClient elasticsearchAsyncClient,
+            AsyncLimiter asyncLimiter,
+            int maxBatchSize,
+            int parallelism,
+            long windowMillis) {
+        this.elasticsearchAsyncClient = elasticsearchAsyncClient;
+        this.asyncLimiter = asyncLimiter;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.parallelism = Math.max(1, parallelism);
+        this.windowMillis = windowMillis;
+
+        if (isEnabled()) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("es-mget-");
+            threadFactory.setDaemon(true);
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * @return 是否合并单文档读取
+     */
+    public boolean isEnabled() {
+        return windowMillis > 0;
+    }
+
+    /**
+     * 批量读取文档，拆成多个mget并行发送
+     *
+     * @param keys  要读取的文档，重复的只读取一次
+     * @param clazz 文档对象class
+     * @param <T>   文档对象泛型
+     * @return 按keys顺序排列的读取结果，不存在的文档found为false，读取失败的文档为failure
+     */
+    public <T> CompletableFuture<Map<DocumentKey, MultiGetResponseItem<T>>> getAll(
+            List<DocumentKey> keys, Class<T> clazz) {
+        List<DocumentKey> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+        if (distinct.isEmpty()) {
+            return CompletableFuture.completedFuture(new LinkedHashMap<>());
+        }
+
+        int batchSize = batchSize(distinct.size());
+        List<CompletableFuture<MgetResponse<T>>> futures = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += batchSize) {
+            futures.add(send(distinct.subList(from, Math.min(from + batchSize, distinct.size())), clazz));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            Map<DocumentKey, MultiGetResponseItem<T>> result = new LinkedHashMap<>();
+            int index = 0;
+            for (CompletableFuture<MgetResponse<T>> future : futures) {
+                for (MultiGetResponseItem<T> item : future.join().docs()) {
+                    result.put(distinct.get(index++), item);
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 读取单个文档，开启合并时在当前窗口结束时与其它读取一起发送
+     *
+     * @param key   要读取的文档
+     * @param clazz 文档对象class
+     * @param <T>   文档对象泛型
+     * @return 读取结果的CompletableFuture，读取器已关闭时以IllegalStateException失败
+     */
+    public <T> CompletableFuture<MultiGetResponseItem<T>> load(DocumentKey key, Class<T> clazz) {
+        if (!isEnabled()) {
+            return send(List.of(key), clazz).thenApply(response -> response.docs().get(0));
+        }
+
+        CompletableFuture<MultiGetResponseItem<T>> future;
+        Batch<T> full = null;
+        lock.lock();
+        try {
+            if (closed) {
+                return CompletableFuture.failedFuture(new IllegalStateException("MultiGetLoader已关闭"));
+            }
+
+            @SuppressWarnings("unchecked")
+            Batch<T> batch = (Batch<T>) batches.get(clazz);
+            if (batch == null) {
+                Batch<T> created = new Batch<>(clazz);
+                created.timer = scheduler.schedule(() -> flush(created), windowMillis, TimeUnit.MILLISECONDS);
+                batches.put(clazz, created);
+                batch = created;
+            }
+
+            future = batch.add(key);
+            if (batch.size() >= maxBatchSize) {
+                batches.remove(clazz);
+                batch.timer.cancel(false);
+                full = batch;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (full != null) {
+            full.send(this);
+        }
+        return future;
+    }
+
+    /**
+     * 读取单个文档并转换为get的响应
+     * <p>
+     * mget的失败结果里只有错误原因没有http状态码，索引不存在以外的失败会再用get单独读取一次，
+     * 让调用方拿到es返回的真实错误类型和状态码
+     *
+     * @param key   要读取的文档
+     * @param clazz 文档对象class
+     * @param <T>   文档对象泛型
+     * @return GetResponse的CompletableFuture，读取失败时以ElasticsearchException失败
+     */
+    public <T> CompletableFuture<GetResponse<T>> get(DocumentKey key, Class<T> clazz) {
+        return load(key, clazz).thenCompose(item -> {
+            if (item.isFailure() && !INDEX_NOT_FOUND.equals(item.failure().error().type())) {
+                return asyncLimiter.submit(() -> elasticsearchAsyncClient.get(
+                        g -> g.index(key.index()).id(key.id()), clazz));
+            }
+            return CompletableFuture.completedFuture(toGetResponse(item));
+        });
+    }
+
+    /**
+     * 把mget的单个结果转换为get的响应
+     *
+     * @param item  mget的单个结果
+     * @param <T>   文档对象泛型
+     * @return GetResponse对象
+     * @throws ElasticsearchException 该文档读取失败，如索引不存在
+     */
+    static <T> GetResponse<T> toGetResponse(MultiGetResponseItem<T> item) {
+        if (item.isFailure()) {
+            MultiGetError failure = item.failure();
+            // 与get一样，索引不存在时es返回404
+            throw new ElasticsearchException("mget", ErrorResponse.of(e -> e.error(failure.error()).status(404)));
+        }
+
+        GetResult<T> result = item.result();
+        return GetResponse.of(g -> g.index(result.index())
+                .id(result.id())
+                .found(result.found())
+                .source(result.source())
+                .fields(result.fields())
+                .primaryTerm(result.primaryTerm())
+                .seqNo(result.seqNo())
+                .routing(result.routing())
+                .version(result.version()));
+    }
+
+    @Override
+    public void close() {
+        if (scheduler == null) {
+            return;
+        }
+
+        Map<Class<?>, Batch<?>> remaining;
+        lock.lock();
+        try {
+            closed = true;
+            remaining = batches;
+            batches = new LinkedHashMap<>();
+        } finally {
+            lock.unlock();
+        }
+        remaining.values().forEach(batch -> {
+            batch.timer.cancel(false);
+            batch.send(this);
+        });
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 每批文档数，文档少时不拆分
+     */
+    int batchSize(int total) {
+        int perRequest = (total + parallelism - 1) / parallelism;
+        return Math.min(maxBatchSize, Math.max(Math.min(MIN_BATCH_SIZE, maxBatchSize), perRequest));
+    }
+
+    /**
+     * 窗口到期时发送，批次已因攒满或关闭提前发送则忽略
+     */
+    private void flush(Batch<?> batch) {
+        lock.lock();
+        try {
+            if (!batches.remove(batch.clazz, batch)) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        batch.send(this);
+    }
+
+    private <T> CompletableFuture<MgetResponse<T>> send(List<DocumentKey> keys, Class<T> clazz) {
+        List<MultiGetOperation> docs = keys.stream()
+                .map(key -> MultiGetOperation.of(o -> o.index(key.index()).id(key.id())))
+                .toList();
+
+        return asyncLimiter.submit(() -> elasticsearchAsyncClient.mget(m -> m.docs(docs), clazz));
+    }
+
+    /**
+     * 同一文档类型等待发送的读取
+     */
+    private static class Batch<T> {
+        private final Class<T> clazz;
+
+        private final Map<DocumentKey, CompletableFuture<MultiGetResponseItem<T>>> pending = new LinkedHashMap<>();
+
+        /**
+         * 窗口到期时发送本批次的定时任务
+         */
+        private ScheduledFuture<?> timer;
+
+        Batch(Class<T> clazz) {
+            this.clazz = clazz;
+        }
+
+        CompletableFuture<MultiGetResponseItem<T>> add(DocumentKey key) {
+            return pending.computeIfAbsent(key, k -> new CompletableFuture<>());
+        }
+
+        int size() {
+            return pending.size();
+        }
+
+        void send(MultiGetLoader loader) {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            List<DocumentKey> keys = List.copyOf(pending.keySet());
+            loader.send(keys, clazz).whenComplete((response, throwable) -> {
+                if (throwable != null) {
+                    Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                            ? throwable.getCause()
+                            : throwable;
+                    pending.values().forEach(future -> future.completeExceptionally(cause));
+                    return;
+                }
+
+                log.debug("mget {} documents of {}", keys.size(), clazz.getSimpleName());
+                List<MultiGetResponseItem<T>> items = response.docs();
+                for (int i = 0; i < keys.size(); i++) {
+                    pending.get(keys.get(i)).complete(items.get(i));
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.wujunshen.elasticsearch.node;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.elasticsearch.client.Node;
+import org.elasticsearch.client.NodeSelector;
+
+/**
+ * 按负载选择节点(power of two choices)
+ * <p>
+ * 先用前置选择器过滤节点，再从剩下的节点中随机取两个，选择NodeLoadTracker负载分数较低的一个。
+ * 与总是选最空闲节点相比，随机取两个可以避免所有客户端同时涌向同一个节点。
+ * 只保留选中的节点：RestClient会按内部计数轮转选择结果，保留多个节点时实际请求的节点可能不是选中的节点。
+ * 请求失败时RestClient不在本次请求内重试其它节点，失败的节点被标记为dead，后续请求不会再选中它
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 00:40<br>
+ */
+public class LeastLoadedNodeSelector implements NodeSelector {
+    private final NodeLoadTracker nodeLoadTracker;
+
+    private final NodeSelector preSelector;
+
+    /**
+     * 构造节点选择器
+     *
+     * @param nodeLoadTracker 节点负载统计器
+     * @param preSelector     前置选择器，如LoadAwareNodeSelector
+     */
+    public LeastLoadedNodeSelector(NodeLoadTracker nodeLoadTracker, NodeSelector preSelector) {
+        this.nodeLoadTracker = nodeLoadTracker;
+        this.preSelector = preSelector;
+    }
+
+    @Override
+    public void select(Iterable<Node> nodes) {
+        preSelector.select(nodes);
+
+        List<Node> candidates = new ArrayList<>();
+        nodes.forEach(candidates::add);
+        if (candidates.size() <= 1) {
+            candidates.forEach(this::onSelected);
+            return;
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+
+        Node a = candidates.get(first);
+        Node b = candidates.get(second);
+        Node chosen = nodeLoadTracker.score(a) <= nodeLoadTracker.score(b) ? a : b;
+        onSelected(chosen);
+
+        for (Iterator<Node> iterator = nodes.iterator(); iterator.hasNext(); ) {
+            if (iterator.next() != chosen) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void onSelected(Node node) {
+        nodeLoadTracker.onSelected(node);
+        NodeSelection.selected(node);
+    }
+
+    @Override
+    public String toString() {
+        return "LEAST_LOADED{" + preSelector + "}";
+    }
+}
@@ -0,0 +1,172 @@
+package com.wujunshen.elasticsearch.node;
+
+import co.elastic.clients.elasticsearch.cat.nodes.NodesRecord;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.client.Node;
+import org.elasticsearch.client.NodeSelector;
+
+/**
+ * 按节点角色和负载选择请求节点
+ * <p>
+ * 1. 跳过只有master角色的节点，角色优先取sniffer发现的信息，没有时取_cat/nodes中的node.role
+ * 2. 按最近一次_cat/nodes统计的cpu使用率，跳过比最空闲节点高出loadTolerance个百分点以上的节点，
+ * 剩下的节点由RestClient轮询
+ * <p>
+ * 任何情况下至少保留一个节点，没有统计数据的节点视为空闲。当前线程通过NodeSelection排除的节点也在这里删除
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 00:10<br>
+ */
+@Slf4j
+public class LoadAwareNodeSelector implements NodeSelector {
+    private static final String MASTER_ONLY_ROLE = "m";
+
+    private final boolean skipMasterOnly;
+
+    private final int loadTolerance;
+
+    /**
+     * key为节点ip或节点名
+     */
+    private volatile Map<String, NodesRecord> nodeStats = Map.of();
+
+    /**
+     * 配置中的主机名解析出的ip，与_cat/nodes返回的ip对应，每次更新统计数据时清空以便重新解析
+     */
+    private final ConcurrentMap<String, String> hostAddresses = new ConcurrentHashMap<>();
+
+    /**
+     * 构造节点选择器
+     *
+     * @param skipMasterOnly 是否跳过只有master角色的节点
+     * @param loadTolerance  cpu使用率容忍差值(百分点)，小于0表示不按负载选择
+     */
+    public LoadAwareNodeSelector(boolean skipMasterOnly, int loadTolerance) {
+        this.skipMasterOnly = skipMasterOnly;
+        this.loadTolerance = loadTolerance;
+    }
+
+    /**
+     * 更新节点统计数据
+     *
+     * @param nodesRecords NodeApi.getAllNodes返回的节点列表
+     */
+    public void update(List<NodesRecord> nodesRecords) {
+        Map<String, NodesRecord> stats = new HashMap<>(nodesRecords.size() * 2);
+        for (NodesRecord nodesRecord : nodesRecords) {
+            if (nodesRecord.ip() != null) {
+                stats.put(nodesRecord.ip(), nodesRecord);
+            }
+            if (nodesRecord.name() != null) {
+                stats.put(nodesRecord.name(), nodesRecord);
+            }
+        }
+        nodeStats = stats;
+        hostAddresses.clear();
+    }
+
+    @Override
+    public void select(Iterable<Node> nodes) {
+        Map<String, NodesRecord> stats = nodeStats;
+
+        NodeSelection.removeExcluded(nodes);
+
+        if (skipMasterOnly) {
+            removeIfAnyLeft(nodes, node -> isMasterOnly(node, stats.get(key(node, stats))));
+        }
+
+        if (loadTolerance >= 0 && !stats.isEmpty()) {
+            int minCpu = Integer.MAX_VALUE;
+            for (Node node : nodes) {
+                minCpu = Math.min(minCpu, cpu(stats.get(key(node, stats))));
+            }
+            int threshold = minCpu + loadTolerance;
+            removeIfAnyLeft(nodes, node -> cpu(stats.get(key(node, stats))) > threshold);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LOAD_AWARE{skipMasterOnly=" + skipMasterOnly + ", loadTolerance=" + loadTolerance + "}";
+    }
+
+    /**
+     * 删除满足条件的节点，但如果会删光所有节点则一个都不删
+     */
+    private static void removeIfAnyLeft(Iterable<Node> nodes, Predicate<Node> predicate) {
+        List<Node> kept = new ArrayList<>();
+        boolean anyRemoved = false;
+        for (Node node : nodes) {
+            if (predicate.test(node)) {
+                anyRemoved = true;
+            } else {
+                kept.add(node);
+            }
+        }
+        if (!anyRemoved || kept.isEmpty()) {
+            return;
+        }
+
+        for (Iterator<Node> iterator = nodes.iterator(); iterator.hasNext(); ) {
+            if (!kept.contains(iterator.next())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static boolean isMasterOnly(Node node, NodesRecord nodesRecord) {
+        Node.Roles roles = node.getRoles();
+        if (roles != null) {
+            return roles.isMasterEligible() && !roles.canContainData() && !roles.isIngest();
+        }
+        return nodesRecord != null && MASTER_ONLY_ROLE.equals(nodesRecord.nodeRole());
+    }
+
+    /**
+     * @return cpu使用率，没有统计数据时返回0
+     */
+    private static int cpu(NodesRecord nodesRecord) {
+        if (nodesRecord == null || nodesRecord.cpu() == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(nodesRecord.cpu().trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * sniffer发现的节点没有节点名时按ip匹配，配置的主机名如localhost先解析成ip再匹配
+     */
+    private String key(Node node, Map<String, NodesRecord> stats) {
+        if (node.getName() != null && stats.containsKey(node.getName())) {
+            return node.getName();
+        }
+        InetAddress address = node.getHost().getAddress();
+        if (address != null) {
+            return address.getHostAddress();
+        }
+        return hostAddresses.computeIfAbsent(node.getHost().getHostName(), LoadAwareNodeSelector::resolve);
+    }
+
+    private static String resolve(String hostName) {
+        try {
+            return InetAddress.getByName(hostName).getHostAddress();
+        } catch (UnknownHostException e) {
+            log.warn("resolve {} failed, node stats will not apply to it", hostName);
+            return hostName;
+        }
+    }
+}
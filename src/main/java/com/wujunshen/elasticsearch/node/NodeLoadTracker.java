@@ -0,0 +1,222 @@
+package com.wujunshen.elasticsearch.node;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+import org.elasticsearch.client.Node;
+
+/**
+ * 按节点统计在途请求数和响应时间的EWMA
+ * <p>
+ * 作为HttpClient的请求/响应拦截器注册，请求发出时登记，收到响应时结算；连接失败等没有响应的请求由
+ * RestClient的FailureListener调用onFailure结算并按惩罚时间计入EWMA。被取消的请求(如对冲中落败的一方)
+ * 既没有响应也不会回调，统计在途请求数时直接移除，不计入EWMA；其余超过staleAfter仍未结算的请求视为超时，
+ * 按staleAfter计入EWMA。
+ * 节点一段时间没有新的响应时EWMA按decay衰减，避免偶尔一次慢响应的节点从此不再被选中
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 00:40<br>
+ */
+public class NodeLoadTracker implements HttpRequestInterceptor, HttpResponseInterceptor {
+    private static final String PENDING_ATTRIBUTE = NodeLoadTracker.class.getName() + ".pending";
+
+    private final double alpha;
+
+    private final long staleAfterNanos;
+
+    private final long decayNanos;
+
+    private final Map<HttpHost, HostStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * 构造统计器
+     *
+     * @param alpha      EWMA平滑系数，取值(0, 1]，越大越偏重最近的响应时间
+     * @param staleAfter 请求超过该时间(毫秒)仍未结算时视为超时
+     * @param decay      EWMA衰减时间常数(毫秒)，节点空闲该时间后EWMA衰减为原来的1/e
+     */
+    public NodeLoadTracker(double alpha, long staleAfter, long decay) {
+        this.alpha = alpha;
+        this.staleAfterNanos = TimeUnit.MILLISECONDS.toNanos(staleAfter);
+        this.decayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, decay));
+    }
+
+    @Override
+    public void process(HttpRequest request, HttpContext context) {
+        HttpHost host = HttpCoreContext.adapt(context).getTargetHost();
+        if (host == null) {
+            return;
+        }
+
+        // RestClient取消请求时abort的是它创建的原始请求，拦截器收到的是包装后的请求
+        HttpRequest original = request instanceof HttpRequestWrapper wrapper ? wrapper.getOriginal() : request;
+        Pending pending = new Pending(
+                hostStats(host), System.nanoTime(), original instanceof HttpUriRequest uriRequest ? uriRequest : null);
+        pending.hostStats.pendings.add(pending);
+        context.setAttribute(PENDING_ATTRIBUTE, pending);
+    }
+
+    @Override
+    public void process(HttpResponse response, HttpContext context) {
+        Object attribute = context.removeAttribute(PENDING_ATTRIBUTE);
+        if (!(attribute instanceof Pending pending)) {
+            return;
+        }
+
+        // 502/503/504会触发RestClient的FailureListener，交给onFailure结算
+        int status = response.getStatusLine().getStatusCode();
+        if (status == 502 || status == 503 || status == 504) {
+            return;
+        }
+
+        if (pending.hostStats.pendings.remove(pending)) {
+            pending.hostStats.responses.increment();
+            pending.hostStats.record(System.nanoTime() - pending.startNanos, alpha);
+        }
+    }
+
+    /**
+     * 节点请求失败，结算该节点最早的一个在途请求，按staleAfter计入EWMA
+     *
+     * @param node 失败的节点
+     */
+    public void onFailure(Node node) {
+        HostStats hostStats = hostStats(node.getHost());
+        hostStats.failures.increment();
+
+        hostStats.pendings.stream()
+                .min(Comparator.comparingLong(pending -> pending.startNanos))
+                .ifPresent(hostStats.pendings::remove);
+        hostStats.record(staleAfterNanos, alpha);
+    }
+
+    /**
+     * 节点被选中，用于统计
+     *
+     * @param node 被选中的节点
+     */
+    void onSelected(Node node) {
+        hostStats(node.getHost()).selected.increment();
+    }
+
+    /**
+     * 计算节点的负载分数，越小越空闲
+     *
+     * @param node 节点
+     * @return (EWMA + 1) * (在途请求数 + 1)
+     */
+    double score(Node node) {
+        long now = System.nanoTime();
+        HostStats hostStats = hostStats(node.getHost());
+        int inFlight = hostStats.inFlight(now, staleAfterNanos, alpha);
+
+        return (hostStats.ewmaNanos(now, decayNanos) / 1_000_000.0 + 1) * (inFlight + 1);
+    }
+
+    /**
+     * @return 所有节点的统计快照
+     */
+    public List<NodeStats> getNodeStats() {
+        long now = System.nanoTime();
+        List<NodeStats> result = new ArrayList<>(stats.size());
+        for (Map.Entry<HttpHost, HostStats> entry : stats.entrySet()) {
+            HostStats hostStats = entry.getValue();
+            result.add(NodeStats.builder()
+                    .host(entry.getKey().toHostString())
+                    .inFlight(hostStats.inFlight(now, staleAfterNanos, alpha))
+                    .ewmaMillis(hostStats.ewmaNanos(now, decayNanos) / 1_000_000.0)
+                    .selected(hostStats.selected.sum())
+                    .responses(hostStats.responses.sum())
+                    .failures(hostStats.failures.sum())
+                    .build());
+        }
+        return result;
+    }
+
+    private HostStats hostStats(HttpHost host) {
+        return stats.computeIfAbsent(host, key -> new HostStats());
+    }
+
+    /**
+     * 单个节点的统计数据
+     */
+    private static class HostStats {
+        private final Set<Pending> pendings = ConcurrentHashMap.newKeySet();
+
+        private final LongAdder selected = new LongAdder();
+
+        private final LongAdder responses = new LongAdder();
+
+        private final LongAdder failures = new LongAdder();
+
+        private volatile double ewmaNanos;
+
+        private volatile long lastUpdateNanos;
+
+        synchronized void record(long elapsedNanos, double alpha) {
+            ewmaNanos = lastUpdateNanos == 0 ? elapsedNanos : alpha * elapsedNanos + (1 - alpha) * ewmaNanos;
+            lastUpdateNanos = System.nanoTime();
+        }
+
+        /**
+         * @return 按空闲时间衰减后的EWMA
+         */
+        double ewmaNanos(long now, long decayNanos) {
+            long idle = Math.max(0, now - lastUpdateNanos);
+            return ewmaNanos * Math.exp(-(double) idle / decayNanos);
+        }
+
+        /**
+         * 清理已取消和超时未结算的请求后返回在途请求数
+         */
+        int inFlight(long now, long staleAfterNanos, double alpha) {
+            for (Pending pending : pendings) {
+                if (pending.isAborted()) {
+                    pendings.remove(pending);
+                } else if (now - pending.startNanos > staleAfterNanos && pendings.remove(pending)) {
+                    record(staleAfterNanos, alpha);
+                }
+            }
+            return pendings.size();
+        }
+    }
+
+    /**
+     * 一个在途请求
+     */
+    private static class Pending {
+        private final HostStats hostStats;
+
+        private final long startNanos;
+
+        /**
+         * 原始请求，用于判断是否已被取消，无法取得时为null
+         */
+        private final HttpUriRequest request;
+
+        Pending(HostStats hostStats, long startNanos, HttpUriRequest request) {
+            this.hostStats = hostStats;
+            this.startNanos = startNanos;
+            this.request = request;
+        }
+
+        boolean isAborted() {
+            return request != null && request.isAborted();
+        }
+    }
+}
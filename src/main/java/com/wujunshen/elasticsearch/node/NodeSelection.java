@@ -0,0 +1,100 @@
+package com.wujunshen.elasticsearch.node;
+
+import java.util.Iterator;
+import java.util.function.Supplier;
+import lombok.Value;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.Node;
+
+/**
+ * 在调用线程上影响和记录RestClient的节点选择
+ * <p>
+ * RestClient在发起请求的线程上同步调用NodeSelector，因此可以用ThreadLocal把排除的节点传给选择器，
+ * 并取回本次选中的节点。只对发起请求时的那一次选择有效，RestClient失败重试时的选择不受影响
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 01:10<br>
+ */
+public final class NodeSelection {
+    private static final ThreadLocal<HttpHost> EXCLUDED = new ThreadLocal<>();
+
+    private static final ThreadLocal<HttpHost> SELECTED = new ThreadLocal<>();
+
+    private NodeSelection() {
+    }
+
+    /**
+     * 发起请求，并记录选中的节点
+     *
+     * @param excluded 不希望选中的节点，为null时不排除；排除后没有可用节点时仍会选中该节点
+     * @param call     发起请求的函数
+     * @param <T>      返回值泛型
+     * @return 请求结果和选中的节点
+     */
+    public static <T> Selected<T> call(HttpHost excluded, Supplier<T> call) {
+        EXCLUDED.set(excluded);
+        SELECTED.remove();
+        try {
+            T value = call.get();
+            return new Selected<>(value, SELECTED.get());
+        } finally {
+            EXCLUDED.remove();
+            SELECTED.remove();
+        }
+    }
+
+    /**
+     * 删除当前线程排除的节点，删除后没有节点时不删除
+     */
+    static void removeExcluded(Iterable<Node> nodes) {
+        HttpHost excluded = EXCLUDED.get();
+        if (excluded == null) {
+            return;
+        }
+
+        int remaining = 0;
+        boolean found = false;
+        for (Node node : nodes) {
+            if (excluded.equals(node.getHost())) {
+                found = true;
+            } else {
+                remaining++;
+            }
+        }
+        if (!found || remaining == 0) {
+            return;
+        }
+
+        for (Iterator<Node> iterator = nodes.iterator(); iterator.hasNext(); ) {
+            if (excluded.equals(iterator.next().getHost())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 记录当前线程选中的节点
+     */
+    static void selected(Node node) {
+        SELECTED.set(node.getHost());
+    }
+
+    /**
+     * 请求结果和选中的节点
+     *
+     * @param <T> 返回值泛型
+     */
+    @Value
+    public static class Selected<T> {
+        /**
+         * 请求结果
+         */
+        T value;
+
+        /**
+         * 选中的节点，未经过LeastLoadedNodeSelector选择时为null
+         */
+        HttpHost host;
+    }
+}
@@ -0,0 +1,45 @@
+package com.wujunshen.elasticsearch.node;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * 单个节点的请求统计快照
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 00:40<br>
+ */
+@Data
+@Builder
+public class NodeStats {
+    /**
+     * 节点地址
+     */
+    private String host;
+
+    /**
+     * 在途请求数
+     */
+    private int inFlight;
+
+    /**
+     * 响应时间的指数加权移动平均值(毫秒)
+     */
+    private double ewmaMillis;
+
+    /**
+     * 被选中的次数
+     */
+    private long selected;
+
+    /**
+     * 完成的请求数
+     */
+    private long responses;
+
+    /**
+     * 失败的请求数
+     */
+    private long failures;
+}
@@ -0,0 +1,64 @@
+package com.wujunshen.elasticsearch.node;
+
+import com.wujunshen.elasticsearch.NodeApi;
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * 定时通过NodeApi.getAllNodes刷新LoadAwareNodeSelector的节点统计数据
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 00:10<br>
+ */
+@Slf4j
+public class NodeStatsRefresher implements Closeable {
+    private final NodeApi nodeApi;
+
+    private final LoadAwareNodeSelector nodeSelector;
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * 构造并启动刷新任务
+     *
+     * @param nodeApi         NodeApi对象
+     * @param nodeSelector    要刷新的节点选择器
+     * @param refreshInterval 刷新间隔(毫秒)，小于等于0表示不刷新
+     */
+    public NodeStatsRefresher(NodeApi nodeApi, LoadAwareNodeSelector nodeSelector, long refreshInterval) {
+        this.nodeApi = nodeApi;
+        this.nodeSelector = nodeSelector;
+
+        if (refreshInterval > 0) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("es-node-stats-");
+            threadFactory.setDaemon(true);
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            this.scheduler.scheduleWithFixedDelay(this::refresh, 0, refreshInterval, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * 立即刷新一次，失败时保留上一次的统计数据
+     */
+    public void refresh() {
+        try {
+            nodeSelector.update(nodeApi.getAllNodes());
+        } catch (Exception e) {
+            log.warn("refresh node stats failed, keep the previous stats", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
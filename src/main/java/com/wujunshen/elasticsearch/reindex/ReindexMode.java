@@ -0,0 +1,20 @@
+package com.wujunshen.elasticsearch.reindex;
+
+/**
+ * 重建索引时复制文档的方式
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/19 09:10<br>
+ */
+public enum ReindexMode {
+    /**
+     * 服务端_reindex任务，文档不经过客户端，通过tasks API轮询进度
+     */
+    SERVER,
+
+    /**
+     * 客户端用sliced point-in-time并行读取，再通过bulk写入新索引，适用于服务端_reindex不可用或需要限制集群内部负载的场景
+     */
+    CLIENT
+}
@@ -0,0 +1,35 @@
+package com.wujunshen.elasticsearch.reindex;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 重建索引并切换别名的结果
+ *
+ * @param alias       别名
+ * @param sourceIndex 切换前别名指向的索引，首次创建时为null
+ * @param targetIndex 新建的索引
+ * @param documents   复制的文档数
+ * @param elapsed     从创建新索引到切换别名的总耗时
+ * @param swapped     别名是否已切换到新索引，复制失败时为false且新索引已删除
+ * @param failures    复制失败的原因
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/19 09:10<br>
+ */
+public record ReindexResult(
+        String alias,
+        String sourceIndex,
+        String targetIndex,
+        long documents,
+        Duration elapsed,
+        boolean swapped,
+        List<String> failures) {
+    /**
+     * @return 每秒复制的文档数
+     */
+    public double docsPerSecond() {
+        long nanos = elapsed.toNanos();
+        return nanos <= 0 ? 0 : documents * 1_000_000_000.0 / nanos;
+    }
+}
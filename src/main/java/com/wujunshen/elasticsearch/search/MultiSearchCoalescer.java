@@ -0,0 +1,239 @@
+package com.wujunshen.elasticsearch.search;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.core.MsearchRequest;
+import co.elastic.clients.elasticsearch.core.MsearchResponse;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResponseItem;
+import co.elastic.clients.elasticsearch.core.msearch.RequestItem;
+import com.wujunshen.elasticsearch.concurrent.AsyncLimiter;
+import com.wujunshen.elasticsearch.concurrent.Futures;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * msearch微批合并器
+ * <p>
+ * 时间窗口内到达的search请求合并为一次msearch发送，窗口从该批第一个请求到达时开始计时，
+ * 攒满maxBatchSize个请求时立即发送。窗口小于等于0时不合并，每个请求直接单独发送
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/17 23:40<br>
+ */
+@Slf4j
+public class MultiSearchCoalescer implements Closeable {
+    private final ElasticsearchAsyncClient elasticsearchAsyncClient;
+
+    private final AsyncLimiter asyncLimiter;
+
+    private final long windowMillis;
+
+    private final int maxBatchSize;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private List<Pending<?>> batch = new ArrayList<>();
+
+    private long batchCount;
+
+    /**
+     * 构造合并器
+     *
+     * @param elasticsearchAsyncClient es异步客户端
+     * @param asyncLimiter             异步请求并发限制器
+     * @param windowMillis             合并窗口(毫秒)，小于等于0表示不合并
+     * @param maxBatchSize             单次msearch最多包含的子请求数
+     */
+    public MultiSearchCoalescer(
+            ElasticsearchAsyncClient elasticsearchAsyncClient,
+            AsyncLimiter asyncLimiter,
+            long windowMillis,
+            int maxBatchSize) {
+        this.elasticsearchAsyncClient = elasticsearchAsyncClient;
+        this.asyncLimiter = asyncLimiter;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+
+        if (isEnabled()) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("es-msearch-");
+            threadFactory.setDaemon(true);
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * @return 是否开启合并
+     */
+    public boolean isEnabled() {
+        return windowMillis > 0;
+    }
+
+    /**
+     * 提交一个search请求，在当前窗口结束时与其它请求一起发送
+     *
+     * @param request SearchRequest对象
+     * @param clazz   要搜索的文档对象class
+     * @param <T>     文档对象泛型
+     * @return SearchResponse的CompletableFuture
+     */
+    public <T> CompletableFuture<SearchResponse<T>> submit(SearchRequest request, Class<T> clazz) {
+        if (!isEnabled()) {
+            return asyncLimiter.submit(() -> elasticsearchAsyncClient.search(request, clazz));
+        }
+
+        Pending<T> pending = new Pending<>(MultiSearchSupport.toRequestItem(request), clazz);
+
+        List<Pending<?>> full = null;
+        lock.lock();
+        try {
+            batch.add(pending);
+            if (batch.size() == 1) {
+                long current = batchCount;
+                scheduler.schedule(() -> flush(current), windowMillis, TimeUnit.MILLISECONDS);
+            }
+            if (batch.size() >= maxBatchSize) {
+                full = swap();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (full != null) {
+            send(full);
+        }
+        return pending.future;
+    }
+
+    /**
+     * 同步执行search请求，开启合并时会等待当前窗口结束
+     *
+     * @param request SearchRequest对象
+     * @param clazz   要搜索的文档对象class
+     * @param <T>     文档对象泛型
+     * @return SearchResponse对象
+     * @throws IOException 异常信息
+     */
+    public <T> SearchResponse<T> search(SearchRequest request, Class<T> clazz) throws IOException {
+        return Futures.join(submit(request, clazz));
+    }
+
+    @Override
+    public void close() {
+        if (scheduler == null) {
+            return;
+        }
+
+        List<Pending<?>> remaining;
+        lock.lock();
+        try {
+            remaining = swap();
+        } finally {
+            lock.unlock();
+        }
+        send(remaining);
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 窗口到期时发送，批次已因攒满提前发送则忽略
+     */
+    private void flush(long expectedBatch) {
+        List<Pending<?>> toSend;
+        lock.lock();
+        try {
+            if (batchCount != expectedBatch) {
+                return;
+            }
+            toSend = swap();
+        } finally {
+            lock.unlock();
+        }
+        send(toSend);
+    }
+
+    private List<Pending<?>> swap() {
+        List<Pending<?>> current = batch;
+        batch = new ArrayList<>();
+        batchCount++;
+        return current;
+    }
+
+    private void send(List<Pending<?>> toSend) {
+        if (toSend.isEmpty()) {
+            return;
+        }
+
+        List<RequestItem> searches = toSend.stream().map(pending -> pending.requestItem).toList();
+        List<Class<?>> classes = toSend.stream().<Class<?>>map(pending -> pending.clazz).toList();
+        MsearchRequest msearchRequest = MsearchRequest.of(m -> m.searches(searches));
+
+        // 各子请求的文档类型不同，按位置直接反序列化为各自的class
+        asyncLimiter.submit(() -> elasticsearchAsyncClient._transport().performRequestAsync(
+                        msearchRequest,
+                        MultiSearchSupport.endpoint(classes),
+                        elasticsearchAsyncClient._transportOptions()))
+                .whenComplete((response, throwable) -> {
+                    if (throwable != null) {
+                        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                                ? throwable.getCause()
+                                : throwable;
+                        toSend.forEach(pending -> pending.future.completeExceptionally(cause));
+                    } else {
+                        complete(toSend, response);
+                    }
+                });
+    }
+
+    private void complete(List<Pending<?>> toSend, MsearchResponse<Object> response) {
+        log.debug("msearch {} searches consume times {} mill second", toSend.size(), response.took());
+
+        List<MultiSearchResponseItem<Object>> items = response.responses();
+        for (int i = 0; i < toSend.size(); i++) {
+            toSend.get(i).complete(items.get(i));
+        }
+    }
+
+    /**
+     * 等待发送的子请求
+     */
+    private static class Pending<T> {
+        private final RequestItem requestItem;
+
+        private final Class<T> clazz;
+
+        private final CompletableFuture<SearchResponse<T>> future = new CompletableFuture<>();
+
+        Pending(RequestItem requestItem, Class<T> clazz) {
+            this.requestItem = requestItem;
+            this.clazz = clazz;
+        }
+
+        /**
+         * @param item 子响应，其中的文档已按clazz反序列化
+         */
+        @SuppressWarnings("unchecked")
+        void complete(MultiSearchResponseItem<?> item) {
+            try {
+                future.complete(MultiSearchSupport.toSearchResponse((MultiSearchResponseItem<T>) item));
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
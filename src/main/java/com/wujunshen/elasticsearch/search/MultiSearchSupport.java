@@ -0,0 +1,163 @@
+package com.wujunshen.elasticsearch.search;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.ErrorResponse;
+import co.elastic.clients.elasticsearch.core.MsearchRequest;
+import co.elastic.clients.elasticsearch.core.MsearchResponse;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchItem;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResponseItem;
+import co.elastic.clients.elasticsearch.core.msearch.RequestItem;
+import co.elastic.clients.json.JsonpDeserializer;
+import co.elastic.clients.json.JsonpDeserializerBase;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.JsonpUtils;
+import co.elastic.clients.transport.Endpoint;
+import jakarta.json.stream.JsonParser;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * SearchRequest与msearch子请求之间的转换
+ * <p>
+ * 一次msearch中的子请求可能对应不同的文档类型，客户端自带的msearch只能为所有子请求指定同一个文档类型，
+ * 因此这里提供按子响应位置选择文档类型的endpoint，解析响应时文档直接反序列化为各自的class
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/17 23:40<br>
+ */
+public final class MultiSearchSupport {
+    private MultiSearchSupport() {
+    }
+
+    /**
+     * 把SearchRequest转换为msearch子请求
+     *
+     * @param request SearchRequest对象，不支持scroll
+     * @return msearch子请求
+     */
+    public static RequestItem toRequestItem(SearchRequest request) {
+        if (request.scroll() != null) {
+            throw new IllegalArgumentException("scroll is not supported in msearch");
+        }
+
+        return RequestItem.of(r -> r
+                .header(h -> h.index(request.index())
+                        .routing(request.routing())
+                        .preference(request.preference())
+                        .requestCache(request.requestCache())
+                        .searchType(request.searchType())
+                        .allowNoIndices(request.allowNoIndices())
+                        .expandWildcards(request.expandWildcards())
+                        .ignoreUnavailable(request.ignoreUnavailable())
+                        .allowPartialSearchResults(request.allowPartialSearchResults()))
+                .body(b -> b.query(request.query())
+                        .from(request.from())
+                        .size(request.size())
+                        .sort(request.sort())
+                        .aggregations(request.aggregations())
+                        .highlight(request.highlight())
+                        .source(request.source())
+                        .postFilter(request.postFilter())
+                        .trackTotalHits(request.trackTotalHits())
+                        .trackScores(request.trackScores())
+                        .searchAfter(request.searchAfter())
+                        .pit(request.pit())
+                        .minScore(request.minScore())
+                        .timeout(request.timeout())
+                        .terminateAfter(request.terminateAfter())
+                        .collapse(request.collapse())
+                        .rescore(request.rescore())
+                        .fields(request.fields())
+                        .docvalueFields(request.docvalueFields())
+                        .storedFields(request.storedFields())
+                        .scriptFields(request.scriptFields())
+                        .runtimeMappings(request.runtimeMappings())
+                        .indicesBoost(request.indicesBoost())
+                        .stats(request.stats())
+                        .explain(request.explain())
+                        .version(request.version())
+                        .seqNoPrimaryTerm(request.seqNoPrimaryTerm())
+                        .profile(request.profile())));
+    }
+
+    /**
+     * 创建msearch的endpoint，第i个子响应中的文档直接按classes的第i个元素反序列化
+     *
+     * @param classes 各子请求的文档对象class，顺序与msearch中的子请求一致
+     * @return msearch endpoint，响应中各子响应的实际文档类型由classes决定
+     */
+    public static Endpoint<MsearchRequest, MsearchResponse<Object>, ErrorResponse> endpoint(List<Class<?>> classes) {
+        return MsearchRequest._ENDPOINT.withResponseDeserializer(new ResponseDeserializer(classes));
+    }
+
+    /**
+     * 把msearch子响应转换为SearchResponse
+     *
+     * @param item msearch子响应
+     * @param <T>  文档对象泛型
+     * @return SearchResponse对象
+     * @throws ElasticsearchException 子请求执行失败
+     */
+    public static <T> SearchResponse<T> toSearchResponse(MultiSearchResponseItem<T> item) {
+        if (item.isFailure()) {
+            throw new ElasticsearchException("msearch", item.failure());
+        }
+
+        MultiSearchItem<T> result = item.result();
+
+        return SearchResponse.of(s -> s.took(result.took())
+                .timedOut(result.timedOut())
+                .shards(result.shards())
+                .hits(result.hits())
+                .aggregations(result.aggregations())
+                .pitId(result.pitId())
+                .terminatedEarly(result.terminatedEarly())
+                .numReducePhases(result.numReducePhases()));
+    }
+
+    /**
+     * 按位置为每个子响应使用各自文档类型的msearch响应反序列化器
+     */
+    private static final class ResponseDeserializer extends JsonpDeserializerBase<MsearchResponse<Object>> {
+        private final List<JsonpDeserializer<MultiSearchResponseItem<Object>>> itemDeserializers;
+
+        @SuppressWarnings("unchecked")
+        private ResponseDeserializer(List<Class<?>> classes) {
+            super(EnumSet.of(JsonParser.Event.START_OBJECT));
+            this.itemDeserializers = classes.stream()
+                    .map(clazz -> MultiSearchResponseItem.createMultiSearchResponseItemDeserializer(
+                            JsonpDeserializer.of((Class<Object>) clazz)))
+                    .toList();
+        }
+
+        @Override
+        public MsearchResponse<Object> deserialize(JsonParser parser, JsonpMapper mapper, JsonParser.Event event) {
+            long took = 0;
+            List<MultiSearchResponseItem<Object>> responses = new ArrayList<>(itemDeserializers.size());
+
+            while ((event = parser.next()) != JsonParser.Event.END_OBJECT) {
+                String name = JsonpUtils.expectKeyName(parser, event);
+                if ("took".equals(name)) {
+                    took = JsonpDeserializer.longDeserializer().deserialize(parser, mapper);
+                } else if ("responses".equals(name)) {
+                    JsonpUtils.expectNextEvent(parser, JsonParser.Event.START_ARRAY);
+                    while ((event = parser.next()) != JsonParser.Event.END_ARRAY) {
+                        if (responses.size() >= itemDeserializers.size()) {
+                            throw new IllegalStateException("msearch returned more responses than searches");
+                        }
+                        responses.add(itemDeserializers.get(responses.size()).deserialize(parser, mapper, event));
+                    }
+                } else {
+                    JsonpUtils.skipValue(parser);
+                }
+            }
+
+            long tookMillis = took;
+            return MsearchResponse.of(r -> r.took(tookMillis).responses(responses));
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.wujunshen.elasticsearch.search;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ShardStatistics;
+import co.elastic.clients.elasticsearch._types.SlicedScroll;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * 基于point-in-time和search_after的文档迭代器
+ * <p>
+ * 按_shard_doc排序逐页读取索引，调用方消费当前页时后台预取下一页，内存中最多同时持有两页数据。
+ * 遍历结束或调用close时关闭point-in-time，未遍历完就丢弃的迭代器需要调用方自行close。
+ * 传入已打开的point-in-time和slice时只遍历该slice，point-in-time由调用方关闭，多个slice可以并行遍历同一个point-in-time。
+ * 任何一页有分片失败或超时都以UncheckedIOException结束遍历
+ *
+ * @param <T> 文档对象泛型
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/17 21:30<br>
+ */
+@Slf4j
+public class PitIterator<T> implements Iterator<Hit<T>>, Closeable {
+    /**
+     * 预取线程池，线程为守护线程，空闲时自动回收
+     */
+    private static final ExecutorService PREFETCH_EXECUTOR;
+
+    static {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("es-pit-prefetch-");
+        threadFactory.setDaemon(true);
+        PREFETCH_EXECUTOR = Executors.newCachedThreadPool(threadFactory);
+    }
+
+    private final ElasticsearchClient elasticsearchClient;
+
+    private final Query query;
+
+    private final int pageSize;
+
+    private final String keepAlive;
+
+    private final Class<T> clazz;
+
+    private final SlicedScroll slice;
+
+    /**
+     * point-in-time是否由本迭代器打开，是则close时关闭
+     */
+    private final boolean ownsPit;
+
+    private volatile String pitId;
+
+    private Iterator<Hit<T>> currentPage = Collections.emptyIterator();
+
+    private CompletableFuture<List<Hit<T>>> nextPage;
+
+    private boolean closed;
+
+    /**
+     * 打开point-in-time并开始预取第一页
+     *
+     * @param elasticsearchClient es客户端
+     * @param indexName           索引名
+     * @param query               过滤条件，为null时遍历所有文档
+     * @param pageSize            每页文档数
+     * @param keepAlive           point-in-time保持时间，如"1m"，需大于处理一页数据的耗时
+     * @param clazz               文档对象class
+     * @throws IOException 异常信息
+     */
+    public PitIterator(
+            ElasticsearchClient elasticsearchClient,
+            String indexName,
+            Query query,
+            int pageSize,
+            String keepAlive,
+            Class<T> clazz)
+            throws IOException {
+        this(elasticsearchClient,
+                elasticsearchClient
+                        .openPointInTime(o -> o.index(indexName).keepAlive(t -> t.time(keepAlive)))
+                        .id(),
+                true, null, query, pageSize, keepAlive, clazz);
+    }
+
+    /**
+     * 在已打开的point-in-time上遍历一个slice，close时不关闭point-in-time
+     *
+     * @param elasticsearchClient es客户端
+     * @param pitId               已打开的point-in-time id
+     * @param slice               要遍历的slice，为null时遍历所有文档
+     * @param query               过滤条件，为null时遍历所有文档
+     * @param pageSize            每页文档数
+     * @param keepAlive           point-in-time保持时间，如"1m"，需大于处理一页数据的耗时
+     * @param clazz               文档对象class
+     */
+    public PitIterator(
+            ElasticsearchClient elasticsearchClient,
+            String pitId,
+            SlicedScroll slice,
+            Query query,
+            int pageSize,
+            String keepAlive,
+            Class<T> clazz) {
+        this(elasticsearchClient, pitId, false, slice, query, pageSize, keepAlive, clazz);
+    }
+
+    private PitIterator(
+            ElasticsearchClient elasticsearchClient,
+            String pitId,
+            boolean ownsPit,
+            SlicedScroll slice,
+            Query query,
+            int pageSize,
+            String keepAlive,
+            Class<T> clazz) {
+        this.elasticsearchClient = elasticsearchClient;
+        this.pitId = pitId;
+        this.ownsPit = ownsPit;
+        this.slice = slice;
+        this.query = query;
+        this.pageSize = pageSize;
+        this.keepAlive = keepAlive;
+        this.clazz = clazz;
+
+        this.nextPage = prefetch(null);
+    }
+
+    /**
+     * 转换为Stream，关闭Stream时关闭point-in-time
+     *
+     * @return Hit对象的Stream
+     */
+    public Stream<Hit<T>> stream() {
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL),
+                        false)
+                .onClose(this::close);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!currentPage.hasNext()) {
+            if (nextPage == null) {
+                close();
+                return false;
+            }
+
+            List<Hit<T>> hits = awaitNextPage();
+            if (hits.isEmpty()) {
+                nextPage = null;
+                continue;
+            }
+
+            // 最后一页不满一页时不再预取
+            nextPage = hits.size() < pageSize ? null : prefetch(hits.get(hits.size() - 1).sort());
+            currentPage = hits.iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public Hit<T> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentPage.next();
+    }
+
+    /**
+     * 停止预取，point-in-time由本迭代器打开时关闭point-in-time，可重复调用
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        if (nextPage != null) {
+            nextPage.cancel(true);
+            nextPage = null;
+        }
+        currentPage = Collections.emptyIterator();
+        if (!ownsPit) {
+            return;
+        }
+
+        try {
+            elasticsearchClient.closePointInTime(c -> c.id(pitId));
+        } catch (IOException e) {
+            log.warn("close point in time failed, it will expire after {}", keepAlive, e);
+        }
+    }
+
+    private List<Hit<T>> awaitNextPage() {
+        try {
+            return nextPage.join();
+        } catch (CompletionException e) {
+            close();
+            if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException;
+            }
+            throw e;
+        }
+    }
+
+    private CompletableFuture<List<Hit<T>>> prefetch(List<String> searchAfter) {
+        String currentPitId = pitId;
+
+        return CompletableFuture.supplyAsync(() -> fetch(currentPitId, searchAfter), PREFETCH_EXECUTOR);
+    }
+
+    private List<Hit<T>> fetch(String currentPitId, List<String> searchAfter) {
+        try {
+            SearchResponse<T> response = elasticsearchClient.search(
+                    s -> {
+                        s.pit(p -> p.id(currentPitId).keepAlive(t -> t.time(keepAlive)))
+                                .size(pageSize)
+                                .trackTotalHits(t -> t.enabled(false))
+                                // _shard_doc是point-in-time下开销最小的唯一排序
+                                .sort(f -> f.field(o -> o.field("_shard_doc").order(SortOrder.Asc)));
+                        if (query != null) {
+                            s.query(query);
+                        }
+                        if (slice != null) {
+                            s.slice(slice);
+                        }
+                        if (searchAfter != null) {
+                            s.searchAfter(searchAfter);
+                        }
+                        return s;
+                    },
+                    clazz);
+
+            // 每次响应都可能返回新的pit id
+            if (response.pitId() != null) {
+                pitId = response.pitId();
+            }
+
+            // 部分分片失败或超时时本页缺少文档，不满一页又会被当作遍历结束，不能静默返回不完整的结果
+            ShardStatistics shards = response.shards();
+            if (response.timedOut() || shards.failed().intValue() > 0) {
+                throw new IOException("search on point in time " + (response.timedOut() ? "timed out" : "failed")
+                        + ", " + shards.failed() + " of " + shards.total() + " shards failed: "
+                        + shards.failures().stream().map(failure -> failure.reason().reason()).toList());
+            }
+
+            return response.hits().hits();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
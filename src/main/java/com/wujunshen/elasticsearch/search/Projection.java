@@ -0,0 +1,217 @@
+package com.wujunshen.elasticsearch.search;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.FieldAndFormat;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.wujunshen.elasticsearch.json.CachingJacksonJsonpMapper;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import java.util.Arrays;
+import java.util.List;
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+/**
+ * 查询结果的字段投影，决定响应中每条命中返回哪些字段，以及如何转换为结果对象
+ * <p>
+ * 只用includes/excludes过滤_source时，_source直接反序列化为结果类型，和不投影时一样没有额外开销。
+ * 不取_source、取docvalue_fields/fields或需要文档id时，_source按jackson树取回，和fields、_id合并后再转换，
+ * fields中只有一个值的字段取该值，多个值的字段保持数组，skus.skuName这样带点号的字段放到嵌套对象中。
+ * 结果类型只需声明要取的字段，如只包含productName的类，但不能少于返回的字段
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 16:30<br>
+ */
+@Value
+@Builder(toBuilder = true)
+public class Projection {
+    /**
+     * 返回完整_source，即不投影
+     */
+    public static final Projection ALL = Projection.builder().build();
+
+    /**
+     * 是否返回_source，false时只返回fields和文档id
+     */
+    @Builder.Default
+    boolean fetchSource = true;
+
+    /**
+     * _source中要返回的字段，支持通配符，为空时返回全部
+     */
+    @Singular
+    List<String> includes;
+
+    /**
+     * _source中不返回的字段，支持通配符
+     */
+    @Singular
+    List<String> excludes;
+
+    /**
+     * 从doc values中取值的字段，不需要读取_source
+     */
+    @Singular
+    List<String> docValueFields;
+
+    /**
+     * 按mapping格式化后返回的字段
+     */
+    @Singular
+    List<String> fields;
+
+    /**
+     * 把文档id写入结果对象的哪个字段，为null时不写入
+     */
+    String idField;
+
+    /**
+     * @param includes _source中要返回的字段
+     * @return 只返回部分_source字段的投影
+     */
+    public static Projection includes(String... includes) {
+        return Projection.builder().includes(Arrays.asList(includes)).build();
+    }
+
+    /**
+     * @param excludes _source中不返回的字段
+     * @return 不返回部分_source字段的投影
+     */
+    public static Projection excludes(String... excludes) {
+        return Projection.builder().excludes(Arrays.asList(excludes)).build();
+    }
+
+    /**
+     * @param idField 结果对象中保存文档id的字段
+     * @return 不返回_source，只返回文档id的投影
+     */
+    public static Projection idsOnly(String idField) {
+        return Projection.builder().fetchSource(false).idField(idField).build();
+    }
+
+    /**
+     * @return 是否需要把命中合并后再转换，否则_source可以直接反序列化为结果类型
+     */
+    public boolean isMerged() {
+        return !fetchSource || !docValueFields.isEmpty() || !fields.isEmpty() || idField != null;
+    }
+
+    /**
+     * 在SearchRequest中设置_source、docvalue_fields和fields
+     *
+     * @param builder SearchRequest构建器
+     * @return 传入的构建器
+     */
+    public SearchRequest.Builder applyTo(SearchRequest.Builder builder) {
+        if (!fetchSource) {
+            builder.source(s -> s.fetch(false));
+        } else if (!includes.isEmpty() || !excludes.isEmpty()) {
+            builder.source(s -> s.filter(f -> f.includes(includes).excludes(excludes)));
+        }
+        // 空列表也会被序列化，有字段时才设置
+        if (!docValueFields.isEmpty()) {
+            builder.docvalueFields(toFieldAndFormats(docValueFields));
+        }
+        if (!fields.isEmpty()) {
+            builder.fields(toFieldAndFormats(fields));
+        }
+        return builder;
+    }
+
+    /**
+     * 把命中中的_source、fields和_id合并后转换为结果对象，整个过程都在jackson树上进行，不重新序列化
+     *
+     * @param hit    _source按ObjectNode取回的命中
+     * @param clazz  结果对象class
+     * @param mapper 用于转换的JsonpMapper，需要基于jackson
+     * @param <T>    结果对象泛型
+     * @return 结果对象
+     */
+    public <T> T map(Hit<ObjectNode> hit, Class<T> clazz, JsonpMapper mapper) {
+        ObjectMapper objectMapper = objectMapper(mapper);
+        // 同一个响应可能由single flight共享给多个调用方，在副本上合并，不修改响应中的对象
+        ObjectNode document = hit.source() == null ? objectMapper.createObjectNode() : hit.source().deepCopy();
+
+        hit.fields().forEach((name, value) -> {
+            JsonNode node = toJsonNode(value.toJson(), objectMapper.getNodeFactory());
+            if (node.isArray() && node.size() == 1) {
+                node = node.get(0);
+            }
+            put(document, name, node);
+        });
+        if (idField != null) {
+            document.put(idField, hit.id());
+        }
+
+        try {
+            return objectMapper.treeToValue(document, clazz);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("无法把命中" + hit.id() + "转换为" + clazz.getName(), e);
+        }
+    }
+
+    /**
+     * 按点号分隔的字段名把值放到对应的嵌套对象中，如skus.skuName放到skus对象的skuName字段，
+     * 路径上已有非对象的值时保留原值
+     */
+    private static void put(ObjectNode document, String name, JsonNode value) {
+        ObjectNode parent = document;
+        int start = 0;
+        for (int dot = name.indexOf('.'); dot >= 0; dot = name.indexOf('.', start)) {
+            JsonNode child = parent.get(name.substring(start, dot));
+            if (child == null) {
+                child = parent.putObject(name.substring(start, dot));
+            } else if (!child.isObject()) {
+                return;
+            }
+            parent = (ObjectNode) child;
+            start = dot + 1;
+        }
+        parent.set(name.substring(start), value);
+    }
+
+    private static JsonNode toJsonNode(JsonValue value, JsonNodeFactory factory) {
+        return switch (value.getValueType()) {
+            case OBJECT -> {
+                ObjectNode node = factory.objectNode();
+                value.asJsonObject().forEach((key, child) -> node.set(key, toJsonNode(child, factory)));
+                yield node;
+            }
+            case ARRAY -> {
+                ArrayNode node = factory.arrayNode();
+                value.asJsonArray().forEach(child -> node.add(toJsonNode(child, factory)));
+                yield node;
+            }
+            case STRING -> factory.textNode(((JsonString) value).getString());
+            case NUMBER -> factory.numberNode(((JsonNumber) value).bigDecimalValue());
+            case TRUE -> factory.booleanNode(true);
+            case FALSE -> factory.booleanNode(false);
+            case NULL -> factory.nullNode();
+        };
+    }
+
+    private static ObjectMapper objectMapper(JsonpMapper mapper) {
+        if (mapper instanceof JacksonJsonpMapper jacksonJsonpMapper) {
+            return jacksonJsonpMapper.objectMapper();
+        }
+        if (mapper instanceof CachingJacksonJsonpMapper cachingJacksonJsonpMapper) {
+            return cachingJacksonJsonpMapper.objectMapper();
+        }
+        throw new IllegalArgumentException("字段投影需要基于jackson的JsonpMapper: " + mapper.getClass().getName());
+    }
+
+    private static List<FieldAndFormat> toFieldAndFormats(List<String> names) {
+        return names.stream().map(name -> FieldAndFormat.of(f -> f.field(name))).toList();
+    }
+}
@@ -0,0 +1,33 @@
+package com.wujunshen.elasticsearch.search;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+
+/**
+ * 查询条件的执行上下文
+ * <p>
+ * term、range等精确匹配条件的得分对排序没有意义，放在filter上下文中既省去算分，
+ * 结果又可以被节点的query cache缓存，反复出现的类目、品牌等过滤条件直接从缓存中取
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 19:20<br>
+ */
+public enum QueryContext {
+    /**
+     * 计算相关性得分
+     */
+    SCORING,
+
+    /**
+     * 不计算得分，放在bool查询的filter中
+     */
+    FILTER;
+
+    /**
+     * @param query 查询条件
+     * @return 按本上下文执行的查询条件
+     */
+    public Query apply(Query query) {
+        return this == FILTER ? Query.of(q -> q.bool(b -> b.filter(query))) : query;
+    }
+}
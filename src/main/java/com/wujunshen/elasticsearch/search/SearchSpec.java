@@ -0,0 +1,155 @@
+package com.wujunshen.elasticsearch.search;
+
+import co.elastic.clients.elasticsearch._types.SortOptions;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import java.util.List;
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+/**
+ * 不可变的查询描述，组合查询条件、过滤条件、排序、分页、字段投影以及timeout、routing、preference等请求参数
+ * <p>
+ * 同一个SearchSpec可以保存为常量，在多次请求、多个线程间复用，每次调用toSearchRequest生成新的SearchRequest。
+ * 只改分页、投影等个别参数时用toBuilder、page或project方法得到副本，原对象不变。
+ * filters中的条件放在bool查询的filter中，不计算相关性得分，结果可以被节点的query cache缓存
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 18:00<br>
+ */
+@Value
+@Builder(toBuilder = true)
+public class SearchSpec {
+    /**
+     * 要查询的索引，为空时查询全部索引
+     */
+    @Singular("index")
+    List<String> indices;
+
+    /**
+     * 计算相关性得分的查询条件，为null时匹配全部文档
+     */
+    Query query;
+
+    /**
+     * 不计算得分的过滤条件
+     */
+    @Singular
+    List<Query> filters;
+
+    /**
+     * 排序，按先后顺序生效
+     */
+    @Singular
+    List<SortOptions> sorts;
+
+    /**
+     * 分页起始位置
+     */
+    Integer from;
+
+    /**
+     * 每页文档数
+     */
+    Integer size;
+
+    /**
+     * 返回字段的投影
+     */
+    @Builder.Default
+    Projection projection = Projection.ALL;
+
+    /**
+     * 是否统计精确的命中总数，false时不统计，响应中没有total
+     */
+    Boolean trackTotalHits;
+
+    /**
+     * 是否使用分片请求缓存，为null时按索引设置
+     */
+    Boolean requestCache;
+
+    /**
+     * 服务端超时时间，如500ms，超时后返回已收集的结果
+     */
+    String timeout;
+
+    /**
+     * 路由值，只查询对应的分片
+     */
+    String routing;
+
+    /**
+     * 分片副本选择偏好，如_local或用户会话id，同一偏好值固定访问相同的副本，有利于缓存命中
+     */
+    String preference;
+
+    /**
+     * @param field 排序字段
+     * @param isDesc 是否降序，true降序，false升序
+     * @return 按字段排序的SortOptions
+     */
+    public static SortOptions fieldSort(String field, boolean isDesc) {
+        return SortOptions.of(s -> s.field(f -> f.field(field).order(isDesc ? SortOrder.Desc : SortOrder.Asc)));
+    }
+
+    /**
+     * @param from 分页起始位置
+     * @param size 每页文档数
+     * @return 只有分页参数不同的副本
+     */
+    public SearchSpec page(int from, int size) {
+        return toBuilder().from(from).size(size).build();
+    }
+
+    /**
+     * @param projection 返回字段的投影
+     * @return 只有投影不同的副本
+     */
+    public SearchSpec project(Projection projection) {
+        return toBuilder().projection(projection).build();
+    }
+
+    /**
+     * @return 查询条件和过滤条件组合后的查询
+     */
+    public Query effectiveQuery() {
+        if (filters.isEmpty()) {
+            return query != null ? query : Query.of(q -> q.matchAll(m -> m));
+        }
+        return Query.of(q -> q.bool(b -> {
+            if (query != null) {
+                b.must(query);
+            }
+            return b.filter(filters);
+        }));
+    }
+
+    /**
+     * @return 按本对象生成的SearchRequest
+     */
+    public SearchRequest toSearchRequest() {
+        return SearchRequest.of(s -> {
+            // 空列表也会被序列化，有值时才设置
+            if (!indices.isEmpty()) {
+                s.index(indices);
+            }
+            if (!sorts.isEmpty()) {
+                s.sort(sorts);
+            }
+            if (trackTotalHits != null) {
+                s.trackTotalHits(t -> t.enabled(trackTotalHits));
+            }
+            return projection.applyTo(s.query(effectiveQuery())
+                    .from(from)
+                    .size(size)
+                    .requestCache(requestCache)
+                    .timeout(timeout)
+                    .routing(routing)
+                    .preference(preference));
+        });
+    }
+}
@@ -0,0 +1,163 @@
+package com.wujunshen.elasticsearch.task;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.tasks.GetTasksResponse;
+import co.elastic.clients.elasticsearch.tasks.TaskStatus;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+
+/**
+ * 通过tasks API轮询服务端任务进度
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/17 22:00<br>
+ */
+@Slf4j
+public class TaskPoller {
+    private final ElasticsearchClient elasticsearchClient;
+
+    private final long pollInterval;
+
+    /**
+     * 构造任务轮询器
+     *
+     * @param elasticsearchClient es客户端
+     * @param pollInterval        轮询间隔(毫秒)
+     */
+    public TaskPoller(ElasticsearchClient elasticsearchClient, long pollInterval) {
+        this.elasticsearchClient = elasticsearchClient;
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * 查询一次任务进度
+     *
+     * @param taskId 任务id
+     * @return TaskProgress对象
+     * @throws IOException 异常信息
+     */
+    public TaskProgress getProgress(String taskId) throws IOException {
+        GetTasksResponse response = elasticsearchClient.tasks().get(t -> t.taskId(taskId));
+
+        TaskStatus status = response.response() != null ? response.response() : response.task().status();
+
+        List<String> failures = new ArrayList<>();
+        if (response.error() != null) {
+            failures.add(response.error().type() + ": " + response.error().reason());
+        }
+        if (status != null && status.failures() != null) {
+            failures.addAll(status.failures());
+        }
+
+        TaskProgress.TaskProgressBuilder builder = TaskProgress.builder()
+                .taskId(taskId)
+                .completed(response.completed())
+                .runningTimeMillis(TimeUnit.NANOSECONDS.toMillis(response.task().runningTimeInNanos()))
+                .failures(failures);
+
+        if (status != null) {
+            builder.total(status.total())
+                    .created(status.created())
+                    .updated(status.updated())
+                    .deleted(status.deleted())
+                    .batches(status.batches())
+                    .versionConflicts(status.versionConflicts())
+                    .throttledMillis(status.throttledMillis());
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * 轮询任务直到结束
+     *
+     * @param taskId           任务id
+     * @param progressListener 每次轮询后的进度回调，可为null
+     * @return 任务结束时的进度
+     * @throws IOException 异常信息，等待被中断时抛出InterruptedIOException
+     */
+    public TaskProgress awaitCompletion(String taskId, Consumer<TaskProgress> progressListener)
+            throws IOException {
+        while (true) {
+            TaskProgress progress = getProgress(taskId);
+
+            log.info("task {} progress: {}/{}, completed: {}",
+                    taskId, progress.getProcessed(), progress.getTotal(), progress.isCompleted());
+
+            if (progressListener != null) {
+                progressListener.accept(progress);
+            }
+
+            if (progress.isCompleted()) {
+                return progress;
+            }
+
+            sleep(taskId);
+        }
+    }
+
+    /**
+     * 轮询结果不是TaskStatus格式的任务直到结束，如force merge
+     * <p>
+     * 类型化的GetTasksResponse按TaskStatus解析任务结果，这类任务结束后无法解析，
+     * 改用RestClient读取原始json，只取是否结束、运行时间和错误信息
+     *
+     * @param restClient 低级客户端
+     * @param taskId     任务id
+     * @return 任务结束时的进度
+     * @throws IOException 异常信息，等待被中断时抛出InterruptedIOException
+     */
+    public TaskProgress awaitCompletion(RestClient restClient, String taskId) throws IOException {
+        while (true) {
+            JsonObject body;
+            Response response = restClient.performRequest(new Request("GET", "/_tasks/" + taskId));
+            try (JsonReader reader = Json.createReader(response.getEntity().getContent())) {
+                body = reader.readObject();
+            }
+
+            List<String> failures = new ArrayList<>();
+            JsonObject error = body.getJsonObject("error");
+            if (error != null) {
+                failures.add(error.getString("type", "") + ": " + error.getString("reason", ""));
+            }
+            JsonObject task = body.getJsonObject("task");
+            TaskProgress progress = TaskProgress.builder()
+                    .taskId(taskId)
+                    .completed(body.getBoolean("completed", false))
+                    .runningTimeMillis(task == null || !task.containsKey("running_time_in_nanos")
+                            ? 0
+                            : TimeUnit.NANOSECONDS.toMillis(task.getJsonNumber("running_time_in_nanos").longValue()))
+                    .failures(failures)
+                    .build();
+
+            log.info("task {} completed: {}", taskId, progress.isCompleted());
+
+            if (progress.isCompleted()) {
+                return progress;
+            }
+
+            sleep(taskId);
+        }
+    }
+
+    private void sleep(String taskId) throws InterruptedIOException {
+        try {
+            Thread.sleep(pollInterval);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待任务" + taskId + "结束时被中断");
+        }
+    }
+}
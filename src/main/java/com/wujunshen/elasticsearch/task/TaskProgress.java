@@ -0,0 +1,91 @@
+package com.wujunshen.elasticsearch.task;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 服务端by-query类任务(delete_by_query/update_by_query/reindex)的进度
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/17 22:00<br>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TaskProgress {
+    /**
+     * 任务id，格式为node:id
+     */
+    private String taskId;
+
+    /**
+     * 任务是否已结束
+     */
+    private boolean completed;
+
+    /**
+     * 需要处理的文档总数
+     */
+    private long total;
+
+    /**
+     * 已新建的文档数
+     */
+    private long created;
+
+    /**
+     * 已更新的文档数
+     */
+    private long updated;
+
+    /**
+     * 已删除的文档数
+     */
+    private long deleted;
+
+    /**
+     * 已执行的批次数
+     */
+    private long batches;
+
+    /**
+     * 版本冲突的文档数
+     */
+    private long versionConflicts;
+
+    /**
+     * 因限流累计等待的时间(毫秒)
+     */
+    private long throttledMillis;
+
+    /**
+     * 任务已运行的时间(毫秒)
+     */
+    private long runningTimeMillis;
+
+    /**
+     * 失败原因列表
+     */
+    @Builder.Default
+    private List<String> failures = new ArrayList<>();
+
+    /**
+     * @return 已处理的文档数
+     */
+    public long getProcessed() {
+        return created + updated + deleted + versionConflicts;
+    }
+
+    /**
+     * @return 任务是否成功结束
+     */
+    public boolean isSuccess() {
+        return completed && failures.isEmpty();
+    }
+}
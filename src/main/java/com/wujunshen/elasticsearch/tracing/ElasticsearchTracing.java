@@ -0,0 +1,95 @@
+package com.wujunshen.elasticsearch.tracing;
+
+import co.elastic.clients.transport.ElasticsearchTransport;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+
+/**
+ * es请求的OpenTelemetry链路追踪
+ * <p>
+ * wrap返回的transport为每次请求创建一个CLIENT类型的span，记录索引、endpoint、查询类型、命中数和took，
+ * 并在请求头中加上traceparent和X-Opaque-Id，便于与服务端的慢日志关联。
+ * 响应大小只能在http层拿到，本类同时作为HttpClient的响应拦截器注册，按traceparent中的span id找到对应的span
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 13:30<br>
+ */
+public class ElasticsearchTracing implements HttpResponseInterceptor {
+    static final String INSTRUMENTATION_NAME = "com.wujunshen.elasticsearch";
+
+    static final String TRACEPARENT = "traceparent";
+
+    /**
+     * traceparent格式为 版本(2)-trace id(32)-span id(16)-标志(2)
+     */
+    private static final int TRACEPARENT_LENGTH = 55;
+
+    private static final int SPAN_ID_OFFSET = 36;
+
+    private static final int SPAN_ID_LENGTH = 16;
+
+    private final Tracer tracer;
+
+    /**
+     * 请求中的span，key为span id
+     */
+    private final Map<String, Span> activeSpans = new ConcurrentHashMap<>();
+
+    public ElasticsearchTracing(OpenTelemetry openTelemetry) {
+        this.tracer = openTelemetry.getTracer(INSTRUMENTATION_NAME);
+    }
+
+    /**
+     * 为transport加上链路追踪
+     *
+     * @param transport 被包装的transport
+     * @return 创建span的transport
+     */
+    public ElasticsearchTransport wrap(ElasticsearchTransport transport) {
+        return new TracingTransport(transport, this);
+    }
+
+    Tracer tracer() {
+        return tracer;
+    }
+
+    void register(Span span) {
+        activeSpans.put(span.getSpanContext().getSpanId(), span);
+    }
+
+    void unregister(Span span) {
+        activeSpans.remove(span.getSpanContext().getSpanId());
+    }
+
+    @Override
+    public void process(HttpResponse response, HttpContext context) {
+        HttpRequest request = HttpCoreContext.adapt(context).getRequest();
+        Header traceparent = request == null ? null : request.getFirstHeader(TRACEPARENT);
+        if (traceparent == null || traceparent.getValue().length() != TRACEPARENT_LENGTH) {
+            return;
+        }
+
+        Span span = activeSpans.get(
+                traceparent.getValue().substring(SPAN_ID_OFFSET, SPAN_ID_OFFSET + SPAN_ID_LENGTH));
+        if (span == null) {
+            return;
+        }
+
+        span.setAttribute(TracingTransport.HTTP_STATUS_CODE, response.getStatusLine().getStatusCode());
+        HttpEntity entity = response.getEntity();
+        if (entity != null && entity.getContentLength() >= 0) {
+            span.setAttribute(TracingTransport.HTTP_RESPONSE_CONTENT_LENGTH, entity.getContentLength());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.wujunshen.elasticsearch.tracing;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import java.util.List;
+
+/**
+ * 把查询条件归纳为只包含查询类型的结构描述，不包含字段值，可以放心写入span属性
+ * <p>
+ * 如bool(must:[match,term],filter:[range])、nested(bool(must:[match]))，超过MAX_LENGTH时截断
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 13:10<br>
+ */
+final class QueryShape {
+    static final int MAX_LENGTH = 256;
+
+    private QueryShape() {
+    }
+
+    /**
+     * @param query 查询条件
+     * @return 查询类型，如match、bool
+     */
+    static String type(Query query) {
+        return query._kind().jsonValue();
+    }
+
+    /**
+     * @param query 查询条件
+     * @return 查询结构描述
+     */
+    static String of(Query query) {
+        StringBuilder builder = new StringBuilder();
+        append(builder, query);
+        if (builder.length() > MAX_LENGTH) {
+            builder.setLength(MAX_LENGTH - 3);
+            builder.append("...");
+        }
+        return builder.toString();
+    }
+
+    private static void append(StringBuilder builder, Query query) {
+        builder.append(type(query));
+        if (builder.length() > MAX_LENGTH) {
+            return;
+        }
+
+        if (query.isBool()) {
+            BoolQuery bool = query.bool();
+            builder.append('(');
+            int start = builder.length();
+            appendClause(builder, start, "must", bool.must());
+            appendClause(builder, start, "filter", bool.filter());
+            appendClause(builder, start, "should", bool.should());
+            appendClause(builder, start, "must_not", bool.mustNot());
+            builder.append(')');
+        } else if (query.isNested()) {
+            appendChild(builder, query.nested().query());
+        } else if (query.isConstantScore()) {
+            appendChild(builder, query.constantScore().filter());
+        } else if (query.isDisMax()) {
+            builder.append('(');
+            appendList(builder, query.disMax().queries());
+            builder.append(')');
+        }
+    }
+
+    private static void appendChild(StringBuilder builder, Query child) {
+        builder.append('(');
+        append(builder, child);
+        builder.append(')');
+    }
+
+    private static void appendClause(StringBuilder builder, int start, String name, List<Query> queries) {
+        if (queries.isEmpty()) {
+            return;
+        }
+        if (builder.length() > start) {
+            builder.append(',');
+        }
+        builder.append(name).append(":[");
+        appendList(builder, queries);
+        builder.append(']');
+    }
+
+    private static void appendList(StringBuilder builder, List<Query> queries) {
+        for (int i = 0; i < queries.size() && builder.length() <= MAX_LENGTH; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            append(builder, queries.get(i));
+        }
+    }
+}
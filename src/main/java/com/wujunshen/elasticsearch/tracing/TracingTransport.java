@@ -0,0 +1,250 @@
+package com.wujunshen.elasticsearch.tracing;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.CountRequest;
+import co.elastic.clients.elasticsearch.core.CountResponse;
+import co.elastic.clients.elasticsearch.core.DeleteByQueryRequest;
+import co.elastic.clients.elasticsearch.core.GetResponse;
+import co.elastic.clients.elasticsearch.core.MsearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResult;
+import co.elastic.clients.elasticsearch.core.search.ResponseBody;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.transport.ElasticsearchTransport;
+import co.elastic.clients.transport.Endpoint;
+import co.elastic.clients.transport.TransportOptions;
+import co.elastic.clients.transport.rest_client.RestClientOptions;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.ResponseException;
+
+/**
+ * 为每次请求创建span的ElasticsearchTransport装饰器，由ElasticsearchTracing.wrap创建
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 13:50<br>
+ */
+class TracingTransport implements ElasticsearchTransport {
+    static final AttributeKey<String> DB_SYSTEM = AttributeKey.stringKey("db.system");
+
+    static final AttributeKey<String> DB_OPERATION = AttributeKey.stringKey("db.operation");
+
+    static final AttributeKey<String> INDEX = AttributeKey.stringKey("db.elasticsearch.index");
+
+    static final AttributeKey<String> HTTP_METHOD = AttributeKey.stringKey("http.method");
+
+    static final AttributeKey<String> HTTP_TARGET = AttributeKey.stringKey("http.target");
+
+    static final AttributeKey<Long> HTTP_STATUS_CODE = AttributeKey.longKey("http.status_code");
+
+    static final AttributeKey<Long> HTTP_RESPONSE_CONTENT_LENGTH =
+            AttributeKey.longKey("http.response_content_length");
+
+    static final AttributeKey<String> QUERY_TYPE = AttributeKey.stringKey("elasticsearch.query.type");
+
+    static final AttributeKey<String> QUERY_SHAPE = AttributeKey.stringKey("elasticsearch.query.shape");
+
+    static final AttributeKey<Long> SEARCH_COUNT = AttributeKey.longKey("elasticsearch.msearch.count");
+
+    static final AttributeKey<Long> TOOK = AttributeKey.longKey("elasticsearch.took");
+
+    static final AttributeKey<Long> HITS_TOTAL = AttributeKey.longKey("elasticsearch.hits.total");
+
+    static final AttributeKey<Long> HITS_RETURNED = AttributeKey.longKey("elasticsearch.hits.returned");
+
+    static final AttributeKey<Long> BULK_ITEMS = AttributeKey.longKey("elasticsearch.bulk.items");
+
+    static final AttributeKey<Boolean> BULK_ERRORS = AttributeKey.booleanKey("elasticsearch.bulk.errors");
+
+    static final AttributeKey<Boolean> FOUND = AttributeKey.booleanKey("elasticsearch.found");
+
+    static final String X_OPAQUE_ID = "X-Opaque-Id";
+
+    private final ElasticsearchTransport delegate;
+
+    private final ElasticsearchTracing tracing;
+
+    TracingTransport(ElasticsearchTransport delegate, ElasticsearchTracing tracing) {
+        this.delegate = delegate;
+        this.tracing = tracing;
+    }
+
+    @Override
+    public <RequestT, ResponseT, ErrorT> ResponseT performRequest(
+            RequestT request, Endpoint<RequestT, ResponseT, ErrorT> endpoint, TransportOptions options)
+            throws IOException {
+        Span span = startSpan(request, endpoint);
+        try (Scope ignored = span.makeCurrent()) {
+            ResponseT response = delegate.performRequest(request, endpoint, inject(span, options));
+            onResponse(span, response);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            onError(span, e);
+            throw e;
+        } finally {
+            end(span);
+        }
+    }
+
+    @Override
+    public <RequestT, ResponseT, ErrorT> CompletableFuture<ResponseT> performRequestAsync(
+            RequestT request, Endpoint<RequestT, ResponseT, ErrorT> endpoint, TransportOptions options) {
+        Span span = startSpan(request, endpoint);
+        CompletableFuture<ResponseT> future;
+        try (Scope ignored = span.makeCurrent()) {
+            future = delegate.performRequestAsync(request, endpoint, inject(span, options));
+        }
+        // 返回原future，调用方cancel时才能取消底层请求
+        future.whenComplete((response, throwable) -> {
+            if (throwable == null) {
+                onResponse(span, response);
+            } else {
+                onError(span, throwable);
+            }
+            end(span);
+        });
+        return future;
+    }
+
+    @Override
+    public JsonpMapper jsonpMapper() {
+        return delegate.jsonpMapper();
+    }
+
+    @Override
+    public TransportOptions options() {
+        return delegate.options();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    private <RequestT> Span startSpan(RequestT request, Endpoint<RequestT, ?, ?> endpoint) {
+        // endpoint id形如es/search，去掉命名空间
+        String operation = endpoint.id().substring(endpoint.id().indexOf('/') + 1);
+        String path = endpoint.requestUrl(request);
+        String index = index(path);
+
+        SpanBuilder spanBuilder = tracing.tracer()
+                .spanBuilder(index == null ? operation : operation + " " + index)
+                .setSpanKind(SpanKind.CLIENT)
+                .setAttribute(DB_SYSTEM, "elasticsearch")
+                .setAttribute(DB_OPERATION, operation)
+                .setAttribute(HTTP_METHOD, endpoint.method(request))
+                .setAttribute(HTTP_TARGET, path);
+        if (index != null) {
+            spanBuilder.setAttribute(INDEX, index);
+        }
+
+        Query query = null;
+        if (request instanceof SearchRequest searchRequest) {
+            query = searchRequest.query();
+        } else if (request instanceof CountRequest countRequest) {
+            query = countRequest.query();
+        } else if (request instanceof DeleteByQueryRequest deleteByQueryRequest) {
+            query = deleteByQueryRequest.query();
+        } else if (request instanceof MsearchRequest msearchRequest) {
+            spanBuilder.setAttribute(SEARCH_COUNT, (long) msearchRequest.searches().size());
+        }
+        if (query != null) {
+            spanBuilder.setAttribute(QUERY_TYPE, QueryShape.type(query));
+            spanBuilder.setAttribute(QUERY_SHAPE, QueryShape.of(query));
+        }
+
+        Span span = spanBuilder.startSpan();
+        // 需在请求发出前登记，响应拦截器才能找到span
+        tracing.register(span);
+        return span;
+    }
+
+    /**
+     * 在请求头中加上traceparent和X-Opaque-Id，X-Opaque-Id取trace id，调用方已设置时不覆盖
+     */
+    private TransportOptions inject(Span span, TransportOptions options) {
+        if (!span.getSpanContext().isValid()) {
+            return options;
+        }
+
+        TransportOptions base = options != null ? options : delegate.options();
+        if (base == null) {
+            base = new RestClientOptions(RequestOptions.DEFAULT);
+        }
+        boolean hasOpaqueId = base.headers().stream()
+                .map(Map.Entry::getKey)
+                .anyMatch(X_OPAQUE_ID::equalsIgnoreCase);
+
+        return base.with(builder -> {
+            W3CTraceContextPropagator.getInstance().inject(
+                    Context.current().with(span), builder, TransportOptions.Builder::addHeader);
+            if (!hasOpaqueId) {
+                builder.addHeader(X_OPAQUE_ID, span.getSpanContext().getTraceId());
+            }
+        });
+    }
+
+    private static void onResponse(Span span, Object response) {
+        if (response instanceof ResponseBody<?> responseBody) {
+            span.setAttribute(TOOK, responseBody.took());
+            span.setAttribute(HITS_RETURNED, (long) responseBody.hits().hits().size());
+            if (responseBody.hits().total() != null) {
+                span.setAttribute(HITS_TOTAL, responseBody.hits().total().value());
+            }
+        } else if (response instanceof MultiSearchResult<?> multiSearchResult) {
+            span.setAttribute(TOOK, multiSearchResult.took());
+        } else if (response instanceof BulkResponse bulkResponse) {
+            span.setAttribute(TOOK, bulkResponse.took());
+            span.setAttribute(BULK_ITEMS, (long) bulkResponse.items().size());
+            span.setAttribute(BULK_ERRORS, bulkResponse.errors());
+        } else if (response instanceof CountResponse countResponse) {
+            span.setAttribute(HITS_TOTAL, countResponse.count());
+        } else if (response instanceof GetResponse<?> getResponse) {
+            span.setAttribute(FOUND, getResponse.found());
+        }
+    }
+
+    private static void onError(Span span, Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause()
+                : throwable;
+        if (cause instanceof ElasticsearchException elasticsearchException) {
+            span.setAttribute(HTTP_STATUS_CODE, elasticsearchException.status());
+        } else if (cause instanceof ResponseException responseException) {
+            span.setAttribute(HTTP_STATUS_CODE, responseException.getResponse().getStatusLine().getStatusCode());
+        }
+        span.recordException(cause);
+        span.setStatus(StatusCode.ERROR, String.valueOf(cause.getMessage()));
+    }
+
+    private void end(Span span) {
+        tracing.unregister(span);
+        span.end();
+    }
+
+    /**
+     * 从请求路径中取索引名，如/products/_search取products，/_search没有索引
+     */
+    private static String index(String path) {
+        int start = path.startsWith("/") ? 1 : 0;
+        if (path.length() <= start || path.charAt(start) == '_') {
+            return null;
+        }
+        int end = path.indexOf('/', start);
+        return end < 0 ? path.substring(start) : path.substring(start, end);
+    }
+}
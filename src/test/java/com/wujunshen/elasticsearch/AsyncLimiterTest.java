@@ -0,0 +1,67 @@
+package com.wujunshen.elasticsearch;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.core.InfoResponse;
+import com.wujunshen.elasticsearch.concurrent.AsyncLimiter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Resource;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestClassOrder;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+
+/**
+ * 验证AsyncLimiter排队的请求在派发线程上发起，而不是在前一个请求完成回调所在的I/O线程上
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/19 15:00<br>
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestClassOrder(ClassOrderer.OrderAnnotation.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Order(240)
+class AsyncLimiterTest extends MockElasticsearchTests {
+    private static final int REQUESTS = 5;
+
+    @Resource
+    private ElasticsearchAsyncClient elasticsearchAsyncClient;
+
+    @Order(1)
+    @Test
+    void queuedRequestsStartOnDispatcher() {
+        SERVER.setLatency(20);
+        ConcurrentMap<Integer, String> startThreads = new ConcurrentHashMap<>();
+
+        try (AsyncLimiter asyncLimiter = new AsyncLimiter(1)) {
+            List<CompletableFuture<InfoResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                int index = i;
+                futures.add(asyncLimiter.submit(() -> {
+                    startThreads.put(index, Thread.currentThread().getName());
+                    return elasticsearchAsyncClient.info();
+                }));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+            assertThat(asyncLimiter.getInFlight(), is(0));
+        }
+
+        // 有空闲名额时在调用线程上直接发起，其余排队的请求都由派发线程发起
+        assertThat(startThreads.get(0), is(Thread.currentThread().getName()));
+        for (int i = 1; i < REQUESTS; i++) {
+            assertThat(startThreads.get(i), startsWith("es-async-dispatch-"));
+        }
+    }
+}
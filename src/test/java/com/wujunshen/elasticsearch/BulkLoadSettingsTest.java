@@ -0,0 +1,138 @@
+package com.wujunshen.elasticsearch;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.elasticsearch.indices.TranslogDurability;
+import com.wujunshen.elasticsearch.bulk.BulkResult;
+import com.wujunshen.entity.product.Spu;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Resource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestClassOrder;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+
+/**
+ * 验证批量写入设置的生效、成功和失败后的恢复以及结束后的refresh
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/19 10:00<br>
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestClassOrder(ClassOrderer.OrderAnnotation.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Order(220)
+class BulkLoadSettingsTest extends MockElasticsearchTests {
+    private static final String INDEX_NAME = "mock-bulk-load";
+
+    private static final String DEFAULTS_INDEX_NAME = "mock-bulk-load-defaults";
+
+    private static final String ALIAS = "mock-bulk-load-alias";
+
+    @Resource
+    private ElasticsearchClient elasticsearchClient;
+
+    @Resource
+    private IndexApi indexApi;
+
+    @Resource
+    private DocumentApi documentApi;
+
+    @BeforeAll
+    void setUp() throws IOException {
+        indexApi.createIndex(INDEX_NAME);
+        elasticsearchClient.indices().putSettings(p -> p.index(INDEX_NAME)
+                .settings(s -> s.numberOfReplicas("2").refreshInterval(t -> t.time("5s"))));
+    }
+
+    @Order(1)
+    @Test
+    void applyAndRestore() throws IOException {
+        List<Spu> spus = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            spus.add(Spu.builder().id(id).productName("bike " + id).build());
+        }
+
+        BulkResult result = indexApi.withBulkLoadSettings(INDEX_NAME, () -> {
+            IndexSettings loading = settings(INDEX_NAME);
+            assertThat(loading.numberOfReplicas(), is("0"));
+            assertThat(loading.refreshInterval().time(), is("-1"));
+            assertThat(loading.translog().durability(), is(TranslogDurability.Async));
+
+            return documentApi.batchAddDocument(INDEX_NAME, spus);
+        });
+
+        assertThat(result.getSuccessCount(), is(50L));
+        assertThat(SERVER.getLastRequestUri().getPath(), is("/" + INDEX_NAME + "/_refresh"));
+        assertRestored();
+    }
+
+    @Order(2)
+    @Test
+    void restoreOnFailure() {
+        IOException e = assertThrows(IOException.class, () -> indexApi.withBulkLoadSettings(INDEX_NAME, () -> {
+            throw new IOException("bulk failed");
+        }));
+
+        assertThat(e.getMessage(), is("bulk failed"));
+        assertRestored();
+    }
+
+    @Order(3)
+    @Test
+    void rejectNested() throws IOException {
+        indexApi.withBulkLoadSettings(INDEX_NAME, () -> assertThrows(IllegalStateException.class,
+                () -> indexApi.withBulkLoadSettings(INDEX_NAME, () -> null)));
+
+        assertRestored();
+    }
+
+    @Order(4)
+    @Test
+    void aliasAndUnsetSettings() throws IOException {
+        indexApi.createIndex(DEFAULTS_INDEX_NAME);
+        elasticsearchClient.indices().updateAliases(u -> u.actions(a -> a.add(add -> add
+                .index(DEFAULTS_INDEX_NAME).alias(ALIAS))));
+
+        indexApi.withBulkLoadSettings(ALIAS, () -> {
+            assertThat(settings(DEFAULTS_INDEX_NAME).refreshInterval().time(), is("-1"));
+            return null;
+        });
+
+        // 原来没有显式设置的refresh_interval和translog写回null，恢复为es默认值而不是显式的值
+        IndexSettings restored = settings(DEFAULTS_INDEX_NAME);
+        assertThat(restored.numberOfReplicas(), is("1"));
+        assertThat(restored.refreshInterval(), nullValue());
+        assertThat(restored.translog(), nullValue());
+    }
+
+    private void assertRestored() {
+        IndexSettings restored = settings(INDEX_NAME);
+        assertThat(restored.numberOfReplicas(), is("2"));
+        assertThat(restored.refreshInterval().time(), is("5s"));
+        // translog原来没有显式设置，恢复后仍然没有
+        assertThat(restored.translog(), nullValue());
+    }
+
+    private IndexSettings settings(String indexName) {
+        try {
+            return elasticsearchClient.indices().getSettings(g -> g.index(indexName))
+                    .get(indexName).settings().index();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
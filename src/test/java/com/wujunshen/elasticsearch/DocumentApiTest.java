@@ -2,19 +2,29 @@ package com.wujunshen.elasticsearch;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
 
 import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import co.elastic.clients.elasticsearch.core.DeleteResponse;
 import co.elastic.clients.elasticsearch.core.GetResponse;
 import co.elastic.clients.elasticsearch.core.IndexResponse;
 import co.elastic.clients.elasticsearch.core.UpdateResponse;
+import co.elastic.clients.json.JsonData;
 import com.wujunshen.ApplicationTests;
 import com.wujunshen.config.ElasticSearchConfigProperties;
+import com.wujunshen.elasticsearch.bulk.BulkIngester;
+import com.wujunshen.elasticsearch.bulk.BulkResult;
+import com.wujunshen.elasticsearch.task.TaskProgress;
 import com.wujunshen.entity.product.Sku;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 import javax.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.AfterAll;
@@ -47,6 +57,9 @@ class DocumentApiTest extends ApplicationTests {
     @Resource
     private DocumentApi documentApi;
 
+    @Resource
+    private BulkIngester bulkIngester;
+
     private Sku sku;
 
     private Sku updateSku;
@@ -165,11 +178,32 @@ class DocumentApiTest extends ApplicationTests {
     @Order(50)
     @Test
     void batchAddDocument() throws IOException {
-        boolean result = documentApi.batchAddDocument(indexName, skuList);
+        BulkResult result = documentApi.batchAddDocument(indexName, skuList);
 
         log.info("batch insert operation: {}", result);
 
-        assertThat(result, is(true));
+        assertThat(result.isSuccess(), is(true));
+        assertThat(result.getSuccessCount(), equalTo((long) skuList.size()));
+    }
+
+    /**
+     * 遍历所有文档
+     */
+    @Order(53)
+    @Test
+    void streamAllDocument() throws IOException {
+        documentApi.batchAddDocument(indexName, skuList);
+        indexApi.refresh(indexName);
+
+        long count;
+        try (Stream<Sku> stream = documentApi.streamAllDocument(indexName, Sku.class)) {
+            count = stream.count();
+        }
+
+        log.info("document count: {}", count);
+
+        assertThat(count, greaterThanOrEqualTo((long) skuList.size()));
+        assertThat(documentApi.getAllDocumentIds(indexName, Sku.class), hasSize((int) count));
     }
 
     /**
@@ -188,6 +222,26 @@ class DocumentApiTest extends ApplicationTests {
         assertThat(result, is(true));
     }
 
+    /**
+     * 按条件删除文档
+     */
+    @Order(56)
+    @Test
+    void deleteByQuery() throws IOException {
+        documentApi.batchAddDocument(indexName, skuList);
+        indexApi.refresh(indexName);
+
+        List<TaskProgress> progresses = new ArrayList<>();
+        TaskProgress progress = documentApi.deleteByQuery(
+                indexName, Query.of(q -> q.range(r -> r.field("skuPrice").gte(JsonData.of(0)))), 2, 1000,
+                progresses::add);
+
+        log.info("delete by query progress: {}", progress);
+
+        assertThat(progress.isSuccess(), is(true));
+        assertThat(progresses, not(empty()));
+    }
+
     /**
      * 批量文档删除
      */
@@ -199,11 +253,35 @@ class DocumentApiTest extends ApplicationTests {
 
         List<String> ids = skuList.stream().map(e -> String.valueOf(e.getId())).toList();
 
-        boolean result = documentApi.batchDeleteDocument(indexName, ids);
+        BulkResult result = documentApi.batchDeleteDocument(indexName, ids);
 
         log.info("batch insert operation: {}", result);
 
-        assertThat(result, is(true));
+        assertThat(result.isSuccess(), is(true));
+        assertThat(result.getFailures(), hasSize(0));
+    }
+
+    /**
+     * 批量写入器逐条写入文档
+     */
+    @Order(52)
+    @Test
+    void bulkIngester() throws IOException {
+        long failedCount = bulkIngester.getFailedCount();
+        BulkIngester.Session session = bulkIngester.session();
+
+        for (Sku element : skuList) {
+            session.add(indexName, String.valueOf(element.getId()), element);
+        }
+        // flush是异步发送，等会话中的操作全部完成后再检查结果
+        BulkResult result = session.await();
+
+        log.info("bulk ingester flushes: {}, operations: {}",
+                bulkIngester.getFlushCount(), bulkIngester.getOperationCount());
+
+        assertThat(result.isSuccess(), is(true));
+        assertThat(result.getSuccessCount(), equalTo((long) skuList.size()));
+        assertThat(bulkIngester.getFailedCount(), equalTo(failedCount));
     }
 
     private List<Sku> bulkWriteSkus() {
@@ -0,0 +1,131 @@
+package com.wujunshen.elasticsearch;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import com.wujunshen.elasticsearch.cache.DocumentNearCache;
+import com.wujunshen.entity.product.Spu;
+import java.io.IOException;
+import javax.annotation.Resource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestClassOrder;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+
+/**
+ * 验证文档近端缓存的命中、本进程写入失效、按_seq_no和_primary_term的校验以及别名与实际索引共用条目
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 22:10<br>
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestClassOrder(ClassOrderer.OrderAnnotation.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Order(180)
+class DocumentNearCacheTest extends MockElasticsearchTests {
+    private static final String INDEX_NAME = "mock-near-cache";
+
+    private static final String ALIAS = "mock-near-cache-alias";
+
+    @Resource
+    private ElasticsearchClient elasticsearchClient;
+
+    @Resource
+    private DocumentApi documentApi;
+
+    @Resource
+    private QueryApi queryApi;
+
+    @Resource
+    private DocumentNearCache documentNearCache;
+
+    @BeforeAll
+    void setUp() throws IOException {
+        documentApi.addDocument(INDEX_NAME, "1", spu("bike"));
+    }
+
+    @Order(1)
+    @Test
+    void hit() throws IOException {
+        Spu first = documentApi.getDocument(INDEX_NAME, "1", Spu.class).source();
+        long requests = SERVER.getRequestCount();
+
+        // 修改返回的对象不影响缓存
+        first.setProductName("changed");
+
+        assertThat(documentApi.getDocument(INDEX_NAME, "1", Spu.class).source().getProductName(), is("bike"));
+        assertThat(queryApi.searchById(INDEX_NAME, "1", Spu.class).source().getProductName(), is("bike"));
+        assertThat(SERVER.getRequestCount(), is(requests));
+    }
+
+    @Order(2)
+    @Test
+    void invalidateOnLocalWrite() throws IOException {
+        documentApi.getDocument(INDEX_NAME, "1", Spu.class);
+        documentApi.addDocument(INDEX_NAME, "1", spu("red bike"));
+
+        assertThat(documentApi.getDocument(INDEX_NAME, "1", Spu.class).source().getProductName(), is("red bike"));
+
+        documentApi.deleteDocument(INDEX_NAME, "1");
+
+        assertThat(documentApi.getDocument(INDEX_NAME, "1", Spu.class).found(), is(false));
+    }
+
+    @Order(3)
+    @Test
+    void revalidate() throws Exception {
+        documentApi.addDocument(INDEX_NAME, "2", spu("car"));
+        documentApi.getDocument(INDEX_NAME, "2", Spu.class);
+
+        // 没有变化时只取元数据
+        Thread.sleep(NEAR_CACHE_MAX_STALENESS * 2);
+        long unchanged = documentNearCache.getRevalidatedUnchangedCount();
+        assertThat(documentApi.getDocument(INDEX_NAME, "2", Spu.class).source().getProductName(), is("car"));
+        assertThat(documentNearCache.getRevalidatedUnchangedCount(), is(unchanged + 1));
+        assertThat(SERVER.getLastRequestUri().getQuery(), containsString("_source=false"));
+
+        // 绕过DocumentApi写入，近端缓存不知道
+        elasticsearchClient.index(i -> i.index(INDEX_NAME).id("2").document(spu("red car")));
+        assertThat(documentApi.getDocument(INDEX_NAME, "2", Spu.class).source().getProductName(), is("car"));
+
+        Thread.sleep(NEAR_CACHE_MAX_STALENESS * 2);
+        long changed = documentNearCache.getRevalidatedChangedCount();
+        assertThat(documentApi.getDocument(INDEX_NAME, "2", Spu.class).source().getProductName(), is("red car"));
+        assertThat(documentNearCache.getRevalidatedChangedCount(), is(changed + 1));
+    }
+
+    @Order(4)
+    @Test
+    void aliasSharesEntries() throws IOException {
+        documentApi.addDocument(INDEX_NAME, "3", spu("boat"));
+        elasticsearchClient.indices().updateAliases(u -> u.actions(a -> a.add(add -> add
+                .index(INDEX_NAME).alias(ALIAS))));
+
+        // 通过别名读取后，通过实际索引名读取命中同一个条目
+        assertThat(documentApi.getDocument(ALIAS, "3", Spu.class).source().getProductName(), is("boat"));
+        long requests = SERVER.getRequestCount();
+        assertThat(documentApi.getDocument(INDEX_NAME, "3", Spu.class).source().getProductName(), is("boat"));
+        assertThat(SERVER.getRequestCount(), is(requests));
+
+        // 通过实际索引名写入，通过别名读取不会拿到旧内容
+        documentApi.addDocument(INDEX_NAME, "3", spu("red boat"));
+        assertThat(documentApi.getDocument(ALIAS, "3", Spu.class).source().getProductName(), is("red boat"));
+
+        // 按别名使整个索引失效
+        documentNearCache.invalidate(ALIAS);
+        requests = SERVER.getRequestCount();
+        documentApi.getDocument(INDEX_NAME, "3", Spu.class);
+        assertThat(SERVER.getRequestCount(), is(requests + 1));
+    }
+
+    private static Spu spu(String productName) {
+        return Spu.builder().id(1L).productName(productName).build();
+    }
+}
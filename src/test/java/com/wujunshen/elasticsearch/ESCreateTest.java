@@ -13,6 +13,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.wujunshen.ApplicationTests;
 import com.wujunshen.config.ElasticSearchConfigProperties;
+import com.wujunshen.elasticsearch.bulk.BulkResult;
 import com.wujunshen.entity.product.Sku;
 import com.wujunshen.entity.product.Spu;
 import java.io.IOException;
@@ -242,10 +243,10 @@ public class ESCreateTest extends ApplicationTests {
     @Order(40)
     @Test
     public void operateBatchData() throws IOException {
-        boolean result = documentApi.batchAddDocument(indexName, spuList);
+        BulkResult result = documentApi.batchAddDocument(indexName, spuList);
 
         log.info("batch insert operation: {}", result);
 
-        assertThat(result, is(true));
+        assertThat(result.isSuccess(), is(true));
     }
 }
@@ -0,0 +1,123 @@
+package com.wujunshen.elasticsearch;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.wujunshen.elasticsearch.search.Projection;
+import com.wujunshen.elasticsearch.search.QueryContext;
+import com.wujunshen.elasticsearch.search.SearchSpec;
+import com.wujunshen.entity.product.Spu;
+import java.io.IOException;
+import java.util.List;
+import javax.annotation.Resource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestClassOrder;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+
+/**
+ * 验证精确匹配和范围条件按filter上下文生成请求
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 19:20<br>
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestClassOrder(ClassOrderer.OrderAnnotation.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Order(150)
+class FilterContextTest extends MockElasticsearchTests {
+    private static final String INDEX_NAME = "mock-filter";
+
+    @Resource
+    private DocumentApi documentApi;
+
+    @Resource
+    private QueryApi queryApi;
+
+    @Resource
+    private AsyncQueryApi asyncQueryApi;
+
+    @BeforeAll
+    void setUp() throws IOException {
+        for (long id = 1; id <= 3; id++) {
+            documentApi.addDocument(INDEX_NAME, String.valueOf(id),
+                    Spu.builder().id(id).productName("bike " + id).brandCode("B-1").build());
+        }
+    }
+
+    @Order(1)
+    @Test
+    void termAndRange() throws IOException {
+        queryApi.termQuery(INDEX_NAME, "B-1", "brandCode", "id", 0, 10, false, QueryContext.FILTER, Spu.class);
+
+        JsonNode body = SERVER.getLastSearchRequest();
+        assertThat(body.at("/query/bool/filter/0/term/brandCode/value").asText(), is("B-1"));
+        assertThat(body.at("/query/bool/must").isMissingNode(), is(true));
+
+        asyncQueryApi.rangeQuery(INDEX_NAME, "1", "2", "id", "id", 0, 10, false, QueryContext.FILTER, Spu.class)
+                .join();
+
+        body = SERVER.getLastSearchRequest();
+        assertThat(body.at("/query/bool/filter/0/range/id/from").asText(), is("1"));
+
+        queryApi.termQuery(INDEX_NAME, "B-1", "brandCode", "id", 0, 10, false, QueryContext.SCORING, Spu.class);
+
+        assertThat(SERVER.getLastSearchRequest().at("/query/term/brandCode/value").asText(), is("B-1"));
+    }
+
+    @Order(2)
+    @Test
+    void mustAndFilter() throws IOException {
+        List<Spu> spus = queryApi.boolQuery(INDEX_NAME,
+                List.of(Query.of(q -> q.match(m -> m.field("productName").query("bike")))),
+                List.of(Query.of(q -> q.term(t -> t.field("brandCode").value("B-1")))),
+                "id", 0, 10, false, Spu.class);
+
+        assertThat(spus.size(), is(3));
+        JsonNode body = SERVER.getLastSearchRequest();
+        assertThat(body.at("/query/bool/must/0/match/productName/query").asText(), is("bike"));
+        assertThat(body.at("/query/bool/filter/0/term/brandCode/value").asText(), is("B-1"));
+    }
+
+    @Order(3)
+    @Test
+    void filterOnly() throws IOException {
+        // 降序排序，和termAndRange中的filter查询不是同一个请求，不会命中结果缓存
+        List<Spu> spus = queryApi.boolQuery(INDEX_NAME, List.of(),
+                List.of(Query.of(q -> q.term(t -> t.field("brandCode").value("B-1")))),
+                "id", 0, 10, true, Spu.class);
+
+        assertThat(spus.size(), is(3));
+        JsonNode body = SERVER.getLastSearchRequest();
+        assertThat(body.at("/query/bool/must").isMissingNode(), is(true));
+        assertThat(body.at("/query/bool/filter/0/term/brandCode/value").asText(), is("B-1"));
+        assertThat(body.at("/track_scores").isMissingNode(), is(true));
+    }
+
+    @Order(4)
+    @Test
+    void filterWithProjection() throws IOException {
+        SearchSpec spec = QueryRequests.termQuery(
+                        INDEX_NAME, "B-1", "brandCode", "id", 0, 5, false, QueryContext.FILTER)
+                .project(Projection.includes("productName"));
+        List<Spu> spus = queryApi.search(spec, Spu.class);
+
+        assertThat(spus.size(), is(3));
+        assertThat(spus.get(0).getBrandCode(), nullValue());
+        JsonNode body = SERVER.getLastSearchRequest();
+        assertThat(body.at("/query/bool/filter/0/term/brandCode/value").asText(), is("B-1"));
+        assertThat(body.at("/_source/includes/0").asText(), is("productName"));
+
+        spus = asyncQueryApi.search(spec, Spu.class).join();
+
+        assertThat(spus.get(0).getProductName().startsWith("bike"), is(true));
+    }
+}
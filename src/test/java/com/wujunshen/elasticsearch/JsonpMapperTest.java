@@ -0,0 +1,143 @@
+package com.wujunshen.elasticsearch;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.JsonpDeserializer;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.wujunshen.elasticsearch.json.CachingJacksonJsonpMapper;
+import com.wujunshen.entity.product.Sku;
+import com.wujunshen.entity.product.Spu;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonParser;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+import javax.annotation.Resource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestClassOrder;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+
+/**
+ * 验证CachingJacksonJsonpMapper与JacksonJsonpMapper的结果一致
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 15:50<br>
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestClassOrder(ClassOrderer.OrderAnnotation.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Order(120)
+class JsonpMapperTest extends MockElasticsearchTests {
+    private static final String INDEX_NAME = "mock-mapper";
+
+    @Resource
+    private ElasticsearchClient elasticsearchClient;
+
+    @Resource
+    private DocumentApi documentApi;
+
+    @Resource
+    private QueryApi queryApi;
+
+    @BeforeEach
+    void setUp() {
+        SERVER.reset();
+    }
+
+    @Order(1)
+    @Test
+    void serializeSameAsJackson() {
+        Spu spu = spu(1);
+        // null字段不输出
+        spu.setImageTag(null);
+
+        assertThat(toJson(new CachingJacksonJsonpMapper(), spu), is(toJson(new JacksonJsonpMapper(), spu)));
+    }
+
+    @Order(2)
+    @Test
+    void deserializeSameAsJackson() {
+        JsonpMapper jacksonMapper = new JacksonJsonpMapper();
+        String body = "{\"took\":1,\"timed_out\":false,"
+                + "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},"
+                + "\"hits\":{\"total\":{\"value\":2,\"relation\":\"eq\"},\"max_score\":1.0,\"hits\":["
+                + hit(jacksonMapper, spu(1)) + "," + hit(jacksonMapper, spu(2)) + "]}}";
+
+        assertThat(sources(new CachingJacksonJsonpMapper(), body), is(sources(jacksonMapper, body)));
+    }
+
+    @Order(3)
+    @Test
+    void clientRoundTrip() throws IOException {
+        assertThat(elasticsearchClient._transport().jsonpMapper(), instanceOf(CachingJacksonJsonpMapper.class));
+
+        List<Spu> spus = IntStream.rangeClosed(1, 5).mapToObj(JsonpMapperTest::spu).toList();
+        for (Spu spu : spus) {
+            documentApi.addDocument(INDEX_NAME, String.valueOf(spu.getId()), spu);
+        }
+
+        assertThat(documentApi.getDocument(INDEX_NAME, "3", Spu.class).source(), is(spus.get(2)));
+        List<Spu> hits = queryApi.matchAllQuery(INDEX_NAME, "id", 0, 10, false, Spu.class).stream()
+                .sorted(Comparator.comparing(Spu::getId))
+                .toList();
+        assertThat(hits, is(spus));
+    }
+
+    private static Spu spu(long id) {
+        return Spu.builder()
+                .id(id)
+                .productCode("P-" + id)
+                .productName("bike " + id)
+                .brandCode("B-1")
+                .brandName("brand")
+                .categoryCode("C-1")
+                .categoryName("bikes")
+                .imageTag("image-" + id)
+                .skus(List.of(
+                        Sku.builder().id(id * 10).skuCode("S-" + id).skuName("red bike")
+                                .color("red").size("M").skuPrice(100).build(),
+                        Sku.builder().id(id * 10 + 1).skuCode("S-" + id).skuName("blue bike")
+                                .color("blue").size("L").skuPrice(120).build()))
+                .build();
+    }
+
+    private static String hit(JsonpMapper mapper, Spu spu) {
+        return "{\"_index\":\"" + INDEX_NAME + "\",\"_id\":\"" + spu.getId() + "\",\"_score\":1.0,\"_source\":"
+                + toJson(mapper, spu) + "}";
+    }
+
+    private static String toJson(JsonpMapper mapper, Object value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = mapper.jsonProvider().createGenerator(out)) {
+            mapper.serialize(value, generator);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static List<Spu> sources(JsonpMapper mapper, String body) {
+        JsonpDeserializer<SearchResponse<Spu>> deserializer =
+                SearchResponse.createSearchResponseDeserializer(JsonpDeserializer.of(Spu.class));
+        try (JsonParser parser = mapper.jsonProvider()
+                .createParser(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)))) {
+            return deserializer.deserialize(parser, mapper).hits().hits().stream()
+                    .map(Hit::source)
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.wujunshen.elasticsearch;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * 闭环压测工具，固定数量的并发线程各自循环发请求，直到完成指定的总请求数
+ * <p>
+ * 每个请求的耗时都会记录下来，结束后计算吞吐量和延迟分位数
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 09:40<br>
+ */
+@Slf4j
+public final class LoadGenerator {
+    private LoadGenerator() {
+    }
+
+    /**
+     * 压测中执行的单次操作
+     */
+    @FunctionalInterface
+    public interface Operation {
+        /**
+         * @param sequence 请求序号，从0开始，可用于生成文档id
+         * @throws Exception 抛出异常时计为失败
+         */
+        void run(int sequence) throws Exception;
+    }
+
+    /**
+     * 执行压测
+     *
+     * @param name        压测名称，用于日志
+     * @param concurrency 并发线程数
+     * @param operations  总请求数
+     * @param operation   单次操作
+     * @return 压测结果
+     * @throws InterruptedException 等待压测结束时被中断
+     */
+    public static LoadReport run(String name, int concurrency, int operations, Operation operation)
+            throws InterruptedException {
+        long[] latencies = new long[operations];
+        AtomicInteger sequence = new AtomicInteger();
+        LongAdder errors = new LongAdder();
+        CountDownLatch done = new CountDownLatch(concurrency);
+
+        ExecutorService executorService =
+                Executors.newFixedThreadPool(concurrency, new CustomizableThreadFactory("load-" + name + "-"));
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < concurrency; i++) {
+                executorService.execute(() -> {
+                    try {
+                        int current;
+                        while ((current = sequence.getAndIncrement()) < operations) {
+                            long begin = System.nanoTime();
+                            try {
+                                operation.run(current);
+                            } catch (Exception e) {
+                                errors.increment();
+                                log.debug("load {} operation {} failed", name, current, e);
+                            }
+                            latencies[current] = System.nanoTime() - begin;
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+        } finally {
+            executorService.shutdownNow();
+            executorService.awaitTermination(1, TimeUnit.SECONDS);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        LoadReport report = new LoadReport(
+                name,
+                concurrency,
+                operations,
+                errors.sum(),
+                TimeUnit.NANOSECONDS.toMillis(elapsed),
+                operations * 1_000_000_000.0 / elapsed,
+                percentileMillis(latencies, 0.5),
+                percentileMillis(latencies, 0.99),
+                percentileMillis(latencies, 1.0));
+        log.info("{}", report);
+
+        return report;
+    }
+
+    private static double percentileMillis(long[] sortedLatencies, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    /**
+     * 压测结果
+     */
+    @Value
+    public static class LoadReport {
+        String name;
+
+        int concurrency;
+
+        int operations;
+
+        /**
+         * 失败的请求数
+         */
+        long errors;
+
+        long elapsedMillis;
+
+        /**
+         * 每秒完成的请求数
+         */
+        double throughput;
+
+        double p50Millis;
+
+        double p99Millis;
+
+        double maxMillis;
+    }
+}
@@ -0,0 +1,274 @@
+package com.wujunshen.elasticsearch;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import com.wujunshen.elasticsearch.bulk.BulkFailure;
+import com.wujunshen.elasticsearch.bulk.BulkIngester;
+import com.wujunshen.elasticsearch.bulk.BulkResult;
+import com.wujunshen.elasticsearch.bulk.BulkRetryPolicy;
+import com.wujunshen.elasticsearch.metrics.ConnectionPoolMetrics;
+import com.wujunshen.entity.product.Sku;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Resource;
+import javax.net.ssl.SSLContext;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.elasticsearch.client.ResponseException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestClassOrder;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+
+/**
+ * 把客户端指向MockElasticsearchServer做压测，不需要真实的es集群
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 10:05<br>
+ */
+@Slf4j
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestClassOrder(ClassOrderer.OrderAnnotation.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Order(100)
+class MockElasticsearchLoadTest extends MockElasticsearchTests {
+    private static final String INDEX_NAME = "mock-load";
+
+    @Resource
+    private ElasticsearchClient elasticsearchClient;
+
+    @Resource
+    private DocumentApi documentApi;
+
+    @Resource
+    private QueryApi queryApi;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private ConnectionPoolMetrics connectionPoolMetrics;
+
+    @BeforeEach
+    void setUp() {
+        SERVER.reset();
+    }
+
+    @Order(1)
+    @Test
+    void poolSaturation() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            documentApi.addDocument(INDEX_NAME, String.valueOf(i), newSku(i));
+        }
+        SERVER.setLatency(5);
+
+        // 直接用客户端读取，DocumentApi.getDocument会经过近端缓存和mget合并
+        LoadGenerator.LoadReport report = LoadGenerator.run("get", MAX_CONNECTIONS * 4, 2000,
+                i -> get(String.valueOf(i % 100)));
+
+        assertThat(report.getErrors(), is(0L));
+        // 并发线程数是连接数的4倍，同时到达服务端的请求数不会超过连接池大小
+        assertThat(SERVER.getMaxInFlight(), lessThanOrEqualTo(MAX_CONNECTIONS));
+        assertThat(SERVER.getMaxInFlight(), greaterThan(1));
+    }
+
+    @Order(2)
+    @Test
+    void bulkRetriesRejectedItems() throws Exception {
+        SERVER.setBulkItemRejectionRate(0.2);
+        List<Sku> skus = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            skus.add(newSku(i));
+        }
+
+        BulkResult result = documentApi.batchAddDocument(INDEX_NAME, skus);
+        log.info("{}, server received {} bulk operations", result, SERVER.getBulkOperationCount());
+
+        assertThat(result.isSuccess(), is(true));
+        assertThat(result.getSuccessCount(), is(2000L));
+        assertThat(SERVER.getDocumentCount(INDEX_NAME), is(2000));
+        // 被拒绝的操作都重新提交过，服务端收到的操作数等于文档数加重试数
+        assertThat(result.getRetriedCount(), greaterThan(0L));
+        assertThat(SERVER.getBulkOperationCount(), is(2000L + result.getRetriedCount()));
+    }
+
+    @Order(3)
+    @Test
+    void injectedErrors() throws Exception {
+        documentApi.addDocument(INDEX_NAME, "1", newSku(1));
+        SERVER.setErrorRate(0.1);
+
+        LoadGenerator.LoadReport report = LoadGenerator.run("injectedErrors", MAX_CONNECTIONS, 1000,
+                i -> get("1"));
+
+        // 500不会在客户端重试，每个注入的错误都会抛给调用方
+        assertThat(report.getErrors(), is(SERVER.getErrorCount()));
+        assertThat(report.getErrors(), greaterThan(0L));
+    }
+
+    @Order(4)
+    @Test
+    void rejectedSearch() {
+        SERVER.setRejectionRate(1.0);
+
+        // 当前版本的transport不解析非2xx响应，429以低层客户端的ResponseException抛出
+        ResponseException exception = assertThrows(ResponseException.class,
+                () -> queryApi.matchAllQuery(INDEX_NAME, "id", 0, 10, false, Sku.class));
+
+        assertThat(exception.getResponse().getStatusLine().getStatusCode(), is(429));
+        assertThat(SERVER.getRejectedCount(), is(1L));
+    }
+
+    @Order(5)
+    @Test
+    void metrics() throws Exception {
+        List<Sku> skus = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            skus.add(newSku(i));
+        }
+        documentApi.batchAddDocument(INDEX_NAME, skus);
+        SERVER.setErrorRate(1.0);
+        assertThrows(ResponseException.class, () -> get("1"));
+
+        Timer bulkTimer = meterRegistry.get("elasticsearch.client.requests")
+                .tag("endpoint", "bulk")
+                .tag("outcome", "success")
+                .timer();
+        assertThat(bulkTimer.count(), greaterThan(0L));
+        assertThat(meterRegistry.get("elasticsearch.client.took").tag("endpoint", "bulk").timer().count(),
+                is(bulkTimer.count()));
+        assertThat(meterRegistry.get("elasticsearch.client.bulk.items")
+                .tag("endpoint", "bulk")
+                .tag("result", "success")
+                .counter()
+                .count(), greaterThanOrEqualTo(100.0));
+        assertThat(meterRegistry.get("elasticsearch.client.errors")
+                .tag("endpoint", "get")
+                .tag("exception", "ResponseException")
+                .tag("status", "500")
+                .counter()
+                .count(), greaterThanOrEqualTo(1.0));
+        assertThat(meterRegistry.get("elasticsearch.client.request.size").summary().totalAmount(), greaterThan(0.0));
+        assertThat(meterRegistry.get("elasticsearch.client.response.size").summary().totalAmount(), greaterThan(0.0));
+        assertThat(meterRegistry.get("elasticsearch.client.pool.max").gauge().value(), is((double) MAX_CONNECTIONS));
+        assertThat(meterRegistry.get("elasticsearch.client.pool.leased").gauge().value(), is(0.0));
+    }
+
+    @Order(6)
+    @Test
+    void bulkRetriesExhausted() throws Exception {
+        SERVER.setBulkItemRejectionRate(1.0);
+
+        BulkResult result;
+        try (BulkIngester bulkIngester =
+                     new BulkIngester(elasticsearchClient, 10, 1024 * 1024, 0, 2, new BulkRetryPolicy(2, 1, 5))) {
+            BulkIngester.Session session = bulkIngester.session();
+            for (int i = 0; i < 20; i++) {
+                session.add(INDEX_NAME, "exhausted-" + i, newSku(i));
+            }
+            result = session.await();
+        }
+
+        // 重试次数用完的操作保留服务端最后一次返回的错误
+        assertThat(result.getFailedCount(), is(20L));
+        assertThat(result.getRetriedCount(), is(40L));
+        for (BulkFailure failure : result.getFailures()) {
+            assertThat(failure.getStatus(), is(429));
+            assertThat(failure.getType(), is("es_rejected_execution_exception"));
+        }
+    }
+
+    @Order(7)
+    @Test
+    void bulkRequestsStayUnderMaxSize() throws Exception {
+        int maxSize = 8 * 1024;
+
+        BulkResult result;
+        try (BulkIngester bulkIngester =
+                     new BulkIngester(elasticsearchClient, 1000, maxSize, 0, 1, BulkRetryPolicy.noRetry())) {
+            BulkIngester.Session session = bulkIngester.session();
+            for (int i = 0; i < 500; i++) {
+                Sku sku = newSku(i);
+                // 少量大文档混在小文档中，每个操作的字节数都要按实际大小计算
+                if (i % 50 == 25) {
+                    sku.setSkuName("large sku " + "x".repeat(3000));
+                }
+                session.add(INDEX_NAME, "size-" + i, sku);
+            }
+            result = session.await();
+        }
+
+        assertThat(result.getSuccessCount(), is(500L));
+        assertThat(SERVER.getDocumentCount(INDEX_NAME), is(500));
+        assertThat(SERVER.getMaxBulkRequestBytes(), lessThanOrEqualTo((long) maxSize));
+        assertThat(SERVER.getMaxBulkRequestBytes(), greaterThan(maxSize / 2L));
+    }
+
+    @Order(8)
+    @Test
+    void retriesHoldInFlightPermit() throws Exception {
+        SERVER.setBulkItemRejectionRate(1.0);
+        long backoff = 300;
+        BulkRetryPolicy retryPolicy = new BulkRetryPolicy(1, backoff, backoff) {
+            @Override
+            public long backoffMillis(int attempt) {
+                return backoff;
+            }
+        };
+
+        BulkResult result;
+        long elapsed;
+        try (BulkIngester bulkIngester = new BulkIngester(elasticsearchClient, 10, 1024 * 1024, 0, 1, retryPolicy)) {
+            BulkIngester.Session session = bulkIngester.session();
+            long start = System.nanoTime();
+            for (int i = 0; i < 20; i++) {
+                session.add(INDEX_NAME, "permit-" + i, newSku(i));
+            }
+            // 第一批在退避等待重试期间仍占用唯一的在途许可，第二批要等它得到最终结果才能发送
+            elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            result = session.await();
+        }
+
+        assertThat(elapsed, greaterThanOrEqualTo(backoff));
+        assertThat(result.getFailedCount(), is(20L));
+        assertThat(result.getRetriedCount(), is(20L));
+    }
+
+    @Order(9)
+    @Test
+    void poolMetricsBindOneConnectionManager() throws Exception {
+        // 指标已经绑定到客户端的连接池，再创建连接池会让指标悄悄换成另一个池
+        assertThrows(IllegalStateException.class, () -> connectionPoolMetrics.createConnectionManager(
+                MAX_CONNECTIONS, MAX_CONNECTIONS, SSLContext.getDefault(), IOReactorConfig.DEFAULT));
+    }
+
+    private void get(String id) throws IOException {
+        elasticsearchClient.get(g -> g.index(INDEX_NAME).id(id), Sku.class);
+    }
+
+    private static Sku newSku(int i) {
+        return Sku.builder()
+                .id((long) i)
+                .skuCode("sku-" + i)
+                .skuName("mock sku " + i)
+                .color("red")
+                .size("M")
+                .skuPrice(i)
+                .build();
+    }
+}
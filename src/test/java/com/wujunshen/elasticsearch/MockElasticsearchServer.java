@@ -0,0 +1,1088 @@
+package com.wujunshen.elasticsearch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 进程内的es模拟服务，用于在没有集群的环境下做压测和延迟测试
+ * <p>
+ * 文档保存在内存中，支持_doc、_bulk、_search、_msearch、_mget、_pit、_cat/nodes、_cat/indices以及索引的创建、删除和判断是否存在。
+ * point-in-time打开时按写入顺序保存索引的快照，带pit的_search支持search_after和按文档id哈希的slice。
+ * 支持指向单个索引的别名、索引的number_of_replicas和refresh_interval设置，_reindex立即完成并通过_tasks返回结果，
+ * wait_for_completion=false的_forcemerge在第二次查询_tasks时完成。
+ * _search不解析查询条件，按写入顺序返回索引中的前size条文档，
+ * 支持按顶层字段名过滤_source(不支持通配符和嵌套路径)，docvalue_fields/fields按点号分隔的路径返回。
+ * 可以配置固定延迟、随机抖动、500错误率、整个请求的429拒绝率和bulk单条操作的429拒绝率，运行中修改立即生效
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 09:10<br>
+ */
+@Slf4j
+public class MockElasticsearchServer implements Closeable {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final int DEFAULT_SEARCH_SIZE = 10;
+
+    private static final String NODE_NAME = "mock-node";
+
+    private final HttpServer server;
+
+    private final ExecutorService executorService;
+
+    private final ConcurrentMap<String, ConcurrentMap<String, StoredDocument>> indices = new ConcurrentHashMap<>();
+
+    private final AtomicLong seqNo = new AtomicLong();
+
+    /**
+     * 打开的point-in-time及其文档快照
+     */
+    private final ConcurrentMap<String, List<StoredDocument>> pits = new ConcurrentHashMap<>();
+
+    /**
+     * point-in-time对应的索引名
+     */
+    private final ConcurrentMap<String, String> pitIndices = new ConcurrentHashMap<>();
+
+    /**
+     * 别名及其指向的索引
+     */
+    private final ConcurrentMap<String, String> aliases = new ConcurrentHashMap<>();
+
+    /**
+     * 索引的设置，只保存index节点下的设置
+     */
+    private final ConcurrentMap<String, ObjectNode> settings = new ConcurrentHashMap<>();
+
+    /**
+     * 任务及其结果
+     */
+    private final ConcurrentMap<String, ObjectNode> tasks = new ConcurrentHashMap<>();
+
+    /**
+     * 按创建顺序记录的任务action
+     */
+    private final List<String> taskActions = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong taskId = new AtomicLong();
+
+    /**
+     * 每次请求固定增加的延迟，单位毫秒
+     */
+    @Setter
+    private volatile long latency;
+
+    /**
+     * 在固定延迟基础上增加的随机延迟上限，单位毫秒
+     */
+    @Setter
+    private volatile long jitter;
+
+    /**
+     * 返回500的请求比例，0到1之间
+     */
+    @Setter
+    private volatile double errorRate;
+
+    /**
+     * 整个请求返回429的比例，0到1之间
+     */
+    @Setter
+    private volatile double rejectionRate;
+
+    /**
+     * bulk中单条操作返回429的比例，0到1之间
+     */
+    @Setter
+    private volatile double bulkItemRejectionRate;
+
+    /**
+     * point-in-time查询是否模拟部分分片失败，为true时只返回一半的文档并在_shards中报告失败
+     */
+    @Setter
+    private volatile boolean pitShardFailure;
+
+    /**
+     * 收到的请求数
+     */
+    private final LongAdder requestCount = new LongAdder();
+
+    /**
+     * 返回500的请求数
+     */
+    private final LongAdder errorCount = new LongAdder();
+
+    /**
+     * 返回429的请求数和bulk单条操作数
+     */
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * bulk请求中收到的操作数，包括客户端重试的操作
+     */
+    private final LongAdder bulkOperationCount = new LongAdder();
+
+    /**
+     * 收到的最大bulk请求体字节数
+     */
+    private final AtomicLong maxBulkRequestBytes = new AtomicLong();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * 最近一次请求的请求头
+     */
+    @Getter
+    private volatile Headers lastRequestHeaders;
+
+    /**
+     * 最近一次请求的uri，包括查询参数
+     */
+    @Getter
+    private volatile URI lastRequestUri;
+
+    /**
+     * 最近一次_search请求或msearch子请求的请求体
+     */
+    @Getter
+    private volatile JsonNode lastSearchRequest;
+
+    /**
+     * 同时处理中的请求数峰值，可以看出客户端连接池的实际并发
+     */
+    @Getter
+    private volatile int maxInFlight;
+
+    /**
+     * 在随机端口启动模拟服务
+     *
+     * @param threads 处理请求的线程数，需大于客户端的最大连接数，否则测到的是模拟服务的瓶颈
+     * @throws IOException 异常信息
+     */
+    public MockElasticsearchServer(int threads) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        executorService = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executorService);
+        server.start();
+        log.info("mock elasticsearch server started at {}", getAddress());
+    }
+
+    /**
+     * @return ElasticSearchConfig中address格式的地址，如localhost:9200
+     */
+    public String getAddress() {
+        return "localhost:" + server.getAddress().getPort();
+    }
+
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public long getBulkOperationCount() {
+        return bulkOperationCount.sum();
+    }
+
+    public long getMaxBulkRequestBytes() {
+        return maxBulkRequestBytes.get();
+    }
+
+    /**
+     * @param indexName 索引名
+     * @return 索引中的文档数，索引不存在时返回0
+     */
+    public int getDocumentCount(String indexName) {
+        Map<String, StoredDocument> documents = indices.get(indexName);
+        return documents == null ? 0 : documents.size();
+    }
+
+    /**
+     * 清空数据、统计和故障配置
+     */
+    public void reset() {
+        indices.clear();
+        pits.clear();
+        pitIndices.clear();
+        aliases.clear();
+        settings.clear();
+        tasks.clear();
+        taskActions.clear();
+        resetFaults();
+        requestCount.reset();
+        errorCount.reset();
+        rejectedCount.reset();
+        bulkOperationCount.reset();
+        maxBulkRequestBytes.set(0);
+        lastRequestHeaders = null;
+        lastRequestUri = null;
+        lastSearchRequest = null;
+        maxInFlight = 0;
+    }
+
+    /**
+     * 清空延迟和故障配置，保留数据和统计
+     */
+    public void resetFaults() {
+        latency = 0;
+        jitter = 0;
+        errorRate = 0;
+        rejectionRate = 0;
+        bulkItemRejectionRate = 0;
+        pitShardFailure = false;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executorService.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.increment();
+        lastRequestHeaders = exchange.getRequestHeaders();
+        lastRequestUri = exchange.getRequestURI();
+        int current = inFlight.incrementAndGet();
+        if (current > maxInFlight) {
+            synchronized (this) {
+                maxInFlight = Math.max(maxInFlight, current);
+            }
+        }
+
+        Response response;
+        try {
+            delay();
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextDouble() < rejectionRate) {
+                rejectedCount.increment();
+                drain(exchange);
+                response = error("es_rejected_execution_exception", "rejected execution by mock server", 429);
+            } else if (random.nextDouble() < errorRate) {
+                errorCount.increment();
+                drain(exchange);
+                response = error("mock_exception", "error injected by mock server", 500);
+            } else {
+                response = route(exchange);
+            }
+        } catch (RuntimeException e) {
+            log.warn("mock elasticsearch server failed to handle {}", exchange.getRequestURI(), e);
+            response = error("mock_exception", String.valueOf(e.getMessage()), 500);
+        } finally {
+            // 发送响应前减计数，否则客户端复用连接发出的下一个请求可能与本请求重叠计数
+            inFlight.decrementAndGet();
+        }
+
+        try (exchange) {
+            send(exchange, response);
+        }
+    }
+
+    private void delay() {
+        long millis = latency;
+        if (jitter > 0) {
+            millis += ThreadLocalRandom.current().nextLong(jitter + 1);
+        }
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Response route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        // 去掉首尾的/后按/拆分，如products/_doc/1
+        String path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "");
+        String[] parts = path.isEmpty() ? new String[0] : path.split("/");
+        String last = parts.length == 0 ? "" : parts[parts.length - 1];
+        String indexName = parts.length > 1 ? resolveAlias(parts[0]) : null;
+
+        if ("_bulk".equals(last)) {
+            return new Response(200, bulk(exchange, indexName));
+        }
+        if ("_msearch".equals(last)) {
+            return new Response(200, msearch(exchange, indexName));
+        }
+        if ("_search".equals(last)) {
+            JsonNode request = readJson(exchange);
+            return request != null && request.has("pit")
+                    ? pitSearch(request)
+                    : new Response(200, search(indexName, request));
+        }
+        if ("_pit".equals(last)) {
+            return pit(method, indexName, readJson(exchange));
+        }
+        if ("_mget".equals(last)) {
+            return new Response(200, mget(readJson(exchange), indexName));
+        }
+        if (parts.length >= 2 && ("_doc".equals(parts[1]) || "_create".equals(parts[1]))) {
+            return document(exchange, method, indexName, parts.length > 2 ? parts[2] : null);
+        }
+        if ("_settings".equals(last)) {
+            return indexSettings(method, indexName, readJson(exchange));
+        }
+        if (parts.length >= 1 && "_alias".equals(parts[0])) {
+            drain(exchange);
+            return alias(method, last);
+        }
+        if ("_aliases".equals(last)) {
+            return updateAliases(readJson(exchange));
+        }
+        if ("_reindex".equals(last)) {
+            return reindex(readJson(exchange));
+        }
+        if (parts.length == 2 && "_tasks".equals(parts[0])) {
+            drain(exchange);
+            ObjectNode task = tasks.get(last);
+            if (task == null) {
+                return error("resource_not_found_exception", "task [" + last + "] isn't running", 404);
+            }
+            // 未完成的任务第一次查询时报告运行中，之后报告已完成
+            Response response = new Response(200, task.deepCopy());
+            task.put("completed", true);
+            return response;
+        }
+        if (parts.length == 1 && "PUT".equals(method)) {
+            return createIndex(parts[0], readJson(exchange));
+        }
+
+        drain(exchange);
+        if (parts.length == 0) {
+            return new Response(200, info());
+        }
+        if ("_cat".equals(parts[0])) {
+            return new Response(200, "nodes".equals(last) ? catNodes() : catIndices());
+        }
+        if ("_forcemerge".equals(last) && "false".equals(queryParameter(exchange, "wait_for_completion"))) {
+            return forcemergeTask(indexName);
+        }
+        if ("_refresh".equals(last) || "_flush".equals(last) || "_forcemerge".equals(last)) {
+            return new Response(200, shards());
+        }
+        if (parts.length == 1) {
+            return index(method, parts[0]);
+        }
+        return new Response(200, OBJECT_MAPPER.createObjectNode());
+    }
+
+    private Response index(String method, String indexName) {
+        switch (method) {
+            case "HEAD":
+                return new Response(indices.containsKey(indexName) ? 200 : 404, null);
+            case "DELETE":
+                if (!removeIndex(indexName)) {
+                    return error("index_not_found_exception", "no such index [" + indexName + "]", 404);
+                }
+                return new Response(200, OBJECT_MAPPER.createObjectNode().put("acknowledged", true));
+            default:
+                return new Response(200, OBJECT_MAPPER.createObjectNode());
+        }
+    }
+
+    private Response createIndex(String indexName, JsonNode request) {
+        indices.putIfAbsent(indexName, new ConcurrentHashMap<>());
+        if (request != null && request.has("settings")) {
+            mergeSettings(indexName, request.get("settings"));
+        }
+
+        ObjectNode body = OBJECT_MAPPER.createObjectNode();
+        body.put("acknowledged", true);
+        body.put("shards_acknowledged", true);
+        body.put("index", indexName);
+        return new Response(200, body);
+    }
+
+    private boolean removeIndex(String indexName) {
+        settings.remove(indexName);
+        aliases.values().removeIf(indexName::equals);
+        return indices.remove(indexName) != null;
+    }
+
+    private String resolveAlias(String name) {
+        return aliases.getOrDefault(name, name);
+    }
+
+    private Response indexSettings(String method, String name, JsonNode request) {
+        String indexName = resolveAlias(name);
+        if (!indices.containsKey(indexName)) {
+            return error("index_not_found_exception", "no such index [" + indexName + "]", 404);
+        }
+        if ("PUT".equals(method)) {
+            mergeSettings(indexName, request);
+            return new Response(200, OBJECT_MAPPER.createObjectNode().put("acknowledged", true));
+        }
+
+        ObjectNode body = OBJECT_MAPPER.createObjectNode();
+        ObjectNode index = body.putObject(indexName).putObject("settings").putObject("index");
+        index.put("number_of_shards", "1");
+        index.put("number_of_replicas", "1");
+        index.setAll(settings.getOrDefault(indexName, OBJECT_MAPPER.createObjectNode()));
+        return new Response(200, body);
+    }
+
+    /**
+     * 设置可以直接给出，也可以放在index节点下，translog等嵌套的设置逐层合并，值为null的设置恢复为默认值
+     */
+    private void mergeSettings(String indexName, JsonNode request) {
+        JsonNode values = request.has("index") ? request.get("index") : request;
+        ObjectNode current = settings.computeIfAbsent(indexName, k -> OBJECT_MAPPER.createObjectNode());
+        synchronized (current) {
+            mergeSettings(current, values);
+        }
+    }
+
+    private static void mergeSettings(ObjectNode current, JsonNode values) {
+        values.fields().forEachRemaining(field -> {
+            if (field.getValue().isObject()) {
+                ObjectNode child = current.with(field.getKey());
+                mergeSettings(child, field.getValue());
+                if (child.isEmpty()) {
+                    current.remove(field.getKey());
+                }
+            } else if (field.getValue().isNull()) {
+                current.remove(field.getKey());
+            } else {
+                current.put(field.getKey(), field.getValue().asText());
+            }
+        });
+    }
+
+    private Response alias(String method, String alias) {
+        String indexName = aliases.get(alias);
+        if ("HEAD".equals(method)) {
+            return new Response(indexName == null ? 404 : 200, null);
+        }
+        if (indexName == null) {
+            return error("aliases_not_found_exception", "aliases [" + alias + "] missing", 404);
+        }
+
+        ObjectNode body = OBJECT_MAPPER.createObjectNode();
+        body.putObject(indexName).putObject("aliases").putObject(alias);
+        return new Response(200, body);
+    }
+
+    /**
+     * 按顺序执行add、remove和remove_index
+     */
+    private Response updateAliases(JsonNode request) {
+        for (JsonNode action : request.path("actions")) {
+            if (action.has("add")) {
+                aliases.put(action.get("add").get("alias").asText(), action.get("add").get("index").asText());
+            } else if (action.has("remove")) {
+                aliases.remove(action.get("remove").get("alias").asText(), action.get("remove").get("index").asText());
+            } else if (action.has("remove_index")) {
+                removeIndex(action.get("remove_index").get("index").asText());
+            }
+        }
+        return new Response(200, OBJECT_MAPPER.createObjectNode().put("acknowledged", true));
+    }
+
+    /**
+     * 立即复制所有文档，返回的任务在_tasks中已完成
+     */
+    private Response reindex(JsonNode request) {
+        JsonNode sourceIndices = request.path("source").path("index");
+        String sourceIndex = resolveAlias(
+                sourceIndices.isArray() ? sourceIndices.path(0).asText() : sourceIndices.asText());
+        String destIndex = request.path("dest").path("index").asText();
+        ConcurrentMap<String, StoredDocument> source = indices.get(sourceIndex);
+        if (source == null) {
+            return error("index_not_found_exception", "no such index [" + sourceIndex + "]", 404);
+        }
+
+        ConcurrentMap<String, StoredDocument> dest = documents(destIndex);
+        for (StoredDocument document : source.values()) {
+            dest.put(document.id, new StoredDocument(document.id, document.source, 1, seqNo.getAndIncrement()));
+        }
+
+        ObjectNode task = newTask("indices:data/write/reindex",
+                "reindex from [" + sourceIndex + "] to [" + destIndex + "]", true);
+        ObjectNode response = task.putObject("response");
+        response.put("took", 1);
+        response.put("timed_out", false);
+        response.put("total", source.size());
+        response.put("updated", 0);
+        response.put("created", source.size());
+        response.put("deleted", 0);
+        response.put("batches", 1);
+        response.put("version_conflicts", 0);
+        response.put("noops", 0);
+        response.putObject("retries").put("bulk", 0).put("search", 0);
+        response.put("throttled_millis", 0);
+        response.put("requests_per_second", -1.0);
+        response.put("throttled_until_millis", 0);
+        response.putArray("failures");
+
+        return new Response(200, OBJECT_MAPPER.createObjectNode().put("task", registerTask(task)));
+    }
+
+    /**
+     * 异步提交的force merge，任务在第二次查询时完成，结果与同步请求相同
+     */
+    private Response forcemergeTask(String indexName) {
+        if (!indices.containsKey(indexName)) {
+            return error("index_not_found_exception", "no such index [" + indexName + "]", 404);
+        }
+        ObjectNode task = newTask("indices:admin/forcemerge", "Force-merge indices [" + indexName + "]", false);
+        task.set("response", shards());
+
+        return new Response(200, OBJECT_MAPPER.createObjectNode().put("task", registerTask(task)));
+    }
+
+    private static String queryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String parameter : query.split("&")) {
+            String[] pair = parameter.split("=", 2);
+            if (pair[0].equals(name)) {
+                return pair.length > 1 ? pair[1] : "";
+            }
+        }
+        return null;
+    }
+
+    private ObjectNode newTask(String action, String description, boolean completed) {
+        ObjectNode task = OBJECT_MAPPER.createObjectNode();
+        task.put("completed", completed);
+        ObjectNode info = task.putObject("task");
+        info.put("node", NODE_NAME);
+        info.put("id", taskId.incrementAndGet());
+        info.put("type", "transport");
+        info.put("action", action);
+        info.put("description", description);
+        info.put("start_time_in_millis", System.currentTimeMillis());
+        info.put("running_time_in_nanos", 1000);
+        info.put("cancellable", true);
+        info.putObject("headers");
+        return task;
+    }
+
+    private String registerTask(ObjectNode task) {
+        String id = NODE_NAME + ":" + task.path("task").path("id").asLong();
+        tasks.put(id, task);
+        taskActions.add(task.path("task").path("action").asText());
+        return id;
+    }
+
+    /**
+     * @return 按创建顺序排列的任务action，如indices:admin/forcemerge
+     */
+    public List<String> getTaskActions() {
+        return List.copyOf(taskActions);
+    }
+
+    private Response document(HttpExchange exchange, String method, String indexName, String id) throws IOException {
+        if ("GET".equals(method)) {
+            drain(exchange);
+            StoredDocument document = documents(indexName).get(id);
+            ObjectNode body = documentMeta(indexName, id, document);
+            body.put("found", document != null);
+            if (document != null) {
+                body.set("_source", document.source);
+            }
+            return new Response(document == null ? 404 : 200, body);
+        }
+        if ("DELETE".equals(method)) {
+            drain(exchange);
+            StoredDocument document = documents(indexName).remove(id);
+            ObjectNode body = writeResult(indexName, id, document, document == null ? "not_found" : "deleted");
+            return new Response(document == null ? 404 : 200, body);
+        }
+
+        String documentId = id == null ? UUID.randomUUID().toString() : id;
+        StoredDocument document = put(indexName, documentId, readJson(exchange));
+        boolean created = document.version == 1;
+        return new Response(created ? 201 : 200,
+                writeResult(indexName, documentId, document, created ? "created" : "updated"));
+    }
+
+    private ObjectNode bulk(HttpExchange exchange, String defaultIndex) throws IOException {
+        long start = System.nanoTime();
+        ArrayNode items = OBJECT_MAPPER.createArrayNode();
+        boolean errors = false;
+        byte[] requestBody = exchange.getRequestBody().readAllBytes();
+        maxBulkRequestBytes.accumulateAndGet(requestBody.length, Math::max);
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(requestBody), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode action = OBJECT_MAPPER.readTree(line);
+                String type = action.fieldNames().next();
+                JsonNode meta = action.get(type);
+                String indexName = meta.has("_index") ? meta.get("_index").asText() : defaultIndex;
+                String id = meta.has("_id") ? meta.get("_id").asText() : UUID.randomUUID().toString();
+                JsonNode source = "delete".equals(type) ? null : OBJECT_MAPPER.readTree(reader.readLine());
+                bulkOperationCount.increment();
+
+                ObjectNode item;
+                if (ThreadLocalRandom.current().nextDouble() < bulkItemRejectionRate) {
+                    rejectedCount.increment();
+                    errors = true;
+                    item = documentMeta(indexName, id, null);
+                    item.put("status", 429);
+                    item.set("error", errorCause("es_rejected_execution_exception",
+                            "rejected execution of bulk item by mock server"));
+                } else if ("delete".equals(type)) {
+                    StoredDocument document = documents(indexName).remove(id);
+                    item = writeResult(indexName, id, document, document == null ? "not_found" : "deleted");
+                    item.put("status", document == null ? 404 : 200);
+                } else {
+                    StoredDocument document = put(indexName, id, "update".equals(type) ? source.get("doc") : source);
+                    item = writeResult(indexName, id, document, document.version == 1 ? "created" : "updated");
+                    item.put("status", document.version == 1 ? 201 : 200);
+                }
+                items.addObject().set(type, item);
+            }
+        }
+
+        ObjectNode body = OBJECT_MAPPER.createObjectNode();
+        body.put("took", (System.nanoTime() - start) / 1_000_000);
+        body.put("errors", errors);
+        body.set("items", items);
+        return body;
+    }
+
+    private ObjectNode msearch(HttpExchange exchange, String defaultIndex) throws IOException {
+        ArrayNode responses = OBJECT_MAPPER.createArrayNode();
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode header = OBJECT_MAPPER.readTree(line);
+                JsonNode body = OBJECT_MAPPER.readTree(reader.readLine());
+                JsonNode index = header.get("index");
+                // 客户端把索引序列化为数组，只取第一个
+                String indexName = index == null
+                        ? defaultIndex
+                        : index.isArray() ? index.get(0).asText() : index.asText();
+                ObjectNode response = search(indexName, body);
+                response.put("status", 200);
+                responses.add(response);
+            }
+        }
+
+        ObjectNode body = OBJECT_MAPPER.createObjectNode();
+        body.put("took", 0);
+        body.set("responses", responses);
+        return body;
+    }
+
+    private ObjectNode mget(JsonNode request, String defaultIndex) {
+        ArrayNode docs = OBJECT_MAPPER.createArrayNode();
+        for (JsonNode doc : request.path("docs")) {
+            docs.add(mgetItem(resolveAlias(doc.path("_index").asText(defaultIndex)), doc.path("_id").asText()));
+        }
+        for (JsonNode id : request.path("ids")) {
+            docs.add(mgetItem(defaultIndex, id.asText()));
+        }
+
+        ObjectNode body = OBJECT_MAPPER.createObjectNode();
+        body.set("docs", docs);
+        return body;
+    }
+
+    private ObjectNode mgetItem(String indexName, String id) {
+        StoredDocument document = documents(indexName).get(id);
+        ObjectNode item = documentMeta(indexName, id, document);
+        item.put("found", document != null);
+        if (document != null) {
+            item.set("_source", document.source);
+        }
+        return item;
+    }
+
+    private Response pit(String method, String indexName, JsonNode request) {
+        if ("DELETE".equals(method)) {
+            String pitId = request.path("id").asText();
+            boolean freed = pits.remove(pitId) != null;
+            pitIndices.remove(pitId);
+            return new Response(200, OBJECT_MAPPER.createObjectNode()
+                    .put("succeeded", true)
+                    .put("num_freed", freed ? 1 : 0));
+        }
+
+        ConcurrentMap<String, StoredDocument> index = indices.get(indexName);
+        if (index == null) {
+            return error("index_not_found_exception", "no such index [" + indexName + "]", 404);
+        }
+        List<StoredDocument> snapshot = new ArrayList<>(index.values());
+        snapshot.sort(Comparator.comparingLong(document -> document.seqNo));
+
+        String pitId = UUID.randomUUID().toString();
+        pits.put(pitId, snapshot);
+        pitIndices.put(pitId, indexName);
+        return new Response(200, OBJECT_MAPPER.createObjectNode().put("id", pitId));
+    }
+
+    /**
+     * 按快照中的位置作为_shard_doc排序值，slice按文档id的哈希分配
+     */
+    private Response pitSearch(JsonNode request) {
+        lastSearchRequest = request;
+        String pitId = request.path("pit").path("id").asText();
+        List<StoredDocument> snapshot = pits.get(pitId);
+        if (snapshot == null) {
+            return error("search_context_missing_exception", "No search context found for id [" + pitId + "]", 404);
+        }
+
+        int size = request.path("size").asInt(DEFAULT_SEARCH_SIZE);
+        long searchAfter = request.has("search_after") ? request.get("search_after").get(0).asLong() : -1;
+        JsonNode slice = request.get("slice");
+
+        boolean shardFailure = pitShardFailure;
+        ArrayNode hits = OBJECT_MAPPER.createArrayNode();
+        for (int position = (int) searchAfter + 1; position < snapshot.size() && hits.size() < size; position++) {
+            StoredDocument document = snapshot.get(position);
+            if (slice != null
+                    && Math.floorMod(document.id.hashCode(), slice.get("max").asInt()) != slice.get("id").asInt()) {
+                continue;
+            }
+            // 失败分片上的文档不返回
+            if (shardFailure && position % 2 == 1) {
+                continue;
+            }
+            ObjectNode hit = hits.addObject();
+            hit.put("_index", pitIndices.get(pitId));
+            hit.put("_id", document.id);
+            hit.set("_source", document.source);
+            hit.putArray("sort").add(position);
+        }
+
+        ObjectNode body = OBJECT_MAPPER.createObjectNode();
+        body.put("pit_id", pitId);
+        body.put("took", 0);
+        body.put("timed_out", false);
+        if (shardFailure) {
+            ObjectNode shards = body.putObject("_shards").put("total", 2).put("successful", 1).put("failed", 1);
+            ObjectNode failure = shards.putArray("failures").addObject();
+            failure.put("shard", 1);
+            failure.put("index", pitIndices.get(pitId));
+            failure.putObject("reason")
+                    .put("type", "node_not_connected_exception")
+                    .put("reason", "node disconnected");
+        } else {
+            body.set("_shards", shards().get("_shards"));
+        }
+        ObjectNode hitsNode = body.putObject("hits");
+        hitsNode.set("hits", hits);
+        return new Response(200, body);
+    }
+
+    /**
+     * @return 打开未关闭的point-in-time数
+     */
+    public int getOpenPitCount() {
+        return pits.size();
+    }
+
+    private ObjectNode search(String indexName, JsonNode request) {
+        lastSearchRequest = request;
+        int size = request != null && request.has("size") ? request.get("size").asInt() : DEFAULT_SEARCH_SIZE;
+
+        List<Map.Entry<String, StoredDocument>> entries = new ArrayList<>();
+        int total = 0;
+        for (Map.Entry<String, ConcurrentMap<String, StoredDocument>> index : indices.entrySet()) {
+            if (indexName != null && !indexName.equals(index.getKey())) {
+                continue;
+            }
+            for (Map.Entry<String, StoredDocument> entry : index.getValue().entrySet()) {
+                total++;
+                if (entries.size() < size) {
+                    entries.add(Map.entry(index.getKey(), entry.getValue()));
+                }
+            }
+        }
+
+        ArrayNode hits = OBJECT_MAPPER.createArrayNode();
+        for (Map.Entry<String, StoredDocument> entry : entries) {
+            ObjectNode hit = hits.addObject();
+            hit.put("_index", entry.getKey());
+            hit.put("_id", entry.getValue().id);
+            hit.put("_score", 1.0);
+            JsonNode source = entry.getValue().source;
+            JsonNode filteredSource = filterSource(source, request == null ? null : request.get("_source"));
+            if (filteredSource != null) {
+                hit.set("_source", filteredSource);
+            }
+            ObjectNode fields = OBJECT_MAPPER.createObjectNode();
+            addFields(fields, source, request == null ? null : request.get("docvalue_fields"));
+            addFields(fields, source, request == null ? null : request.get("fields"));
+            if (!fields.isEmpty()) {
+                hit.set("fields", fields);
+            }
+        }
+
+        ObjectNode body = OBJECT_MAPPER.createObjectNode();
+        body.put("took", 0);
+        body.put("timed_out", false);
+        body.set("_shards", shards().get("_shards"));
+        ObjectNode hitsNode = body.putObject("hits");
+        hitsNode.putObject("total").put("value", total).put("relation", "eq");
+        hitsNode.put("max_score", entries.isEmpty() ? 0.0 : 1.0);
+        hitsNode.set("hits", hits);
+        return body;
+    }
+
+    /**
+     * 按请求中的_source过滤文档，_source为false时返回null
+     */
+    private static JsonNode filterSource(JsonNode source, JsonNode sourceConfig) {
+        if (sourceConfig == null || (sourceConfig.isBoolean() && sourceConfig.asBoolean())) {
+            return source;
+        }
+        if (sourceConfig.isBoolean()) {
+            return null;
+        }
+
+        ObjectNode filtered = ((ObjectNode) source).deepCopy();
+        JsonNode includes = sourceConfig.isObject() ? sourceConfig.get("includes") : sourceConfig;
+        if (includes != null && !includes.isEmpty()) {
+            List<String> names = new ArrayList<>();
+            (includes.isArray() ? includes : OBJECT_MAPPER.createArrayNode().add(includes))
+                    .forEach(name -> names.add(name.asText()));
+            filtered.retain(names);
+        }
+        JsonNode excludes = sourceConfig.isObject() ? sourceConfig.get("excludes") : null;
+        if (excludes != null) {
+            excludes.forEach(name -> filtered.remove(name.asText()));
+        }
+        return filtered;
+    }
+
+    /**
+     * docvalue_fields和fields中的字段按点号分隔的路径取文档中的值，路径上的数组展开，按es的格式放在数组中
+     */
+    private static void addFields(ObjectNode fields, JsonNode source, JsonNode requested) {
+        if (requested == null) {
+            return;
+        }
+        for (JsonNode field : requested) {
+            String name = field.isObject() ? field.get("field").asText() : field.asText();
+            ArrayNode values = OBJECT_MAPPER.createArrayNode();
+            collect(source, name.split("\\."), 0, values);
+            if (!values.isEmpty()) {
+                fields.set(name, values);
+            }
+        }
+    }
+
+    private static void collect(JsonNode node, String[] path, int depth, ArrayNode values) {
+        if (node == null || node.isNull()) {
+            return;
+        }
+        if (node.isArray()) {
+            node.forEach(element -> collect(element, path, depth, values));
+        } else if (depth == path.length) {
+            values.add(node);
+        } else {
+            collect(node.get(path[depth]), path, depth + 1, values);
+        }
+    }
+
+    private ObjectNode info() {
+        ObjectNode body = OBJECT_MAPPER.createObjectNode();
+        body.put("name", NODE_NAME);
+        body.put("cluster_name", "mock-cluster");
+        body.put("cluster_uuid", "mock-cluster-uuid");
+        body.put("tagline", "You Know, for Search");
+        ObjectNode version = body.putObject("version");
+        version.put("number", "8.3.3");
+        version.put("build_flavor", "default");
+        version.put("build_type", "docker");
+        version.put("build_hash", "mock");
+        version.put("build_date", "2022-07-23T19:30:09.227964828Z");
+        version.put("build_snapshot", false);
+        version.put("lucene_version", "9.2.0");
+        version.put("minimum_wire_compatibility_version", "7.17.0");
+        version.put("minimum_index_compatibility_version", "7.0.0");
+        return body;
+    }
+
+    private ArrayNode catNodes() {
+        ArrayNode body = OBJECT_MAPPER.createArrayNode();
+        ObjectNode node = body.addObject();
+        node.put("ip", "127.0.0.1");
+        node.put("name", NODE_NAME);
+        node.put("node.role", "cdfhilmrstw");
+        node.put("master", "*");
+        node.put("cpu", "1");
+        node.put("load_1m", "0.00");
+        node.put("heap.percent", "10");
+        node.put("ram.percent", "10");
+        return body;
+    }
+
+    private ArrayNode catIndices() {
+        ArrayNode body = OBJECT_MAPPER.createArrayNode();
+        for (Map.Entry<String, ConcurrentMap<String, StoredDocument>> index : indices.entrySet()) {
+            ObjectNode record = body.addObject();
+            record.put("health", "green");
+            record.put("status", "open");
+            record.put("index", index.getKey());
+            record.put("pri", "1");
+            record.put("rep", "0");
+            record.put("docs.count", String.valueOf(index.getValue().size()));
+        }
+        return body;
+    }
+
+    private ObjectNode shards() {
+        ObjectNode body = OBJECT_MAPPER.createObjectNode();
+        body.putObject("_shards").put("total", 1).put("successful", 1).put("failed", 0);
+        return body;
+    }
+
+    private ConcurrentMap<String, StoredDocument> documents(String indexName) {
+        // 与es默认行为一致，写入不存在的索引时自动创建
+        return indices.computeIfAbsent(indexName, k -> new ConcurrentHashMap<>());
+    }
+
+    private StoredDocument put(String indexName, String id, JsonNode source) {
+        return documents(indexName).compute(id, (k, old) ->
+                new StoredDocument(id, source, old == null ? 1 : old.version + 1, seqNo.getAndIncrement()));
+    }
+
+    private static ObjectNode documentMeta(String indexName, String id, StoredDocument document) {
+        ObjectNode body = OBJECT_MAPPER.createObjectNode();
+        body.put("_index", indexName);
+        body.put("_id", id);
+        if (document != null) {
+            body.put("_version", document.version);
+            body.put("_seq_no", document.seqNo);
+            body.put("_primary_term", 1);
+        }
+        return body;
+    }
+
+    private static ObjectNode writeResult(String indexName, String id, StoredDocument document, String result) {
+        ObjectNode body = documentMeta(indexName, id, document);
+        if (document == null) {
+            body.put("_version", 1);
+            body.put("_seq_no", 0);
+            body.put("_primary_term", 1);
+        }
+        body.put("result", result);
+        body.putObject("_shards").put("total", 1).put("successful", 1).put("failed", 0);
+        return body;
+    }
+
+    private static ObjectNode errorCause(String type, String reason) {
+        ObjectNode cause = OBJECT_MAPPER.createObjectNode();
+        cause.put("type", type);
+        cause.put("reason", reason);
+        return cause;
+    }
+
+    private static Response error(String type, String reason, int status) {
+        ObjectNode body = OBJECT_MAPPER.createObjectNode();
+        ObjectNode error = body.putObject("error");
+        error.putArray("root_cause").add(errorCause(type, reason));
+        error.put("type", type);
+        error.put("reason", reason);
+        body.put("status", status);
+        return new Response(status, body);
+    }
+
+    private static JsonNode readJson(HttpExchange exchange) throws IOException {
+        byte[] bytes = exchange.getRequestBody().readAllBytes();
+        return bytes.length == 0 ? null : OBJECT_MAPPER.readTree(bytes);
+    }
+
+    private static void drain(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        // 客户端会校验该响应头，缺少时认为对端不是es
+        exchange.getResponseHeaders().add("X-Elastic-Product", "Elasticsearch");
+        if (response.body == null) {
+            exchange.sendResponseHeaders(response.status, -1);
+            return;
+        }
+
+        byte[] bytes = OBJECT_MAPPER.writeValueAsBytes(response.body);
+        exchange.sendResponseHeaders(response.status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * 内存中保存的文档
+     */
+    @AllArgsConstructor
+    private static final class StoredDocument {
+        private final String id;
+
+        private final JsonNode source;
+
+        private final long version;
+
+        private final long seqNo;
+    }
+
+    /**
+     * 待发送的响应，body为null时没有响应体
+     */
+    @AllArgsConstructor
+    private static final class Response {
+        private final int status;
+
+        private final JsonNode body;
+    }
+}
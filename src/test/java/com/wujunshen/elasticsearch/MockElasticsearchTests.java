@@ -0,0 +1,117 @@
+package com.wujunshen.elasticsearch;
+
+import com.wujunshen.ApplicationTests;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import org.junit.jupiter.api.AfterEach;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * 指向MockElasticsearchServer的测试基类
+ * <p>
+ * 所有子类共用一个模拟服务和一个spring上下文，子类不要再声明影响上下文的注解或@DynamicPropertySource，
+ * 否则会各自创建上下文。各用例使用不同的索引名互不影响，需要的功能开关都在这里统一打开。
+ * 模拟服务注册为上下文中的bean，随上下文关闭
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/19 10:30<br>
+ */
+@Import(MockElasticsearchTests.MockElasticsearchConfiguration.class)
+public abstract class MockElasticsearchTests extends ApplicationTests {
+    /**
+     * 客户端连接池大小
+     */
+    protected static final int MAX_CONNECTIONS = 8;
+
+    /**
+     * 每个mget请求的最大文档数
+     */
+    protected static final int MGET_MAX_BATCH_SIZE = 50;
+
+    /**
+     * 近端缓存条目的最大陈旧时间，单位毫秒
+     */
+    protected static final long NEAR_CACHE_MAX_STALENESS = 200;
+
+    /**
+     * 收集客户端span
+     */
+    protected static final InMemorySpanExporter SPAN_EXPORTER = InMemorySpanExporter.create();
+
+    /**
+     * 处理请求的线程数是连接数的4倍，测到的是客户端连接池而不是模拟服务的瓶颈
+     */
+    protected static final MockElasticsearchServer SERVER;
+
+    static {
+        try {
+            SERVER = new MockElasticsearchServer(MAX_CONNECTIONS * 4);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void elasticsearchProperties(DynamicPropertyRegistry registry) {
+        registry.add("elasticsearch.address", SERVER::getAddress);
+        registry.add("elasticsearch.maxConnectNum", () -> MAX_CONNECTIONS);
+        registry.add("elasticsearch.maxConnectPerRoute", () -> MAX_CONNECTIONS);
+        registry.add("elasticsearch.taskPollInterval", () -> 10);
+        // 后台轮询_cat/nodes会计入模拟服务的请求数，干扰按请求数断言的用例
+        registry.add("elasticsearch.sniff.enabled", () -> false);
+        registry.add("elasticsearch.sniff.statsRefreshInterval", () -> 0);
+        // 拒绝率较高时默认的3次重试不足以保证全部成功
+        registry.add("elasticsearch.bulk.maxRetries", () -> 10);
+        registry.add("elasticsearch.bulk.initialBackoff", () -> 10);
+        registry.add("elasticsearch.bulk.maxBackoff", () -> 100);
+        registry.add("elasticsearch.tracing.enabled", () -> true);
+        registry.add("elasticsearch.cache.enabled", () -> true);
+        registry.add("elasticsearch.singleFlight.enabled", () -> true);
+        registry.add("elasticsearch.nearCache.enabled", () -> true);
+        registry.add("elasticsearch.nearCache.maxStaleness", () -> NEAR_CACHE_MAX_STALENESS);
+        registry.add("elasticsearch.nearCache.offHeap", () -> true);
+        registry.add("elasticsearch.mget.maxBatchSize", () -> MGET_MAX_BATCH_SIZE);
+        registry.add("elasticsearch.mget.parallelism", () -> 4);
+        registry.add("elasticsearch.mget.window", () -> 50);
+        registry.add("elasticsearch.scroll.pageSize", () -> 25);
+        registry.add("elasticsearch.scroll.slices", () -> 4);
+    }
+
+    /**
+     * 用例修改的延迟和故障配置不带到下一个用例
+     */
+    @AfterEach
+    void resetFaults() {
+        SERVER.resetFaults();
+    }
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class MockElasticsearchConfiguration {
+        @Bean(destroyMethod = "close")
+        MockElasticsearchServer mockElasticsearchServer() {
+            return SERVER;
+        }
+
+        @Bean
+        OpenTelemetry openTelemetry() {
+            return OpenTelemetrySdk.builder()
+                    .setTracerProvider(SdkTracerProvider.builder()
+                            .addSpanProcessor(SimpleSpanProcessor.create(SPAN_EXPORTER))
+                            .build())
+                    .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.wujunshen.elasticsearch;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetResponseItem;
+import com.wujunshen.elasticsearch.concurrent.AsyncLimiter;
+import com.wujunshen.elasticsearch.mget.DocumentKey;
+import com.wujunshen.elasticsearch.mget.MultiGetLoader;
+import com.wujunshen.entity.product.Spu;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Resource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestClassOrder;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+
+/**
+ * 验证mget按批拆分、保留不存在的文档、单文档读取的合并以及合并窗口的计时
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 23:00<br>
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestClassOrder(ClassOrderer.OrderAnnotation.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Order(190)
+class MultiGetTest extends MockElasticsearchTests {
+    private static final String INDEX_NAME = "mock-mget";
+
+    private static final String OTHER_INDEX_NAME = "mock-mget-other";
+
+    private static final int DOCUMENTS = 150;
+
+    private static final int CALLERS = 20;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @Resource
+    private DocumentApi documentApi;
+
+    @Resource
+    private ElasticsearchAsyncClient elasticsearchAsyncClient;
+
+    @Resource
+    private AsyncLimiter asyncLimiter;
+
+    @BeforeAll
+    void setUp() throws IOException {
+        for (long id = 1; id <= DOCUMENTS; id++) {
+            Spu spu = Spu.builder().id(id).productName("bike " + id).build();
+            documentApi.addDocument(INDEX_NAME, String.valueOf(id), spu);
+            documentApi.addDocument(OTHER_INDEX_NAME, String.valueOf(id), spu);
+        }
+    }
+
+    @AfterAll
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Order(1)
+    @Test
+    void chunkedAcrossIndices() throws IOException {
+        List<DocumentKey> keys = new ArrayList<>();
+        // 每个索引多取50个不存在的文档
+        for (int id = 1; id <= DOCUMENTS + 50; id++) {
+            keys.add(DocumentKey.of(INDEX_NAME, String.valueOf(id)));
+            keys.add(DocumentKey.of(OTHER_INDEX_NAME, String.valueOf(id)));
+        }
+        long requests = SERVER.getRequestCount();
+
+        Map<DocumentKey, MultiGetResponseItem<Spu>> result = documentApi.multiGetDocument(keys, Spu.class);
+
+        assertThat(SERVER.getRequestCount() - requests, is((long) keys.size() / MGET_MAX_BATCH_SIZE));
+        assertThat(List.copyOf(result.keySet()), is(keys));
+        assertThat(result.values().stream().filter(item -> item.result().found()).count(), is(2L * DOCUMENTS));
+        assertThat(result.get(DocumentKey.of(OTHER_INDEX_NAME, "7")).result().source().getProductName(),
+                is("bike 7"));
+        assertThat(result.get(DocumentKey.of(INDEX_NAME, String.valueOf(DOCUMENTS + 1))).result().found(),
+                is(false));
+    }
+
+    @Order(2)
+    @Test
+    void singleIndexByIds() throws IOException {
+        Map<String, MultiGetResponseItem<Spu>> result =
+                documentApi.multiGetDocument(INDEX_NAME, List.of("3", "1", "3", "missing"), Spu.class);
+
+        assertThat(List.copyOf(result.keySet()), is(List.of("3", "1", "missing")));
+        assertThat(result.get("1").result().source().getProductName(), is("bike 1"));
+        assertThat(result.get("missing").result().found(), is(false));
+    }
+
+    @Order(3)
+    @Test
+    void coalesceConcurrentGets() throws Exception {
+        long requests = SERVER.getRequestCount();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Spu>> results = new ArrayList<>();
+        for (int i = 1; i <= CALLERS; i++) {
+            String id = String.valueOf(i);
+            results.add(executor.submit(() -> {
+                start.await();
+                return documentApi.getDocument(INDEX_NAME, id, Spu.class).source();
+            }));
+        }
+        start.countDown();
+
+        for (int i = 0; i < CALLERS; i++) {
+            assertThat(results.get(i).get().getProductName(), is("bike " + (i + 1)));
+        }
+        assertThat(SERVER.getRequestCount() - requests < CALLERS / 2, is(true));
+        assertThat(documentApi.getDocument(INDEX_NAME, "missing", Spu.class).found(), is(false));
+    }
+
+    @Order(4)
+    @Test
+    void fullBatchRestartsWindow() throws Exception {
+        try (MultiGetLoader loader = new MultiGetLoader(elasticsearchAsyncClient, asyncLimiter, 5, 1, 500)) {
+            List<CompletableFuture<MultiGetResponseItem<Spu>>> full = new ArrayList<>();
+            for (int i = 1; i <= 5; i++) {
+                full.add(loader.load(DocumentKey.of(INDEX_NAME, String.valueOf(i)), Spu.class));
+            }
+            CompletableFuture.allOf(full.toArray(new CompletableFuture[0])).get(1, TimeUnit.SECONDS);
+
+            Thread.sleep(300);
+            CompletableFuture<MultiGetResponseItem<Spu>> next =
+                    loader.load(DocumentKey.of(INDEX_NAME, "6"), Spu.class);
+
+            // 攒满提前发送的批次不应让下一批在第一批的窗口到期时被提前发送
+            Thread.sleep(350);
+            assertThat(next.isDone(), is(false));
+            assertThat(next.get(1, TimeUnit.SECONDS).result().source().getProductName(), is("bike 6"));
+        }
+    }
+
+    @Order(5)
+    @Test
+    void loadAfterClose() {
+        MultiGetLoader loader = new MultiGetLoader(elasticsearchAsyncClient, asyncLimiter, 5, 1, 500);
+        loader.close();
+
+        CompletableFuture<MultiGetResponseItem<Spu>> future = loader.load(DocumentKey.of(INDEX_NAME, "1"), Spu.class);
+
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertThat(e.getCause() instanceof IllegalStateException, is(true));
+    }
+}
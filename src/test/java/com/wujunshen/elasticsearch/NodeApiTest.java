@@ -1,6 +1,7 @@
 package com.wujunshen.elasticsearch;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasSize;
@@ -8,10 +9,15 @@ import static org.hamcrest.Matchers.hasSize;
 import co.elastic.clients.elasticsearch.cat.nodes.NodesRecord;
 import com.wujunshen.ApplicationTests;
 import com.wujunshen.config.ElasticSearchConfigProperties;
+import com.wujunshen.elasticsearch.node.LoadAwareNodeSelector;
+import com.wujunshen.elasticsearch.node.NodeStats;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import javax.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.client.Node;
+import org.elasticsearch.client.RestClient;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.ClassOrderer;
@@ -39,6 +45,12 @@ class NodeApiTest extends ApplicationTests {
     @Resource
     private NodeApi nodeApi;
 
+    @Resource
+    private LoadAwareNodeSelector loadAwareNodeSelector;
+
+    @Resource
+    private RestClient restClient;
+
     @BeforeAll
     void setUp() {}
 
@@ -60,4 +72,35 @@ class NodeApiTest extends ApplicationTests {
         assertThat(nodesRecords, notNullValue());
         assertThat(nodesRecords, hasSize(equalTo(1)));
     }
+
+    /**
+     * 按节点负载选择节点，至少保留一个节点
+     */
+    @Order(5)
+    @Test
+    void selectNodes() throws IOException {
+        loadAwareNodeSelector.update(nodeApi.getAllNodes());
+
+        List<Node> nodes = new ArrayList<>(restClient.getNodes());
+        loadAwareNodeSelector.select(nodes);
+
+        assertThat(nodes.isEmpty(), is(false));
+    }
+
+    /**
+     * 获取客户端统计的各节点请求情况
+     */
+    @Order(10)
+    @Test
+    void getNodeStats() throws IOException {
+        nodeApi.getAllNodes();
+
+        List<NodeStats> nodeStats = nodeApi.getNodeStats();
+        for (NodeStats stats : nodeStats) {
+            log.info("node stats: {}", stats);
+        }
+
+        assertThat(nodeStats.isEmpty(), is(false));
+        assertThat(nodeStats.get(0).getResponses() > 0, is(true));
+    }
 }
@@ -0,0 +1,151 @@
+package com.wujunshen.elasticsearch;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.wujunshen.elasticsearch.node.LeastLoadedNodeSelector;
+import com.wujunshen.elasticsearch.node.NodeLoadTracker;
+import com.wujunshen.elasticsearch.node.NodeSelection;
+import com.wujunshen.elasticsearch.node.NodeStats;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
+import org.elasticsearch.client.Cancellable;
+import org.elasticsearch.client.NodeSelector;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestClassOrder;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+
+/**
+ * 验证并发请求时实际请求的节点就是LeastLoadedNodeSelector选中并记录的节点，以及被取消的请求不再计入节点负载
+ * <p>
+ * 用localhost和127.0.0.1两个地址指向同一个模拟服务，RestClient把它们当作两个节点
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/19 14:00<br>
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestClassOrder(ClassOrderer.OrderAnnotation.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Order(230)
+class NodeSelectionTest extends MockElasticsearchTests {
+    private static final int CALLERS = 16;
+
+    private static final int REQUESTS_PER_CALLER = 50;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    private NodeLoadTracker nodeLoadTracker;
+
+    private RestClient restClient;
+
+    @BeforeAll
+    void setUp() {
+        int port = Integer.parseInt(SERVER.getAddress().split(":")[1]);
+        nodeLoadTracker = new NodeLoadTracker(0.3, 15000, 10000);
+        restClient = RestClient.builder(new HttpHost("localhost", port), new HttpHost("127.0.0.1", port))
+                .setNodeSelector(new LeastLoadedNodeSelector(nodeLoadTracker, NodeSelector.ANY))
+                .setHttpClientConfigCallback(httpClientBuilder -> httpClientBuilder
+                        .setMaxConnTotal(CALLERS * 2)
+                        .setMaxConnPerRoute(CALLERS)
+                        .addInterceptorLast((HttpRequestInterceptor) nodeLoadTracker)
+                        .addInterceptorFirst((HttpResponseInterceptor) nodeLoadTracker))
+                .build();
+    }
+
+    @AfterAll
+    void tearDown() throws IOException {
+        executor.shutdownNow();
+        restClient.close();
+    }
+
+    @Order(1)
+    @Test
+    void contactedHostIsSelectedHost() throws Exception {
+        SERVER.setJitter(5);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Set<HttpHost>>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                Set<HttpHost> contacted = new HashSet<>();
+                for (int j = 0; j < REQUESTS_PER_CALLER; j++) {
+                    NodeSelection.Selected<Response> selected = NodeSelection.call(null, this::ping);
+                    assertThat(selected.getHost(), notNullValue());
+                    assertThat(selected.getValue().getHost(), is(selected.getHost()));
+                    contacted.add(selected.getValue().getHost());
+                }
+                return contacted;
+            }));
+        }
+        start.countDown();
+
+        Set<HttpHost> contacted = new HashSet<>();
+        for (Future<Set<HttpHost>> result : results) {
+            contacted.addAll(result.get());
+        }
+        // 两个节点都被选中过
+        assertThat(contacted.size(), is(2));
+    }
+
+    @Order(2)
+    @Test
+    void cancelledRequestIsNotInFlight() throws Exception {
+        SERVER.setLatency(1000);
+        Cancellable cancellable = restClient.performRequestAsync(new Request("GET", "/"), new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+            }
+
+            @Override
+            public void onFailure(Exception exception) {
+            }
+        });
+
+        // 等请求发出并登记为在途
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (inFlight() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(inFlight(), is(1));
+
+        // 被取消的请求不会收到响应，不应一直计入在途请求直到staleAfter
+        cancellable.cancel();
+        assertThat(inFlight(), is(0));
+    }
+
+    private int inFlight() {
+        return nodeLoadTracker.getNodeStats().stream().mapToInt(NodeStats::getInFlight).sum();
+    }
+
+    private Response ping() {
+        try {
+            return restClient.performRequest(new Request("GET", "/"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.wujunshen.elasticsearch;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.wujunshen.elasticsearch.search.Projection;
+import com.wujunshen.entity.product.Sku;
+import com.wujunshen.entity.product.Spu;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import javax.annotation.Resource;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestClassOrder;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+
+/**
+ * 验证QueryApi按SearchSpec查询时的字段投影
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 17:10<br>
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestClassOrder(ClassOrderer.OrderAnnotation.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Order(130)
+class ProjectionTest extends MockElasticsearchTests {
+    private static final String INDEX_NAME = "mock-projection";
+
+    @Resource
+    private DocumentApi documentApi;
+
+    @Resource
+    private QueryApi queryApi;
+
+    @BeforeAll
+    void setUp() throws IOException {
+        for (long id = 1; id <= 3; id++) {
+            documentApi.addDocument(INDEX_NAME, String.valueOf(id), Spu.builder()
+                    .id(id)
+                    .productCode("P-" + id)
+                    .productName("bike " + id)
+                    .brandCode("B-" + id)
+                    .skus(List.of(Sku.builder().id(id * 10).skuName("red bike").color("red").build()))
+                    .build());
+        }
+    }
+
+    @Order(1)
+    @Test
+    void includes() throws IOException {
+        List<ProductName> names = queryApi.search(
+                QueryRequests.matchAllQuery(INDEX_NAME, "id", 0, 10, false).project(Projection.includes("productName")),
+                ProductName.class);
+
+        assertThat(names.stream().map(ProductName::getProductName).sorted().toList(),
+                is(List.of("bike 1", "bike 2", "bike 3")));
+    }
+
+    @Order(2)
+    @Test
+    void excludes() throws IOException {
+        List<Spu> spus = queryApi.search(
+                QueryRequests.termQuery(INDEX_NAME, "B-1", "brandCode", "id", 0, 10, false)
+                        .project(Projection.excludes("skus")),
+                Spu.class);
+
+        assertThat(spus.size(), is(3));
+        assertThat(spus.get(0).getSkus().isEmpty(), is(true));
+        assertThat(spus.get(0).getProductName().startsWith("bike"), is(true));
+    }
+
+    @Order(3)
+    @Test
+    void idsOnly() throws IOException {
+        List<ProductName> ids = queryApi.search(
+                QueryRequests.matchAllQuery(INDEX_NAME, "id", 0, 10, false).project(Projection.idsOnly("id")),
+                ProductName.class);
+
+        assertThat(ids.stream().map(ProductName::getId).sorted().toList(), is(List.of("1", "2", "3")));
+        assertThat(ids.get(0).getProductName(), nullValue());
+    }
+
+    @Order(4)
+    @Test
+    void docValueFields() throws IOException {
+        Projection projection = Projection.builder()
+                .fetchSource(false)
+                .docValueField("brandCode")
+                .field("productName")
+                .idField("id")
+                .build();
+        List<ProductName> products = queryApi.search(
+                        QueryRequests.matchAllQuery(INDEX_NAME, "id", 0, 10, false).project(projection),
+                        ProductName.class).stream()
+                .sorted(Comparator.comparing(ProductName::getId))
+                .toList();
+
+        assertThat(products.get(1).getId(), is("2"));
+        assertThat(products.get(1).getBrandCode(), is("B-2"));
+        assertThat(products.get(1).getProductName(), is("bike 2"));
+    }
+
+    @Order(5)
+    @Test
+    void dottedFieldsAreNested() throws IOException {
+        Projection projection = Projection.builder()
+                .fetchSource(false)
+                .field("skus.skuName")
+                .field("skus.color")
+                .idField("id")
+                .build();
+        List<SkuNames> products = queryApi.search(
+                        QueryRequests.matchAllQuery(INDEX_NAME, "id", 0, 10, false).project(projection),
+                        SkuNames.class).stream()
+                .sorted(Comparator.comparing(SkuNames::getId))
+                .toList();
+
+        assertThat(products.get(0).getSkus().getSkuName(), is("red bike"));
+        assertThat(products.get(0).getSkus().getColor(), is("red"));
+    }
+
+    /**
+     * 只包含部分字段的投影结果类
+     */
+    @Data
+    @NoArgsConstructor
+    static class ProductName {
+        private String id;
+
+        private String brandCode;
+
+        private String productName;
+    }
+
+    /**
+     * 按点号字段合并出嵌套对象的投影结果类
+     */
+    @Data
+    @NoArgsConstructor
+    static class SkuNames {
+        private String id;
+
+        private SkuName skus;
+    }
+
+    /**
+     * 嵌套对象中只包含部分字段
+     */
+    @Data
+    @NoArgsConstructor
+    static class SkuName {
+        private String skuName;
+
+        private String color;
+    }
+}
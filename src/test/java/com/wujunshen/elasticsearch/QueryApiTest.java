@@ -1,17 +1,28 @@
 package com.wujunshen.elasticsearch;
 
+import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch._types.aggregations.HistogramBucket;
 import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
 import co.elastic.clients.elasticsearch.core.GetResponse;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
 import com.wujunshen.ApplicationTests;
 import com.wujunshen.config.ElasticSearchConfigProperties;
+import com.wujunshen.elasticsearch.concurrent.AsyncLimiter;
+import com.wujunshen.elasticsearch.concurrent.BlockingCallExecutor;
+import com.wujunshen.elasticsearch.concurrent.EsTaskScope;
+import com.wujunshen.elasticsearch.concurrent.Futures;
+import com.wujunshen.elasticsearch.concurrent.Hedger;
+import com.wujunshen.elasticsearch.search.MultiSearchCoalescer;
 import com.wujunshen.entity.product.Sku;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import javax.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.AfterAll;
@@ -47,6 +58,18 @@ class QueryApiTest extends ApplicationTests {
     @Resource
     private IndexApi indexApi;
 
+    @Resource
+    private AsyncQueryApi asyncQueryApi;
+
+    @Resource
+    private BlockingCallExecutor blockingCallExecutor;
+
+    @Resource
+    private ElasticsearchAsyncClient elasticsearchAsyncClient;
+
+    @Resource
+    private AsyncLimiter asyncLimiter;
+
     private Sku sku;
 
     private List<Sku> skuList;
@@ -118,6 +141,105 @@ class QueryApiTest extends ApplicationTests {
         assertThat(response, notNullValue());
     }
 
+    /**
+     * 并发发出多个异步查询
+     */
+    @Order(75)
+    @Test
+    void asyncMatchQuery() {
+        List<CompletableFuture<List<Sku>>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(asyncQueryApi.matchQuery(indexName, "bike", "skuName", "id", i, 10, true, Sku.class));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        for (CompletableFuture<List<Sku>> future : futures) {
+            assertThat(future.join(), notNullValue());
+        }
+    }
+
+    /**
+     * 在任务作用域中并发执行多个阻塞查询
+     */
+    @Order(80)
+    @Test
+    void scopedQueries() throws IOException {
+        List<List<Sku>> results;
+        try (EsTaskScope<List<Sku>> scope = blockingCallExecutor.openScope()) {
+            for (int i = 0; i < 10; i++) {
+                int fromIndex = i;
+                scope.fork(() ->
+                        queryApi.matchQuery(indexName, "bike", "skuName", "id", fromIndex, 10, true, Sku.class));
+            }
+            results = scope.join();
+        }
+
+        assertThat(results.size(), is(10));
+    }
+
+    /**
+     * 一次msearch执行多个不同类型的查询
+     */
+    @Order(85)
+    @Test
+    void multiSearch() throws IOException {
+        MultiSearch multiSearch = queryApi.newMultiSearch();
+        CompletableFuture<List<Sku>> matched =
+                multiSearch.matchQuery(indexName, "bike", "skuName", "id", 0, 10, true, Sku.class);
+        CompletableFuture<List<Sku>> termed =
+                multiSearch.termQuery(indexName, "bike", "skuName", "id", 0, 10, true, Sku.class);
+        CompletableFuture<List<HistogramBucket>> buckets =
+                multiSearch.aggsByHistogram(indexName, "bike", "skuName", "skuPrice", "price-histogram", 50.0);
+
+        multiSearch.execute();
+
+        assertThat(matched.join(), notNullValue());
+        assertThat(termed.join(), notNullValue());
+        assertThat(buckets.join(), notNullValue());
+    }
+
+    /**
+     * 时间窗口内的并发查询合并为一次msearch
+     */
+    @Order(90)
+    @Test
+    void coalescedSearch() {
+        try (MultiSearchCoalescer coalescer =
+                new MultiSearchCoalescer(elasticsearchAsyncClient, asyncLimiter, 5, 32)) {
+            List<CompletableFuture<SearchResponse<Sku>>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(coalescer.submit(
+                        SearchRequest.of(s -> s.index(indexName).query(q -> q.matchAll(m -> m))), Sku.class));
+            }
+
+            for (CompletableFuture<SearchResponse<Sku>> future : futures) {
+                assertThat(future.join().hits().hits().size(), is(10));
+            }
+        }
+    }
+
+    /**
+     * 对冲方式发送查询
+     */
+    @Order(95)
+    @Test
+    void hedgedSearch() throws IOException {
+        try (Hedger hedger = new Hedger(true, 0.95, 1, 5, 1.0, asyncLimiter)) {
+            SearchRequest request = SearchRequest.of(s -> s.index(indexName).query(q -> q.matchAll(m -> m)));
+
+            for (int i = 0; i < 20; i++) {
+                SearchResponse<Sku> response =
+                        Futures.join(hedger.execute(() -> elasticsearchAsyncClient.search(request, Sku.class)));
+                assertThat(response.hits().hits().size(), is(10));
+            }
+
+            log.info("requests: {}, hedges: {}, hedge wins: {}",
+                    hedger.getRequestCount(), hedger.getHedgeCount(), hedger.getHedgeWinCount());
+            assertThat(hedger.getRequestCount(), is(20L));
+        }
+    }
+
     private List<Sku> bulkWriteProducts() {
         List<Sku> result = new ArrayList<>();
 
@@ -0,0 +1,141 @@
+package com.wujunshen.elasticsearch;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import com.wujunshen.elasticsearch.reindex.ReindexMode;
+import com.wujunshen.elasticsearch.reindex.ReindexResult;
+import com.wujunshen.elasticsearch.task.TaskProgress;
+import com.wujunshen.entity.product.Spu;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Resource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestClassOrder;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+
+/**
+ * 验证重建索引时的写入设置、设置恢复、别名切换、服务端和客户端两种复制方式，以及客户端复制读取失败时保留别名
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/19 09:30<br>
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestClassOrder(ClassOrderer.OrderAnnotation.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Order(210)
+class ReindexTest extends MockElasticsearchTests {
+    private static final String ALIAS = "mock-products";
+
+    private static final int DOCUMENTS = 120;
+
+    private static final TypeMapping MAPPING =
+            TypeMapping.of(m -> m.properties("productName", p -> p.text(t -> t)));
+
+    @Resource
+    private ElasticsearchClient elasticsearchClient;
+
+    @Resource
+    private IndexApi indexApi;
+
+    @Resource
+    private DocumentApi documentApi;
+
+    @BeforeAll
+    void setUp() throws IOException {
+        // 旧索引是没有别名的普通索引
+        for (long id = 1; id <= DOCUMENTS; id++) {
+            documentApi.addDocument(ALIAS, String.valueOf(id), Spu.builder().id(id).productName("bike " + id).build());
+        }
+        elasticsearchClient.indices().putSettings(p -> p.index(ALIAS)
+                .settings(s -> s.numberOfReplicas("2").refreshInterval(t -> t.time("5s"))));
+    }
+
+    @Order(1)
+    @Test
+    void serverSideFromConcreteIndex() throws IOException {
+        List<TaskProgress> progresses = new ArrayList<>();
+
+        ReindexResult result = indexApi.reindexWithAlias(ALIAS, MAPPING, ReindexMode.SERVER, 2, progresses::add);
+
+        assertThat(result.swapped(), is(true));
+        assertThat(result.sourceIndex(), is(ALIAS));
+        assertThat(result.targetIndex(), is(ALIAS + "_v1"));
+        assertThat(result.documents(), is((long) DOCUMENTS));
+        assertThat(progresses.get(progresses.size() - 1).isCompleted(), is(true));
+        assertThat(indexApi.resolveAlias(ALIAS), is(ALIAS + "_v1"));
+
+        // force merge异步提交，轮询到任务完成后才切换别名
+        assertThat(SERVER.getTaskActions().contains("indices:admin/forcemerge"), is(true));
+
+        // 写入时的副本数0和refresh_interval -1已恢复为旧索引的设置
+        IndexSettings settings = settings(ALIAS + "_v1");
+        assertThat(settings.numberOfReplicas(), is("2"));
+        assertThat(settings.refreshInterval().time(), is("5s"));
+
+        assertThat(documentApi.getDocument(ALIAS, "7", Spu.class).source().getProductName(), is("bike 7"));
+    }
+
+    @Order(2)
+    @Test
+    void clientSideToNextVersion() throws IOException {
+        List<TaskProgress> progresses = new ArrayList<>();
+
+        ReindexResult result = indexApi.reindexWithAlias(ALIAS, MAPPING, ReindexMode.CLIENT, 3, progresses::add);
+
+        assertThat(result.swapped(), is(true));
+        assertThat(result.sourceIndex(), is(ALIAS + "_v1"));
+        assertThat(result.targetIndex(), is(ALIAS + "_v2"));
+        assertThat(result.documents(), is((long) DOCUMENTS));
+        assertThat(progresses.size() > 1, is(true));
+        assertThat(progresses.get(progresses.size() - 1).getCreated(), is((long) DOCUMENTS));
+        assertThat(indexApi.resolveAlias(ALIAS), is(ALIAS + "_v2"));
+        assertThat(settings(ALIAS + "_v2").numberOfReplicas(), is("2"));
+
+        // 默认保留旧索引以便回滚
+        assertThat(indexApi.isExistedIndex(ALIAS + "_v1"), is(true));
+        assertThat(documentApi.getAllDocumentIds(ALIAS, Spu.class).size(), is(DOCUMENTS));
+    }
+
+    @Order(3)
+    @Test
+    void firstVersionWithoutSource() throws IOException {
+        ReindexResult result = indexApi.reindexWithAlias("mock-new-alias", MAPPING, null);
+
+        assertThat(result.swapped(), is(true));
+        assertThat(result.sourceIndex(), nullValue());
+        assertThat(result.documents(), is(0L));
+        assertThat(indexApi.resolveAlias("mock-new-alias"), is("mock-new-alias_v1"));
+    }
+
+    @Order(4)
+    @Test
+    void clientSideShardFailureKeepsAlias() throws IOException {
+        SERVER.setPitShardFailure(true);
+
+        IOException e = assertThrows(IOException.class,
+                () -> indexApi.reindexWithAlias(ALIAS, MAPPING, ReindexMode.CLIENT, 3, null));
+
+        assertThat(e.getMessage().contains("shards failed"), is(true));
+        // 缺少文档的新索引已删除，别名仍指向旧索引
+        assertThat(indexApi.resolveAlias(ALIAS), is(ALIAS + "_v2"));
+        assertThat(indexApi.isExistedIndex(ALIAS + "_v3"), is(false));
+    }
+
+    private IndexSettings settings(String indexName) throws IOException {
+        return elasticsearchClient.indices().getSettings(g -> g.index(indexName))
+                .get(indexName).settings().index();
+    }
+}
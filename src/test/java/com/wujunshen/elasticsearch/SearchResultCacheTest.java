@@ -0,0 +1,152 @@
+package com.wujunshen.elasticsearch;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.wujunshen.elasticsearch.cache.SearchResultCache;
+import com.wujunshen.entity.product.Spu;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.util.List;
+import javax.annotation.Resource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestClassOrder;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+
+/**
+ * 验证QueryApi查询结果缓存的命中、按索引失效和指标
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 20:20<br>
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestClassOrder(ClassOrderer.OrderAnnotation.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Order(160)
+class SearchResultCacheTest extends MockElasticsearchTests {
+    private static final String INDEX_NAME = "mock-cache";
+
+    private static final String OTHER_INDEX_NAME = "mock-cache-other";
+
+    @Resource
+    private DocumentApi documentApi;
+
+    @Resource
+    private IndexApi indexApi;
+
+    @Resource
+    private QueryApi queryApi;
+
+    @Resource
+    private SearchResultCache searchResultCache;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @BeforeAll
+    void setUp() throws IOException {
+        for (long id = 1; id <= 3; id++) {
+            documentApi.addDocument(INDEX_NAME, String.valueOf(id),
+                    Spu.builder().id(id).productName("bike " + id).categoryCode("C-1").build());
+        }
+        documentApi.addDocument(OTHER_INDEX_NAME, "1", Spu.builder().id(1L).productName("car").build());
+    }
+
+    @Order(1)
+    @Test
+    void hit() throws IOException {
+        List<Spu> first = search();
+        long requests = SERVER.getRequestCount();
+        long hits = searchResultCache.stats().hitCount();
+
+        // 修改返回的对象不影响缓存
+        first.get(0).setProductName("changed");
+        List<Spu> second = search();
+
+        assertThat(SERVER.getRequestCount(), is(requests));
+        assertThat(searchResultCache.stats().hitCount(), is(hits + 1));
+        assertThat(second.size(), is(3));
+        assertThat(second.get(0).getProductName().startsWith("bike"), is(true));
+    }
+
+    @Order(2)
+    @Test
+    void invalidateOnWrite() throws IOException {
+        search();
+        queryApi.matchAllQuery(OTHER_INDEX_NAME, "id", 0, 10, false, Spu.class);
+
+        documentApi.addDocument(INDEX_NAME, "4",
+                Spu.builder().id(4L).productName("bike 4").categoryCode("C-1").build());
+        long requests = SERVER.getRequestCount();
+
+        assertThat(search().size(), is(4));
+        assertThat(SERVER.getRequestCount(), is(requests + 1));
+
+        // 其它索引的结果不受影响
+        queryApi.matchAllQuery(OTHER_INDEX_NAME, "id", 0, 10, false, Spu.class);
+        assertThat(SERVER.getRequestCount(), is(requests + 1));
+    }
+
+    @Order(3)
+    @Test
+    void invalidateOnRefresh() throws IOException {
+        search();
+        indexApi.refresh(INDEX_NAME);
+        long requests = SERVER.getRequestCount();
+
+        search();
+
+        assertThat(SERVER.getRequestCount(), is(requests + 1));
+    }
+
+    @Order(4)
+    @Test
+    void evictOldGeneration() throws IOException {
+        search();
+        long size = searchResultCache.size();
+
+        indexApi.refresh(INDEX_NAME);
+
+        // 旧版本号下的条目立即移除，不等淘汰或过期
+        assertThat(searchResultCache.size(), is(size - 1));
+    }
+
+    @Order(5)
+    @Test
+    void invalidateOnFailedWrite() throws IOException {
+        search();
+        SERVER.setErrorRate(1.0);
+        assertThrows(Exception.class, () -> documentApi.addDocument(INDEX_NAME, "5",
+                Spu.builder().id(5L).productName("bike 5").categoryCode("C-1").build()));
+        SERVER.setErrorRate(0);
+        long requests = SERVER.getRequestCount();
+
+        // 写入请求失败时也可能已经生效，之后的查询不能读到旧结果
+        search();
+
+        assertThat(SERVER.getRequestCount(), is(requests + 1));
+    }
+
+    @Order(6)
+    @Test
+    void metrics() {
+        double hits = meterRegistry.get("cache.gets").tags("cache", "elasticsearch.search", "result", "hit")
+                .functionCounter().count();
+        double misses = meterRegistry.get("cache.gets").tags("cache", "elasticsearch.search", "result", "miss")
+                .functionCounter().count();
+
+        assertThat(hits > 0, is(true));
+        assertThat(misses > 0, is(true));
+    }
+
+    private List<Spu> search() throws IOException {
+        return queryApi.termQuery(INDEX_NAME, "C-1", "categoryCode", "id", 0, 10, false, Spu.class);
+    }
+}
@@ -0,0 +1,168 @@
+package com.wujunshen.elasticsearch;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import com.wujunshen.elasticsearch.cache.SearchRequestKey;
+import com.wujunshen.elasticsearch.cache.SearchSingleFlight;
+import com.wujunshen.entity.product.Spu;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import javax.annotation.Resource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestClassOrder;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+
+/**
+ * 验证相同的在途查询只发送一次请求
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 21:20<br>
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestClassOrder(ClassOrderer.OrderAnnotation.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Order(170)
+class SearchSingleFlightTest extends MockElasticsearchTests {
+    private static final String INDEX_NAME = "mock-single-flight";
+
+    private static final int CALLERS = 20;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @Resource
+    private DocumentApi documentApi;
+
+    @Resource
+    private QueryApi queryApi;
+
+    @Resource
+    private SearchSingleFlight searchSingleFlight;
+
+    @BeforeAll
+    void setUp() throws IOException {
+        for (long id = 1; id <= 3; id++) {
+            documentApi.addDocument(INDEX_NAME, String.valueOf(id),
+                    Spu.builder().id(id).productName("bike " + id).categoryCode("C-1").build());
+        }
+    }
+
+    @AfterAll
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Order(1)
+    @Test
+    void identicalSearchesShareOneRequest() throws Exception {
+        SERVER.setLatency(300);
+        long requests = SERVER.getRequestCount();
+        long executed = searchSingleFlight.getExecutedCount();
+        long shared = searchSingleFlight.getSharedCount();
+
+        List<Future<List<Spu>>> results = runConcurrently(i -> "C-1");
+
+        for (Future<List<Spu>> result : results) {
+            assertThat(result.get().size(), is(3));
+        }
+        long sent = searchSingleFlight.getExecutedCount() - executed;
+        assertThat(sent + searchSingleFlight.getSharedCount() - shared, is((long) CALLERS));
+        assertThat(SERVER.getRequestCount() - requests, is(sent));
+        assertThat(sent < CALLERS / 2, is(true));
+    }
+
+    @Order(2)
+    @Test
+    void differentSearchesAreNotShared() throws Exception {
+        SERVER.setLatency(100);
+        long shared = searchSingleFlight.getSharedCount();
+        long requests = SERVER.getRequestCount();
+
+        for (Future<List<Spu>> result : runConcurrently(i -> "D-" + i)) {
+            result.get();
+        }
+
+        assertThat(searchSingleFlight.getSharedCount(), is(shared));
+        assertThat(SERVER.getRequestCount() - requests, is((long) CALLERS));
+    }
+
+    @Order(3)
+    @Test
+    void interruptedWaiterDoesNotCancelOthers() throws Exception {
+        SearchRequestKey key = new SearchRequestKey("/" + INDEX_NAME + "/_search", "{\"interrupt\":true}",
+                Spu.class, List.of(INDEX_NAME));
+        SearchResponse<Spu> response = SearchResponse.of(r -> r
+                .took(1)
+                .timedOut(false)
+                .shards(sh -> sh.total(1).successful(1).failed(0))
+                .hits(h -> h.hits(List.of())));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        long shared = searchSingleFlight.getSharedCount();
+
+        Future<SearchResponse<Spu>> leader = executor.submit(() -> searchSingleFlight.execute(key, () -> {
+            leaderStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            return response;
+        }));
+        leaderStarted.await();
+        int waiters = 5;
+        List<Future<SearchResponse<Spu>>> results = new ArrayList<>();
+        for (int i = 0; i < waiters; i++) {
+            results.add(executor.submit(() -> searchSingleFlight.execute(key, () -> {
+                throw new IllegalStateException("waiter must not send the request");
+            })));
+        }
+        while (searchSingleFlight.getSharedCount() - shared < waiters) {
+            Thread.sleep(5);
+        }
+
+        // 中断一个等待线程后再让发送线程返回
+        results.get(0).cancel(true);
+        Thread.sleep(50);
+        release.countDown();
+
+        assertThat(leader.get(), sameInstance(response));
+        for (Future<SearchResponse<Spu>> result : results.subList(1, waiters)) {
+            assertThat(result.get(), sameInstance(response));
+        }
+        assertThrows(CancellationException.class, () -> results.get(0).get());
+    }
+
+    private List<Future<List<Spu>>> runConcurrently(IntFunction<String> categoryCode) {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Spu>>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            String code = categoryCode.apply(i);
+            results.add(executor.submit(() -> {
+                start.await();
+                return queryApi.termQuery(INDEX_NAME, code, "categoryCode", "id", 0, 10, false, Spu.class);
+            }));
+        }
+        start.countDown();
+        return results;
+    }
+}
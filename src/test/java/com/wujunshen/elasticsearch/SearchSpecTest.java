@@ -0,0 +1,174 @@
+package com.wujunshen.elasticsearch;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.wujunshen.elasticsearch.concurrent.AsyncLimiter;
+import com.wujunshen.elasticsearch.search.MultiSearchCoalescer;
+import com.wujunshen.elasticsearch.search.Projection;
+import com.wujunshen.elasticsearch.search.SearchSpec;
+import com.wujunshen.entity.product.Sku;
+import com.wujunshen.entity.product.Spu;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import javax.annotation.Resource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestClassOrder;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+
+/**
+ * 验证SearchSpec生成的请求以及QueryApi、AsyncQueryApi和MultiSearch按SearchSpec查询
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 18:40<br>
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestClassOrder(ClassOrderer.OrderAnnotation.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Order(140)
+class SearchSpecTest extends MockElasticsearchTests {
+    private static final String INDEX_NAME = "mock-spec";
+
+    private static final String SKU_INDEX_NAME = "mock-spec-sku";
+
+    /**
+     * 复用的查询描述，只有分页不同
+     */
+    private static final SearchSpec SPEC = SearchSpec.builder()
+            .index(INDEX_NAME)
+            .query(Query.of(q -> q.match(m -> m.field("productName").query("bike"))))
+            .filter(Query.of(q -> q.term(t -> t.field("brandCode").value("B-1"))))
+            .sort(SearchSpec.fieldSort("brandCode", false))
+            .sort(SearchSpec.fieldSort("id", true))
+            .trackTotalHits(false)
+            .requestCache(true)
+            .timeout("500ms")
+            .routing("B-1")
+            .preference("_local")
+            .projection(Projection.includes("productName"))
+            .build();
+
+    @Resource
+    private DocumentApi documentApi;
+
+    @Resource
+    private QueryApi queryApi;
+
+    @Resource
+    private AsyncQueryApi asyncQueryApi;
+
+    @Resource
+    private ElasticsearchAsyncClient elasticsearchAsyncClient;
+
+    @Resource
+    private AsyncLimiter asyncLimiter;
+
+    @BeforeAll
+    void setUp() throws IOException {
+        for (long id = 1; id <= 5; id++) {
+            documentApi.addDocument(INDEX_NAME, String.valueOf(id),
+                    Spu.builder().id(id).productName("bike " + id).brandCode("B-1").build());
+            documentApi.addDocument(SKU_INDEX_NAME, String.valueOf(id),
+                    Sku.builder().id(id).skuName("wheel " + id).skuPrice((int) id * 10).build());
+        }
+    }
+
+    @Order(1)
+    @Test
+    void request() throws IOException {
+        List<Spu> spus = queryApi.search(SPEC.page(0, 2), Spu.class);
+
+        assertThat(spus.size(), is(2));
+        assertThat(spus.get(0).getBrandCode() == null, is(true));
+
+        JsonNode body = SERVER.getLastSearchRequest();
+        assertThat(body.at("/query/bool/must/0/match/productName/query").asText(), is("bike"));
+        assertThat(body.at("/query/bool/filter/0/term/brandCode/value").asText(), is("B-1"));
+        assertThat(body.at("/sort/0/brandCode/order").asText(), is("asc"));
+        assertThat(body.at("/sort/1/id/order").asText(), is("desc"));
+        assertThat(body.at("/track_total_hits").asBoolean(true), is(false));
+        assertThat(body.at("/_source/includes/0").asText(), is("productName"));
+        assertThat(body.at("/size").asInt(), is(2));
+        assertThat(body.at("/timeout").asText(), is("500ms"));
+
+        String query = SERVER.getLastRequestUri().getQuery();
+        assertThat(query, containsString("request_cache=true"));
+        assertThat(query, containsString("routing=B-1"));
+        assertThat(query, containsString("preference=_local"));
+    }
+
+    @Order(2)
+    @Test
+    void reuse() {
+        SearchSpec second = SPEC.page(10, 20);
+
+        assertThat(SPEC.getFrom() == null, is(true));
+        assertThat(second.getFrom(), is(10));
+        assertThat(second.getFilters(), is(SPEC.getFilters()));
+    }
+
+    @Order(3)
+    @Test
+    void asyncAndMultiSearch() throws IOException {
+        SearchSpec idsOnly = SPEC.toBuilder().projection(Projection.idsOnly("id")).build().page(0, 3);
+
+        assertThat(asyncQueryApi.search(idsOnly, Spu.class).join().size(), is(3));
+
+        MultiSearch multiSearch = queryApi.newMultiSearch();
+        CompletableFuture<List<Spu>> first = multiSearch.search(SPEC.page(0, 1), Spu.class);
+        CompletableFuture<List<Spu>> second = multiSearch.search(idsOnly, Spu.class);
+        multiSearch.execute();
+
+        assertThat(first.join().size(), is(1));
+        assertThat(second.join().get(0).getId() != null, is(true));
+    }
+
+    /**
+     * 同一次msearch中各子请求的文档按各自的class反序列化
+     */
+    @Order(4)
+    @Test
+    void mixedDocumentClasses() throws IOException {
+        MultiSearch multiSearch = queryApi.newMultiSearch();
+        CompletableFuture<SearchResponse<Spu>> spus = multiSearch.add(matchAll(INDEX_NAME), Spu.class);
+        CompletableFuture<SearchResponse<Sku>> skus = multiSearch.add(matchAll(SKU_INDEX_NAME), Sku.class);
+        multiSearch.execute();
+
+        assertThat(spus.join().hits().hits().get(0).source().getProductName().startsWith("bike"), is(true));
+        assertThat(skus.join().hits().hits().get(0).source().getSkuName().startsWith("wheel"), is(true));
+
+        // 合并窗口内不同文档类型的查询合并为一次msearch
+        try (MultiSearchCoalescer coalescer =
+                new MultiSearchCoalescer(elasticsearchAsyncClient, asyncLimiter, 50, 32)) {
+            CompletableFuture<SearchResponse<Spu>> coalescedSpus = coalescer.submit(matchAll(INDEX_NAME), Spu.class);
+            CompletableFuture<SearchResponse<Sku>> coalescedSkus =
+                    coalescer.submit(matchAll(SKU_INDEX_NAME), Sku.class);
+
+            for (Hit<Spu> hit : coalescedSpus.join().hits().hits()) {
+                assertThat(hit.source().getProductName().startsWith("bike"), is(true));
+            }
+            for (Hit<Sku> hit : coalescedSkus.join().hits().hits()) {
+                assertThat(hit.source().getSkuPrice() > 0, is(true));
+            }
+            assertThat(coalescedSkus.join().hits().hits().size(), is(5));
+        }
+    }
+
+    private static SearchRequest matchAll(String indexName) {
+        return SearchRequest.of(s -> s.index(indexName).query(q -> q.matchAll(m -> m)));
+    }
+}
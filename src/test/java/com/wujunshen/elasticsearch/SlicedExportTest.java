@@ -0,0 +1,123 @@
+package com.wujunshen.elasticsearch;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import com.wujunshen.elasticsearch.export.ExportResult;
+import com.wujunshen.entity.product.Spu;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Resource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestClassOrder;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+
+/**
+ * 验证sliced point-in-time并行导出不重不漏、sink失败或分片失败时停止，以及point-in-time的关闭
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 23:40<br>
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestClassOrder(ClassOrderer.OrderAnnotation.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Order(200)
+class SlicedExportTest extends MockElasticsearchTests {
+    private static final String INDEX_NAME = "mock-export";
+
+    private static final int DOCUMENTS = 1000;
+
+    @Resource
+    private DocumentApi documentApi;
+
+    @BeforeAll
+    void setUp() throws IOException {
+        List<Spu> spus = new ArrayList<>();
+        for (long id = 1; id <= DOCUMENTS; id++) {
+            spus.add(Spu.builder().id(id).productName("bike " + id).build());
+        }
+        documentApi.batchAddDocument(INDEX_NAME, spus);
+    }
+
+    @Order(1)
+    @Test
+    void exportAllSlices() throws IOException {
+        Set<String> ids = new HashSet<>();
+        Set<Long> spuIds = new HashSet<>();
+
+        ExportResult result = documentApi.exportAllDocument(INDEX_NAME, Spu.class, hit -> {
+            ids.add(hit.id());
+            spuIds.add(hit.source().getId());
+        });
+
+        assertThat(result.documents(), is((long) DOCUMENTS));
+        assertThat(result.slices(), is(4));
+        assertThat(result.docsPerSecond() > 0, is(true));
+        assertThat(ids.size(), is(DOCUMENTS));
+        assertThat(spuIds.size(), is(DOCUMENTS));
+        assertThat(SERVER.getOpenPitCount(), is(0));
+    }
+
+    @Order(2)
+    @Test
+    void exportSingleSlice() throws IOException {
+        List<Hit<Spu>> hits = new ArrayList<>();
+
+        ExportResult result = documentApi.exportAllDocument(INDEX_NAME, null, 1, Spu.class, hits::add);
+
+        assertThat(result.documents(), is((long) DOCUMENTS));
+        assertThat(hits.size(), is(DOCUMENTS));
+        assertThat(SERVER.getLastSearchRequest().has("slice"), is(false));
+    }
+
+    @Order(3)
+    @Test
+    void sinkFailureStopsExport() {
+        int[] accepted = {0};
+
+        IOException e = assertThrows(IOException.class,
+                () -> documentApi.exportAllDocument(INDEX_NAME, Spu.class, hit -> {
+                    if (++accepted[0] > 100) {
+                        throw new IOException("disk full");
+                    }
+                }));
+
+        assertThat(e.getMessage(), is("disk full"));
+        assertThat(SERVER.getOpenPitCount(), is(0));
+    }
+
+    @Order(4)
+    @Test
+    void shardFailureFailsIteration() {
+        SERVER.setPitShardFailure(true);
+
+        IOException e = assertThrows(IOException.class, () -> documentApi.getAllDocumentIds(INDEX_NAME, Spu.class));
+
+        assertThat(e.getMessage().contains("1 of 2 shards failed"), is(true));
+        assertThat(SERVER.getOpenPitCount(), is(0));
+    }
+
+    @Order(5)
+    @Test
+    void shardFailureFailsExport() {
+        SERVER.setPitShardFailure(true);
+
+        IOException e = assertThrows(IOException.class,
+                () -> documentApi.exportAllDocument(INDEX_NAME, Spu.class, hit -> {
+                }));
+
+        assertThat(e.getMessage().contains("1 of 2 shards failed"), is(true));
+        assertThat(SERVER.getOpenPitCount(), is(0));
+    }
+}
@@ -0,0 +1,119 @@
+package com.wujunshen.elasticsearch;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import com.wujunshen.entity.product.Sku;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import java.io.IOException;
+import java.util.List;
+import javax.annotation.Resource;
+import org.elasticsearch.client.ResponseException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestClassOrder;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+
+/**
+ * 用内存中的span导出器验证es请求的链路追踪
+ *
+ * @author frank woo(吴峻申) <br>
+ * email:<a href="mailto:frank_wjs@hotmail.com">frank_wjs@hotmail.com</a> <br>
+ * @date 2026/10/18 14:30<br>
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestClassOrder(ClassOrderer.OrderAnnotation.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Order(110)
+class TracingTest extends MockElasticsearchTests {
+    private static final String INDEX_NAME = "mock-tracing";
+
+    @Resource
+    private ElasticsearchClient elasticsearchClient;
+
+    @Resource
+    private DocumentApi documentApi;
+
+    @Resource
+    private QueryApi queryApi;
+
+    @Resource
+    private OpenTelemetry openTelemetry;
+
+    @BeforeEach
+    void setUp() {
+        SERVER.reset();
+        SPAN_EXPORTER.reset();
+    }
+
+    @Order(1)
+    @Test
+    void searchSpan() throws IOException {
+        documentApi.addDocument(INDEX_NAME, "1", Sku.builder().id(1L).skuName("mock sku").build());
+        SPAN_EXPORTER.reset();
+
+        List<Query> queries = List.of(
+                Query.of(q -> q.match(m -> m.field("skuName").query("mock"))),
+                Query.of(q -> q.term(t -> t.field("color").value("red"))));
+        Span parent = openTelemetry.getTracer("test").spanBuilder("user request").startSpan();
+        try (Scope ignored = parent.makeCurrent()) {
+            queryApi.boolQuery(INDEX_NAME, queries, "id", 0, 10, false, Sku.class);
+        } finally {
+            parent.end();
+        }
+
+        SpanData span = clientSpan("search");
+        assertThat(span.getName(), is("search " + INDEX_NAME));
+        assertThat(span.getKind(), is(SpanKind.CLIENT));
+        assertThat(span.getParentSpanId(), is(parent.getSpanContext().getSpanId()));
+        assertThat(span.getAttributes().get(AttributeKey.stringKey("db.elasticsearch.index")), is(INDEX_NAME));
+        assertThat(span.getAttributes().get(AttributeKey.stringKey("elasticsearch.query.type")), is("bool"));
+        assertThat(span.getAttributes().get(AttributeKey.stringKey("elasticsearch.query.shape")),
+                is("bool(must:[match,term])"));
+        assertThat(span.getAttributes().get(AttributeKey.longKey("elasticsearch.hits.total")), is(1L));
+        assertThat(span.getAttributes().get(AttributeKey.longKey("elasticsearch.took")), is(0L));
+        assertThat(span.getAttributes().get(AttributeKey.longKey("http.response_content_length")), greaterThan(0L));
+
+        // 服务端收到的请求头与span对应
+        String traceId = span.getSpanContext().getTraceId();
+        assertThat(SERVER.getLastRequestHeaders().getFirst("traceparent"),
+                is("00-" + traceId + "-" + span.getSpanContext().getSpanId() + "-01"));
+        assertThat(SERVER.getLastRequestHeaders().getFirst("X-Opaque-Id"), is(traceId));
+    }
+
+    @Order(2)
+    @Test
+    void errorSpan() {
+        SERVER.setErrorRate(1.0);
+
+        // 直接用客户端读取，DocumentApi.getDocument会经过近端缓存和mget合并
+        assertThrows(ResponseException.class,
+                () -> elasticsearchClient.get(g -> g.index(INDEX_NAME).id("1"), Sku.class));
+
+        SpanData span = clientSpan("get");
+        assertThat(span.getStatus().getStatusCode(), is(StatusCode.ERROR));
+        assertThat(span.getAttributes().get(AttributeKey.longKey("http.status_code")), is(500L));
+        assertThat(span.getEvents().get(0).getName(), is("exception"));
+    }
+
+    private static SpanData clientSpan(String operation) {
+        return SPAN_EXPORTER.getFinishedSpanItems().stream()
+                .filter(span -> operation.equals(span.getAttributes().get(AttributeKey.stringKey("db.operation"))))
+                .findFirst()
+                .orElseThrow();
+    }
+}